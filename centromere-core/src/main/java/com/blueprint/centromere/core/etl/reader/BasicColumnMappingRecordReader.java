@@ -18,6 +18,8 @@ package com.blueprint.centromere.core.etl.reader;
 
 import com.blueprint.centromere.core.etl.DataImportException;
 import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
 import com.blueprint.centromere.core.model.ModelSupport;
 import java.io.File;
 import java.io.IOException;
@@ -26,14 +28,15 @@ import java.util.HashMap;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.BeanUtils;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.support.DefaultConversionService;
 
 /**
  * Generic {@link RecordReader} implementation that will use data file column headers to try to map
- *   column values to {@link Model} fields.  Uses Spring's {@link org.springframework.beans.BeanWrapper}
- *   and {@link ConversionService} to handle the text string-to-object conversion.
+ *   column values to {@link Model} fields.  Uses Spring's {@link ConversionService} to handle the
+ *   text string-to-object conversion, and the cached {@link ModelMetadata} setters to populate
+ *   records.
  * 
  * @author woemler
  * @since 0.4.3
@@ -108,16 +111,11 @@ public class BasicColumnMappingRecordReader<T extends Model<?>>
 	private void determineMappableModelFields()  {
 		fieldNameMap = new HashMap<>();
 		fieldTypeMap = new HashMap<>();
-		Class<?> current = model;
-		while (current.getSuperclass() != null){
-			for (Field field: current.getDeclaredFields()){
-				String fieldName = field.getName();
-				fieldTypeMap.put(fieldName, field.getType());
-				fieldNameMap.put(fieldName, fieldName);
-			}
-			current = current.getSuperclass();
+		for (Field field: ModelMetadataRegistry.getMetadata(model).getFields()){
+			String fieldName = field.getName();
+			fieldTypeMap.put(fieldName, field.getType());
+			fieldNameMap.put(fieldName, fieldName);
 		}
-		
 	}
 
 	/**
@@ -165,10 +163,10 @@ public class BasicColumnMappingRecordReader<T extends Model<?>>
 	 * @param line line from the file
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	protected T getRecordFromLine(String line) throws DataImportException {
 		
-	  BeanWrapperImpl wrapper = new BeanWrapperImpl(model);
+	  T record = BeanUtils.instantiateClass(model);
+	  ModelMetadata<T> metadata = ModelMetadataRegistry.getMetadata(model);
 		String[] bits = line.split(delimiter);
 		
 		for (int i = 0; i < bits.length; i++){
@@ -179,14 +177,14 @@ public class BasicColumnMappingRecordReader<T extends Model<?>>
 			Class<?> type = fieldTypeMap.get(fieldName);
 			
 			if (bits[i].trim().equals("")){
-				wrapper.setPropertyValue(fieldName, null);
+				if (!type.isPrimitive()) metadata.setPropertyValue(record, fieldName, null);
 			} else {
-				wrapper.setPropertyValue(fieldName, convertFieldValue(bits[i].trim(), type));
+				metadata.setPropertyValue(record, fieldName, convertFieldValue(bits[i].trim(), type));
 			}
 			
 		}
 		
-		return (T) wrapper.getWrappedInstance();
+		return record;
 	}
 
 	/**
@@ -18,6 +18,8 @@ package com.blueprint.centromere.core.etl.writer;
 
 import com.blueprint.centromere.core.etl.DataImportException;
 import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
 import com.blueprint.centromere.core.model.ModelReflectionUtils;
 import com.blueprint.centromere.core.model.ModelSupport;
 import java.io.File;
@@ -26,8 +28,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.BeanWrapperImpl;
 
 /**
  * Writes records to a character-delimited text file.  Can be used for file reformatting or temp file
@@ -88,10 +88,10 @@ public class DelimtedTextFileWriter<T extends Model<?>>
     }
     
     stringBuilder = new StringBuilder();
-    BeanWrapper wrapper = new BeanWrapperImpl(record);
+    ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(record.getClass());
     boolean flag = false;
     for (String column: fields){
-      Object value = wrapper.getPropertyValue(column);
+      Object value = metadata.getPropertyValue(record, column);
       if (value == null){
         value = "null";
       } else if (!"".equals(enclosedBy) && value instanceof String) {
@@ -89,13 +89,7 @@ public class RepositoryRecordWriter<T extends Model<ID>, ID extends Serializable
     } else if (writeMode.equals(WriteMode.UPDATE)){
 	    repository.update(records);
     } else {
-      for (T record: records){
-        if (record.getId() != null && repository.existsById(record.getId())){
-          repository.update(record);
-        } else {
-          repository.insert(record);
-        }
-      }
+      repository.upsert(records);
     }
   }
 
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a database index spanning multiple fields of a {@link Model} class.  Field order is
+ *   significant: only queries on a leading subset of the fields are supported by the index.  A 
+ *   field name prefixed with {@code -} is indexed in descending order.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Repeatable(CompoundIndexes.class)
+public @interface CompoundIndex {
+
+  /**
+   * Ordered names of the model fields to index, eg. {@code {"sampleId", "-value"}}.
+   *
+   * @return field names
+   */
+  String[] fields();
+
+  /**
+   * Optional name for the index.  Defaults to a name generated by the data store.
+   *
+   * @return index name
+   */
+  String name() default "";
+
+  /**
+   * If true, the index will enforce uniqueness of the combined field values.
+   *
+   * @return unique flag
+   */
+  boolean unique() default false;
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Data-store-agnostic description of a database index declared on a {@link Model} class, via
+ *   {@link Indexed}, {@link CompoundIndex}, or {@link Linked} annotations.  Index keys are stored 
+ *   in order, mapped to a sort direction of {@code 1} (ascending) or {@code -1} (descending).
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class IndexDescriptor {
+
+  private final String name;
+  private final LinkedHashMap<String, Integer> keys;
+  private final boolean unique;
+  private final boolean sparse;
+
+  public IndexDescriptor(String name, LinkedHashMap<String, Integer> keys, boolean unique, 
+      boolean sparse) {
+    this.name = name == null || "".equals(name) ? null : name;
+    this.keys = keys;
+    this.unique = unique;
+    this.sparse = sparse;
+  }
+
+  /**
+   * Creates a descriptor for an ascending, non-unique, single-field index.
+   *
+   * @param field field name
+   * @return index descriptor
+   */
+  public static IndexDescriptor singleField(String field){
+    LinkedHashMap<String, Integer> keys = new LinkedHashMap<>();
+    keys.put(field, 1);
+    return new IndexDescriptor(null, keys, false, false);
+  }
+
+  /**
+   * Tests whether the index can support a query on the given field, which requires the field to
+   *   be the leading key of the index.
+   *
+   * @param field field name
+   * @return true if the field is the index prefix
+   */
+  public boolean supports(String field){
+    return !keys.isEmpty() && keys.keySet().iterator().next().equals(field);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Map<String, Integer> getKeys() {
+    return Collections.unmodifiableMap(keys);
+  }
+
+  public boolean isUnique() {
+    return unique;
+  }
+
+  public boolean isSparse() {
+    return sparse;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof IndexDescriptor)) return false;
+    IndexDescriptor that = (IndexDescriptor) o;
+    return unique == that.unique && sparse == that.sparse 
+        && new ArrayList<>(keys.entrySet()).equals(new ArrayList<>(that.keys.entrySet()));
+  }
+
+  @Override
+  public int hashCode() {
+    return keys.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "IndexDescriptor{" +
+        "name='" + name + '\'' +
+        ", keys=" + keys +
+        ", unique=" + unique +
+        ", sparse=" + sparse +
+        '}';
+  }
+  
+}
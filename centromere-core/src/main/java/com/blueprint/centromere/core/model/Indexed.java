@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link Model} field as requiring a single-field database index.  When the annotated
+ *   field is a collection or array, the index is created as a multikey index, with one entry per
+ *   element.  Fields annotated with {@link Linked} are indexed by default, and do not require this
+ *   annotation.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Indexed {
+
+  /**
+   * Optional name for the index.  Defaults to a name generated by the data store.
+   *
+   * @return index name
+   */
+  String name() default "";
+
+  /**
+   * If true, the index will enforce uniqueness of the field value.
+   *
+   * @return unique flag
+   */
+  boolean unique() default false;
+
+  /**
+   * If true, the index will only reference records that have a value for the field.
+   *
+   * @return sparse flag
+   */
+  boolean sparse() default false;
+
+  /**
+   * If true, the index is sorted in descending order.
+   *
+   * @return descending flag
+   */
+  boolean descending() default false;
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Map;
+
+/**
+ * Marks a {@link Model} {@link Map} field, such as a free-form attribute map, to be stored as an 
+ *   array of key/value pairs rather than as a nested object.  A map entry {@code isKinase: "Y"} 
+ *   is stored as {@code {k: "isKinase", v: "Y"}}, so that a single compound index on the pairs' 
+ *   keys and values can serve criteria against any entry, such as {@code attributes.isKinase=Y}, 
+ *   instead of a collection scan per key.  Records are still read and returned in their map form.
+ *   This layout is opt-in, and only applies to repositories that support it.  Criteria against 
+ *   map entries only match records stored in this layout, so records saved before the annotation
+ *   was added must be converted, which the MongoDB index manager does at startup when index 
+ *   creation and document migration are enabled, or otherwise saved again.  Sorting on individual
+ *   map entries is not supported for fields with this layout.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface KeyValuePairs {
+
+  /**
+   * Name of the key field of each stored pair.
+   */
+  String KEY_FIELD = "k";
+
+  /**
+   * Name of the value field of each stored pair.
+   */
+  String VALUE_FIELD = "v";
+
+  /**
+   * If true, a compound database index will be created on the pairs' keys and values.
+   *
+   * @return index flag
+   */
+  boolean indexed() default true;
+
+}
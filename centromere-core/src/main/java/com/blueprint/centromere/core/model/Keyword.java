@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link Model} field, or collection field, whose values are searchable keywords for 
+ *   {@link com.blueprint.centromere.core.repository.impl.GuessOperations}, such as gene symbols 
+ *   and aliases.  Values are matched ignoring case.  When a keyword matches more than one field, 
+ *   the field declared first ranks highest.  See 
+ *   {@link com.blueprint.centromere.core.repository.guess.KeywordIndex}.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Keyword {
+}
@@ -48,5 +48,13 @@ public @interface Linked {
   String field() default "id";
 
   String rel() default "";
-  
+
+  /**
+   * If true, the annotated field will have a database index created for it, since linked fields
+   *   are the most common targets of relationship queries.
+   *
+   * @return index flag
+   */
+  boolean indexed() default true;
+
 }
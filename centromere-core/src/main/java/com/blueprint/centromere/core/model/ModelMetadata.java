@@ -0,0 +1,418 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.model;
+
+import com.blueprint.centromere.core.repository.QueryParameterDescriptor;
+import com.blueprint.centromere.core.repository.QueryParameterUtil;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.FatalBeanException;
+import org.springframework.beans.NotReadablePropertyException;
+import org.springframework.beans.NotWritablePropertyException;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Reflected description of a {@link Model} class: its persistable fields, in declaration order
+ *   starting with the model class and working up through its superclasses, its {@link Linked}
+ *   relationships, its available query parameters, and {@link MethodHandle} based accessors for
+ *   its bean properties.  Instances are immutable and are created once per class by
+ *   {@link ModelMetadataRegistry}, so that per-request and per-record code paths do not need to
+ *   walk the class hierarchy or create {@link org.springframework.beans.BeanWrapper} instances.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class ModelMetadata<T> {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE
+      = MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final Class<T> type;
+  private final List<Field> fields;
+  private final List<String> fieldNames;
+  private final List<Field> linkedFields;
+  private final List<Field> normalizedFields;
+  private final List<Field> keywordFields;
+  private final List<Field> keyValuePairFields;
+  private final Map<String, ModelProperty> properties;
+  private volatile Map<String, QueryParameterDescriptor> queryParameters;
+
+  ModelMetadata(Class<T> type) {
+    this.type = type;
+    List<Field> fields = new ArrayList<>();
+    List<String> fieldNames = new ArrayList<>();
+    List<Field> linkedFields = new ArrayList<>();
+    List<Field> normalizedFields = new ArrayList<>();
+    List<Field> keywordFields = new ArrayList<>();
+    List<Field> keyValuePairFields = new ArrayList<>();
+    Class<?> current = type;
+    while (current != null && current.getSuperclass() != null){
+      for (Field field: current.getDeclaredFields()){
+        if (field.isSynthetic() || Modifier.isStatic(field.getModifiers())) continue;
+        fields.add(field);
+        fieldNames.add(field.getName());
+        if (field.isAnnotationPresent(Linked.class)) linkedFields.add(field);
+        if (field.isAnnotationPresent(Normalized.class)) normalizedFields.add(field);
+        if (field.isAnnotationPresent(Keyword.class)) keywordFields.add(field);
+        if (field.isAnnotationPresent(KeyValuePairs.class)) keyValuePairFields.add(field);
+      }
+      current = current.getSuperclass();
+    }
+    this.fields = Collections.unmodifiableList(fields);
+    this.fieldNames = Collections.unmodifiableList(fieldNames);
+    this.linkedFields = Collections.unmodifiableList(linkedFields);
+    this.normalizedFields = Collections.unmodifiableList(normalizedFields);
+    this.keywordFields = Collections.unmodifiableList(keywordFields);
+    this.keyValuePairFields = Collections.unmodifiableList(keyValuePairFields);
+    Map<String, ModelProperty> properties = new LinkedHashMap<>();
+    for (PropertyDescriptor descriptor: BeanUtils.getPropertyDescriptors(type)){
+      if ("class".equals(descriptor.getName())) continue;
+      properties.put(descriptor.getName(), new ModelProperty(type, descriptor, getField(descriptor.getName())));
+    }
+    this.properties = Collections.unmodifiableMap(properties);
+  }
+
+  /**
+   * Returns the inspected class.
+   *
+   * @return model type
+   */
+  public Class<T> getType() {
+    return type;
+  }
+
+  /**
+   * Returns all non-static, non-synthetic fields of the model, starting with those declared on
+   *   the model class itself.
+   *
+   * @return ordered list of fields
+   */
+  public List<Field> getFields() {
+    return fields;
+  }
+
+  /**
+   * Returns the names of all fields returned by {@link #getFields()}, in the same order.
+   *
+   * @return ordered list of field names
+   */
+  public List<String> getFieldNames() {
+    return fieldNames;
+  }
+
+  /**
+   * Returns the field with the given name, or null if the model has no such field.
+   *
+   * @param name field name
+   * @return field or null
+   */
+  public Field getField(String name){
+    for (Field field: fields){
+      if (field.getName().equals(name)) return field;
+    }
+    return null;
+  }
+
+  /**
+   * Returns all fields annotated with {@link Linked}.
+   *
+   * @return list of linked fields
+   */
+  public List<Field> getLinkedFields() {
+    return linkedFields;
+  }
+
+  /**
+   * Returns the {@link Linked} fields whose relationship name matches the submitted name,
+   *   ignoring case.
+   *
+   * @param rel relationship name
+   * @return list of linked fields
+   */
+  public List<Field> getLinkedFields(String rel){
+    List<Field> list = new ArrayList<>();
+    for (Field field: linkedFields){
+      if (rel.equalsIgnoreCase(field.getAnnotation(Linked.class).rel())) list.add(field);
+    }
+    return list;
+  }
+
+  /**
+   * Returns all fields annotated with {@link Normalized}.
+   *
+   * @return list of normalized fields
+   */
+  public List<Field> getNormalizedFields() {
+    return normalizedFields;
+  }
+
+  /**
+   * Returns the {@link Normalized} annotation of the named field, or null if the field is not
+   *   normalized.
+   *
+   * @param name field name
+   * @return annotation or null
+   */
+  public Normalized getNormalized(String name){
+    for (Field field: normalizedFields){
+      if (field.getName().equals(name)) return field.getAnnotation(Normalized.class);
+    }
+    return null;
+  }
+
+  /**
+   * Returns all fields annotated with {@link Keyword}, in declaration order, starting with the
+   *   model class itself.
+   *
+   * @return list of keyword fields
+   */
+  public List<Field> getKeywordFields() {
+    return keywordFields;
+  }
+
+  /**
+   * Returns all fields annotated with {@link KeyValuePairs}.
+   *
+   * @return list of key/value pair fields
+   */
+  public List<Field> getKeyValuePairFields() {
+    return keyValuePairFields;
+  }
+
+  /**
+   * Returns the name of the {@link KeyValuePairs} field and the map key referenced by a property 
+   *   path, such as {@code attributes.isKinase}, or null if the path does not refer to an entry
+   *   of such a field.
+   *
+   * @param path property path
+   * @return two-element array of field name and map key, or null
+   */
+  public String[] getKeyValuePairPath(String path){
+    int index = path.indexOf('.');
+    if (index < 0 || keyValuePairFields.isEmpty()) return null;
+    String name = path.substring(0, index);
+    for (Field field: keyValuePairFields){
+      if (field.getName().equals(name)) return new String[]{ name, path.substring(index + 1) };
+    }
+    return null;
+  }
+
+  /**
+   * Returns the query parameters available for the model.  See
+   *   {@link QueryParameterUtil#getAvailableQueryParameters(Class)}.  Descriptors are created on
+   *   first request, since only {@link Model} classes are queried.
+   *
+   * @return unmodifiable map of parameter names and descriptors
+   */
+  public Map<String, QueryParameterDescriptor> getQueryParameters(){
+    Map<String, QueryParameterDescriptor> parameters = queryParameters;
+    if (parameters == null){
+      parameters = Collections.unmodifiableMap(
+          QueryParameterUtil.createQueryParameterDescriptors(type, fields));
+      queryParameters = parameters;
+    }
+    return parameters;
+  }
+
+  /**
+   * Returns the bean properties of the model, keyed by property name.
+   *
+   * @return unmodifiable map of properties
+   */
+  public Map<String, ModelProperty> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Returns the named bean property, or null if the model has no such property.
+   *
+   * @param name property name
+   * @return property or null
+   */
+  public ModelProperty getProperty(String name){
+    return properties.get(name);
+  }
+
+  /**
+   * Tests whether the property path can be read from instances of the model.  Nested paths are
+   *   separated by periods, and a path segment following a {@link Map} property is treated as a
+   *   map key.
+   *
+   * @param path property path
+   * @return true if the path is readable
+   */
+  public boolean isReadableProperty(String path){
+    int index = path.indexOf('.');
+    ModelProperty property = properties.get(index < 0 ? path : path.substring(0, index));
+    if (property == null || !property.isReadable()) return false;
+    if (index < 0) return true;
+    Class<?> propertyType = property.getType();
+    if (Map.class.isAssignableFrom(propertyType)) return true;
+    if (BeanUtils.isSimpleValueType(propertyType) || propertyType.isArray()
+        || Collection.class.isAssignableFrom(propertyType)) return false;
+    return ModelMetadataRegistry.getMetadata(propertyType)
+        .isReadableProperty(path.substring(index + 1));
+  }
+
+  /**
+   * Reads the property path from the submitted record.  See {@link #isReadableProperty(String)}.
+   *   Null values part-way through a nested path yield a null result.
+   *
+   * @param record instance of the model
+   * @param path property path
+   * @return property value
+   * @throws NotReadablePropertyException if the path does not exist
+   */
+  public Object getPropertyValue(Object record, String path){
+    int index = path.indexOf('.');
+    ModelProperty property = properties.get(index < 0 ? path : path.substring(0, index));
+    if (property == null || !property.isReadable()){
+      throw new NotReadablePropertyException(type, path);
+    }
+    Object value = property.getValue(record);
+    if (index < 0 || value == null) return value;
+    String remainder = path.substring(index + 1);
+    if (value instanceof Map) return ((Map<?, ?>) value).get(remainder);
+    return ModelMetadataRegistry.getMetadata(value.getClass()).getPropertyValue(value, remainder);
+  }
+
+  /**
+   * Reads the value of one of the model's fields from the submitted record, using the property 
+   *   getter of the same name if there is one, and direct field access otherwise.
+   *
+   * @param record instance of the model
+   * @param field field returned by {@link #getFields()}
+   * @return field value
+   */
+  public Object getFieldValue(Object record, Field field){
+    ModelProperty property = properties.get(field.getName());
+    if (property != null && property.isReadable()) return property.getValue(record);
+    ReflectionUtils.makeAccessible(field);
+    return ReflectionUtils.getField(field, record);
+  }
+
+  /**
+   * Sets a property value on the submitted record.  No type conversion is performed.
+   *
+   * @param record instance of the model
+   * @param name property name
+   * @param value new value
+   * @throws NotWritablePropertyException if the property does not exist or has no setter
+   */
+  public void setPropertyValue(Object record, String name, Object value){
+    ModelProperty property = properties.get(name);
+    if (property == null || !property.isWritable()){
+      throw new NotWritablePropertyException(type, name);
+    }
+    property.setValue(record, value);
+  }
+
+  /**
+   * A single bean property, with accessors compiled into {@link MethodHandle} instances.
+   */
+  public static final class ModelProperty {
+
+    private final Class<?> owner;
+    private final String name;
+    private final Class<?> type;
+    private final Field field;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    private ModelProperty(Class<?> owner, PropertyDescriptor descriptor, Field field) {
+      this.owner = owner;
+      this.name = descriptor.getName();
+      this.type = descriptor.getPropertyType();
+      this.field = field;
+      this.getter = unreflect(descriptor.getReadMethod(), GETTER_TYPE);
+      this.setter = unreflect(descriptor.getWriteMethod(), SETTER_TYPE);
+    }
+
+    private MethodHandle unreflect(Method method, MethodType methodType){
+      if (method == null) return null;
+      try {
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method).asType(methodType);
+      } catch (IllegalAccessException | SecurityException e){
+        throw new FatalBeanException(String.format("Unable to access property %s of %s",
+            name, owner.getName()), e);
+      }
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Class<?> getType() {
+      return type;
+    }
+
+    /**
+     * Returns the field backing the property, if one with the same name exists.
+     *
+     * @return field or null
+     */
+    public Field getField() {
+      return field;
+    }
+
+    public boolean isReadable() {
+      return getter != null;
+    }
+
+    public boolean isWritable() {
+      return setter != null;
+    }
+
+    public Object getValue(Object record){
+      try {
+        return (Object) getter.invokeExact(record);
+      } catch (RuntimeException | Error e){
+        throw e;
+      } catch (Throwable t){
+        throw new FatalBeanException(String.format("Unable to read property %s of %s",
+            name, owner.getName()), t);
+      }
+    }
+
+    public void setValue(Object record, Object value){
+      try {
+        setter.invokeExact(record, value);
+      } catch (RuntimeException | Error e){
+        throw e;
+      } catch (Throwable t){
+        throw new FatalBeanException(String.format("Unable to write property %s of %s",
+            name, owner.getName()), t);
+      }
+    }
+
+  }
+
+}
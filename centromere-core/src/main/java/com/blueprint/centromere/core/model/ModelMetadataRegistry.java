@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of {@link ModelMetadata}, created once per class.  Registered {@link Model} classes are
+ *   inspected when the repository registry is initialized, via {@link #register(Class)}; any
+ *   other class is inspected the first time it is requested.  Because the cache is keyed with
+ *   {@link ClassValue}, it does not prevent model classes from being unloaded.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class ModelMetadataRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger(ModelMetadataRegistry.class);
+
+  private static final ClassValue<ModelMetadata<?>> METADATA = new ClassValue<ModelMetadata<?>>() {
+    @Override
+    protected ModelMetadata<?> computeValue(Class<?> type) {
+      return new ModelMetadata<>(type);
+    }
+  };
+
+  /**
+   * Returns the metadata for the requested class, inspecting it if this is the first request.
+   *
+   * @param type class to inspect
+   * @param <T> class type
+   * @return metadata for the class
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> ModelMetadata<T> getMetadata(Class<T> type){
+    return (ModelMetadata<T>) METADATA.get(type);
+  }
+
+  /**
+   * Inspects a {@link Model} class ahead of its first use, including its query parameters.
+   *
+   * @param model model class
+   * @param <T> model type
+   * @return metadata for the model
+   */
+  public static <T extends Model<?>> ModelMetadata<T> register(Class<T> model){
+    ModelMetadata<T> metadata = getMetadata(model);
+    metadata.getQueryParameters();
+    logger.debug(String.format("Registered metadata for model %s: fields=%s",
+        model.getName(), metadata.getFieldNames()));
+    return metadata;
+  }
+
+  /**
+   * Reads a property path from the submitted object.  See
+   *   {@link ModelMetadata#getPropertyValue(Object, String)}.
+   *
+   * @param record object to read
+   * @param path property path
+   * @return property value
+   */
+  public static Object getPropertyValue(Object record, String path){
+    return getMetadata(record.getClass()).getPropertyValue(record, path);
+  }
+
+}
@@ -18,7 +18,10 @@ package com.blueprint.centromere.core.model;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import org.springframework.beans.BeanWrapper;
 
 /**
@@ -62,13 +65,9 @@ public class ModelReflectionUtils {
    */
   public static List<String> getPersistableNonEntityFieldNames(Class<?> model, List<String> ignoredFields){
     List<String> columns = new ArrayList<>();
-    Class<?> currentClass = model;
-    while (currentClass.getSuperclass() != null){
-      for (Field field : currentClass.getDeclaredFields()) {
-        if (ModelReflectionUtils.isPersistableNonEntityField(field, ignoredFields)) continue; // skip these fields
-        columns.add(field.getName());
-      }
-      currentClass = currentClass.getSuperclass();
+    for (Field field : ModelMetadataRegistry.getMetadata(model).getFields()) {
+      if (ModelReflectionUtils.isPersistableNonEntityField(field, ignoredFields)) continue; // skip these fields
+      columns.add(field.getName());
     }
     return columns;
   }
@@ -91,15 +90,7 @@ public class ModelReflectionUtils {
    * @return list of fields with annotations
    */
   public static List<Field> getLinkedModelFields(Class<?> model){
-    List<Field> fields = new ArrayList<>();
-    Class<?> currentClass = model;
-    while (currentClass.getSuperclass() != null){
-      for (Field field: currentClass.getDeclaredFields()){
-        if (field.isAnnotationPresent(Linked.class)) fields.add(field);
-      }
-      currentClass = currentClass.getSuperclass();
-    }
-    return fields;
+    return ModelMetadataRegistry.getMetadata(model).getLinkedFields();
   }
 
   /**
@@ -111,18 +102,60 @@ public class ModelReflectionUtils {
    * @return list of annotation instances
    */
   public static List<Field> getLinkedAnnotationsFromRelName(Class<?> model, String rel){
-    List<Field> list = new ArrayList<>();
-    for (Field field: getLinkedModelFields(model)){
-      if (field.isAnnotationPresent(Linked.class)){
-        Linked linked = field.getAnnotation(Linked.class);
-        if (rel.toLowerCase().equals(linked.rel().toLowerCase())){
-          list.add(field);  
+    return ModelMetadataRegistry.getMetadata(model).getLinkedFields(rel);
+  }
+
+  /**
+   * Returns all of the database indexes declared on a {@link Model} class, using {@link Indexed}
+   *   and {@link Linked} field annotations and {@link CompoundIndex} class annotations.  Fields
+   *   annotated with {@link Normalized} get indexes on their shadow copies, and fields annotated 
+   *   with {@link KeyValuePairs} get a compound index on their pairs' keys and values.  Duplicate 
+   *   declarations are collapsed.
+   *
+   * @param model model to inspect
+   * @return list of index descriptors
+   */
+  public static List<IndexDescriptor> getIndexDescriptors(Class<?> model){
+    Set<IndexDescriptor> indexes = new LinkedHashSet<>();
+    for (Field field: ModelMetadataRegistry.getMetadata(model).getFields()){
+      if (field.isAnnotationPresent(Indexed.class)){
+        Indexed indexed = field.getAnnotation(Indexed.class);
+        LinkedHashMap<String, Integer> keys = new LinkedHashMap<>();
+        keys.put(field.getName(), indexed.descending() ? -1 : 1);
+        indexes.add(new IndexDescriptor(indexed.name(), keys, indexed.unique(), indexed.sparse()));
+      } else if (field.isAnnotationPresent(Linked.class)
+          && field.getAnnotation(Linked.class).indexed()){
+        indexes.add(IndexDescriptor.singleField(field.getName()));
+      }
+      if (field.isAnnotationPresent(Normalized.class) 
+          && field.getAnnotation(Normalized.class).indexed()){
+        indexes.add(IndexDescriptor.singleField(
+            NormalizedFieldUtils.getNormalizedFieldName(field.getName())));
+        if (field.getAnnotation(Normalized.class).reversed()){
+          indexes.add(IndexDescriptor.singleField(
+              NormalizedFieldUtils.getReversedFieldName(field.getName())));
+        }
+      }
+      if (field.isAnnotationPresent(KeyValuePairs.class) 
+          && field.getAnnotation(KeyValuePairs.class).indexed()){
+        LinkedHashMap<String, Integer> keys = new LinkedHashMap<>();
+        keys.put(field.getName() + "." + KeyValuePairs.KEY_FIELD, 1);
+        keys.put(field.getName() + "." + KeyValuePairs.VALUE_FIELD, 1);
+        indexes.add(new IndexDescriptor(null, keys, false, false));
+      }
+    }
+    for (CompoundIndex compoundIndex: model.getAnnotationsByType(CompoundIndex.class)){
+      LinkedHashMap<String, Integer> keys = new LinkedHashMap<>();
+      for (String field: compoundIndex.fields()){
+        if (field.startsWith("-")) {
+          keys.put(field.substring(1), -1);
+        } else {
+          keys.put(field, 1);
         }
       }
+      indexes.add(new IndexDescriptor(compoundIndex.name(), keys, compoundIndex.unique(), false));
     }
-    return list;
+    return new ArrayList<>(indexes);
   }
-  
-  
 
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link Model} string field, or collection of strings, for case-insensitive text 
+ *   matching.  {@code LIKE} criteria with literal values, {@code STARTS_WITH}, and 
+ *   {@code ENDS_WITH} criteria against the field ignore case.  Repositories that support it keep
+ *   normalized shadow copies of the field, lowercased and optionally reversed, so that these
+ *   criteria become anchored prefix scans of an index, rather than case-insensitive regular
+ *   expressions evaluated against every record.  See {@link NormalizedFieldUtils}.  Records saved
+ *   before the annotation was added must be saved again to populate their shadow copies.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Normalized {
+
+  /**
+   * If true, a reversed copy of the normalized value is also kept, so that {@code ENDS_WITH}
+   *   criteria can be served as prefix scans.
+   *
+   * @return reversed flag
+   */
+  boolean reversed() default true;
+
+  /**
+   * If true, database indexes will be created for the normalized shadow fields.
+   *
+   * @return index flag
+   */
+  boolean indexed() default true;
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Naming and value conventions for the shadow copies of {@link Normalized} fields.  The lowercased
+ *   copy of field {@code symbol} is stored as {@code _normalized.symbol}, and its reversed copy as
+ *   {@code _reversed.symbol}.  Collection fields are stored as lists of normalized members, and
+ *   non-string values are omitted.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class NormalizedFieldUtils {
+
+  public static final String NORMALIZED_FIELD = "_normalized";
+  public static final String REVERSED_FIELD = "_reversed";
+
+  /**
+   * Returns the name of the lowercased shadow copy of a field.
+   *
+   * @param field model field name
+   * @return shadow field name
+   */
+  public static String getNormalizedFieldName(String field){
+    return NORMALIZED_FIELD + "." + field;
+  }
+
+  /**
+   * Returns the name of the reversed, lowercased shadow copy of a field.
+   *
+   * @param field model field name
+   * @return shadow field name
+   */
+  public static String getReversedFieldName(String field){
+    return REVERSED_FIELD + "." + field;
+  }
+
+  /**
+   * Lowercases a string, independently of the default locale.
+   *
+   * @param value string value
+   * @return normalized value
+   */
+  public static String normalize(String value){
+    return value.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Lowercases and reverses a string.
+   *
+   * @param value string value
+   * @return normalized, reversed value
+   */
+  public static String reverse(String value){
+    return new StringBuilder(normalize(value)).reverse().toString();
+  }
+
+  /**
+   * Returns the shadow value of a field value: the normalized string, a list of normalized strings
+   *   for collections, or null if the value holds no strings.
+   *
+   * @param value field value
+   * @param reversed whether to reverse the normalized strings
+   * @return shadow value
+   */
+  public static Object getShadowValue(Object value, boolean reversed){
+    if (value instanceof String){
+      return reversed ? reverse((String) value) : normalize((String) value);
+    } else if (value instanceof Collection){
+      List<String> values = new ArrayList<>();
+      for (Object member: (Collection<?>) value){
+        if (member instanceof String){
+          values.add(reversed ? reverse((String) member) : normalize((String) member));
+        }
+      }
+      return values;
+    }
+    return null;
+  }
+
+}
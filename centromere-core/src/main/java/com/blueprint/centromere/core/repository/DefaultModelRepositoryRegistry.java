@@ -19,11 +19,14 @@ package com.blueprint.centromere.core.repository;
 import com.blueprint.centromere.core.exceptions.ConfigurationException;
 import com.blueprint.centromere.core.exceptions.ModelRegistryException;
 import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,7 +35,12 @@ import org.springframework.context.ApplicationContext;
 /**
  * Creates a registry of {@link ModelRepository} instances that have the {@link ModelResource} annotation,
  *   and creates a map of {@link Model} classes to repositories, and model URIs to repositories.
- *   This allows lookup of repository classes by model or by HTTP request URL.
+ *   This allows lookup of repository classes by model or by HTTP request URL.  If any
+ *   {@link ModelRepositoryDecorator} instances are supplied, the registry serves the decorated 
+ *   repositories, with the decorators applied in order, so that the first one wraps the original
+ *   repository.  Lookups by model type are resolved once per requested type and cached, and the
+ *   {@link com.blueprint.centromere.core.model.ModelMetadata} of every registered model is created
+ *   at startup.
  * 
  * @author woemler
  */
@@ -41,15 +49,30 @@ public class DefaultModelRepositoryRegistry implements ModelRepositoryRegistry {
   private static final Logger logger = LoggerFactory.getLogger(DefaultModelRepositoryRegistry.class);
 
   private final ApplicationContext context;
+  private final List<ModelRepositoryDecorator> decorators;
   private Map<Class<? extends Model<?>>, ModelRepository<?,?>> repositoryTypeMap = new HashMap<>();
+  private final Map<Class<?>, List<ModelRepository<?,?>>> assignableRepositoryMap 
+      = new ConcurrentHashMap<>();
 
   public DefaultModelRepositoryRegistry(ApplicationContext context) {
+    this(context, Collections.<ModelRepositoryDecorator>emptyList());
+  }
+
+  public DefaultModelRepositoryRegistry(ApplicationContext context, ModelRepositoryDecorator decorator) {
+    this(context, decorator == null 
+        ? Collections.emptyList() : Collections.singletonList(decorator));
+  }
+
+  public DefaultModelRepositoryRegistry(ApplicationContext context, 
+      List<ModelRepositoryDecorator> decorators) {
     this.context = context;
+    this.decorators = decorators == null ? Collections.emptyList() : decorators;
   }
 
   @PostConstruct
   public void afterPropertiesSet() throws ConfigurationException{
     for (Map.Entry<String, Object> entry: context.getBeansWithAnnotation(ModelResource.class).entrySet()){
+      if (!(entry.getValue() instanceof ModelRepository)) continue; // eg. reactive repositories
       Class<?> type = entry.getValue().getClass();
       ModelRepository repository = (ModelRepository) entry.getValue();
       Class<? extends Model<?>> model = repository.getModel();
@@ -57,27 +80,46 @@ public class DefaultModelRepositoryRegistry implements ModelRepositoryRegistry {
       if (repositoryTypeMap.containsKey(model)) throw new ModelRegistryException(String.format(
           "Duplicate model registered for repository %s.  Does more than one repository have the "
               + "same model?", model.getName()));
+      for (ModelRepositoryDecorator decorator: decorators){
+        repository = decorator.decorate(repository);
+      }
       repositoryTypeMap.put(model, repository);
+      ModelMetadataRegistry.register(model);
       logger.debug(String.format("Registered repository %s for model %s",
           type.getName(), model.getName()));
     }
+    assignableRepositoryMap.clear();
+    for (Class<? extends Model<?>> model: repositoryTypeMap.keySet()){
+      getAssignableRepositories(model);
+    }
+  }
+
+  /**
+   * Returns the registered repositories whose models are the requested type or one of its 
+   *   subclasses.  The result is computed once per requested type.
+   * 
+   * @param model model type or supertype
+   * @return matching repositories
+   */
+  private List<ModelRepository<?,?>> getAssignableRepositories(Class<?> model){
+    return assignableRepositoryMap.computeIfAbsent(model, m -> {
+      List<ModelRepository<?,?>> repositories = new ArrayList<>();
+      for (Map.Entry<Class<? extends Model<?>>, ModelRepository<?,?>> entry: repositoryTypeMap.entrySet()){
+        if (m.isAssignableFrom(entry.getKey())) repositories.add(entry.getValue());
+      }
+      return Collections.unmodifiableList(repositories);
+    });
   }
 
   @Override
   public boolean isRegisteredModel(Class<?> model) {
-    for (Class<?> type: repositoryTypeMap.keySet()){
-      if (model.isAssignableFrom(type)) return true;
-    }
-    return false;
+    return !getAssignableRepositories(model).isEmpty();
   }
 
   @Override
   public ModelRepository getRepositoryByModel(Class<? extends Model<?>> model)
       throws ModelRegistryException{
-    List<ModelRepository> repositories = new ArrayList<>();
-    for (Map.Entry<Class<? extends Model<?>>, ModelRepository<?,?>> entry: repositoryTypeMap.entrySet()){
-      if (model.isAssignableFrom(entry.getKey())) repositories.add(entry.getValue());
-    }
+    List<ModelRepository<?,?>> repositories = getAssignableRepositories(model);
     if (repositories.size() > 1) throw new ModelRegistryException(String.format("Type %s matches "
         + "more than one registered repository.  Is this a superclass with multiple model "
         + "subclasses?", model.getName()));
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+import com.blueprint.centromere.core.exceptions.ConfigurationException;
+import com.blueprint.centromere.core.exceptions.ModelRegistryException;
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Creates a registry of all {@link ReactiveModelRepository} beans, mapped by {@link Model} class 
+ *   and by resource URI.  The URI is taken from the {@link ModelResource} annotation of the 
+ *   repository, if present, and otherwise is the lower-case simple name of the model.  If a
+ *   {@link ModelRepositoryRegistry} is supplied, every blocking repository annotated with 
+ *   {@link ModelResource} whose model has no reactive repository is registered as well, wrapped
+ *   in a {@link ReactiveModelRepositoryAdapter}.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class DefaultReactiveModelRepositoryRegistry implements ReactiveModelRepositoryRegistry {
+
+  private static final Logger logger 
+      = LoggerFactory.getLogger(DefaultReactiveModelRepositoryRegistry.class);
+
+  private final ApplicationContext context;
+  private final ModelRepositoryRegistry blockingRegistry;
+  private final Map<Class<? extends Model<?>>, ReactiveModelRepository<?, ?>> repositoryTypeMap 
+      = new HashMap<>();
+  private final Map<String, ReactiveModelRepository<?, ?>> uriMap = new HashMap<>();
+  private final Map<Class<?>, List<ReactiveModelRepository<?, ?>>> assignableRepositoryMap
+      = new ConcurrentHashMap<>();
+
+  public DefaultReactiveModelRepositoryRegistry(ApplicationContext context) {
+    this(context, null);
+  }
+
+  public DefaultReactiveModelRepositoryRegistry(ApplicationContext context,
+      ModelRepositoryRegistry blockingRegistry) {
+    this.context = context;
+    this.blockingRegistry = blockingRegistry;
+  }
+
+  @PostConstruct
+  @SuppressWarnings("unchecked")
+  public void afterPropertiesSet() throws ConfigurationException {
+    for (Map.Entry<String, ReactiveModelRepository> entry
+        : context.getBeansOfType(ReactiveModelRepository.class).entrySet()){
+      register(entry.getKey(), entry.getValue());
+    }
+    if (blockingRegistry != null){
+      for (Map.Entry<String, Object> entry
+          : context.getBeansWithAnnotation(ModelResource.class).entrySet()){
+        if (!(entry.getValue() instanceof ModelRepository)) continue;
+        Class<? extends Model<?>> model = ((ModelRepository<?, ?>) entry.getValue()).getModel();
+        if (repositoryTypeMap.containsKey(model)) continue;
+        ModelRepository repository = blockingRegistry.getRepositoryByModel(model);
+        if (repository == null) repository = (ModelRepository) entry.getValue();
+        register(entry.getKey(), new ReactiveModelRepositoryAdapter(repository));
+      }
+    }
+  }
+
+  private void register(String beanName, ReactiveModelRepository<?, ?> repository)
+      throws ModelRegistryException {
+    Class<? extends Model<?>> model = repository.getModel();
+    String uri = model.getSimpleName().toLowerCase();
+    ModelResource annotation = context.findAnnotationOnBean(beanName, ModelResource.class);
+    if (annotation != null){
+      if (!annotation.name().trim().equals("")){
+        uri = annotation.name().toLowerCase();
+      } else if (!annotation.value().trim().equals("")){
+        uri = annotation.value().toLowerCase();
+      }
+    }
+    if (repositoryTypeMap.containsKey(model)) throw new ModelRegistryException(String.format(
+        "Duplicate model registered for reactive repository %s.  Does more than one repository "
+            + "have the same model?", model.getName()));
+    if (uriMap.containsKey(uri)) throw new ModelRegistryException(String.format("Duplicate URI "
+        + "registered for %s.  Does another model class have the same URI?", uri));
+    repositoryTypeMap.put(model, repository);
+    uriMap.put(uri, repository);
+    assignableRepositoryMap.clear();
+    ModelMetadataRegistry.register(model);
+    logger.debug(String.format("Registered reactive repository %s for model %s with URI %s",
+        repository.getClass().getName(), model.getName(), uri));
+  }
+
+  /**
+   * Returns the registered repositories whose models are the requested type or one of its 
+   *   subclasses.  The result is computed once per requested type.
+   */
+  private List<ReactiveModelRepository<?, ?>> getAssignableRepositories(Class<?> model){
+    return assignableRepositoryMap.computeIfAbsent(model, m -> {
+      List<ReactiveModelRepository<?, ?>> repositories = new ArrayList<>();
+      for (Map.Entry<Class<? extends Model<?>>, ReactiveModelRepository<?, ?>> entry
+          : repositoryTypeMap.entrySet()){
+        if (m.isAssignableFrom(entry.getKey())) repositories.add(entry.getValue());
+      }
+      return Collections.unmodifiableList(repositories);
+    });
+  }
+
+  @Override
+  public boolean isRegisteredModel(Class<?> model) {
+    return !getAssignableRepositories(model).isEmpty();
+  }
+
+  @Override
+  public ReactiveModelRepository<?, ?> getRepositoryByModel(Class<? extends Model<?>> model)
+      throws ModelRegistryException {
+    List<ReactiveModelRepository<?, ?>> repositories = getAssignableRepositories(model);
+    if (repositories.size() > 1) throw new ModelRegistryException(String.format("Type %s matches "
+        + "more than one registered repository.  Is this a superclass with multiple model "
+        + "subclasses?", model.getName()));
+    return repositories.size() > 0 ? repositories.get(0) : null;
+  }
+
+  @Override
+  public ReactiveModelRepository<?, ?> getRepositoryByUri(String uri) {
+    return uri == null ? null : uriMap.get(uri.toLowerCase());
+  }
+
+  @Override
+  public Collection<String> getRegisteredUris() {
+    return uriMap.keySet();
+  }
+
+  @Override
+  public Collection<Class<? extends Model<?>>> getRegisteredModels() {
+    return repositoryTypeMap.keySet();
+  }
+
+}
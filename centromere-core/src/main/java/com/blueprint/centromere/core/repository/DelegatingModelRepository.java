@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+import com.blueprint.centromere.core.model.Model;
+import java.io.Serializable;
+
+/**
+ * {@link ModelRepository} that wraps another repository, such as those created by a 
+ *   {@link ModelRepositoryDecorator}.  Capabilities implemented by the original repository bean,
+ *   but not by its decorators, can be found with {@link #unwrap(ModelRepository, Class)}.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public interface DelegatingModelRepository<T extends Model<ID>, ID extends Serializable> 
+    extends ModelRepository<T, ID> {
+
+  /**
+   * Returns the wrapped repository.
+   */
+  ModelRepository<T, ID> getDelegate();
+
+  /**
+   * Returns the first repository in the delegation chain, starting with {@code repository} 
+   *   itself, that is an instance of the requested type.
+   *
+   * @param repository repository, possibly decorated
+   * @param type requested repository type
+   * @param <R> requested repository type
+   * @return the matching repository, or null if no repository in the chain matches.
+   */
+  static <R> R unwrap(ModelRepository<?, ?> repository, Class<R> type){
+    while (repository != null){
+      if (type.isInstance(repository)) return type.cast(repository);
+      if (!(repository instanceof DelegatingModelRepository)) break;
+      repository = ((DelegatingModelRepository<?, ?>) repository).getDelegate();
+    }
+    return null;
+  }
+
+}
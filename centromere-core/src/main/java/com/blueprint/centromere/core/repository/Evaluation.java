@@ -43,7 +43,9 @@ public enum Evaluation {
   IS_NULL,
   NOT_NULL,
   IS_TRUE,
-  IS_FALSE
+  IS_FALSE,
+  AND,
+  OR
   ;
 
   public static final String EQUALS_SUFFIX = "Equals";
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Faceted summary of the records that satisfy a query, as returned by 
+ *   {@link ModelRepository#facets(List, Iterable, int)}: the total number of matching records, 
+ *   and for each requested field, its distinct values and the number of matching records 
+ *   containing each value.  Each field's values are ordered by descending count, then by 
+ *   ascending value.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class FacetCounts {
+
+  /**
+   * Order of the value counts of each facet.
+   */
+  public static final Sort FACET_SORT = new Sort(Sort.Direction.DESC, ValueCount.COUNT_PROPERTY);
+
+  private long count;
+  private Map<String, List<ValueCount>> facets = new LinkedHashMap<>();
+
+  public FacetCounts() { }
+
+  public FacetCounts(long count, Map<String, List<ValueCount>> facets) {
+    this.count = count;
+    this.facets = facets;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public Map<String, List<ValueCount>> getFacets() {
+    return facets;
+  }
+
+  public void setFacets(Map<String, List<ValueCount>> facets) {
+    this.facets = facets;
+  }
+
+  /**
+   * Returns the value counts of a single field, or an empty list if the field was not requested.
+   *
+   * @param field model field name
+   * @return value counts of the field
+   */
+  public List<ValueCount> getFacet(String field){
+    return facets.getOrDefault(field, Collections.emptyList());
+  }
+
+  /**
+   * Sorts value counts in {@link #FACET_SORT} order, and keeps only the first {@code limit} of 
+   *   them, if {@code limit} is positive.
+   *
+   * @param valueCounts value counts of a single field
+   * @param limit maximum number of values, or zero for all values
+   * @return sorted value counts
+   */
+  public static List<ValueCount> top(Collection<ValueCount> valueCounts, int limit){
+    Stream<ValueCount> stream = valueCounts.stream().sorted(ValueCount.comparator(FACET_SORT));
+    if (limit > 0) stream = stream.limit(limit);
+    return stream.collect(Collectors.toList());
+  }
+
+  @Override
+  public String toString() {
+    return "FacetCounts{" +
+        "count=" + count +
+        ", facets=" + facets +
+        '}';
+  }
+
+}
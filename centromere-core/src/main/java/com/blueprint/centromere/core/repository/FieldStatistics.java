@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary statistics of a numeric field over the records that satisfy a query, as returned by
+ *   {@link ModelRepository#statistics(String, String, Iterable, List)}: the number of records
+ *   with a value, the minimum, maximum and mean values, the sample standard deviation, and the 
+ *   requested percentiles.  If the statistics were grouped, {@link #getKey()} holds the value of
+ *   the grouping field shared by the summarized records.
+ *
+ * Percentiles are reported using the nearest-rank method: the {@code p}th percentile of 
+ *   {@code n} sorted values is the value at the zero-based position 
+ *   {@code round(p / 100 * (n - 1))}.  Implementations may approximate them.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class FieldStatistics {
+
+  /**
+   * Percentiles reported when none are requested.
+   */
+  public static final List<Double> DEFAULT_PERCENTILES 
+      = Collections.unmodifiableList(Arrays.asList(25.0, 50.0, 75.0));
+
+  private Object key;
+  private long count;
+  private Double min;
+  private Double max;
+  private Double mean;
+  private Double standardDeviation;
+  private Map<String, Double> percentiles = new LinkedHashMap<>();
+
+  public FieldStatistics() { }
+
+  public FieldStatistics(Object key, long count, Double min, Double max, Double mean,
+      Double standardDeviation, Map<String, Double> percentiles) {
+    this.key = key;
+    this.count = count;
+    this.min = min;
+    this.max = max;
+    this.mean = mean;
+    this.standardDeviation = standardDeviation;
+    this.percentiles = percentiles;
+  }
+
+  /**
+   * Computes the statistics of a list of values.  The standard deviation is accumulated with 
+   *   Welford's method, which avoids the loss of precision of subtracting the squared sum from 
+   *   the sum of squares.
+   *
+   * @param key grouping field value, or null
+   * @param values values, sorted in ascending order
+   * @param percentiles percentiles to report, between 0 and 100
+   * @return statistics of the values
+   */
+  public static FieldStatistics of(Object key, List<Double> values, List<Double> percentiles){
+    long count = values.size();
+    double sum = 0.0;
+    double runningMean = 0.0;
+    double squaredDeviations = 0.0;
+    long n = 0L;
+    for (Double value: values){
+      sum += value;
+      double deviation = value - runningMean;
+      runningMean += deviation / ++n;
+      squaredDeviations += deviation * (value - runningMean);
+    }
+    Map<String, Double> percentileValues = new LinkedHashMap<>();
+    if (count > 0){
+      for (Double percentile: percentiles){
+        percentileValues.put(getPercentileName(percentile), 
+            values.get(getPercentileRank(percentile, count)));
+      }
+    }
+    return new FieldStatistics(key, count, 
+        count > 0 ? values.get(0) : null, 
+        count > 0 ? values.get(values.size() - 1) : null,
+        count > 0 ? sum / count : null, 
+        count > 1 ? Math.sqrt(squaredDeviations / (count - 1)) : null, 
+        percentileValues);
+  }
+
+  /**
+   * Returns the statistics of an empty set of values.
+   *
+   * @param key grouping field value, or null
+   * @return statistics with a count of zero
+   */
+  public static FieldStatistics empty(Object key){
+    return new FieldStatistics(key, 0L, null, null, null, null, new LinkedHashMap<>());
+  }
+
+  /**
+   * Returns the zero-based position of a percentile in a sorted list of {@code count} values.
+   *
+   * @param percentile percentile, between 0 and 100
+   * @param count number of values
+   * @return position of the percentile value
+   */
+  public static int getPercentileRank(double percentile, long count){
+    return (int) Math.round(percentile / 100.0 * (count - 1));
+  }
+
+  /**
+   * Returns the name under which a percentile is reported, eg. {@code 50} or {@code 97.5}.
+   *
+   * @param percentile percentile, between 0 and 100
+   * @return percentile name
+   */
+  public static String getPercentileName(double percentile){
+    return percentile == Math.rint(percentile) 
+        ? String.valueOf((long) percentile) : String.valueOf(percentile);
+  }
+
+  public Object getKey() {
+    return key;
+  }
+
+  public void setKey(Object key) {
+    this.key = key;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public Double getMin() {
+    return min;
+  }
+
+  public void setMin(Double min) {
+    this.min = min;
+  }
+
+  public Double getMax() {
+    return max;
+  }
+
+  public void setMax(Double max) {
+    this.max = max;
+  }
+
+  public Double getMean() {
+    return mean;
+  }
+
+  public void setMean(Double mean) {
+    this.mean = mean;
+  }
+
+  public Double getStandardDeviation() {
+    return standardDeviation;
+  }
+
+  public void setStandardDeviation(Double standardDeviation) {
+    this.standardDeviation = standardDeviation;
+  }
+
+  public Map<String, Double> getPercentiles() {
+    return percentiles;
+  }
+
+  public void setPercentiles(Map<String, Double> percentiles) {
+    this.percentiles = percentiles;
+  }
+
+  /**
+   * Returns the value of a reported percentile, or null if it was not requested.
+   *
+   * @param percentile percentile, between 0 and 100
+   * @return percentile value
+   */
+  public Double getPercentile(double percentile){
+    return percentiles.get(getPercentileName(percentile));
+  }
+
+  @Override
+  public String toString() {
+    return "FieldStatistics{" +
+        "key=" + key +
+        ", count=" + count +
+        ", min=" + min +
+        ", max=" + max +
+        ", mean=" + mean +
+        ", standardDeviation=" + standardDeviation +
+        ", percentiles=" + percentiles +
+        '}';
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+/**
+ * Describes how records are accumulated for each group produced by
+ *   {@link ModelRepository#groupBy(String, Iterable, GroupAccumulator)}.  Groups always report the
+ *   number of matching records, and may optionally carry a capped sample of the records themselves.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class GroupAccumulator {
+
+  private final int maxRecords;
+
+  private GroupAccumulator(int maxRecords) {
+    if (maxRecords < 0) throw new IllegalArgumentException("Maximum record count must not be negative.");
+    this.maxRecords = maxRecords;
+  }
+
+  /**
+   * Returns an accumulator that only counts the records in each group.
+   */
+  public static GroupAccumulator count(){
+    return new GroupAccumulator(0);
+  }
+
+  /**
+   * Returns an accumulator that counts the records in each group, and includes up to
+   *   {@code maxRecords} of the records themselves.
+   *
+   * @param maxRecords maximum number of records to include per group.
+   */
+  public static GroupAccumulator sample(int maxRecords){
+    return new GroupAccumulator(maxRecords);
+  }
+
+  public int getMaxRecords() {
+    return maxRecords;
+  }
+
+  public boolean isSampling() {
+    return maxRecords > 0;
+  }
+
+  @Override
+  public String toString() {
+    return "GroupAccumulator{" +
+        "maxRecords=" + maxRecords +
+        '}';
+  }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Position in an ordered result set, used for keyset (seek) pagination with
+ *   {@link ModelRepository#findAfter(Iterable, KeysetCursor, Sort, int)}.  A cursor holds the 
+ *   values of each sort property, plus the record ID, of the last record returned, so that the 
+ *   next page can resume immediately after it without skipping over all preceding records.  
+ *   Cursors are exchanged with clients as opaque, URL-safe strings, via {@link #encode()} and 
+ *   {@link #decode(String)}.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class KeysetCursor {
+
+  /**
+   * Name of the model property used to break ties between records with equal sort values.
+   */
+  public static final String ID_PROPERTY = "id";
+
+  private static final String ENTRY_DELIMITER = ",";
+  private static final String FIELD_DELIMITER = "~";
+
+  private final List<Sort.Order> orders;
+  private final List<Object> values;
+
+  public KeysetCursor(List<Sort.Order> orders, List<Object> values) {
+    if (orders.size() != values.size()){
+      throw new IllegalArgumentException("Keyset cursor must have one value per sort order.");
+    }
+    this.orders = Collections.unmodifiableList(new ArrayList<>(orders));
+    this.values = Collections.unmodifiableList(new ArrayList<>(values));
+  }
+
+  /**
+   * Creates a cursor positioned after the submitted record.
+   *
+   * @param record last record of the current page
+   * @param sort keyset sort, as returned by {@link #getKeysetSort(Sort)}
+   * @return cursor for the following page
+   */
+  public static KeysetCursor of(Object record, Sort sort){
+    ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(record.getClass());
+    List<Sort.Order> orders = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    for (Sort.Order order: sort){
+      orders.add(order);
+      values.add(metadata.getPropertyValue(record, order.getProperty()));
+    }
+    return new KeysetCursor(orders, values);
+  }
+
+  /**
+   * Returns the sort used for keyset pagination, which is the requested sort with the record ID
+   *   appended, so that every record has a unique position.
+   *
+   * @param sort requested sort, may be {@code null}
+   * @return sort with ID tiebreaker
+   */
+  public static Sort getKeysetSort(Sort sort){
+    if (sort == null || sort.isUnsorted()) return Sort.by(Sort.Direction.ASC, ID_PROPERTY);
+    if (sort.getOrderFor(ID_PROPERTY) != null) return sort;
+    return sort.and(Sort.by(Sort.Direction.ASC, ID_PROPERTY));
+  }
+
+  /**
+   * Returns the fields to include in a projection, with the ID and sort properties added, so that
+   *   the projected records can still be ordered and used to create cursors.  An empty or 
+   *   {@code null} field set, which includes every field, is returned unchanged.
+   *
+   * @param fields requested fields, may be {@code null}
+   * @param sort keyset sort, may be {@code null}
+   * @return fields with the keyset properties included
+   */
+  public static Set<String> getKeysetFields(Set<String> fields, Sort sort){
+    if (fields == null || fields.isEmpty()) return fields;
+    Set<String> keysetFields = new LinkedHashSet<>(fields);
+    keysetFields.add(ID_PROPERTY);
+    if (sort != null) sort.forEach(order -> keysetFields.add(order.getProperty()));
+    return keysetFields;
+  }
+
+  /**
+   * Returns the fields to exclude from a projection, with the ID and sort properties removed.
+   *
+   * @param exclude requested exclusions, may be {@code null}
+   * @param sort keyset sort, may be {@code null}
+   * @return exclusions without the keyset properties
+   */
+  public static Set<String> getKeysetExclusions(Set<String> exclude, Sort sort){
+    if (exclude == null || exclude.isEmpty()) return exclude;
+    Set<String> keysetExclusions = new LinkedHashSet<>(exclude);
+    keysetExclusions.remove(ID_PROPERTY);
+    if (sort != null) sort.forEach(order -> keysetExclusions.remove(order.getProperty()));
+    return keysetExclusions;
+  }
+
+  /**
+   * Checks that the cursor was created with the submitted keyset sort.
+   *
+   * @param sort keyset sort, as returned by {@link #getKeysetSort(Sort)}
+   * @throws IllegalArgumentException if the sort properties or directions differ
+   */
+  public void validate(Sort sort){
+    List<Sort.Order> expected = new ArrayList<>();
+    sort.forEach(expected::add);
+    if (expected.size() != orders.size()){
+      throw new IllegalArgumentException("Keyset cursor does not match the requested sort.");
+    }
+    for (int i = 0; i < orders.size(); i++){
+      if (!orders.get(i).getProperty().equals(expected.get(i).getProperty()) 
+          || orders.get(i).getDirection() != expected.get(i).getDirection()){
+        throw new IllegalArgumentException("Keyset cursor does not match the requested sort.");
+      }
+    }
+  }
+
+  /**
+   * Tests whether the submitted record comes after this cursor's position, in the cursor's order.
+   *
+   * @param record record to test
+   * @return true if the record follows the cursor
+   */
+  public boolean precedes(Object record){
+    ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(record.getClass());
+    for (int i = 0; i < orders.size(); i++){
+      Sort.Order order = orders.get(i);
+      int c = ValueCount.compareValues(metadata.getPropertyValue(record, order.getProperty()), 
+          values.get(i));
+      if (c != 0) return order.isAscending() ? c > 0 : c < 0;
+    }
+    return false;
+  }
+
+  /**
+   * Serializes the cursor into an opaque, URL-safe string.
+   *
+   * @return encoded cursor
+   */
+  public String encode(){
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    List<String> entries = new ArrayList<>();
+    for (int i = 0; i < orders.size(); i++){
+      Object value = values.get(i);
+      String tag;
+      String raw;
+      if (value == null){
+        tag = "n";
+        raw = "";
+      } else if (value instanceof Integer){
+        tag = "i";
+        raw = value.toString();
+      } else if (value instanceof Long){
+        tag = "l";
+        raw = value.toString();
+      } else if (value instanceof Double || value instanceof Float){
+        tag = "d";
+        raw = value.toString();
+      } else if (value instanceof Boolean){
+        tag = "b";
+        raw = value.toString();
+      } else if (value instanceof Date){
+        tag = "t";
+        raw = Long.toString(((Date) value).getTime());
+      } else {
+        tag = "s";
+        raw = value.toString();
+      }
+      entries.add(encoder.encodeToString(orders.get(i).getProperty().getBytes(StandardCharsets.UTF_8)) 
+          + FIELD_DELIMITER + orders.get(i).getDirection().name() 
+          + FIELD_DELIMITER + tag 
+          + FIELD_DELIMITER + encoder.encodeToString(raw.getBytes(StandardCharsets.UTF_8)));
+    }
+    return encoder.encodeToString(String.join(ENTRY_DELIMITER, entries).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parses a cursor created by {@link #encode()}.
+   *
+   * @param token encoded cursor
+   * @return cursor
+   * @throws IllegalArgumentException if the token is not a valid cursor
+   */
+  public static KeysetCursor decode(String token){
+    Base64.Decoder decoder = Base64.getUrlDecoder();
+    List<Sort.Order> orders = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    try {
+      String decoded = new String(decoder.decode(token), StandardCharsets.UTF_8);
+      for (String entry: decoded.split(ENTRY_DELIMITER)){
+        String[] bits = entry.split(FIELD_DELIMITER, -1);
+        if (bits.length != 4) throw new IllegalArgumentException("Malformed keyset cursor: " + token);
+        String property = new String(decoder.decode(bits[0]), StandardCharsets.UTF_8);
+        String raw = new String(decoder.decode(bits[3]), StandardCharsets.UTF_8);
+        orders.add(new Sort.Order(Sort.Direction.valueOf(bits[1]), property));
+        switch (bits[2]){
+          case "n":
+            values.add(null);
+            break;
+          case "i":
+            values.add(Integer.parseInt(raw));
+            break;
+          case "l":
+            values.add(Long.parseLong(raw));
+            break;
+          case "d":
+            values.add(Double.parseDouble(raw));
+            break;
+          case "b":
+            values.add(Boolean.parseBoolean(raw));
+            break;
+          case "t":
+            values.add(new Date(Long.parseLong(raw)));
+            break;
+          case "s":
+            values.add(raw);
+            break;
+          default:
+            throw new IllegalArgumentException("Malformed keyset cursor: " + token);
+        }
+      }
+    } catch (IllegalArgumentException e){
+      // Also covers NumberFormatException and invalid Base64 input
+      throw new IllegalArgumentException("Malformed keyset cursor: " + token, e);
+    }
+    return new KeysetCursor(orders, values);
+  }
+
+  public List<Sort.Order> getOrders() {
+    return orders;
+  }
+
+  public List<Object> getValues() {
+    return values;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof KeysetCursor)) return false;
+    KeysetCursor that = (KeysetCursor) o;
+    return Objects.equals(orders, that.orders) && Objects.equals(values, that.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(orders, values);
+  }
+
+  @Override
+  public String toString() {
+    return "KeysetCursor{" +
+        "orders=" + orders +
+        ", values=" + values +
+        '}';
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+import com.blueprint.centromere.core.model.Model;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of records returned by keyset pagination, along with the {@link KeysetCursor} needed to
+ *   fetch the next page, if there is one.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class KeysetSlice<T extends Model<?>> {
+
+  private final List<T> content;
+  private final KeysetCursor nextCursor;
+
+  public KeysetSlice(List<T> content, KeysetCursor nextCursor) {
+    this.content = Collections.unmodifiableList(new ArrayList<>(content));
+    this.nextCursor = nextCursor;
+  }
+
+  public List<T> getContent() {
+    return content;
+  }
+
+  /**
+   * Returns the cursor positioned after the last record of this slice, or {@code null} if this is
+   *   the last slice.
+   */
+  public KeysetCursor getNextCursor() {
+    return nextCursor;
+  }
+
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+
+  @Override
+  public String toString() {
+    return "KeysetSlice{" +
+        "content=" + content +
+        ", nextCursor=" + nextCursor +
+        '}';
+  }
+
+}
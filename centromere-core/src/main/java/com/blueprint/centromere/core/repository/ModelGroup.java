@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+import com.blueprint.centromere.core.model.Model;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of {@link Model} records sharing the same value of a field, as returned by
+ *   {@link ModelRepository#groupBy(String, Iterable, GroupAccumulator)}.  The record list holds at
+ *   most {@link GroupAccumulator#getMaxRecords()} records, while the count reflects every record in
+ *   the group.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class ModelGroup<T extends Model<?>> {
+
+  private Object key;
+  private long count;
+  private List<T> records = new ArrayList<>();
+
+  public ModelGroup() { }
+
+  public ModelGroup(Object key, long count, List<T> records) {
+    this.key = key;
+    this.count = count;
+    this.records = records;
+  }
+
+  public Object getKey() {
+    return key;
+  }
+
+  public void setKey(Object key) {
+    this.key = key;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public List<T> getRecords() {
+    return records;
+  }
+
+  public void setRecords(List<T> records) {
+    this.records = records;
+  }
+
+  @Override
+  public String toString() {
+    return "ModelGroup{" +
+        "key=" + key +
+        ", count=" + count +
+        ", records=" + records +
+        '}';
+  }
+
+}
@@ -18,21 +18,30 @@ package com.blueprint.centromere.core.repository;
 
 import com.blueprint.centromere.core.exceptions.QueryParameterException;
 import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
 import com.blueprint.centromere.core.model.ModelSupport;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.data.repository.PagingAndSortingRepository;
@@ -75,6 +84,178 @@ public interface ModelRepository<T extends Model<ID>, ID extends Serializable>
    */
   Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable);
 
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns them in the
+   *   requested order, with only the requested fields populated.  If {@code fields} is not empty,
+   *   only those fields are fetched and {@code exclude} is ignored, otherwise all fields except
+   *   those in {@code exclude} are fetched.  The default implementation ignores the projection
+   *   and delegates to {@link #find(Iterable, Sort)}.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param sort {@link Sort}
+   * @param fields names of the fields to be included in the returned records.
+   * @param exclude names of the fields to be excluded from the returned records.
+   * @return all matching {@code T} records.
+   */
+  default Iterable<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort, Set<String> fields, 
+      Set<String> exclude){
+    return find(queryCriterias, sort);
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns them as a paged
+   *   collection, with only the requested fields populated.  See 
+   *   {@link #find(Iterable, Sort, Set, Set)} for how the field sets are applied.  The default
+   *   implementation ignores the projection and delegates to {@link #find(Iterable, Pageable)}.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param pageable {@link Pageable}
+   * @param fields names of the fields to be included in the returned records.
+   * @param exclude names of the fields to be excluded from the returned records.
+   * @return {@link Page} containing the desired set of records.
+   */
+  default Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable, Set<String> fields, 
+      Set<String> exclude){
+    return find(queryCriterias, pageable);
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns the requested page
+   *   of them as a {@link Slice}.  Unlike {@link #find(Iterable, Pageable)}, the total number of
+   *   matching records is not counted; only whether another page follows is determined.  The 
+   *   default implementation scans {@link #stream(Iterable, Sort)} up to the requested page.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param pageable {@link Pageable}
+   * @return {@link Slice} containing the desired set of records.
+   */
+  default Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable){
+    List<T> content;
+    try (Stream<T> stream = stream(queryCriterias, pageable.getSort())){
+      content = stream.skip(pageable.getOffset())
+          .limit(pageable.getPageSize() + 1L)
+          .collect(Collectors.toList());
+    }
+    boolean hasNext = content.size() > pageable.getPageSize();
+    if (hasNext) content = content.subList(0, pageable.getPageSize());
+    return new SliceImpl<>(content, pageable, hasNext);
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns the requested page
+   *   of them as a {@link Slice}, with only the requested fields populated.  See 
+   *   {@link #find(Iterable, Sort, Set, Set)} for how the field sets are applied.  The default
+   *   implementation ignores the projection and delegates to {@link #findSlice(Iterable, Pageable)}.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param pageable {@link Pageable}
+   * @param fields names of the fields to be included in the returned records.
+   * @param exclude names of the fields to be excluded from the returned records.
+   * @return {@link Slice} containing the desired set of records.
+   */
+  default Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable, 
+      Set<String> fields, Set<String> exclude){
+    return findSlice(queryCriterias, pageable);
+  }
+
+  /**
+   * Returns an estimate of the number of records that satisfy the requested criteria, which may be
+   *   cheaper to compute than {@link #count(Iterable)}.  Implementations may stop counting once
+   *   {@code limit} matching records have been found, and never return more than {@code limit},
+   *   so a result equal to {@code limit} may be a lower bound.  The default implementation 
+   *   returns the exact count, capped at {@code limit}.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param limit maximum number of records to count, or zero for no limit.
+   * @return estimated number of matching records.
+   */
+  default long estimateCount(Iterable<QueryCriteria> queryCriterias, long limit){
+    long count = count(queryCriterias);
+    return limit > 0 ? Math.min(count, limit) : count;
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns up to {@code size}
+   *   of them that follow the {@code cursor} position, in the requested order.  Unlike offset-based
+   *   paging, the cost of fetching a page does not grow with its position in the result set, when
+   *   the implementation can seek directly to the cursor.  Records are ordered by
+   *   {@link KeysetCursor#getKeysetSort(Sort)}, and a cursor may only be reused with the same sort.
+   *   The default implementation scans {@link #stream(Iterable, Sort)} up to the cursor position.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param cursor position to resume after, or {@code null} to fetch the first page.
+   * @param sort {@link Sort}
+   * @param size maximum number of records to return.
+   * @return {@link KeysetSlice} containing the records and the cursor for the next page.
+   */
+  default KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor, 
+      Sort sort, int size){
+    if (size < 1) throw new IllegalArgumentException("Keyset page size must be at least one.");
+    Sort keysetSort = KeysetCursor.getKeysetSort(sort);
+    if (cursor != null) cursor.validate(keysetSort);
+    List<T> content = new ArrayList<>();
+    boolean hasNext = false;
+    try (Stream<T> stream = stream(queryCriterias, keysetSort)){
+      Iterator<T> iterator = stream.iterator();
+      while (iterator.hasNext()){
+        T record = iterator.next();
+        if (cursor != null && !cursor.precedes(record)) continue;
+        if (content.size() == size){
+          hasNext = true;
+          break;
+        }
+        content.add(record);
+      }
+    }
+    KeysetCursor next = hasNext ? KeysetCursor.of(content.get(content.size() - 1), keysetSort) : null;
+    return new KeysetSlice<>(content, next);
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria and follow the {@code cursor}
+   *   position, as in {@link #findAfter(Iterable, KeysetCursor, Sort, int)}, returning only the 
+   *   requested fields.  The ID and sort fields, which are needed to create the next cursor, are 
+   *   always returned.  The default implementation ignores the projection and delegates to 
+   *   {@link #findAfter(Iterable, KeysetCursor, Sort, int)}.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param cursor position to resume after, or {@code null} to fetch the first page.
+   * @param sort {@link Sort}
+   * @param size maximum number of records to return.
+   * @param fields names of the fields to be included in the returned records.
+   * @param exclude names of the fields to be excluded from the returned records.
+   * @return {@link KeysetSlice} containing the records and the cursor for the next page.
+   */
+  default KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor, 
+      Sort sort, int size, Set<String> fields, Set<String> exclude){
+    return findAfter(queryCriterias, cursor, sort, size);
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns them as a lazily-
+   *   fetched {@link Stream}, in the requested order.  Implementations backed by a database cursor
+   *   should release it when the stream is closed, so callers should use try-with-resources.  The
+   *   default implementation wraps {@link #find(Iterable, Sort)}.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param sort {@link Sort}
+   * @return stream of all matching {@code T} records.
+   */
+  default Stream<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort){
+    return StreamSupport.stream(find(queryCriterias, sort).spliterator(), false);
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns them as a lazily-
+   *   fetched {@link Stream}.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @return stream of all matching {@code T} records.
+   */
+  default Stream<T> stream(Iterable<QueryCriteria> queryCriterias){
+    return stream(queryCriterias, Sort.unsorted());
+  }
+
   /**
    * Returns a count of all records that satify the requested criteria.
    *
@@ -93,11 +274,11 @@ public interface ModelRepository<T extends Model<ID>, ID extends Serializable>
     Sort sort = new Sort(Sort.Direction.ASC, field);
     HashSet<Object> distinct = new HashSet<>();
     for (T obj: findAll(sort)){
-      BeanWrapper wrapper = new BeanWrapperImpl(obj);
-      if (!wrapper.isReadableProperty(field)){
+      ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(obj.getClass());
+      if (!metadata.isReadableProperty(field)){
         throw new QueryParameterException(String.format("Submitted parameter is not valid entity field: %s", field));
       }
-      distinct.add(wrapper.getPropertyValue(field));
+      distinct.add(metadata.getPropertyValue(obj, field));
     }
     return distinct;
   }
@@ -113,16 +294,195 @@ public interface ModelRepository<T extends Model<ID>, ID extends Serializable>
   default Set<Object> distinct(String field, Iterable<QueryCriteria> criterias){
     HashSet<Object> distinct = new HashSet<>();
     Sort sort = new Sort(Sort.Direction.ASC, field);
-    for (T obj: find(criterias, sort)){
-      BeanWrapper wrapper = new BeanWrapperImpl(obj);
-      if (!wrapper.isReadableProperty(field)){
-        throw new QueryParameterException(String.format("Submitted parameter is not valid entity field: %s", field));
-      }
-      distinct.add(wrapper.getPropertyValue(field));
+    try (Stream<T> stream = stream(criterias, sort)) {
+      stream.forEach(obj -> {
+        ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(obj.getClass());
+        if (!metadata.isReadableProperty(field)){
+          throw new QueryParameterException(String.format("Submitted parameter is not valid entity field: %s", field));
+        }
+        distinct.add(metadata.getPropertyValue(obj, field));
+      });
     }
     return distinct;
   }
 
+  /**
+   * Returns distinct values of the requested field, filtered using a {@link QueryCriteria} based
+   *   query, along with the number of matching records containing each value.  Values of
+   *   multi-valued fields are counted individually.  The {@link Pageable} determines the order of
+   *   the results, using {@link ValueCount#COUNT_PROPERTY} to sort by count and any other property
+   *   to sort by value, and the slice of the distinct set to be returned.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the field values by.
+   * @param pageable {@link Pageable} sort and page of distinct values to return.
+   * @return list of distinct values of {@code field} and their counts.
+   */
+  default List<ValueCount> distinctCounts(String field, Iterable<QueryCriteria> criterias,
+      Pageable pageable){
+    Map<Object, Long> counts = new HashMap<>();
+    try (Stream<T> stream = stream(criterias)) {
+      stream.forEach(obj -> {
+        ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(obj.getClass());
+        if (!metadata.isReadableProperty(field)){
+          throw new QueryParameterException(String.format("Submitted parameter is not valid entity field: %s", field));
+        }
+        Object value = metadata.getPropertyValue(obj, field);
+        List<Object> values = value != null && isMultiValue(value) 
+            ? getCollection(value) : Collections.singletonList(value);
+        for (Object v: values){
+          counts.merge(v, 1L, Long::sum);
+        }
+      });
+    }
+    Stream<ValueCount> valueCounts = counts.entrySet().stream()
+        .map(e -> new ValueCount(e.getKey(), e.getValue()))
+        .sorted(ValueCount.comparator(pageable.getSort()));
+    if (pageable.isPaged()){
+      valueCounts = valueCounts.skip(pageable.getOffset()).limit(pageable.getPageSize());
+    }
+    return valueCounts.collect(Collectors.toList());
+  }
+
+  /**
+   * Returns distinct values of the requested field, filtered using a {@link QueryCriteria} based
+   *   query, in the order and page requested.  See {@link #distinctCounts(String, Iterable, Pageable)}.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the field values by.
+   * @param pageable {@link Pageable} sort and page of distinct values to return.
+   * @return list of distinct values of {@code field}.
+   */
+  default List<Object> distinct(String field, Iterable<QueryCriteria> criterias, Pageable pageable){
+    List<Object> values = new ArrayList<>();
+    for (ValueCount valueCount: distinctCounts(field, criterias, pageable)){
+      values.add(valueCount.getValue());
+    }
+    return values;
+  }
+
+  /**
+   * Counts the records that satisfy the requested criteria and, for each of the requested fields,
+   *   the number of those records containing each distinct value, in a single pass over the 
+   *   matching records.  Values of multi-valued fields are counted individually.  Each field's 
+   *   values are ordered by descending count, then ascending value, and only the first 
+   *   {@code limit} are returned, if {@code limit} is positive.  See {@link FacetCounts}.
+   *
+   * @param fields Model field names.
+   * @param criterias Query criteria to filter the records by.
+   * @param limit Maximum number of values returned per field, or zero for all values.
+   * @return total record count and value counts of each field.
+   */
+  default FacetCounts facets(List<String> fields, Iterable<QueryCriteria> criterias, int limit){
+    Map<String, Map<Object, Long>> counts = new LinkedHashMap<>();
+    for (String field: fields){
+      counts.put(field, new HashMap<>());
+    }
+    long[] total = { 0L };
+    try (Stream<T> stream = stream(criterias)) {
+      stream.forEach(obj -> {
+        ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(obj.getClass());
+        total[0]++;
+        for (Map.Entry<String, Map<Object, Long>> entry: counts.entrySet()){
+          if (!metadata.isReadableProperty(entry.getKey())){
+            throw new QueryParameterException(String.format("Submitted parameter is not valid entity field: %s", 
+                entry.getKey()));
+          }
+          Object value = metadata.getPropertyValue(obj, entry.getKey());
+          List<Object> values = value != null && isMultiValue(value) 
+              ? getCollection(value) : Collections.singletonList(value);
+          for (Object v: values){
+            entry.getValue().merge(v, 1L, Long::sum);
+          }
+        }
+      });
+    }
+    Map<String, List<ValueCount>> facets = new LinkedHashMap<>();
+    for (Map.Entry<String, Map<Object, Long>> entry: counts.entrySet()){
+      facets.put(entry.getKey(), FacetCounts.top(entry.getValue().entrySet().stream()
+          .map(e -> new ValueCount(e.getKey(), e.getValue()))
+          .collect(Collectors.toList()), limit));
+    }
+    return new FacetCounts(total[0], facets);
+  }
+
+  /**
+   * Computes summary statistics of a numeric field over the records that satisfy the requested 
+   *   criteria, optionally grouped by the value of another field.  Records with no value for the
+   *   field are ignored.  Without grouping, a single set of statistics is returned, with a count of
+   *   zero if no record has a value; otherwise, one set is returned per group, in ascending order 
+   *   of the group values.  This implementation reads every matching record, and computes exact 
+   *   percentiles.  See {@link FieldStatistics}.
+   *
+   * @param field Numeric model field name.
+   * @param groupBy Model field name to group the records by, or null.
+   * @param criterias Query criteria to filter the records by.
+   * @param percentiles Percentiles to report, between 0 and 100.
+   * @return statistics of the field, for all records or for each group.
+   */
+  default List<FieldStatistics> statistics(String field, String groupBy, 
+      Iterable<QueryCriteria> criterias, List<Double> percentiles){
+    Map<Object, List<Double>> groups = new HashMap<>();
+    try (Stream<T> stream = stream(criterias)) {
+      stream.forEach(obj -> {
+        ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(obj.getClass());
+        for (String f: Arrays.asList(field, groupBy)){
+          if (f != null && !metadata.isReadableProperty(f)){
+            throw new QueryParameterException(String.format("Submitted parameter is not valid entity field: %s", f));
+          }
+        }
+        Object value = metadata.getPropertyValue(obj, field);
+        if (value instanceof Number){
+          Object key = groupBy != null ? metadata.getPropertyValue(obj, groupBy) : null;
+          groups.computeIfAbsent(key, k -> new ArrayList<>()).add(((Number) value).doubleValue());
+        }
+      });
+    }
+    if (groupBy == null && groups.isEmpty()){
+      return Collections.singletonList(FieldStatistics.empty(null));
+    }
+    List<FieldStatistics> statistics = new ArrayList<>();
+    for (Map.Entry<Object, List<Double>> entry: groups.entrySet()){
+      Collections.sort(entry.getValue());
+      statistics.add(FieldStatistics.of(entry.getKey(), entry.getValue(), percentiles));
+    }
+    statistics.sort((a, b) -> ValueCount.compareValues(a.getKey(), b.getKey()));
+    return statistics;
+  }
+
+  /**
+   * Groups the records that satisfy the requested criteria by the value of a field, and returns
+   *   the groups in ascending order of their values.  Each group reports its record count and, if
+   *   the {@link GroupAccumulator} requests it, a capped sample of its records.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the records by.
+   * @param accumulator {@link GroupAccumulator} describing what each group should contain.
+   * @return list of record groups.
+   */
+  default List<ModelGroup<T>> groupBy(String field, Iterable<QueryCriteria> criterias,
+      GroupAccumulator accumulator){
+    Map<Object, ModelGroup<T>> groups = new HashMap<>();
+    try (Stream<T> stream = stream(criterias)) {
+      stream.forEach(obj -> {
+        ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(obj.getClass());
+        if (!metadata.isReadableProperty(field)){
+          throw new QueryParameterException(String.format("Submitted parameter is not valid entity field: %s", field));
+        }
+        Object value = metadata.getPropertyValue(obj, field);
+        ModelGroup<T> group = groups.computeIfAbsent(value, 
+            k -> new ModelGroup<>(k, 0L, new ArrayList<>()));
+        group.setCount(group.getCount() + 1);
+        if (group.getRecords().size() < accumulator.getMaxRecords()){
+          group.getRecords().add(obj);
+        }
+      });
+    }
+    List<ModelGroup<T>> list = new ArrayList<>(groups.values());
+    list.sort((a, b) -> ValueCount.compareValues(a.getKey(), b.getKey()));
+    return list;
+  }
+
 	/* Create records */
 
   /**
@@ -158,7 +518,26 @@ public interface ModelRepository<T extends Model<ID>, ID extends Serializable>
    * @return updated instances of the entity objects.
    */
   <S extends T> Iterable<S> update(Iterable<S> entities);
-  
+
+  /**
+   * Creates or replaces multiple records, depending on whether a record with the same ID already
+   *   exists.  Records without an ID are always inserted.  The default implementation checks each
+   *   record individually; implementations should override this with a batched write.
+   *
+   * @param entities collection of records to be persisted.
+   * @return updated instances of the entity objects.
+   */
+  default <S extends T> Iterable<S> upsert(Iterable<S> entities){
+    for (S entity: entities){
+      if (entity.getId() != null && existsById(entity.getId())){
+        update(entity);
+      } else {
+        insert(entity);
+      }
+    }
+    return entities;
+  }
+
   static List<Object> getCollection(Object val){
     if (val instanceof Collection){
       return new ArrayList<Object>((Collection) val);
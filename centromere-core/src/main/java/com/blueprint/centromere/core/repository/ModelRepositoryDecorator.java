@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository;
+
+/**
+ * Wraps {@link ModelRepository} instances as they are registered in a 
+ *   {@link ModelRepositoryRegistry}, so that cross-cutting behavior, such as result caching, can be
+ *   applied to every repository served by the registry.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public interface ModelRepositoryDecorator {
+
+  /**
+   * Returns the repository to be registered in place of the given one.  Implementations may
+   *   return the original repository unchanged.
+   *
+   * @param repository repository being registered
+   * @return the repository to register
+   */
+  ModelRepository<?, ?> decorate(ModelRepository<?, ?> repository);
+
+}
@@ -16,10 +16,16 @@
 
 package com.blueprint.centromere.core.repository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Simple representation of a database query evaluation that can be passed to generic 
- * {@link ModelRepository} implementations.
+ * {@link ModelRepository} implementations.  Criteria with the {@link Evaluation#AND} or 
+ * {@link Evaluation#OR} evaluations are groups, which have no key, and whose value is the list of
+ * nested criteria they join, allowing arbitrary boolean trees to be queried.
  * 
  * @author woemler
  */
@@ -41,6 +47,50 @@ public class QueryCriteria {
     this.evaluation = Evaluation.EQUALS;
   }
 
+  /**
+   * Creates a group that is satisfied when any of the submitted criteria are.
+   *
+   * @param criterias nested criteria
+   * @return {@link Evaluation#OR} group
+   */
+  public static QueryCriteria or(QueryCriteria... criterias){
+    return or(Arrays.asList(criterias));
+  }
+
+  public static QueryCriteria or(List<QueryCriteria> criterias){
+    return new QueryCriteria(null, new ArrayList<>(criterias), Evaluation.OR);
+  }
+
+  /**
+   * Creates a group that is satisfied only when all of the submitted criteria are.
+   *
+   * @param criterias nested criteria
+   * @return {@link Evaluation#AND} group
+   */
+  public static QueryCriteria and(QueryCriteria... criterias){
+    return and(Arrays.asList(criterias));
+  }
+
+  public static QueryCriteria and(List<QueryCriteria> criterias){
+    return new QueryCriteria(null, new ArrayList<>(criterias), Evaluation.AND);
+  }
+
+  /**
+   * Tests whether this criteria is a {@link Evaluation#AND} or {@link Evaluation#OR} group.
+   */
+  public boolean isGroup(){
+    return evaluation == Evaluation.AND || evaluation == Evaluation.OR;
+  }
+
+  /**
+   * Returns the nested criteria of a group, or an empty list if this is not a group.
+   */
+  @SuppressWarnings("unchecked")
+  public List<QueryCriteria> getCriterias(){
+    if (!isGroup() || value == null) return Collections.emptyList();
+    return (List<QueryCriteria>) value;
+  }
+
   public String getKey() {
     return key;
   }
@@ -67,6 +117,7 @@ public class QueryCriteria {
 
   @Override 
   public String toString() {
+    if (isGroup()) return evaluation + String.valueOf(value);
     return "QueryCriteria{" +
         "key='" + key + '\'' +
         ", value=" + value +
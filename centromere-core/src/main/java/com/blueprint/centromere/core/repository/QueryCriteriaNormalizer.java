@@ -0,0 +1,394 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * Rewrites a list of {@link QueryCriteria} into an equivalent, simpler form, before it is 
+ *   translated into a database query.  Duplicate criteria are removed, {@code IN} and 
+ *   {@code NOT_IN} values are deduplicated, and single-value sets are collapsed into 
+ *   {@code EQUALS} and {@code NOT_EQUALS} criteria.  Range criteria on the same key are merged 
+ *   into their tightest bounds, and a lower and an upper bound of the same inclusivity are 
+ *   combined into a single {@code BETWEEN} or {@code BETWEEN_INCLUSIVE} criteria.  Nested 
+ *   {@link Evaluation#AND} groups are flattened into the enclosing list, and {@link Evaluation#OR}
+ *   groups with a single satisfiable member are replaced by that member.
+ *
+ * If the normalizer is created for a model, criteria against fields that hold a single value are
+ *   also checked for contradictions, such as {@code value>5&value<2}, or two different 
+ *   {@code EQUALS} values, in which case no record can match and {@link #normalize(Iterable)} 
+ *   returns an empty result.  Fields holding arrays, collections or maps, and unknown fields, are
+ *   never treated as contradictory, since their criteria may be satisfied by different elements.
+ *   Bounds are only compared with values of the same class.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class QueryCriteriaNormalizer {
+
+  private final Class<?> model;
+  private final Map<String, Boolean> singleValuedFields = new HashMap<>();
+
+  public QueryCriteriaNormalizer() {
+    this(null);
+  }
+
+  /**
+   * @param model model whose single-valued fields are checked for contradictory criteria, or null
+   */
+  public QueryCriteriaNormalizer(Class<?> model) {
+    this.model = model;
+  }
+
+  /**
+   * Normalizes the submitted criteria, which are joined with {@code AND}.
+   *
+   * @param queryCriterias criteria to normalize, may be null
+   * @return the normalized criteria, which may be empty if every record matches, or an empty 
+   *   {@link Optional} if no record can match.
+   */
+  public Optional<List<QueryCriteria>> normalize(Iterable<QueryCriteria> queryCriterias){
+    List<QueryCriteria> criterias = new ArrayList<>();
+    if (queryCriterias != null){
+      for (QueryCriteria criteria: queryCriterias){
+        if (criteria != null) criterias.add(criteria);
+      }
+    }
+    return Optional.ofNullable(normalizeConjunction(criterias));
+  }
+
+  /**
+   * Normalizes criteria joined with {@code AND}, returning null if they are contradictory.
+   */
+  private List<QueryCriteria> normalizeConjunction(List<QueryCriteria> criterias){
+    
+    // Ranges and equalities are kept at the position of the first criteria on their key
+    List<Object> terms = new ArrayList<>();
+    Set<List<Object>> seen = new HashSet<>();
+    Map<String, Range> ranges = new HashMap<>();
+    Map<String, Object> equalities = new HashMap<>();
+    List<QueryCriteria> queue = new ArrayList<>(criterias);
+    
+    for (int i = 0; i < queue.size(); i++){
+      QueryCriteria criteria = queue.get(i);
+      Evaluation evaluation = criteria.getEvaluation();
+      String key = criteria.getKey();
+      
+      if (evaluation == Evaluation.AND){
+        queue.addAll(i + 1, criteria.getCriterias());
+        continue;
+      } else if (evaluation == Evaluation.OR){
+        List<QueryCriteria> members = normalizeDisjunction(criteria.getCriterias());
+        if (members == null) return null;
+        if (members.size() == 1 && members.get(0).getEvaluation() == Evaluation.AND){
+          queue.addAll(i + 1, members.get(0).getCriterias());
+        } else if (members.size() == 1){
+          queue.add(i + 1, members.get(0));
+        } else if (!members.isEmpty()){
+          terms.add(QueryCriteria.or(members));
+        }
+        continue;
+      }
+      
+      criteria = normalizeSet(criteria);
+      if (criteria == null) return null;
+      if (criteria.getEvaluation() == null) continue;
+      evaluation = criteria.getEvaluation();
+      
+      Bound[] bounds = getBounds(criteria);
+      if (bounds != null){
+        Range range = ranges.get(key);
+        if (range == null){
+          range = new Range(key);
+          if (range.add(bounds)){
+            ranges.put(key, range);
+            terms.add(range);
+            continue;
+          }
+        } else if (range.add(bounds)){
+          continue;
+        }
+      } else if (evaluation == Evaluation.EQUALS && isSingleValued(key)){
+        if (equalities.containsKey(key)){
+          if (!Objects.equals(equalities.get(key), criteria.getValue())) return null;
+          continue;
+        }
+        equalities.put(key, criteria.getValue());
+      }
+      if (seen.add(getIdentity(criteria))){
+        terms.add(criteria);
+      }
+      
+    }
+    
+    List<QueryCriteria> normalized = new ArrayList<>();
+    for (Object term: terms){
+      if (term instanceof QueryCriteria){
+        normalized.add((QueryCriteria) term);
+        continue;
+      }
+      Range range = (Range) term;
+      if (isSingleValued(range.key)){
+        if (range.isEmpty()) return null;
+        if (equalities.containsKey(range.key)){
+          Boolean contains = range.contains(equalities.get(range.key));
+          if (Boolean.FALSE.equals(contains)) return null;
+          if (Boolean.TRUE.equals(contains)) continue;
+        }
+      }
+      normalized.addAll(range.toCriteria());
+    }
+    return normalized;
+    
+  }
+
+  /**
+   * Normalizes the members of an {@code OR} group, dropping contradictory members.  Returns null
+   *   if no member is satisfiable, or an empty list if any member is always satisfied.
+   */
+  private List<QueryCriteria> normalizeDisjunction(List<QueryCriteria> criterias){
+    List<QueryCriteria> members = new ArrayList<>();
+    Set<List<Object>> seen = new HashSet<>();
+    for (QueryCriteria criteria: criterias){
+      List<QueryCriteria> member = normalizeConjunction(Collections.singletonList(criteria));
+      if (member == null) continue;
+      if (member.isEmpty()) return Collections.emptyList();
+      QueryCriteria normalized = member.size() == 1 ? member.get(0) : QueryCriteria.and(member);
+      if (seen.add(getIdentity(normalized))){
+        members.add(normalized);
+      }
+    }
+    return members.isEmpty() ? null : members;
+  }
+
+  /**
+   * Deduplicates the values of {@code IN} and {@code NOT_IN} criteria, and collapses single 
+   *   values into {@code EQUALS} and {@code NOT_EQUALS} criteria.  Returns null for an empty 
+   *   {@code IN} set, and a criteria with no evaluation for an empty {@code NOT_IN} set.
+   */
+  private static QueryCriteria normalizeSet(QueryCriteria criteria){
+    Evaluation evaluation = criteria.getEvaluation();
+    if (evaluation != Evaluation.IN && evaluation != Evaluation.NOT_IN) return criteria;
+    List<Object> values = toList(criteria.getValue());
+    if (values == null) return criteria;
+    values = new ArrayList<>(new LinkedHashSet<>(values));
+    boolean in = evaluation == Evaluation.IN;
+    if (values.isEmpty()){
+      return in ? null : new QueryCriteria(criteria.getKey(), null, null);
+    } else if (values.size() == 1){
+      return new QueryCriteria(criteria.getKey(), values.get(0), 
+          in ? Evaluation.EQUALS : Evaluation.NOT_EQUALS);
+    }
+    return new QueryCriteria(criteria.getKey(), values, evaluation);
+  }
+
+  /**
+   * Returns the lower and upper bounds of a range criteria, either of which may be null, or null
+   *   if the criteria is not a range with comparable values.
+   */
+  private static Bound[] getBounds(QueryCriteria criteria){
+    Object value = criteria.getValue();
+    switch (criteria.getEvaluation()){
+      case GREATER_THAN:
+        return Bound.of(value, false) != null ? new Bound[]{ Bound.of(value, false), null } : null;
+      case GREATER_THAN_EQUALS:
+        return Bound.of(value, true) != null ? new Bound[]{ Bound.of(value, true), null } : null;
+      case LESS_THAN:
+        return Bound.of(value, false) != null ? new Bound[]{ null, Bound.of(value, false) } : null;
+      case LESS_THAN_EQUALS:
+        return Bound.of(value, true) != null ? new Bound[]{ null, Bound.of(value, true) } : null;
+      case BETWEEN:
+      case BETWEEN_INCLUSIVE:
+        List<Object> values = toList(value);
+        if (values == null || values.size() != 2) return null;
+        boolean inclusive = criteria.getEvaluation() == Evaluation.BETWEEN_INCLUSIVE;
+        Bound lower = Bound.of(values.get(0), inclusive);
+        Bound upper = Bound.of(values.get(1), inclusive);
+        return lower != null && upper != null && lower.isComparable(upper.value) 
+            ? new Bound[]{ lower, upper } : null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Tests whether a field of the model holds at most one value, caching the result.
+   */
+  private boolean isSingleValued(String field){
+    if (model == null || field == null) return false;
+    synchronized (singleValuedFields){
+      return singleValuedFields.computeIfAbsent(field, f -> {
+        Class<?> type = model;
+        for (String segment: f.split("\\.")){
+          PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, segment);
+          if (descriptor == null) return false;
+          type = descriptor.getPropertyType();
+          if (type.isArray() || Collection.class.isAssignableFrom(type)
+              || Map.class.isAssignableFrom(type)){
+            return false;
+          }
+        }
+        return true;
+      });
+    }
+  }
+
+  private static List<Object> toList(Object value){
+    if (value instanceof Collection){
+      return new ArrayList<>((Collection<?>) value);
+    } else if (value instanceof Object[]){
+      return new ArrayList<>(Arrays.asList((Object[]) value));
+    }
+    return null;
+  }
+
+  /**
+   * Key, evaluation and value of a criteria, used to detect duplicates.
+   */
+  private static List<Object> getIdentity(QueryCriteria criteria){
+    Object value = criteria.getValue();
+    if (value instanceof Object[]) value = Arrays.asList((Object[]) value);
+    return Arrays.asList(criteria.getKey(), criteria.getEvaluation(), value);
+  }
+
+  /**
+   * One end of a range, with a value that is comparable to other values of the same class.
+   */
+  private static class Bound {
+
+    private final Comparable<Object> value;
+    private final boolean inclusive;
+
+    private Bound(Comparable<Object> value, boolean inclusive) {
+      this.value = value;
+      this.inclusive = inclusive;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Bound of(Object value, boolean inclusive){
+      return value instanceof Comparable ? new Bound((Comparable<Object>) value, inclusive) : null;
+    }
+
+    boolean isComparable(Object other){
+      return other != null && value.getClass().equals(other.getClass());
+    }
+
+  }
+
+  /**
+   * Tightest lower and upper bounds of the range criteria on a single key.
+   */
+  private static class Range {
+
+    private final String key;
+    private Bound lower;
+    private Bound upper;
+
+    Range(String key) {
+      this.key = key;
+    }
+
+    /**
+     * Narrows the range with the submitted bounds, returning false, without modifying the range,
+     *   if they are not comparable with its current bounds.
+     */
+    boolean add(Bound[] bounds){
+      for (Bound bound: bounds){
+        if (bound == null) continue;
+        for (Bound current: Arrays.asList(lower, upper)){
+          if (current != null && !current.isComparable(bound.value)) return false;
+        }
+      }
+      if (bounds[0] != null){
+        lower = tighter(lower, bounds[0], 1);
+      }
+      if (bounds[1] != null){
+        upper = tighter(upper, bounds[1], -1);
+      }
+      return true;
+    }
+
+    /**
+     * Returns the bound that admits fewer values, where {@code direction} is 1 for lower bounds 
+     *   and -1 for upper bounds.  Exclusive bounds are tighter than inclusive bounds on the same
+     *   value.
+     */
+    private static Bound tighter(Bound current, Bound bound, int direction){
+      if (current == null) return bound;
+      int comparison = bound.value.compareTo(current.value) * direction;
+      if (comparison > 0 || (comparison == 0 && !bound.inclusive)) return bound;
+      return current;
+    }
+
+    boolean isEmpty(){
+      if (lower == null || upper == null) return false;
+      int comparison = lower.value.compareTo(upper.value);
+      return comparison > 0 || (comparison == 0 && !(lower.inclusive && upper.inclusive));
+    }
+
+    /**
+     * Tests whether the value falls within the range, or returns null if it is not comparable.
+     */
+    Boolean contains(Object value){
+      for (Bound bound: Arrays.asList(lower, upper)){
+        if (bound != null && !bound.isComparable(value)) return null;
+      }
+      if (lower != null){
+        int comparison = lower.value.compareTo(value);
+        if (comparison > 0 || (comparison == 0 && !lower.inclusive)) return false;
+      }
+      if (upper != null){
+        int comparison = upper.value.compareTo(value);
+        if (comparison < 0 || (comparison == 0 && !upper.inclusive)) return false;
+      }
+      return true;
+    }
+
+    List<QueryCriteria> toCriteria(){
+      List<QueryCriteria> criterias = new ArrayList<>();
+      if (lower != null && upper != null && lower.inclusive == upper.inclusive){
+        criterias.add(new QueryCriteria(key, Arrays.asList(lower.value, upper.value),
+            lower.inclusive ? Evaluation.BETWEEN_INCLUSIVE : Evaluation.BETWEEN));
+        return criterias;
+      }
+      if (lower != null){
+        criterias.add(new QueryCriteria(key, lower.value, 
+            lower.inclusive ? Evaluation.GREATER_THAN_EQUALS : Evaluation.GREATER_THAN));
+      }
+      if (upper != null){
+        criterias.add(new QueryCriteria(key, upper.value, 
+            upper.inclusive ? Evaluation.LESS_THAN_EQUALS : Evaluation.LESS_THAN));
+      }
+      return criterias;
+    }
+
+  }
+
+}
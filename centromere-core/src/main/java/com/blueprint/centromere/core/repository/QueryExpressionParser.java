@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+import com.blueprint.centromere.core.exceptions.QueryParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses boolean query expressions, submitted with the {@code filter} request parameter, into 
+ *   nested {@link QueryCriteria} groups.  An expression is either a single query parameter, 
+ *   written as {@code name:value}, or an {@code and} or {@code or} group of expressions separated 
+ *   by semicolons, eg. {@code or(symbol:BRCA1;aliases:BRCA1)} or 
+ *   {@code and(geneType:pseudo;or(taxId:9606;chromosomeIn:X,Y))}.  Parameter names and values 
+ *   follow the same rules as regular query string parameters, so dynamic evaluation suffixes and
+ *   comma-separated multiple values are supported.  Values may not contain semicolons or 
+ *   parentheses.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class QueryExpressionParser {
+
+  public static final String FILTER_PARAMETER = "filter";
+
+  private final String expression;
+  private final Map<String, QueryParameterDescriptor> validParams;
+  private int position = 0;
+
+  private QueryExpressionParser(String expression, 
+      Map<String, QueryParameterDescriptor> validParams) {
+    this.expression = expression;
+    this.validParams = validParams;
+  }
+
+  /**
+   * Parses a query expression into a single {@link QueryCriteria}, which is a group, unless the
+   *   expression is a single parameter.
+   *
+   * @param expression submitted expression
+   * @param validParams available query parameters of the queried model
+   * @return parsed criteria
+   * @throws QueryParameterException if the expression is malformed or references an unknown 
+   *   parameter
+   */
+  public static QueryCriteria parse(String expression, 
+      Map<String, QueryParameterDescriptor> validParams){
+    if (expression == null || expression.trim().isEmpty()){
+      throw new QueryParameterException("Query expression must not be empty.");
+    }
+    QueryExpressionParser parser = new QueryExpressionParser(expression, validParams);
+    QueryCriteria criteria = parser.parseExpression();
+    parser.skipWhitespace();
+    if (parser.position < expression.length()){
+      throw parser.error("Unexpected character");
+    }
+    return criteria;
+  }
+
+  private QueryCriteria parseExpression(){
+    skipWhitespace();
+    Evaluation group = getGroupEvaluation();
+    return group == null ? parseParameter() : parseGroup(group);
+  }
+
+  /**
+   * Returns the evaluation of the group starting at the current position, consuming its opening
+   *   parenthesis, or null if a parameter starts here.
+   */
+  private Evaluation getGroupEvaluation(){
+    int open = expression.indexOf('(', position);
+    if (open < 0) return null;
+    String name = expression.substring(position, open).trim();
+    Evaluation evaluation = null;
+    if ("or".equalsIgnoreCase(name)){
+      evaluation = Evaluation.OR;
+    } else if ("and".equalsIgnoreCase(name)){
+      evaluation = Evaluation.AND;
+    }
+    if (evaluation != null) position = open + 1;
+    return evaluation;
+  }
+
+  private QueryCriteria parseGroup(Evaluation evaluation){
+    List<QueryCriteria> criterias = new ArrayList<>();
+    while (true){
+      criterias.add(parseExpression());
+      skipWhitespace();
+      if (position >= expression.length()) throw error("Unclosed group");
+      char c = expression.charAt(position++);
+      if (c == ')') break;
+      if (c != ';') throw error("Expected ';' or ')'");
+    }
+    if (criterias.size() == 1) return criterias.get(0);
+    return evaluation == Evaluation.OR ? QueryCriteria.or(criterias) : QueryCriteria.and(criterias);
+  }
+
+  private QueryCriteria parseParameter(){
+    int start = position;
+    while (position < expression.length() && expression.charAt(position) != ';' 
+        && expression.charAt(position) != ')'){
+      position++;
+    }
+    String parameter = expression.substring(start, position).trim();
+    int separator = parameter.indexOf(':');
+    if (separator < 1){
+      throw new QueryParameterException(String.format("Query expression parameters must be "
+          + "written as 'name:value': %s", parameter));
+    }
+    String name = parameter.substring(0, separator).trim();
+    String[] values = parameter.substring(separator + 1).split(",");
+    for (QueryParameterDescriptor descriptor: validParams.values()){
+      if (descriptor.parameterNameMatches(name)){
+        return QueryParameterUtil.getQueryCriteriaFromParameter(
+            descriptor.getQueryableFieldName(name),
+            values,
+            descriptor.getType(),
+            descriptor.getDynamicEvaluation(name));
+      }
+    }
+    throw new QueryParameterException("Invalid query expression parameter: " + name);
+  }
+
+  private void skipWhitespace(){
+    while (position < expression.length() && Character.isWhitespace(expression.charAt(position))){
+      position++;
+    }
+  }
+
+  private QueryParameterException error(String message){
+    return new QueryParameterException(String.format("%s at position %d of query expression: %s",
+        message, position, expression));
+  }
+
+}
@@ -19,6 +19,8 @@ package com.blueprint.centromere.core.repository;
 import com.blueprint.centromere.core.exceptions.QueryParameterException;
 import com.blueprint.centromere.core.model.Ignored;
 import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
@@ -39,10 +41,13 @@ import org.springframework.core.convert.support.DefaultConversionService;
 public class QueryParameterUtil {
 
   private static final Logger logger = LoggerFactory.getLogger(QueryParameterUtil.class);
+  private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
 
   /**
    * Inspects a {@link Model} class and returns all of the available and acceptable query parameter
-   *   definitions, as a map of parameter names and {@link QueryParameterDescriptor} objects.
+   *   definitions, as a map of parameter names and {@link QueryParameterDescriptor} objects.  The
+   *   descriptors are created once per model and cached in the {@link ModelMetadataRegistry}, so
+   *   the returned map is unmodifiable.
    *
    * @param model model to inspect
    * @return map of parameter names and their descriptors
@@ -50,68 +55,76 @@ public class QueryParameterUtil {
   public static Map<String,QueryParameterDescriptor> getAvailableQueryParameters(
       Class<? extends Model<?>> model, boolean recursive)
   {
+    return ModelMetadataRegistry.getMetadata(model).getQueryParameters();
+  }
 
-    logger.debug(String.format("Determining available query parameters for model: %s", model.getName()));
-    Class<?> current = model;
-    Map<String,QueryParameterDescriptor> paramMap = new HashMap<>();
+  /**
+   * Inspects a {@link Model} class and returns all of the available and acceptable query parameter
+   *   definitions, as a map of parameter names and {@link QueryParameterDescriptor} objects.
+   *
+   * @param model model to inspect
+   * @return map of parameter names and their descriptors
+   */
+  public static Map<String,QueryParameterDescriptor> getAvailableQueryParameters(Class<? extends Model<?>> model) {
+    return getAvailableQueryParameters(model, true);
+  }
 
-    while (current.getSuperclass() != null) {
+  /**
+   * Creates the query parameter descriptors for the submitted {@link Model} fields.  Used by 
+   *   {@link ModelMetadata} when a model is first inspected; other callers should use 
+   *   {@link #getAvailableQueryParameters(Class)}.
+   *
+   * @param model model being inspected
+   * @param fields persistable fields of the model
+   * @return map of parameter names and their descriptors
+   */
+  public static Map<String,QueryParameterDescriptor> createQueryParameterDescriptors(
+      Class<?> model, List<Field> fields)
+  {
 
-      for (Field field : current.getDeclaredFields()) {
+    logger.debug(String.format("Determining available query parameters for model: %s", model.getName()));
+    Map<String,QueryParameterDescriptor> paramMap = new HashMap<>();
 
-        logger.debug(String.format("Inspecting field %s for model: %s", field.getName(), model.getName()));
+    for (Field field : fields) {
 
-        String fieldName = field.getName();
-        String paramName = field.getName();
-        Class<?> type = field.getType();
-        Class<?> keyType = type;
-        boolean regex = false;
-        boolean dynamic = true;
+      logger.debug(String.format("Inspecting field %s for model: %s", field.getName(), model.getName()));
 
-        if (Collection.class.isAssignableFrom(type)) {
+      String fieldName = field.getName();
+      String paramName = field.getName();
+      Class<?> type = field.getType();
+      Class<?> keyType = type;
+      boolean regex = false;
+      boolean dynamic = true;
 
-          ParameterizedType parameterizedType = (ParameterizedType) field.getGenericType();
-          type = parameterizedType.getActualTypeArguments()[0].getClass();
+      if (Collection.class.isAssignableFrom(type)) {
 
-        } else if (Map.class.isAssignableFrom(type)){
+        ParameterizedType parameterizedType = (ParameterizedType) field.getGenericType();
+        type = parameterizedType.getActualTypeArguments()[0].getClass();
 
-          ParameterizedType parameterizedType = (ParameterizedType) field.getGenericType();
-          keyType = (Class<?>) parameterizedType.getActualTypeArguments()[0];
-          type = (Class<?>) parameterizedType.getActualTypeArguments()[1];
-          paramName = paramName + ".\\w+";
-          regex = true;
+      } else if (Map.class.isAssignableFrom(type)){
 
-        }
+        ParameterizedType parameterizedType = (ParameterizedType) field.getGenericType();
+        keyType = (Class<?>) parameterizedType.getActualTypeArguments()[0];
+        type = (Class<?>) parameterizedType.getActualTypeArguments()[1];
+        paramName = paramName + ".\\w+";
+        regex = true;
 
-        if (field.isSynthetic()) continue;
+      }
 
-        if (field.isAnnotationPresent(Ignored.class)) continue;
+      if (field.isAnnotationPresent(Ignored.class)) continue;
 
-        QueryParameterDescriptor descriptor = new QueryParameterDescriptor(paramName, fieldName,
-            type, Evaluation.EQUALS, regex, dynamic);
-        paramMap.put(paramName, descriptor);
+      QueryParameterDescriptor descriptor = new QueryParameterDescriptor(paramName, fieldName,
+          type, Evaluation.EQUALS, regex, dynamic);
+      paramMap.put(paramName, descriptor);
 
-        logger.debug(String.format("Adding default query parameter: %s = %s",
-            fieldName, descriptor.toString()));
+      logger.debug(String.format("Adding default query parameter: %s = %s",
+          fieldName, descriptor.toString()));
 
-      }
-      current = current.getSuperclass();
     }
     logger.debug(String.format("Found %d query parameters for model: %s", paramMap.size(), model.getName()));
     return paramMap;
   }
 
-  /**
-   * Inspects a {@link Model} class and returns all of the available and acceptable query parameter
-   *   definitions, as a map of parameter names and {@link QueryParameterDescriptor} objects.
-   *
-   * @param model model to inspect
-   * @return map of parameter names and their descriptors
-   */
-  public static Map<String,QueryParameterDescriptor> getAvailableQueryParameters(Class<? extends Model<?>> model) {
-    return getAvailableQueryParameters(model, true);
-  }
-
   /**
    * Creates a {@link QueryCriteria} object based upon a request parameter and {@link Evaluation}
    *   value.
@@ -185,6 +198,40 @@ public class QueryParameterUtil {
     }
   }
 
+  /**
+   * Escapes all regular expression metacharacters in a user-supplied value, so that it matches
+   *   literally when embedded in a pattern, such as the prefix and suffix patterns of 
+   *   {@link Evaluation#STARTS_WITH} and {@link Evaluation#ENDS_WITH} criteria.  Metacharacters 
+   *   are escaped individually, rather than quoted, since database regex engines differ in their 
+   *   support for quoting.
+   *
+   * @param value literal value
+   * @return escaped value
+   */
+  public static String escapeRegex(String value){
+    StringBuilder builder = new StringBuilder(value.length() + 8);
+    for (int i = 0; i < value.length(); i++){
+      char c = value.charAt(i);
+      if (REGEX_METACHARACTERS.indexOf(c) >= 0) builder.append('\\');
+      builder.append(c);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Tests whether a value contains no regular expression metacharacters, and so would match 
+   *   literally if used as a pattern.
+   *
+   * @param value pattern value
+   * @return true if the value is a literal
+   */
+  public static boolean isLiteralRegex(String value){
+    for (int i = 0; i < value.length(); i++){
+      if (REGEX_METACHARACTERS.indexOf(value.charAt(i)) >= 0) return false;
+    }
+    return true;
+  }
+
   /**
    * Tests to see whether the selected {@link Evaluation} can be applied to the target attribute
    *   type.
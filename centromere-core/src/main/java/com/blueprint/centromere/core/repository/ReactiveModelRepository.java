@@ -0,0 +1,246 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelSupport;
+import java.io.Serializable;
+import java.util.Set;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link ModelRepository}, which returns query results as 
+ *   {@link Flux} and {@link Mono} publishers.  Implementations should only read from the data 
+ *   store as fast as subscribers request records, so that slow consumers do not cause 
+ *   unbounded buffering of results.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public interface ReactiveModelRepository<T extends Model<ID>, ID extends Serializable> 
+    extends ModelSupport<T> {
+
+  /**
+   * Searches for all records that satisfy the requested criteria.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @return all matching {@code T} records.
+   */
+  Flux<T> find(Iterable<QueryCriteria> queryCriterias);
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns them in the
+   *   requested order.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param sort {@link Sort}
+   * @return all matching {@code T} records.
+   */
+  Flux<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort);
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns the requested page 
+   *   of records.  The total number of matching records is available from 
+   *   {@link #count(Iterable)}.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param pageable {@link Pageable}
+   * @return matching {@code T} records in the requested page.
+   */
+  Flux<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable);
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns them in the
+   *   requested order, with only the requested fields populated.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param sort {@link Sort}
+   * @param fields names of the fields to be included in the returned records.
+   * @param exclude names of the fields to be excluded from the returned records.
+   * @return all matching {@code T} records.
+   */
+  Flux<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort, Set<String> fields, 
+      Set<String> exclude);
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns the requested page 
+   *   of records, with only the requested fields populated.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param pageable {@link Pageable}
+   * @param fields names of the fields to be included in the returned records.
+   * @param exclude names of the fields to be excluded from the returned records.
+   * @return matching {@code T} records in the requested page.
+   */
+  Flux<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable, Set<String> fields, 
+      Set<String> exclude);
+
+  /**
+   * Returns all records in the repository.
+   *
+   * @return all {@code T} records.
+   */
+  Flux<T> findAll();
+
+  /**
+   * Returns all records in the repository, in the requested order.
+   *
+   * @param sort {@link Sort}
+   * @return all {@code T} records.
+   */
+  Flux<T> findAll(Sort sort);
+
+  /**
+   * Fetches a single record by its primary ID.
+   *
+   * @param id record ID
+   * @return the record, or an empty {@link Mono} if it does not exist.
+   */
+  Mono<T> findById(ID id);
+
+  /**
+   * Tests whether a record with the given ID exists.
+   *
+   * @param id record ID
+   * @return true if the record exists.
+   */
+  Mono<Boolean> existsById(ID id);
+
+  /**
+   * Fetches all records with the given IDs.
+   *
+   * @param ids record IDs
+   * @return all matching records.
+   */
+  Flux<T> findAllById(Iterable<ID> ids);
+
+  /**
+   * Counts all records in the repository.
+   *
+   * @return record count.
+   */
+  Mono<Long> count();
+
+  /**
+   * Counts all records that satisfy the requested criteria.
+   *
+   * @param criterias {@link QueryCriteria}
+   * @return record count.
+   */
+  Mono<Long> count(Iterable<QueryCriteria> criterias);
+
+  /**
+   * Returns the distinct values of the requested field, for records that satisfy the criteria,
+   *   in ascending order.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the field values by.
+   * @return distinct values of {@code field}.
+   */
+  Flux<Object> distinct(String field, Iterable<QueryCriteria> criterias);
+
+  /**
+   * Returns the requested page of the sorted, distinct values of a field, for records that 
+   *   satisfy the criteria.  The distinct set may be sorted by value, using the field name, or by
+   *   the number of records containing each value, using {@link ValueCount#COUNT_PROPERTY}.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the field values by.
+   * @param pageable {@link Pageable} sort and page of distinct values to return.
+   * @return distinct values of {@code field}.
+   */
+  default Flux<Object> distinct(String field, Iterable<QueryCriteria> criterias, Pageable pageable){
+    return distinctCounts(field, criterias, pageable).map(ValueCount::getValue);
+  }
+
+  /**
+   * Returns distinct values of the requested field and the number of matching records containing
+   *   each value, sorted and paged as requested.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the field values by.
+   * @param pageable {@link Pageable} sort and page of distinct values to return.
+   * @return distinct values of {@code field} and their counts.
+   */
+  Flux<ValueCount> distinctCounts(String field, Iterable<QueryCriteria> criterias, 
+      Pageable pageable);
+
+  /**
+   * Groups the records that satisfy the requested criteria by the value of a field, and returns 
+   *   the groups in ascending key order.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the records by.
+   * @param accumulator {@link GroupAccumulator} describing what each group should contain.
+   * @return record groups.
+   */
+  Flux<ModelGroup<T>> groupBy(String field, Iterable<QueryCriteria> criterias, 
+      GroupAccumulator accumulator);
+
+  /**
+   * Creates a new record in the repository and returns the updated model object.
+   *
+   * @param entity instance of {@code T} that is not already present in database.
+   * @return the persisted record.
+   */
+  <S extends T> Mono<S> insert(S entity);
+
+  /**
+   * Creates multiple new records and returns them.
+   *
+   * @param entities collection of new records to insert.
+   * @return the persisted records.
+   */
+  <S extends T> Flux<S> insert(Iterable<S> entities);
+
+  /**
+   * Updates an existing record in the repository and returns its instance.  Signals an error if
+   *   the record does not exist.
+   *
+   * @param entity updated record to be persisted in the repository.
+   * @return the updated record.
+   */
+  <S extends T> Mono<S> update(S entity);
+
+  /**
+   * Deletes the record with the given ID.
+   *
+   * @param id record ID
+   * @return completion signal.
+   */
+  Mono<Void> deleteById(ID id);
+
+  /**
+   * Deletes the given record.
+   *
+   * @param entity record to delete.
+   * @return completion signal.
+   */
+  Mono<Void> delete(T entity);
+
+  /**
+   * Deletes all records in the repository.
+   *
+   * @return completion signal.
+   */
+  Mono<Void> deleteAll();
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+import com.blueprint.centromere.core.model.Model;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Exposes a blocking {@link ModelRepository} as a {@link ReactiveModelRepository}, by running 
+ *   each operation on a {@link Scheduler} dedicated to blocking work, so that event loop threads
+ *   are never blocked.  Unsorted and sorted queries without field projections are read from 
+ *   {@link ModelRepository#stream(Iterable, Sort)}, so records are only pulled from the underlying
+ *   cursor as they are requested.  Native reactive implementations should be preferred, where
+ *   available.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class ReactiveModelRepositoryAdapter<T extends Model<ID>, ID extends Serializable>
+    implements ReactiveModelRepository<T, ID> {
+
+  private final ModelRepository<T, ID> delegate;
+  private final Scheduler scheduler;
+
+  public ReactiveModelRepositoryAdapter(ModelRepository<T, ID> delegate) {
+    this(delegate, Schedulers.elastic());
+  }
+
+  public ReactiveModelRepositoryAdapter(ModelRepository<T, ID> delegate, Scheduler scheduler) {
+    this.delegate = delegate;
+    this.scheduler = scheduler;
+  }
+
+  private <V> Mono<V> mono(Callable<V> callable){
+    return Mono.fromCallable(callable).subscribeOn(scheduler);
+  }
+
+  private <V> Flux<V> flux(Callable<Iterable<V>> callable){
+    return Mono.fromCallable(callable).flatMapMany(Flux::fromIterable).subscribeOn(scheduler);
+  }
+
+  @Override
+  public Flux<T> find(Iterable<QueryCriteria> queryCriterias) {
+    return Flux.defer(() -> Flux.fromStream(delegate.stream(queryCriterias))).subscribeOn(scheduler);
+  }
+
+  @Override
+  public Flux<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    return Flux.defer(() -> Flux.fromStream(delegate.stream(queryCriterias, sort)))
+        .subscribeOn(scheduler);
+  }
+
+  @Override
+  public Flux<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    return flux(() -> delegate.findSlice(queryCriterias, pageable).getContent());
+  }
+
+  @Override
+  public Flux<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort, Set<String> fields,
+      Set<String> exclude) {
+    return flux(() -> delegate.find(queryCriterias, sort, fields, exclude));
+  }
+
+  @Override
+  public Flux<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable, Set<String> fields,
+      Set<String> exclude) {
+    return flux(() -> delegate.findSlice(queryCriterias, pageable, fields, exclude).getContent());
+  }
+
+  @Override
+  public Flux<T> findAll() {
+    return flux(delegate::findAll);
+  }
+
+  @Override
+  public Flux<T> findAll(Sort sort) {
+    return flux(() -> delegate.findAll(sort));
+  }
+
+  @Override
+  public Mono<T> findById(ID id) {
+    return mono(() -> delegate.findById(id).orElse(null));
+  }
+
+  @Override
+  public Mono<Boolean> existsById(ID id) {
+    return mono(() -> delegate.existsById(id));
+  }
+
+  @Override
+  public Flux<T> findAllById(Iterable<ID> ids) {
+    return flux(() -> delegate.findAllById(ids));
+  }
+
+  @Override
+  public Mono<Long> count() {
+    return mono(delegate::count);
+  }
+
+  @Override
+  public Mono<Long> count(Iterable<QueryCriteria> criterias) {
+    return mono(() -> delegate.count(criterias));
+  }
+
+  @Override
+  public Flux<Object> distinct(String field, Iterable<QueryCriteria> criterias) {
+    return flux(() -> delegate.distinct(field, criterias));
+  }
+
+  @Override
+  public Flux<Object> distinct(String field, Iterable<QueryCriteria> criterias, Pageable pageable) {
+    return flux(() -> delegate.distinct(field, criterias, pageable));
+  }
+
+  @Override
+  public Flux<ValueCount> distinctCounts(String field, Iterable<QueryCriteria> criterias,
+      Pageable pageable) {
+    return flux(() -> delegate.distinctCounts(field, criterias, pageable));
+  }
+
+  @Override
+  public Flux<ModelGroup<T>> groupBy(String field, Iterable<QueryCriteria> criterias,
+      GroupAccumulator accumulator) {
+    return flux(() -> delegate.groupBy(field, criterias, accumulator));
+  }
+
+  @Override
+  public <S extends T> Mono<S> insert(S entity) {
+    return mono(() -> delegate.insert(entity));
+  }
+
+  @Override
+  public <S extends T> Flux<S> insert(Iterable<S> entities) {
+    return flux(() -> delegate.insert(entities));
+  }
+
+  @Override
+  public <S extends T> Mono<S> update(S entity) {
+    return mono(() -> delegate.update(entity));
+  }
+
+  @Override
+  public Mono<Void> deleteById(ID id) {
+    return Mono.<Void>fromRunnable(() -> delegate.deleteById(id)).subscribeOn(scheduler);
+  }
+
+  @Override
+  public Mono<Void> delete(T entity) {
+    return Mono.<Void>fromRunnable(() -> delegate.delete(entity)).subscribeOn(scheduler);
+  }
+
+  @Override
+  public Mono<Void> deleteAll() {
+    return Mono.<Void>fromRunnable(delegate::deleteAll).subscribeOn(scheduler);
+  }
+
+  @Override
+  public Class<T> getModel() {
+    return delegate.getModel();
+  }
+
+  public ModelRepository<T, ID> getDelegate() {
+    return delegate;
+  }
+
+}
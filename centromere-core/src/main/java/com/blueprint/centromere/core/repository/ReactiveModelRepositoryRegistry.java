@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+import com.blueprint.centromere.core.exceptions.ModelRegistryException;
+import com.blueprint.centromere.core.model.Model;
+import java.util.Collection;
+
+/**
+ * Registry of {@link ReactiveModelRepository} instances, which allows lookup of repositories by
+ *   {@link Model} class or by the resource URI of the model.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public interface ReactiveModelRepositoryRegistry {
+
+  /**
+   * Tests whether the given class represents a registered {@link Model} resource.
+   *
+   * @param type model type
+   * @return true if model is registered
+   */
+  boolean isRegisteredModel(Class<?> type);
+
+  /**
+   * Retrieves the {@link ReactiveModelRepository} instance associated with the registered model.
+   *
+   * @param model model type
+   * @return instance of the repository, or null
+   * @throws ModelRegistryException throws if more than one repository matches the model
+   */
+  ReactiveModelRepository<?, ?> getRepositoryByModel(Class<? extends Model<?>> model)
+      throws ModelRegistryException;
+
+  /**
+   * Retrieves the {@link ReactiveModelRepository} instance registered for a resource URI.
+   *
+   * @param uri model resource URI
+   * @return instance of the repository, or null
+   */
+  ReactiveModelRepository<?, ?> getRepositoryByUri(String uri);
+
+  /**
+   * Returns a collection of all registered resource URIs.
+   *
+   * @return all registered URIs
+   */
+  Collection<String> getRegisteredUris();
+
+  /**
+   * Returns a collection of all registered {@link Model} classes.
+   *
+   * @return all registered models
+   */
+  Collection<Class<? extends Model<?>>> getRegisteredModels();
+
+}
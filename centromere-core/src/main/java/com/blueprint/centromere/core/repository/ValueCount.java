@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository;
+
+import java.util.Comparator;
+import java.util.Objects;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Simple representation of a distinct field value and the number of records that contain it, as
+ *   returned by aggregation methods in {@link ModelRepository}.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class ValueCount {
+
+  /**
+   * {@link Sort} property name that orders results by their count, rather than by their value.
+   */
+  public static final String COUNT_PROPERTY = "count";
+
+  private Object value;
+  private long count;
+
+  public ValueCount() { }
+
+  public ValueCount(Object value, long count) {
+    this.value = value;
+    this.count = count;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public void setValue(Object value) {
+    this.value = value;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  /**
+   * Returns a {@link Comparator} matching the requested {@link Sort}.  Orders on the
+   *   {@link #COUNT_PROPERTY} property sort by count, and all other orders sort by value.  Ties and
+   *   unsorted requests are ordered by ascending value.
+   *
+   * @param sort requested sort
+   * @return comparator for sorting value counts
+   */
+  public static Comparator<ValueCount> comparator(Sort sort){
+    Comparator<ValueCount> comparator = null;
+    if (sort != null){
+      for (Sort.Order order: sort){
+        Comparator<ValueCount> c = COUNT_PROPERTY.equals(order.getProperty())
+            ? Comparator.comparingLong(ValueCount::getCount)
+            : (a, b) -> compareValues(a.getValue(), b.getValue());
+        if (order.isDescending()) c = c.reversed();
+        comparator = comparator == null ? c : comparator.thenComparing(c);
+      }
+    }
+    Comparator<ValueCount> byValue = (a, b) -> compareValues(a.getValue(), b.getValue());
+    return comparator == null ? byValue : comparator.thenComparing(byValue);
+  }
+
+  /**
+   * Compares two arbitrary field values, placing nulls first.  Values of the same comparable type
+   *   are compared naturally, and all others by their string representation.
+   */
+  @SuppressWarnings("unchecked")
+  public static int compareValues(Object a, Object b){
+    if (a == b) return 0;
+    if (a == null) return -1;
+    if (b == null) return 1;
+    if (a instanceof Comparable && a.getClass().equals(b.getClass())){
+      return ((Comparable<Object>) a).compareTo(b);
+    }
+    return a.toString().compareTo(b.toString());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof ValueCount)) return false;
+    ValueCount that = (ValueCount) o;
+    return count == that.count && Objects.equals(value, that.value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(value, count);
+  }
+
+  @Override
+  public String toString() {
+    return "ValueCount{" +
+        "value=" + value +
+        ", count=" + count +
+        '}';
+  }
+
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository.cache;
+
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.repository.DelegatingModelRepository;
+import com.blueprint.centromere.core.repository.FacetCounts;
+import com.blueprint.centromere.core.repository.FieldStatistics;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import com.blueprint.centromere.core.repository.KeysetCursor;
+import com.blueprint.centromere.core.repository.KeysetSlice;
+import com.blueprint.centromere.core.repository.ModelGroup;
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.QueryCriteriaNormalizer;
+import com.blueprint.centromere.core.repository.ValueCount;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+/**
+ * {@link ModelRepository} decorator that memoizes the results of {@code find}, {@code count} and
+ *   {@code distinct} queries, keyed by a {@link QueryCacheKey}.  All cached results for the model
+ *   are invalidated whenever a write operation is performed through this repository, and the
+ *   invalidation is published to other nodes if a {@link QueryCacheInvalidationBroadcaster} is
+ *   configured.  Streaming, aggregation and ID lookup methods are passed through uncached.
+ * 
+ * Cached results are shared between callers, so their collections are cached as unmodifiable 
+ *   views, and the records they contain should not be modified.  Results holding more than
+ *   {@link QueryCacheSettings#getMaximumResultSize()} records are not cached.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class CachingModelRepository<T extends Model<ID>, ID extends Serializable>
+    implements DelegatingModelRepository<T, ID> {
+
+  private final ModelRepository<T, ID> delegate;
+  private final QueryCacheInvalidationBroadcaster broadcaster;
+  private final Cache<QueryCacheKey, Object> cache;
+  private final AtomicLong generation = new AtomicLong();
+  private final QueryCriteriaNormalizer normalizer;
+  private final long maximumResultSize;
+
+  public CachingModelRepository(ModelRepository<T, ID> delegate, QueryCacheSettings settings) {
+    this(delegate, settings, null);
+  }
+
+  public CachingModelRepository(ModelRepository<T, ID> delegate, QueryCacheSettings settings,
+      QueryCacheInvalidationBroadcaster broadcaster) {
+    this.delegate = delegate;
+    this.broadcaster = broadcaster;
+    this.normalizer = new QueryCriteriaNormalizer(delegate.getModel());
+    this.maximumResultSize = settings.getMaximumResultSize();
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+    if (settings.getMaximumWeight() > 0){
+      builder.maximumWeight(settings.getMaximumWeight())
+          .weigher((QueryCacheKey key, Object value) -> getWeight(value));
+    } else {
+      builder.maximumSize(settings.getMaximumSize());
+    }
+    Duration ttl = settings.getTtl(delegate.getModel());
+    if (ttl != null){
+      builder.expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    this.cache = builder.build();
+  }
+
+  /**
+   * Estimates the size of a cached result as the number of records or values it contains.
+   */
+  private static int getWeight(Object value){
+    int weight = 1;
+    if (value instanceof Collection){
+      weight = ((Collection<?>) value).size();
+    } else if (value instanceof Slice){
+      weight = ((Slice<?>) value).getNumberOfElements();
+    } else if (value instanceof KeysetSlice){
+      weight = ((KeysetSlice<?>) value).getContent().size();
+    }
+    return Math.max(weight, 1);
+  }
+
+  /**
+   * Wraps the collections of a query result in unmodifiable views before it is cached.  Pages and
+   *   slices are rebuilt around an unmodifiable copy of their content, since their implementations
+   *   may expose the list they were created with.
+   */
+  private static Object toUnmodifiable(Object value){
+    if (value instanceof Page){
+      Page<?> page = (Page<?>) value;
+      return new PageImpl<>(toUnmodifiableContent(page), page.getPageable(), page.getTotalElements());
+    } else if (value instanceof Slice){
+      Slice<?> slice = (Slice<?>) value;
+      return new SliceImpl<>(toUnmodifiableContent(slice), slice.getPageable(), slice.hasNext());
+    } else if (value instanceof List){
+      return Collections.unmodifiableList((List<?>) value);
+    } else if (value instanceof Set){
+      return Collections.unmodifiableSet((Set<?>) value);
+    } else if (value instanceof FacetCounts){
+      FacetCounts facetCounts = (FacetCounts) value;
+      Map<String, List<ValueCount>> facets = new LinkedHashMap<>();
+      facetCounts.getFacets().forEach((field, counts) -> 
+          facets.put(field, Collections.unmodifiableList(counts)));
+      return new FacetCounts(facetCounts.getCount(), Collections.unmodifiableMap(facets));
+    }
+    return value;
+  }
+
+  private static <V> List<V> toUnmodifiableContent(Slice<V> slice){
+    return Collections.unmodifiableList(new ArrayList<>(slice.getContent()));
+  }
+
+  /**
+   * Returns the cached result for the given operation and arguments, running the query and
+   *   caching its result if it is not present.  The criteria are normalized before the key is
+   *   built, so that equivalent filters, such as duplicated or overlapping ranges, share an entry.
+   *   Results larger than the maximum result size are returned without being cached.
+   */
+  @SuppressWarnings("unchecked")
+  private <V> V get(Callable<V> query, String operation, Iterable<QueryCriteria> criterias,
+      Object... arguments){
+    Iterable<QueryCriteria> keyCriterias = criterias;
+    if (criterias != null){
+      Optional<List<QueryCriteria>> normalized = normalizer.normalize(criterias);
+      if (normalized.isPresent()) keyCriterias = normalized.get();
+    }
+    QueryCacheKey key = QueryCacheKey.of(generation.get(), operation, keyCriterias, arguments);
+    try {
+      return (V) cache.get(key, () -> {
+        Object result = toUnmodifiable(query.call());
+        if (maximumResultSize > 0 && getWeight(result) > maximumResultSize){
+          throw new UncachedResultException(result);
+        }
+        return result;
+      });
+    } catch (ExecutionException | UncheckedExecutionException e){
+      if (e.getCause() instanceof UncachedResultException){
+        return (V) ((UncachedResultException) e.getCause()).getResult();
+      }
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * Discards all cached results for this model, and notifies other nodes, if a broadcaster is
+   *   configured.
+   */
+  public void invalidate(){
+    invalidateLocal();
+    if (broadcaster != null) broadcaster.publish(getModel());
+  }
+
+  /**
+   * Discards all cached results for this model, without notifying other nodes.  Called when an
+   *   invalidation is received from another node.
+   */
+  public void invalidateLocal(){
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  public CacheStats getStats(){
+    return cache.stats();
+  }
+
+  public long getSize(){
+    return cache.size();
+  }
+
+  @Override
+  public ModelRepository<T, ID> getDelegate() {
+    return delegate;
+  }
+
+  /* Cached queries */
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias) {
+    return get(() -> delegate.find(queryCriterias), "find", queryCriterias);
+  }
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    return get(() -> delegate.find(queryCriterias, sort), "findSorted", queryCriterias, sort);
+  }
+
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    return get(() -> delegate.find(queryCriterias, pageable), "findPage", queryCriterias, pageable);
+  }
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort, Set<String> fields,
+      Set<String> exclude) {
+    return get(() -> delegate.find(queryCriterias, sort, fields, exclude), "findSortedFields", 
+        queryCriterias, sort, fields, exclude);
+  }
+
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable, Set<String> fields,
+      Set<String> exclude) {
+    return get(() -> delegate.find(queryCriterias, pageable, fields, exclude), "findPageFields",
+        queryCriterias, pageable, fields, exclude);
+  }
+
+  @Override
+  public Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    return get(() -> delegate.findSlice(queryCriterias, pageable), "findSlice", 
+        queryCriterias, pageable);
+  }
+
+  @Override
+  public Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable,
+      Set<String> fields, Set<String> exclude) {
+    return get(() -> delegate.findSlice(queryCriterias, pageable, fields, exclude), 
+        "findSliceFields", queryCriterias, pageable, fields, exclude);
+  }
+
+  @Override
+  public KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor,
+      Sort sort, int size) {
+    return get(() -> delegate.findAfter(queryCriterias, cursor, sort, size), "findAfter",
+        queryCriterias, cursor, sort, size);
+  }
+
+  @Override
+  public KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor,
+      Sort sort, int size, Set<String> fields, Set<String> exclude) {
+    return get(() -> delegate.findAfter(queryCriterias, cursor, sort, size, fields, exclude), 
+        "findAfterFields", queryCriterias, cursor, sort, size, fields, exclude);
+  }
+
+  @Override
+  public Iterable<T> findAll() {
+    return get(delegate::findAll, "findAll", null);
+  }
+
+  @Override
+  public Iterable<T> findAll(Sort sort) {
+    return get(() -> delegate.findAll(sort), "findAllSorted", null, sort);
+  }
+
+  @Override
+  public Page<T> findAll(Pageable pageable) {
+    return get(() -> delegate.findAll(pageable), "findAllPage", null, pageable);
+  }
+
+  @Override
+  public long count() {
+    return get(delegate::count, "count", null);
+  }
+
+  @Override
+  public long count(Iterable<QueryCriteria> criterias) {
+    return get(() -> delegate.count(criterias), "count", criterias);
+  }
+
+  @Override
+  public long estimateCount(Iterable<QueryCriteria> queryCriterias, long limit) {
+    return get(() -> delegate.estimateCount(queryCriterias, limit), "estimateCount",
+        queryCriterias, limit);
+  }
+
+  @Override
+  public Set<Object> distinct(String field) {
+    return get(() -> delegate.distinct(field), "distinct", null, field);
+  }
+
+  @Override
+  public Set<Object> distinct(String field, Iterable<QueryCriteria> criterias) {
+    return get(() -> delegate.distinct(field, criterias), "distinct", criterias, field);
+  }
+
+  @Override
+  public List<Object> distinct(String field, Iterable<QueryCriteria> criterias, Pageable pageable) {
+    return get(() -> delegate.distinct(field, criterias, pageable), "distinctPage", 
+        criterias, field, pageable);
+  }
+
+  @Override
+  public List<ValueCount> distinctCounts(String field, Iterable<QueryCriteria> criterias,
+      Pageable pageable) {
+    return get(() -> delegate.distinctCounts(field, criterias, pageable), "distinctCounts",
+        criterias, field, pageable);
+  }
+
+  @Override
+  public FacetCounts facets(List<String> fields, Iterable<QueryCriteria> criterias, int limit) {
+    return get(() -> delegate.facets(fields, criterias, limit), "facets", criterias, fields, limit);
+  }
+
+  @Override
+  public List<FieldStatistics> statistics(String field, String groupBy, 
+      Iterable<QueryCriteria> criterias, List<Double> percentiles) {
+    return get(() -> delegate.statistics(field, groupBy, criterias, percentiles), "statistics", 
+        criterias, field, groupBy, percentiles);
+  }
+
+  /* Uncached queries */
+
+  @Override
+  public Stream<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    return delegate.stream(queryCriterias, sort);
+  }
+
+  @Override
+  public Stream<T> stream(Iterable<QueryCriteria> queryCriterias) {
+    return delegate.stream(queryCriterias);
+  }
+
+  @Override
+  public List<ModelGroup<T>> groupBy(String field, Iterable<QueryCriteria> criterias,
+      GroupAccumulator accumulator) {
+    return delegate.groupBy(field, criterias, accumulator);
+  }
+
+  @Override
+  public Optional<T> findById(ID id) {
+    return delegate.findById(id);
+  }
+
+  @Override
+  public boolean existsById(ID id) {
+    return delegate.existsById(id);
+  }
+
+  @Override
+  public Iterable<T> findAllById(Iterable<ID> ids) {
+    return delegate.findAllById(ids);
+  }
+
+  /* Writes */
+
+  @Override
+  public <S extends T> S insert(S entity) {
+    try {
+      return delegate.insert(entity);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public <S extends T> Iterable<S> insert(Iterable<S> entities) {
+    try {
+      return delegate.insert(entities);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public <S extends T> S update(S entity) {
+    try {
+      return delegate.update(entity);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public <S extends T> Iterable<S> update(Iterable<S> entities) {
+    try {
+      return delegate.update(entities);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public <S extends T> Iterable<S> upsert(Iterable<S> entities) {
+    try {
+      return delegate.upsert(entities);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public <S extends T> S save(S entity) {
+    try {
+      return delegate.save(entity);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+    try {
+      return delegate.saveAll(entities);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void deleteById(ID id) {
+    try {
+      delegate.deleteById(id);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void delete(T entity) {
+    try {
+      delegate.delete(entity);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends T> entities) {
+    try {
+      delegate.deleteAll(entities);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void deleteAll() {
+    try {
+      delegate.deleteAll();
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public Class<T> getModel() {
+    return delegate.getModel();
+  }
+
+  /**
+   * Carries a result that is too large to be cached out of the cache loader.
+   */
+  private static class UncachedResultException extends Exception {
+
+    private final Object result;
+
+    UncachedResultException(Object result) {
+      super(null, null, false, false);
+      this.result = result;
+    }
+
+    Object getResult() {
+      return result;
+    }
+
+  }
+
+}
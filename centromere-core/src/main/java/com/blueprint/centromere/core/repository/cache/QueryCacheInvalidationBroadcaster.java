@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository.cache;
+
+import com.blueprint.centromere.core.model.Model;
+import java.util.function.Consumer;
+
+/**
+ * Propagates cache invalidations between application nodes that share a database, so that a
+ *   write handled by one node clears the cached results of the affected model on every node.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public interface QueryCacheInvalidationBroadcaster {
+
+  /**
+   * Notifies other nodes that cached results for the given model are stale.
+   *
+   * @param model model type whose data has changed
+   */
+  void publish(Class<? extends Model<?>> model);
+
+  /**
+   * Registers a listener to be called with the model type of each invalidation published by
+   *   another node.  Invalidations published by this node are not delivered to its own listeners.
+   *
+   * @param listener invalidation callback
+   */
+  void subscribe(Consumer<Class<? extends Model<?>>> listener);
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository.cache;
+
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Identifies a cached repository query result.  Keys are built from the name of the repository
+ *   operation, a normalized form of its {@link QueryCriteria}, and its remaining arguments, such as
+ *   sort, page and field names.  Criteria are normalized so that the same query submitted with its
+ *   parameters in a different order maps to the same key.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class QueryCacheKey {
+
+  private static final Comparator<List<Object>> CRITERIA_ORDER 
+      = Comparator.comparing(Object::toString);
+
+  private final long generation;
+  private final String operation;
+  private final List<List<Object>> criterias;
+  private final List<Object> arguments;
+  private final int hashCode;
+
+  private QueryCacheKey(long generation, String operation, List<List<Object>> criterias,
+      List<Object> arguments) {
+    this.generation = generation;
+    this.operation = operation;
+    this.criterias = criterias;
+    this.arguments = arguments;
+    this.hashCode = Objects.hash(generation, operation, criterias, arguments);
+  }
+
+  /**
+   * Creates a key for the given operation and arguments.  The generation is incremented by the
+   *   cache whenever it is invalidated, so that results of queries that were in flight during an
+   *   invalidation are never served afterwards.
+   *
+   * @param generation cache generation the query was issued in
+   * @param operation repository method name
+   * @param queryCriterias query criteria, may be null
+   * @param arguments remaining method arguments
+   * @return the key
+   */
+  public static QueryCacheKey of(long generation, String operation, 
+      Iterable<QueryCriteria> queryCriterias, Object... arguments){
+    List<List<Object>> criterias = new ArrayList<>();
+    if (queryCriterias != null){
+      for (QueryCriteria criteria: queryCriterias){
+        criterias.add(normalizeCriteria(criteria));
+      }
+    }
+    criterias.sort(CRITERIA_ORDER);
+    List<Object> args = new ArrayList<>();
+    for (Object argument: arguments){
+      if (argument instanceof Set){
+        List<Object> members = new ArrayList<>((Set<?>) argument);
+        members.sort(Comparator.comparing(String::valueOf));
+        args.add(members);
+      } else {
+        args.add(argument);
+      }
+    }
+    return new QueryCacheKey(generation, operation, Collections.unmodifiableList(criterias), 
+        Collections.unmodifiableList(args));
+  }
+
+  /**
+   * Converts a criteria into a list of its key, evaluation and normalized value.  The members of
+   *   {@code AND} and {@code OR} groups are normalized and sorted, like top-level criteria.
+   */
+  private static List<Object> normalizeCriteria(QueryCriteria criteria){
+    if (criteria.isGroup()){
+      List<List<Object>> members = new ArrayList<>();
+      for (QueryCriteria member: criteria.getCriterias()){
+        members.add(normalizeCriteria(member));
+      }
+      members.sort(CRITERIA_ORDER);
+      return Arrays.asList(null, criteria.getEvaluation(), members);
+    }
+    return Arrays.asList(criteria.getKey(), criteria.getEvaluation(),
+        normalizeValue(criteria.getValue(), criteria.getEvaluation()));
+  }
+
+  /**
+   * Converts arrays to lists so that values compare by content, and sorts the members of 
+   *   set-membership criteria, whose order does not affect the result.
+   */
+  private static Object normalizeValue(Object value, Evaluation evaluation){
+    if (value == null) return null;
+    List<Object> values = null;
+    if (value instanceof Collection){
+      values = new ArrayList<>((Collection<?>) value);
+    } else if (value instanceof Object[]){
+      values = new ArrayList<>(Arrays.asList((Object[]) value));
+    }
+    if (values == null) return value;
+    if (Evaluation.IN.equals(evaluation) || Evaluation.NOT_IN.equals(evaluation)){
+      values.sort(Comparator.comparing(String::valueOf));
+    }
+    return values;
+  }
+
+  public long getGeneration() {
+    return generation;
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof QueryCacheKey)) return false;
+    QueryCacheKey that = (QueryCacheKey) o;
+    return generation == that.generation
+        && Objects.equals(operation, that.operation)
+        && Objects.equals(criterias, that.criterias)
+        && Objects.equals(arguments, that.arguments);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return "QueryCacheKey{" +
+        "generation=" + generation +
+        ", operation='" + operation + '\'' +
+        ", criterias=" + criterias +
+        ", arguments=" + arguments +
+        '}';
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository.cache;
+
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.ModelRepositoryDecorator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ModelRepositoryDecorator} that wraps each repository whose model is cached, according to
+ *   the {@link QueryCacheSettings}, in a {@link CachingModelRepository}.  When a
+ *   {@link QueryCacheInvalidationBroadcaster} is supplied, invalidations received from other nodes
+ *   are applied to the matching local cache.  Writes that do not go through the decorated 
+ *   repositories, such as data imports using the undecorated repository beans, should be followed
+ *   by a call to {@link #invalidate(Class)}.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class QueryCacheManager implements ModelRepositoryDecorator {
+
+  private static final Logger logger = LoggerFactory.getLogger(QueryCacheManager.class);
+
+  private final QueryCacheSettings settings;
+  private final QueryCacheInvalidationBroadcaster broadcaster;
+  private final Map<Class<?>, CachingModelRepository<?, ?>> repositories = new ConcurrentHashMap<>();
+
+  public QueryCacheManager(QueryCacheSettings settings) {
+    this(settings, null);
+  }
+
+  public QueryCacheManager(QueryCacheSettings settings, QueryCacheInvalidationBroadcaster broadcaster) {
+    this.settings = settings;
+    this.broadcaster = broadcaster;
+    if (broadcaster != null){
+      broadcaster.subscribe(this::invalidateLocal);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public ModelRepository<?, ?> decorate(ModelRepository<?, ?> repository) {
+    Class<?> model = repository.getModel();
+    if (!settings.isCached(model)) return repository;
+    CachingModelRepository<?, ?> cachingRepository 
+        = new CachingModelRepository(repository, settings, broadcaster);
+    repositories.put(model, cachingRepository);
+    logger.debug(String.format("Caching query results for model %s with TTL %s", 
+        model.getName(), settings.getTtl(model)));
+    return cachingRepository;
+  }
+
+  /**
+   * Discards cached results for the given model on this and all other nodes.
+   *
+   * @param model model type whose data has changed
+   */
+  public void invalidate(Class<? extends Model<?>> model){
+    invalidateLocal(model);
+    if (broadcaster != null) broadcaster.publish(model);
+  }
+
+  private void invalidateLocal(Class<? extends Model<?>> model){
+    CachingModelRepository<?, ?> repository = repositories.get(model);
+    if (repository != null){
+      logger.debug(String.format("Invalidating cached query results for model %s", model.getName()));
+      repository.invalidateLocal();
+    }
+  }
+
+  /**
+   * Returns the caching repository for the given model, if one has been created.
+   *
+   * @param model model type
+   * @return the caching repository, or null
+   */
+  public CachingModelRepository<?, ?> getRepository(Class<?> model){
+    return repositories.get(model);
+  }
+
+  public QueryCacheSettings getSettings() {
+    return settings;
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository.cache;
+
+import com.blueprint.centromere.core.model.Model;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration for {@link CachingModelRepository} instances.  Each cached model gets its own
+ *   cache, bounded either by its number of entries or, when a maximum weight is set, by the total
+ *   number of records held across all of its entries.  Results holding more records than the 
+ *   maximum result size are never cached.  Entries expire after the model's TTL; models without a
+ *   TTL of their own use the default TTL, and are not cached at all if there is none.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class QueryCacheSettings {
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 1000L;
+  public static final long DEFAULT_MAXIMUM_RESULT_SIZE = 10000L;
+
+  private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+  private long maximumWeight = -1L;
+  private long maximumResultSize = DEFAULT_MAXIMUM_RESULT_SIZE;
+  private Duration defaultTtl = null;
+  private Map<Class<? extends Model<?>>, Duration> modelTtls = new HashMap<>();
+
+  /**
+   * Tests whether results for the given model should be cached.
+   *
+   * @param model model type
+   * @return true if the model has a TTL
+   */
+  public boolean isCached(Class<?> model){
+    return getTtl(model) != null;
+  }
+
+  /**
+   * Returns the time after which cached results for the given model expire.
+   *
+   * @param model model type
+   * @return the model's TTL, the default TTL, or null if the model is not cached
+   */
+  public Duration getTtl(Class<?> model){
+    return modelTtls.containsKey(model) ? modelTtls.get(model) : defaultTtl;
+  }
+
+  /**
+   * Sets the TTL for a single model, overriding the default.
+   *
+   * @param model model type
+   * @param ttl time after which cached results expire
+   */
+  public void setTtl(Class<? extends Model<?>> model, Duration ttl){
+    modelTtls.put(model, ttl);
+  }
+
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(long maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  public long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  /**
+   * Bounds each cache by the total number of records it holds, instead of by its number of
+   *   entries.  A value less than one disables weight-based eviction.
+   *
+   * @param maximumWeight maximum number of cached records per model
+   */
+  public void setMaximumWeight(long maximumWeight) {
+    this.maximumWeight = maximumWeight;
+  }
+
+  public long getMaximumResultSize() {
+    return maximumResultSize;
+  }
+
+  /**
+   * Sets the largest number of records or values a single result may hold and still be cached.
+   *   Larger results, such as unfiltered {@code find} queries, are returned to the caller without
+   *   being cached.  A value less than one disables the limit.
+   *
+   * @param maximumResultSize maximum number of records per cached result
+   */
+  public void setMaximumResultSize(long maximumResultSize) {
+    this.maximumResultSize = maximumResultSize;
+  }
+
+  public Duration getDefaultTtl() {
+    return defaultTtl;
+  }
+
+  public void setDefaultTtl(Duration defaultTtl) {
+    this.defaultTtl = defaultTtl;
+  }
+
+  public Map<Class<? extends Model<?>>, Duration> getModelTtls() {
+    return modelTtls;
+  }
+
+  public void setModelTtls(Map<Class<? extends Model<?>>, Duration> modelTtls) {
+    this.modelTtls = modelTtls;
+  }
+
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.guess;
+
+import com.blueprint.centromere.core.model.Keyword;
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.model.NormalizedFieldUtils;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory keyword index over selected fields of a {@link Model}, by default those annotated 
+ *   with {@link Keyword}.  Field values, and the individual words of multi-word values, are 
+ *   lowercased and stored in a sorted term dictionary, so that exact and prefix lookups are a 
+ *   single map lookup or range scan, and in a trigram index, so that misspelled keywords can be 
+ *   matched within a small edit distance without scanning every term.  Matches are ranked by 
+ *   {@link MatchType}, then by the declaration order of the matching field, then by how closely 
+ *   the term matches the keyword.
+ * 
+ * Records are held by reference and should not be modified once indexed.  The index is safe for
+ *   concurrent use: lookups share a read lock, incremental writes take a write lock, and 
+ *   {@link #rebuild(Iterable)} builds a new index before swapping it in, so lookups are not 
+ *   blocked while it runs.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class KeywordIndex<T extends Model<?>> {
+
+  public static final int DEFAULT_MAX_EDITS = 1;
+  
+  private static final int GRAM_SIZE = 3;
+  private static final char GRAM_START = '\u0002';
+  private static final char GRAM_END = '\u0003';
+
+  private final Class<T> model;
+  private final List<Field> fields;
+  private final int maxEdits;
+  private final ModelMetadata<T> metadata;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private State<T> state = new State<>();
+
+  public KeywordIndex(Class<T> model) {
+    this(model, DEFAULT_MAX_EDITS);
+  }
+
+  public KeywordIndex(Class<T> model, int maxEdits) {
+    this(model, null, maxEdits);
+  }
+
+  /**
+   * Creates an empty index.
+   * 
+   * @param model model type
+   * @param fields names of the indexed fields, in rank order, or null to use the fields 
+   *   annotated with {@link Keyword}
+   * @param maxEdits maximum edit distance of fuzzy matches, or zero to disable fuzzy matching
+   */
+  public KeywordIndex(Class<T> model, List<String> fields, int maxEdits) {
+    this.model = model;
+    this.metadata = ModelMetadataRegistry.getMetadata(model);
+    this.maxEdits = maxEdits;
+    if (fields == null){
+      this.fields = metadata.getKeywordFields();
+    } else {
+      List<Field> list = new ArrayList<>();
+      for (String name: fields){
+        Field field = metadata.getField(name);
+        if (field == null){
+          throw new IllegalArgumentException(String.format("Model %s has no field %s", 
+              model.getName(), name));
+        }
+        list.add(field);
+      }
+      this.fields = Collections.unmodifiableList(list);
+    }
+  }
+
+  /**
+   * Adds a record to the index, replacing any previously indexed record with the same ID.
+   *   Records without an ID are ignored.
+   *
+   * @param record record to index
+   */
+  public void add(T record){
+    if (record == null || record.getId() == null) return;
+    Map<String, Integer> terms = getTerms(record);
+    lock.writeLock().lock();
+    try {
+      state.remove(record.getId());
+      state.add(record.getId(), record, terms);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds or replaces multiple records.  See {@link #add(Model)}.
+   *
+   * @param records records to index
+   */
+  public void addAll(Iterable<? extends T> records){
+    for (T record: records){
+      add(record);
+    }
+  }
+
+  /**
+   * Removes the record with the given ID from the index, if present.
+   *
+   * @param id record ID
+   */
+  public void remove(Object id){
+    if (id == null) return;
+    lock.writeLock().lock();
+    try {
+      state.remove(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes all records from the index.
+   */
+  public void clear(){
+    rebuild(Collections.emptyList());
+  }
+
+  /**
+   * Replaces the contents of the index with the submitted records.  The new index is built 
+   *   without holding the lock, so concurrent lookups see the previous contents until it is
+   *   complete.
+   *
+   * @param records all records of the model
+   */
+  public void rebuild(Iterable<? extends T> records){
+    State<T> rebuilt = new State<>();
+    for (T record: records){
+      if (record != null && record.getId() != null){
+        rebuilt.remove(record.getId());
+        rebuilt.add(record.getId(), record, getTerms(record));
+      }
+    }
+    lock.writeLock().lock();
+    try {
+      state = rebuilt;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the records whose indexed values best match the keyword, ignoring case.  Each record is
+   *   returned once, with its best match.  Only the best {@code limit} matches are retained while
+   *   searching, and terms or match types that cannot improve on them are skipped, so that short
+   *   prefixes matching many terms, and fuzzy matching once enough better matches are found, do 
+   *   not add to the cost of the search.
+   *
+   * @param keyword keyword to search for
+   * @param limit maximum number of matches to return
+   * @return ranked list of matches
+   */
+  public List<KeywordMatch<T>> search(String keyword, int limit){
+    String query = keyword == null ? "" : NormalizedFieldUtils.normalize(keyword.trim());
+    if (query.isEmpty() || limit < 1) return Collections.emptyList();
+    TopMatches<T> matches = new TopMatches<>(limit);
+    lock.readLock().lock();
+    try {
+      Map<Object, Integer> postings = state.terms.get(query);
+      if (postings != null){
+        collect(matches, query, postings, MatchType.EXACT, 0);
+      }
+      if (matches.accepts(MatchType.PREFIX, 1, query)){
+        for (Map.Entry<String, Map<Object, Integer>> entry: state.terms
+            .subMap(query, false, query + Character.MAX_VALUE, false).entrySet()){
+          int distance = entry.getKey().length() - query.length();
+          if (matches.accepts(MatchType.PREFIX, distance, entry.getKey())){
+            collect(matches, entry.getKey(), entry.getValue(), MatchType.PREFIX, distance);
+          }
+        }
+      }
+      if (maxEdits > 0 && matches.accepts(MatchType.FUZZY, 1, "")){
+        for (String term: getFuzzyCandidates(query)){
+          if (!matches.accepts(MatchType.FUZZY, 1, term)) continue;
+          int distance = getEditDistance(query, term, maxEdits);
+          if (distance > 0 && distance <= maxEdits){
+            collect(matches, term, state.terms.get(term), MatchType.FUZZY, distance);
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return matches.getMatches();
+  }
+
+  /**
+   * Returns the number of indexed records.
+   */
+  public int size(){
+    lock.readLock().lock();
+    try {
+      return state.records.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of distinct indexed terms.
+   */
+  public int getTermCount(){
+    lock.readLock().lock();
+    try {
+      return state.terms.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public Class<T> getModel() {
+    return model;
+  }
+
+  /**
+   * Returns the names of the indexed fields, in rank order.
+   */
+  public List<String> getFields() {
+    List<String> names = new ArrayList<>();
+    for (Field field: fields){
+      names.add(field.getName());
+    }
+    return names;
+  }
+
+  public int getMaxEdits() {
+    return maxEdits;
+  }
+
+  private void collect(TopMatches<T> matches, String term, Map<Object, Integer> postings, 
+      MatchType type, int distance){
+    for (Map.Entry<Object, Integer> posting: postings.entrySet()){
+      matches.offer(posting.getKey(), new KeywordMatch<>(state.records.get(posting.getKey()).record, 
+          term, fields.get(posting.getValue()).getName(), posting.getValue(), type, distance));
+    }
+  }
+
+  /**
+   * Returns the terms that share enough trigrams with the query to be within the maximum edit
+   *   distance of it.  Queries too short for the trigram bound to exclude anything return no 
+   *   candidates.
+   */
+  private Set<String> getFuzzyCandidates(String query){
+    int threshold = query.length() - GRAM_SIZE * maxEdits;
+    if (threshold < 1) return Collections.emptySet();
+    Map<String, Integer> counts = new HashMap<>();
+    for (String gram: getGrams(query)){
+      Set<String> terms = state.grams.get(gram);
+      if (terms == null) continue;
+      for (String term: terms){
+        if (Math.abs(term.length() - query.length()) <= maxEdits){
+          counts.merge(term, 1, Integer::sum);
+        }
+      }
+    }
+    Set<String> candidates = new HashSet<>();
+    for (Map.Entry<String, Integer> entry: counts.entrySet()){
+      if (entry.getValue() >= threshold) candidates.add(entry.getKey());
+    }
+    return candidates;
+  }
+
+  /**
+   * Extracts the normalized terms of a record, each mapped to the rank of the first field it 
+   *   appears in.
+   */
+  private Map<String, Integer> getTerms(T record){
+    Map<String, Integer> terms = new HashMap<>();
+    for (int rank = 0; rank < fields.size(); rank++){
+      Object value = metadata.getFieldValue(record, fields.get(rank));
+      if (value instanceof Collection){
+        for (Object member: (Collection<?>) value){
+          addTerms(terms, member, rank);
+        }
+      } else {
+        addTerms(terms, value, rank);
+      }
+    }
+    return terms;
+  }
+
+  private static void addTerms(Map<String, Integer> terms, Object value, int rank){
+    if (value == null) return;
+    String text = NormalizedFieldUtils.normalize(String.valueOf(value).trim());
+    if (text.isEmpty()) return;
+    terms.putIfAbsent(text, rank);
+    String[] words = text.split("\\s+");
+    if (words.length > 1){
+      for (String word: words){
+        terms.putIfAbsent(word, rank);
+      }
+    }
+  }
+
+  private static List<String> getGrams(String term){
+    String padded = GRAM_START + term + GRAM_END;
+    List<String> grams = new ArrayList<>();
+    for (int i = 0; i + GRAM_SIZE <= padded.length(); i++){
+      grams.add(padded.substring(i, i + GRAM_SIZE));
+    }
+    return grams;
+  }
+
+  /**
+   * Computes the Levenshtein distance between two strings, giving up and returning 
+   *   {@code max + 1} as soon as it must exceed {@code max}.
+   */
+  static int getEditDistance(String a, String b, int max){
+    if (Math.abs(a.length() - b.length()) > max) return max + 1;
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++){
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++){
+      current[0] = i;
+      int rowMinimum = current[0];
+      for (int j = 1; j <= b.length(); j++){
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+        rowMinimum = Math.min(rowMinimum, current[j]);
+      }
+      if (rowMinimum > max) return max + 1;
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  /**
+   * How a keyword matched an indexed term, in rank order.
+   */
+  public enum MatchType {
+    EXACT, PREFIX, FUZZY
+  }
+
+  /**
+   * The best matches found so far, one per record, bounded to the requested number of matches.
+   *   The worst retained match is at the head of the queue, so that each new match is compared 
+   *   against it, and evicts it if better, without sorting the retained matches.
+   */
+  private static class TopMatches<T extends Model<?>> {
+
+    private final int limit;
+    private final PriorityQueue<KeywordMatch<T>> queue;
+    private final Map<Object, KeywordMatch<T>> matches = new HashMap<>();
+
+    private TopMatches(int limit){
+      this.limit = limit;
+      this.queue = new PriorityQueue<>(Math.min(limit, 1024), Collections.reverseOrder());
+    }
+
+    /**
+     * Returns true if a match of the given type and distance to the given term, from the 
+     *   highest-ranked field, would be retained.
+     */
+    private boolean accepts(MatchType type, int distance, String term){
+      return queue.size() < limit 
+          || new KeywordMatch<T>(null, term, null, 0, type, distance).compareTo(queue.peek()) < 0;
+    }
+
+    private void offer(Object id, KeywordMatch<T> match){
+      KeywordMatch<T> existing = matches.get(id);
+      if (existing != null){
+        if (match.compareTo(existing) >= 0) return;
+        queue.remove(existing);
+      } else if (queue.size() >= limit){
+        if (match.compareTo(queue.peek()) >= 0) return;
+        matches.remove(queue.poll().getRecord().getId());
+      }
+      queue.add(match);
+      matches.put(id, match);
+    }
+
+    private List<KeywordMatch<T>> getMatches(){
+      List<KeywordMatch<T>> results = new ArrayList<>(queue);
+      Collections.sort(results);
+      return results;
+    }
+
+  }
+
+  /**
+   * Index contents, replaced as a whole when the index is rebuilt.
+   */
+  private static class State<T> {
+
+    private final NavigableMap<String, Map<Object, Integer>> terms = new TreeMap<>();
+    private final Map<String, Set<String>> grams = new HashMap<>();
+    private final Map<Object, IndexedRecord<T>> records = new HashMap<>();
+
+    private void add(Object id, T record, Map<String, Integer> recordTerms){
+      if (recordTerms.isEmpty()) return;
+      records.put(id, new IndexedRecord<>(record, recordTerms.keySet()));
+      for (Map.Entry<String, Integer> entry: recordTerms.entrySet()){
+        Map<Object, Integer> postings = terms.get(entry.getKey());
+        if (postings == null){
+          postings = new HashMap<>();
+          terms.put(entry.getKey(), postings);
+          for (String gram: getGrams(entry.getKey())){
+            grams.computeIfAbsent(gram, g -> new HashSet<>()).add(entry.getKey());
+          }
+        }
+        postings.put(id, entry.getValue());
+      }
+    }
+
+    private void remove(Object id){
+      IndexedRecord<T> indexed = records.remove(id);
+      if (indexed == null) return;
+      for (String term: indexed.terms){
+        Map<Object, Integer> postings = terms.get(term);
+        postings.remove(id);
+        if (postings.isEmpty()){
+          terms.remove(term);
+          for (String gram: getGrams(term)){
+            Set<String> gramTerms = grams.get(gram);
+            gramTerms.remove(term);
+            if (gramTerms.isEmpty()) grams.remove(gram);
+          }
+        }
+      }
+    }
+
+  }
+
+  private static class IndexedRecord<T> {
+    
+    private final T record;
+    private final Set<String> terms;
+
+    private IndexedRecord(T record, Set<String> terms) {
+      this.record = record;
+      this.terms = terms;
+    }
+    
+  }
+
+}
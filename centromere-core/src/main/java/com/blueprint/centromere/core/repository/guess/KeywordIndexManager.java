@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.guess;
+
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.ModelRepositoryDecorator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.Ordered;
+
+/**
+ * {@link ModelRepositoryDecorator} that wraps each repository whose model has {@link 
+ *   com.blueprint.centromere.core.model.Keyword} fields in a {@link KeywordIndexedModelRepository}.
+ *   It is applied after the metrics and query partitioning decorators.  Since other decorators may
+ *   wrap the keyword-indexed repositories, they should be looked up with 
+ *   {@link #getRepository(Class)}, rather than by type-checking the registered repository.  Once
+ *   all application singletons are initialized, the keyword indexes are loaded, so that the first
+ *   lookup does not have to wait for its index to be built.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class KeywordIndexManager 
+    implements ModelRepositoryDecorator, Ordered, SmartInitializingSingleton {
+
+  private static final Logger logger = LoggerFactory.getLogger(KeywordIndexManager.class);
+
+  private final int maxEdits;
+  private final Map<Class<?>, KeywordIndexedModelRepository<?, ?>> repositories 
+      = new ConcurrentHashMap<>();
+
+  public KeywordIndexManager() {
+    this(KeywordIndex.DEFAULT_MAX_EDITS);
+  }
+
+  /**
+   * @param maxEdits maximum edit distance of fuzzy matches, or zero to disable fuzzy matching
+   */
+  public KeywordIndexManager(int maxEdits) {
+    this.maxEdits = maxEdits;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public ModelRepository<?, ?> decorate(ModelRepository<?, ?> repository) {
+    Class<?> model = repository.getModel();
+    if (ModelMetadataRegistry.getMetadata(model).getKeywordFields().isEmpty()) return repository;
+    KeywordIndex<?> index = new KeywordIndex(model, null, maxEdits);
+    KeywordIndexedModelRepository<?, ?> indexedRepository 
+        = new KeywordIndexedModelRepository(repository, index);
+    repositories.put(model, indexedRepository);
+    logger.debug(String.format("Indexing keyword fields of model %s: %s", model.getName(), 
+        index.getFields()));
+    return indexedRepository;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    for (Map.Entry<Class<?>, KeywordIndexedModelRepository<?, ?>> entry: repositories.entrySet()){
+      try {
+        entry.getValue().load();
+        logger.debug(String.format("Loaded keyword index for model %s: %d records", 
+            entry.getKey().getName(), entry.getValue().getIndex().size()));
+      } catch (Exception e){
+        logger.warn(String.format("Unable to load keyword index for model %s: %s", 
+            entry.getKey().getName(), e.getMessage()));
+      }
+    }
+  }
+
+  /**
+   * Returns the keyword-indexed repository for the given model, if one has been created.
+   *
+   * @param model model type
+   * @return the keyword-indexed repository, or null
+   */
+  public KeywordIndexedModelRepository<?, ?> getRepository(Class<?> model){
+    return repositories.get(model);
+  }
+
+  /**
+   * Marks the keyword index of the given model as out of date, so that it is reloaded on its next
+   *   lookup.
+   *
+   * @param model model type whose data has changed
+   */
+  public void refresh(Class<?> model){
+    KeywordIndexedModelRepository<?, ?> repository = repositories.get(model);
+    if (repository != null){
+      logger.debug(String.format("Refreshing keyword index for model %s", model.getName()));
+      repository.refresh();
+    }
+  }
+
+  public int getMaxEdits() {
+    return maxEdits;
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE + 2;
+  }
+
+}
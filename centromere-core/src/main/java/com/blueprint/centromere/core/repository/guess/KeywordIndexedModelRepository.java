@@ -0,0 +1,388 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.guess;
+
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.repository.DelegatingModelRepository;
+import com.blueprint.centromere.core.repository.FacetCounts;
+import com.blueprint.centromere.core.repository.FieldStatistics;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import com.blueprint.centromere.core.repository.KeysetCursor;
+import com.blueprint.centromere.core.repository.KeysetSlice;
+import com.blueprint.centromere.core.repository.ModelGroup;
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.ValueCount;
+import com.blueprint.centromere.core.repository.impl.GuessOperations;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+/**
+ * {@link ModelRepository} decorator that serves {@link GuessOperations} from an in-memory 
+ *   {@link KeywordIndex}.  The index is loaded from the delegate repository by {@link #load()}, 
+ *   which {@link KeywordIndexManager} calls at startup, or otherwise on the first lookup, and is 
+ *   then kept up to date by the write operations performed through this repository.  Index 
+ *   updates synchronize on the same monitor as loading, so a write made while the index is being
+ *   loaded is applied once loading completes, rather than being lost.  Writes that bypass this
+ *   repository, such as data imports using the undecorated repository beans, should be followed 
+ *   by a call to {@link #refresh()}, which reloads the index on the next lookup.  All other 
+ *   operations are passed through to the delegate.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class KeywordIndexedModelRepository<T extends Model<ID>, ID extends Serializable>
+    implements DelegatingModelRepository<T, ID>, GuessOperations<T> {
+
+  public static final int DEFAULT_GUESS_LIMIT = 10;
+
+  private final ModelRepository<T, ID> delegate;
+  private final KeywordIndex<T> index;
+  private volatile boolean loaded = false;
+
+  public KeywordIndexedModelRepository(ModelRepository<T, ID> delegate) {
+    this(delegate, new KeywordIndex<>(delegate.getModel()));
+  }
+
+  public KeywordIndexedModelRepository(ModelRepository<T, ID> delegate, KeywordIndex<T> index) {
+    this.delegate = delegate;
+    this.index = index;
+  }
+
+  /**
+   * Returns the keyword index, loading it from the delegate repository if it has not been loaded
+   *   since it was created or last refreshed.
+   */
+  public KeywordIndex<T> getIndex(){
+    if (!loaded){
+      synchronized (index){
+        if (!loaded) load();
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Loads the index from all of the records in the delegate repository.
+   */
+  public void load(){
+    synchronized (index){
+      index.rebuild(delegate.findAll());
+      loaded = true;
+    }
+  }
+
+  /**
+   * Marks the index as out of date, so that it is reloaded on the next lookup.
+   */
+  public void refresh(){
+    synchronized (index){
+      loaded = false;
+    }
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Applies a change to the index if it has been loaded.  Otherwise the change is skipped, since 
+   *   the delegate repository already holds it, and it will be read when the index is loaded.
+   */
+  private void updateIndex(Runnable update){
+    synchronized (index){
+      if (loaded) update.run();
+    }
+  }
+
+  @Override
+  public ModelRepository<T, ID> getDelegate() {
+    return delegate;
+  }
+
+  /* Guesses */
+
+  /**
+   * Returns the ranked matches for the keyword.  See {@link KeywordIndex#search(String, int)}.
+   *
+   * @param keyword keyword to search for
+   * @param limit maximum number of matches
+   * @return ranked matches
+   */
+  public List<KeywordMatch<T>> search(String keyword, int limit){
+    return getIndex().search(keyword, limit);
+  }
+
+  @Override
+  public Optional<T> bestGuess(String keyword) {
+    List<T> records = guess(keyword, 1);
+    return records.isEmpty() ? Optional.empty() : Optional.of(records.get(0));
+  }
+
+  @Override
+  public List<T> guess(String keyword) {
+    return guess(keyword, DEFAULT_GUESS_LIMIT);
+  }
+
+  @Override
+  public List<T> guess(String keyword, int limit) {
+    List<T> records = new ArrayList<>();
+    for (KeywordMatch<T> match: search(keyword, limit)){
+      records.add(match.getRecord());
+    }
+    return records;
+  }
+
+  /* Queries */
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias) {
+    return delegate.find(queryCriterias);
+  }
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    return delegate.find(queryCriterias, sort);
+  }
+
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    return delegate.find(queryCriterias, pageable);
+  }
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort, Set<String> fields,
+      Set<String> exclude) {
+    return delegate.find(queryCriterias, sort, fields, exclude);
+  }
+
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable, Set<String> fields,
+      Set<String> exclude) {
+    return delegate.find(queryCriterias, pageable, fields, exclude);
+  }
+
+  @Override
+  public Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    return delegate.findSlice(queryCriterias, pageable);
+  }
+
+  @Override
+  public Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable,
+      Set<String> fields, Set<String> exclude) {
+    return delegate.findSlice(queryCriterias, pageable, fields, exclude);
+  }
+
+  @Override
+  public KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor,
+      Sort sort, int size) {
+    return delegate.findAfter(queryCriterias, cursor, sort, size);
+  }
+
+  @Override
+  public KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor,
+      Sort sort, int size, Set<String> fields, Set<String> exclude) {
+    return delegate.findAfter(queryCriterias, cursor, sort, size, fields, exclude);
+  }
+
+  @Override
+  public Iterable<T> findAll() {
+    return delegate.findAll();
+  }
+
+  @Override
+  public Iterable<T> findAll(Sort sort) {
+    return delegate.findAll(sort);
+  }
+
+  @Override
+  public Page<T> findAll(Pageable pageable) {
+    return delegate.findAll(pageable);
+  }
+
+  @Override
+  public long count() {
+    return delegate.count();
+  }
+
+  @Override
+  public long count(Iterable<QueryCriteria> criterias) {
+    return delegate.count(criterias);
+  }
+
+  @Override
+  public long estimateCount(Iterable<QueryCriteria> queryCriterias, long limit) {
+    return delegate.estimateCount(queryCriterias, limit);
+  }
+
+  @Override
+  public Set<Object> distinct(String field) {
+    return delegate.distinct(field);
+  }
+
+  @Override
+  public Set<Object> distinct(String field, Iterable<QueryCriteria> criterias) {
+    return delegate.distinct(field, criterias);
+  }
+
+  @Override
+  public List<Object> distinct(String field, Iterable<QueryCriteria> criterias, Pageable pageable) {
+    return delegate.distinct(field, criterias, pageable);
+  }
+
+  @Override
+  public List<ValueCount> distinctCounts(String field, Iterable<QueryCriteria> criterias,
+      Pageable pageable) {
+    return delegate.distinctCounts(field, criterias, pageable);
+  }
+
+  @Override
+  public FacetCounts facets(List<String> fields, Iterable<QueryCriteria> criterias, int limit) {
+    return delegate.facets(fields, criterias, limit);
+  }
+
+  @Override
+  public List<FieldStatistics> statistics(String field, String groupBy, 
+      Iterable<QueryCriteria> criterias, List<Double> percentiles) {
+    return delegate.statistics(field, groupBy, criterias, percentiles);
+  }
+
+  @Override
+  public Stream<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    return delegate.stream(queryCriterias, sort);
+  }
+
+  @Override
+  public Stream<T> stream(Iterable<QueryCriteria> queryCriterias) {
+    return delegate.stream(queryCriterias);
+  }
+
+  @Override
+  public List<ModelGroup<T>> groupBy(String field, Iterable<QueryCriteria> criterias,
+      GroupAccumulator accumulator) {
+    return delegate.groupBy(field, criterias, accumulator);
+  }
+
+  @Override
+  public Optional<T> findById(ID id) {
+    return delegate.findById(id);
+  }
+
+  @Override
+  public boolean existsById(ID id) {
+    return delegate.existsById(id);
+  }
+
+  @Override
+  public Iterable<T> findAllById(Iterable<ID> ids) {
+    return delegate.findAllById(ids);
+  }
+
+  /* Writes */
+
+  @Override
+  public <S extends T> S insert(S entity) {
+    S saved = delegate.insert(entity);
+    updateIndex(() -> index.add(saved));
+    return saved;
+  }
+
+  @Override
+  public <S extends T> Iterable<S> insert(Iterable<S> entities) {
+    Iterable<S> saved = delegate.insert(entities);
+    updateIndex(() -> index.addAll(saved));
+    return saved;
+  }
+
+  @Override
+  public <S extends T> S update(S entity) {
+    S saved = delegate.update(entity);
+    updateIndex(() -> index.add(saved));
+    return saved;
+  }
+
+  @Override
+  public <S extends T> Iterable<S> update(Iterable<S> entities) {
+    Iterable<S> saved = delegate.update(entities);
+    updateIndex(() -> index.addAll(saved));
+    return saved;
+  }
+
+  @Override
+  public <S extends T> Iterable<S> upsert(Iterable<S> entities) {
+    Iterable<S> saved = delegate.upsert(entities);
+    updateIndex(() -> index.addAll(saved));
+    return saved;
+  }
+
+  @Override
+  public <S extends T> S save(S entity) {
+    S saved = delegate.save(entity);
+    updateIndex(() -> index.add(saved));
+    return saved;
+  }
+
+  @Override
+  public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+    Iterable<S> saved = delegate.saveAll(entities);
+    updateIndex(() -> index.addAll(saved));
+    return saved;
+  }
+
+  @Override
+  public void deleteById(ID id) {
+    delegate.deleteById(id);
+    updateIndex(() -> index.remove(id));
+  }
+
+  @Override
+  public void delete(T entity) {
+    delegate.delete(entity);
+    updateIndex(() -> index.remove(entity.getId()));
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends T> entities) {
+    delegate.deleteAll(entities);
+    updateIndex(() -> {
+      for (T entity: entities){
+        index.remove(entity.getId());
+      }
+    });
+  }
+
+  @Override
+  public void deleteAll() {
+    delegate.deleteAll();
+    updateIndex(index::clear);
+  }
+
+  @Override
+  public Class<T> getModel() {
+    return delegate.getModel();
+  }
+
+}
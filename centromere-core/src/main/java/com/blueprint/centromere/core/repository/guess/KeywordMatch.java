@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.guess;
+
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.repository.guess.KeywordIndex.MatchType;
+
+/**
+ * A record found by a {@link KeywordIndex} search, with the indexed term and field it matched.
+ *   Matches sort best first: by match type, then by field rank, then by the number of characters
+ *   or edits separating the term from the keyword, and then by term.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class KeywordMatch<T extends Model<?>> implements Comparable<KeywordMatch<T>> {
+
+  private final T record;
+  private final String term;
+  private final String field;
+  private final int rank;
+  private final MatchType type;
+  private final int distance;
+
+  KeywordMatch(T record, String term, String field, int rank, MatchType type, int distance) {
+    this.record = record;
+    this.term = term;
+    this.field = field;
+    this.rank = rank;
+    this.type = type;
+    this.distance = distance;
+  }
+
+  public T getRecord() {
+    return record;
+  }
+
+  /**
+   * Returns the normalized indexed term that matched the keyword.
+   */
+  public String getTerm() {
+    return term;
+  }
+
+  /**
+   * Returns the name of the field the matching term was indexed from.
+   */
+  public String getField() {
+    return field;
+  }
+
+  public MatchType getType() {
+    return type;
+  }
+
+  /**
+   * Returns the number of characters following the keyword in a prefix match, the number of 
+   *   edits in a fuzzy match, or zero for an exact match.
+   */
+  public int getDistance() {
+    return distance;
+  }
+
+  @Override
+  public int compareTo(KeywordMatch<T> other) {
+    int result = type.compareTo(other.type);
+    if (result == 0) result = Integer.compare(rank, other.rank);
+    if (result == 0) result = Integer.compare(distance, other.distance);
+    if (result == 0) result = term.compareTo(other.term);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "KeywordMatch{" +
+        "term='" + term + '\'' +
+        ", field='" + field + '\'' +
+        ", type=" + type +
+        ", distance=" + distance +
+        '}';
+  }
+
+}
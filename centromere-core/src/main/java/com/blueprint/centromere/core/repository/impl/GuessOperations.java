@@ -27,5 +27,17 @@ public interface GuessOperations<T extends Model<?>> {
 
   Optional<T> bestGuess(String keyword);
   List<T> guess(String keyword);
+
+  /**
+   * Returns at most {@code limit} of the records returned by {@link #guess(String)}.
+   *
+   * @param keyword keyword to search for
+   * @param limit maximum number of records
+   * @return list of records, best guess first
+   */
+  default List<T> guess(String keyword, int limit){
+    List<T> records = guess(keyword);
+    return records.size() > limit ? records.subList(0, limit) : records;
+  }
   
 }
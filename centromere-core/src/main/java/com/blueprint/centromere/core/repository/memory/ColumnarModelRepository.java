@@ -0,0 +1,822 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository.memory;
+
+import com.blueprint.centromere.core.exceptions.ConfigurationException;
+import com.blueprint.centromere.core.exceptions.ModelPersistenceException;
+import com.blueprint.centromere.core.exceptions.QueryParameterException;
+import com.blueprint.centromere.core.model.Linked;
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.NumberUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * In-memory {@link ModelRepository} for fact models, which consist of an ID, a number of 
+ *   {@link Linked} references to other models, and a single numeric value, such as a gene 
+ *   expression measurement.  Rather than holding each record as an object, linked IDs are 
+ *   dictionary-encoded to {@code int} codes and values are held as primitive {@code double}s, in
+ *   column segments that are partitioned by one of the linked fields, typically the data set.  A
+ *   data point costs 4 bytes per linked field, plus 8 bytes for the value, and records are only
+ *   materialized as model objects when they are returned.
+ * 
+ * Queries are answered by scanning the columns of the selected partitions.  Criteria on linked 
+ *   fields support the equality, set membership and null operators, and criteria on the value field
+ *   support those plus all of the range operators.  Criteria on the partition field select
+ *   partitions without scanning them.
+ * 
+ * Record IDs are assigned by the repository, and encode the partition and row of the record; IDs
+ *   of inserted records are overwritten.  The model's ID field must be a {@code String} or a 
+ *   {@code Long}.  Records cannot be moved between partitions by an update.  Reads share a lock,
+ *   and writes take it exclusively.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class ColumnarModelRepository<T extends Model<ID>, ID extends Serializable>
+    implements ModelRepository<T, ID> {
+
+  /**
+   * Maximum number of rows in a single column segment.
+   */
+  public static final int SEGMENT_SIZE = 1 << 16;
+
+  private static final int NULL_CODE = -1;
+  private static final int MISSING_CODE = -2;
+  private static final int INITIAL_SEGMENT_SIZE = 16;
+
+  private final Class<T> model;
+  private final Field idField;
+  private final boolean longIds;
+  private final Field partitionField;
+  private final List<Field> keyFields = new ArrayList<>();
+  private final Field valueField;
+  private final Dictionary partitionDictionary = new Dictionary();
+  private final List<Dictionary> keyDictionaries = new ArrayList<>();
+  private final List<Partition> partitions = new ArrayList<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * @param model fact model type
+   * @param partitionField name of the linked field whose values partition the records
+   * @throws ConfigurationException if the model is not a fact model
+   */
+  public ColumnarModelRepository(Class<T> model, String partitionField) throws ConfigurationException {
+    this.model = model;
+    Field id = null;
+    Field partition = null;
+    List<Field> values = new ArrayList<>();
+    for (Field field: ModelMetadataRegistry.getMetadata(model).getFields()){
+      if (Modifier.isTransient(field.getModifiers())) continue;
+      ReflectionUtils.makeAccessible(field);
+      if ("id".equals(field.getName())){
+        id = field;
+      } else if (field.isAnnotationPresent(Linked.class)){
+        if (field.getName().equals(partitionField)){
+          partition = field;
+        } else {
+          keyFields.add(field);
+          keyDictionaries.add(new Dictionary());
+        }
+      } else {
+        values.add(field);
+      }
+    }
+    if (id == null || !(String.class.equals(id.getType()) || Long.class.equals(id.getType()))){
+      throw new ConfigurationException(String.format("Model %s must have a String or Long ID field "
+          + "to be stored in a columnar repository", model.getName()));
+    }
+    if (partition == null){
+      throw new ConfigurationException(String.format("Partition field %s of model %s is not a linked "
+          + "field", partitionField, model.getName()));
+    }
+    if (values.size() != 1 || !isNumeric(values.get(0).getType())){
+      throw new ConfigurationException(String.format("Model %s must have exactly one numeric field "
+          + "besides its ID and linked fields, found: %s", model.getName(), values));
+    }
+    this.idField = id;
+    this.longIds = Long.class.equals(id.getType());
+    this.partitionField = partition;
+    this.valueField = values.get(0);
+  }
+
+  private static boolean isNumeric(Class<?> type){
+    return Number.class.isAssignableFrom(type) 
+        || (type.isPrimitive() && !boolean.class.equals(type) && !char.class.equals(type));
+  }
+
+  /* Queries */
+
+  @Override
+  public List<T> find(Iterable<QueryCriteria> queryCriterias) {
+    List<T> records = new ArrayList<>();
+    read(() -> scan(compile(queryCriterias), location -> records.add(materialize(location))));
+    return records;
+  }
+
+  @Override
+  public List<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    return sort(find(queryCriterias), sort);
+  }
+
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    if (pageable.isUnpaged() || pageable.getSort().isSorted()){
+      List<T> records = find(queryCriterias, pageable.getSort());
+      if (pageable.isUnpaged()) return new PageImpl<>(records, pageable, records.size());
+      int from = (int) Math.min(pageable.getOffset(), records.size());
+      int to = Math.min(from + pageable.getPageSize(), records.size());
+      return new PageImpl<>(new ArrayList<>(records.subList(from, to)), pageable, records.size());
+    }
+    // Unsorted pages only materialize the records that are returned
+    List<T> records = new ArrayList<>();
+    long[] count = new long[1];
+    read(() -> scan(compile(queryCriterias), location -> {
+      if (count[0] >= pageable.getOffset() && records.size() < pageable.getPageSize()){
+        records.add(materialize(location));
+      }
+      count[0]++;
+    }));
+    return new PageImpl<>(records, pageable, count[0]);
+  }
+
+  @Override
+  public long count(Iterable<QueryCriteria> criterias) {
+    long[] count = new long[1];
+    read(() -> scan(compile(criterias), location -> count[0]++));
+    return count[0];
+  }
+
+  @Override
+  public Optional<T> findById(ID id) {
+    List<T> records = new ArrayList<>();
+    read(() -> {
+      long location = decodeId(id);
+      if (exists(location)) records.add(materialize(location));
+    });
+    return records.isEmpty() ? Optional.empty() : Optional.of(records.get(0));
+  }
+
+  @Override
+  public boolean existsById(ID id) {
+    return findById(id).isPresent();
+  }
+
+  @Override
+  public List<T> findAll() {
+    return find(Collections.emptyList());
+  }
+
+  @Override
+  public List<T> findAll(Sort sort) {
+    return find(Collections.emptyList(), sort);
+  }
+
+  @Override
+  public Page<T> findAll(Pageable pageable) {
+    return find(Collections.emptyList(), pageable);
+  }
+
+  @Override
+  public List<T> findAllById(Iterable<ID> ids) {
+    List<T> records = new ArrayList<>();
+    for (ID id: ids){
+      findById(id).ifPresent(records::add);
+    }
+    return records;
+  }
+
+  @Override
+  public long count() {
+    long[] count = new long[1];
+    read(() -> {
+      for (Partition partition: partitions){
+        count[0] += partition.live;
+      }
+    });
+    return count[0];
+  }
+
+  private List<T> sort(List<T> records, Sort sort){
+    if (sort == null || sort.isUnsorted()) return records;
+    Comparator<T> comparator = null;
+    for (Sort.Order order: sort){
+      Comparator<T> next = (a, b) -> InMemoryModelRepository.compareNullable(
+          InMemoryModelRepository.getValues(a, order.getProperty()).get(0),
+          InMemoryModelRepository.getValues(b, order.getProperty()).get(0));
+      if (order.isDescending()) next = next.reversed();
+      comparator = comparator == null ? next : comparator.thenComparing(next);
+    }
+    records.sort(comparator);
+    return records;
+  }
+
+  /**
+   * Visits the location of every live record in the selected partitions that passes all of the
+   *   row filters.
+   */
+  private void scan(CompiledQuery query, Consumer<Long> consumer){
+    for (int p = 0; p < partitions.size(); p++){
+      if (query.partitions != null && !query.partitions.get(p)) continue;
+      Partition partition = partitions.get(p);
+      rows:
+      for (int row = 0; row < partition.size; row++){
+        if (partition.deleted.get(row)) continue;
+        for (RowFilter filter: query.filters){
+          if (!filter.test(partition, row)) continue rows;
+        }
+        consumer.accept(toLocation(p, row));
+      }
+    }
+  }
+
+  /**
+   * Converts query criteria into a partition selection and a list of row filters over the 
+   *   encoded columns.  Top-level criteria on the partition field select partitions, while 
+   *   {@code AND} and {@code OR} groups are compiled into a single row filter.
+   */
+  private CompiledQuery compile(Iterable<QueryCriteria> criterias){
+    CompiledQuery query = new CompiledQuery();
+    if (criterias == null) return query;
+    for (QueryCriteria criteria: criterias){
+      if (!criteria.isGroup() && criteria.getKey().equals(partitionField.getName())){
+        BitSet selected = new BitSet();
+        CodeFilter filter = compileCodeFilter(criteria, partitionDictionary);
+        for (int p = 0; p < partitions.size(); p++){
+          if (filter.test(p)) selected.set(p);
+        }
+        if (query.partitions != null) selected.and(query.partitions);
+        query.partitions = selected;
+      } else {
+        query.filters.add(compileRowFilter(criteria));
+      }
+    }
+    return query;
+  }
+
+  private RowFilter compileRowFilter(QueryCriteria criteria){
+    if (criteria.isGroup()){
+      List<RowFilter> members = new ArrayList<>();
+      for (QueryCriteria member: criteria.getCriterias()){
+        members.add(compileRowFilter(member));
+      }
+      if (criteria.getEvaluation() == Evaluation.OR){
+        return (partition, row) -> members.stream().anyMatch(f -> f.test(partition, row));
+      }
+      return (partition, row) -> members.stream().allMatch(f -> f.test(partition, row));
+    }
+    String key = criteria.getKey();
+    if (key.equals(partitionField.getName())){
+      CodeFilter filter = compileCodeFilter(criteria, partitionDictionary);
+      return (partition, row) -> filter.test(partition.index);
+    } else if (key.equals(valueField.getName())){
+      return compileValueFilter(criteria);
+    } else if (key.equals(idField.getName())){
+      return compileIdFilter(criteria);
+    } else {
+      int column = getKeyColumn(key);
+      CodeFilter filter = compileCodeFilter(criteria, keyDictionaries.get(column));
+      return (partition, row) -> filter.test(partition.getKey(column, row));
+    }
+  }
+
+  private int getKeyColumn(String key){
+    for (int i = 0; i < keyFields.size(); i++){
+      if (keyFields.get(i).getName().equals(key)) return i;
+    }
+    throw new QueryParameterException(String.format("Field %s cannot be queried in a columnar "
+        + "repository for model %s", key, model.getName()));
+  }
+
+  private CodeFilter compileCodeFilter(QueryCriteria criteria, Dictionary dictionary){
+    Object value = criteria.getValue();
+    switch (criteria.getEvaluation()){
+      case EQUALS: {
+        int code = dictionary.lookup(value);
+        return c -> c == code;
+      }
+      case NOT_EQUALS: {
+        int code = dictionary.lookup(value);
+        return c -> c != code;
+      }
+      case IN: {
+        BitSet codes = dictionary.lookupAll(value);
+        boolean includesNull = ModelRepository.getCollection(value).contains(null);
+        return c -> c >= 0 ? codes.get(c) : includesNull && c == NULL_CODE;
+      }
+      case NOT_IN: {
+        BitSet codes = dictionary.lookupAll(value);
+        boolean includesNull = ModelRepository.getCollection(value).contains(null);
+        return c -> c >= 0 ? !codes.get(c) : !(includesNull && c == NULL_CODE);
+      }
+      case IS_NULL:
+        return c -> c == NULL_CODE;
+      case NOT_NULL:
+        return c -> c != NULL_CODE;
+      default:
+        throw new QueryParameterException(String.format("Evaluation %s is not supported for linked "
+            + "field %s in a columnar repository", criteria.getEvaluation(), criteria.getKey()));
+    }
+  }
+
+  private RowFilter compileValueFilter(QueryCriteria criteria){
+    Object value = criteria.getValue();
+    switch (criteria.getEvaluation()){
+      case EQUALS: {
+        double v = toDouble(value);
+        return (p, row) -> !p.isNull(row) && p.getValue(row) == v;
+      }
+      case NOT_EQUALS: {
+        double v = toDouble(value);
+        return (p, row) -> p.isNull(row) || p.getValue(row) != v;
+      }
+      case IN: {
+        Set<Double> values = toDoubles(value);
+        return (p, row) -> !p.isNull(row) && values.contains(p.getValue(row));
+      }
+      case NOT_IN: {
+        Set<Double> values = toDoubles(value);
+        return (p, row) -> p.isNull(row) || !values.contains(p.getValue(row));
+      }
+      case IS_NULL:
+        return (p, row) -> p.isNull(row);
+      case NOT_NULL:
+        return (p, row) -> !p.isNull(row);
+      case GREATER_THAN: {
+        double v = toDouble(value);
+        return (p, row) -> !p.isNull(row) && p.getValue(row) > v;
+      }
+      case GREATER_THAN_EQUALS: {
+        double v = toDouble(value);
+        return (p, row) -> !p.isNull(row) && p.getValue(row) >= v;
+      }
+      case LESS_THAN: {
+        double v = toDouble(value);
+        return (p, row) -> !p.isNull(row) && p.getValue(row) < v;
+      }
+      case LESS_THAN_EQUALS: {
+        double v = toDouble(value);
+        return (p, row) -> !p.isNull(row) && p.getValue(row) <= v;
+      }
+      case BETWEEN: {
+        double[] range = toRange(value);
+        return (p, row) -> !p.isNull(row) && p.getValue(row) > range[0] && p.getValue(row) < range[1];
+      }
+      case BETWEEN_INCLUSIVE: {
+        double[] range = toRange(value);
+        return (p, row) -> !p.isNull(row) && p.getValue(row) >= range[0] && p.getValue(row) <= range[1];
+      }
+      case OUTSIDE: {
+        double[] range = toRange(value);
+        return (p, row) -> !p.isNull(row) && (p.getValue(row) < range[0] || p.getValue(row) > range[1]);
+      }
+      case OUTSIDE_INCLUSIVE: {
+        double[] range = toRange(value);
+        return (p, row) -> !p.isNull(row) && (p.getValue(row) <= range[0] || p.getValue(row) >= range[1]);
+      }
+      default:
+        throw new QueryParameterException(String.format("Evaluation %s is not supported for value "
+            + "field %s in a columnar repository", criteria.getEvaluation(), criteria.getKey()));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private RowFilter compileIdFilter(QueryCriteria criteria){
+    Set<Long> locations = new HashSet<>();
+    switch (criteria.getEvaluation()){
+      case EQUALS:
+        locations.add(decodeId((ID) criteria.getValue()));
+        break;
+      case IN:
+        for (Object id: ModelRepository.getCollection(criteria.getValue())){
+          locations.add(decodeId((ID) id));
+        }
+        break;
+      default:
+        throw new QueryParameterException(String.format("Evaluation %s is not supported for the ID "
+            + "field in a columnar repository", criteria.getEvaluation()));
+    }
+    return (partition, row) -> locations.contains(toLocation(partition.index, row));
+  }
+
+  private static double toDouble(Object value){
+    if (!(value instanceof Number)){
+      throw new QueryParameterException(String.format("Value criteria must be numeric: %s", value));
+    }
+    return ((Number) value).doubleValue();
+  }
+
+  private static Set<Double> toDoubles(Object value){
+    Set<Double> values = new HashSet<>();
+    for (Object item: ModelRepository.getCollection(value)){
+      values.add(toDouble(item));
+    }
+    return values;
+  }
+
+  private static double[] toRange(Object value){
+    List<Object> bounds = ModelRepository.getCollection(value);
+    if (bounds.size() != 2){
+      throw new QueryParameterException(String.format("Range criteria must have exactly two values: %s",
+          value));
+    }
+    return new double[]{ toDouble(bounds.get(0)), toDouble(bounds.get(1)) };
+  }
+
+  /* Encoding */
+
+  private static long toLocation(int partition, int row){
+    return ((long) partition << 32) | (row & 0xffffffffL);
+  }
+
+  private static int getPartitionIndex(long location){
+    return (int) (location >>> 32);
+  }
+
+  private static int getRow(long location){
+    return (int) location;
+  }
+
+  private boolean exists(long location){
+    if (location < 0) return false;
+    int p = getPartitionIndex(location);
+    int row = getRow(location);
+    return p < partitions.size() && row >= 0 && row < partitions.get(p).size 
+        && !partitions.get(p).deleted.get(row);
+  }
+
+  @SuppressWarnings("unchecked")
+  private ID encodeId(long location){
+    return longIds ? (ID) Long.valueOf(location) : (ID) Long.toString(location);
+  }
+
+  /**
+   * Returns the record location encoded in an ID, or -1 if the ID is not valid.
+   */
+  private long decodeId(ID id){
+    if (id == null) return -1L;
+    try {
+      return id instanceof Number ? ((Number) id).longValue() : Long.parseLong(id.toString());
+    } catch (NumberFormatException e){
+      return -1L;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private T materialize(long location){
+    Partition partition = partitions.get(getPartitionIndex(location));
+    int row = getRow(location);
+    T record = BeanUtils.instantiateClass(model);
+    ReflectionUtils.setField(idField, record, encodeId(location));
+    ReflectionUtils.setField(partitionField, record, partitionDictionary.decode(partition.index));
+    for (int i = 0; i < keyFields.size(); i++){
+      ReflectionUtils.setField(keyFields.get(i), record, 
+          keyDictionaries.get(i).decode(partition.getKey(i, row)));
+    }
+    if (!partition.isNull(row)){
+      Double value = partition.getValue(row);
+      Class<?> type = valueField.getType();
+      ReflectionUtils.setField(valueField, record, type.isPrimitive() || Double.class.equals(type) 
+          ? value : NumberUtils.convertNumberToTargetClass(value, (Class<Number>) type));
+    }
+    return record;
+  }
+
+  /* Writes */
+
+  @Override
+  public <S extends T> S insert(S entity) {
+    return insert(Collections.singletonList(entity)).iterator().next();
+  }
+
+  @Override
+  public <S extends T> Iterable<S> insert(Iterable<S> entities) {
+    write(() -> {
+      for (S entity: entities){
+        append(entity);
+      }
+    });
+    return entities;
+  }
+
+  @Override
+  public <S extends T> S update(S entity) {
+    update(Collections.singletonList(entity));
+    return entity;
+  }
+
+  @Override
+  public <S extends T> Iterable<S> update(Iterable<S> entities) {
+    write(() -> {
+      List<Long> locations = new ArrayList<>();
+      for (S entity: entities){
+        long location = decodeId(entity.getId());
+        if (!exists(location)){
+          throw new ModelPersistenceException(String.format("Model record does not exist in the "
+              + "database, and cannot be updated: %s", entity.toString()));
+        }
+        if (partitionDictionary.lookup(ReflectionUtils.getField(partitionField, entity)) 
+            != getPartitionIndex(location)){
+          throw new ModelPersistenceException(String.format("Model record cannot be moved to another "
+              + "partition: %s", entity.toString()));
+        }
+        locations.add(location);
+      }
+      int i = 0;
+      for (S entity: entities){
+        long location = locations.get(i++);
+        partitions.get(getPartitionIndex(location)).set(getRow(location), encodeKeys(entity), 
+            getValue(entity));
+      }
+    });
+    return entities;
+  }
+
+  @Override
+  public <S extends T> Iterable<S> upsert(Iterable<S> entities) {
+    for (S entity: entities){
+      save(entity);
+    }
+    return entities;
+  }
+
+  @Override
+  public <S extends T> S save(S entity) {
+    if (existsById(entity.getId())){
+      return update(entity);
+    } else {
+      return insert(entity);
+    }
+  }
+
+  @Override
+  public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+    return upsert(entities);
+  }
+
+  @Override
+  public void deleteById(ID id) {
+    write(() -> {
+      long location = decodeId(id);
+      if (exists(location)){
+        partitions.get(getPartitionIndex(location)).delete(getRow(location));
+      }
+    });
+  }
+
+  @Override
+  public void delete(T entity) {
+    deleteById(entity.getId());
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends T> entities) {
+    for (T entity: entities){
+      delete(entity);
+    }
+  }
+
+  @Override
+  public void deleteAll() {
+    write(() -> {
+      partitions.clear();
+      partitionDictionary.clear();
+      for (Dictionary dictionary: keyDictionaries){
+        dictionary.clear();
+      }
+    });
+  }
+
+  private void append(T entity){
+    int p = partitionDictionary.encode(ReflectionUtils.getField(partitionField, entity));
+    if (p == NULL_CODE){
+      throw new ModelPersistenceException(String.format("Model record has no value for partition "
+          + "field %s: %s", partitionField.getName(), entity.toString()));
+    }
+    while (partitions.size() <= p){
+      partitions.add(new Partition(partitions.size(), keyFields.size()));
+    }
+    Partition partition = partitions.get(p);
+    int row = partition.append(encodeKeys(entity), getValue(entity));
+    entity.setId(encodeId(toLocation(p, row)));
+  }
+
+  private int[] encodeKeys(T entity){
+    int[] keys = new int[keyFields.size()];
+    for (int i = 0; i < keys.length; i++){
+      keys[i] = keyDictionaries.get(i).encode(ReflectionUtils.getField(keyFields.get(i), entity));
+    }
+    return keys;
+  }
+
+  private Double getValue(T entity){
+    Object value = ReflectionUtils.getField(valueField, entity);
+    return value == null ? null : ((Number) value).doubleValue();
+  }
+
+  private void read(Runnable action){
+    lock.readLock().lock();
+    try {
+      action.run();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void write(Runnable action){
+    lock.writeLock().lock();
+    try {
+      action.run();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Class<T> getModel() {
+    return model;
+  }
+
+  /**
+   * Returns the number of partitions that have been created.
+   */
+  public int getPartitionCount(){
+    return partitions.size();
+  }
+
+  @FunctionalInterface
+  private interface CodeFilter {
+    boolean test(int code);
+  }
+
+  @FunctionalInterface
+  private interface RowFilter {
+    boolean test(Partition partition, int row);
+  }
+
+  private static class CompiledQuery {
+    private BitSet partitions = null;
+    private final List<RowFilter> filters = new ArrayList<>();
+  }
+
+  /**
+   * Bidirectional mapping of distinct field values to dense {@code int} codes.  Null values are
+   *   encoded as {@link #NULL_CODE}.
+   */
+  private static class Dictionary {
+
+    private final Map<Object, Integer> codes = new HashMap<>();
+    private final List<Object> values = new ArrayList<>();
+
+    int encode(Object value){
+      if (value == null) return NULL_CODE;
+      Integer code = codes.get(value);
+      if (code == null){
+        code = values.size();
+        codes.put(value, code);
+        values.add(value);
+      }
+      return code;
+    }
+
+    /**
+     * Returns the code of an existing value, or {@link #MISSING_CODE} if it has never been 
+     *   encoded.
+     */
+    int lookup(Object value){
+      if (value == null) return NULL_CODE;
+      Integer code = codes.get(value);
+      return code != null ? code : MISSING_CODE;
+    }
+
+    BitSet lookupAll(Object values){
+      BitSet bits = new BitSet();
+      for (Object value: ModelRepository.getCollection(values)){
+        int code = lookup(value);
+        if (code >= 0) bits.set(code);
+      }
+      return bits;
+    }
+
+    Object decode(int code){
+      return code < 0 ? null : values.get(code);
+    }
+
+    void clear(){
+      codes.clear();
+      values.clear();
+    }
+
+  }
+
+  /**
+   * Column storage for the records of a single partition.  Each column is split into segments of
+   *   at most {@link #SEGMENT_SIZE} rows, so that growing a column never copies more than one
+   *   segment.  Deleted rows are marked, not removed, so that record locations remain stable.
+   */
+  private static class Partition {
+
+    private final int index;
+    private final int columns;
+    private final List<int[][]> keySegments = new ArrayList<>();
+    private final List<double[]> valueSegments = new ArrayList<>();
+    private final BitSet nullValues = new BitSet();
+    private final BitSet deleted = new BitSet();
+    private int size = 0;
+    private int live = 0;
+
+    Partition(int index, int columns) {
+      this.index = index;
+      this.columns = columns;
+    }
+
+    int getKey(int column, int row){
+      return keySegments.get(row / SEGMENT_SIZE)[column][row % SEGMENT_SIZE];
+    }
+
+    double getValue(int row){
+      return valueSegments.get(row / SEGMENT_SIZE)[row % SEGMENT_SIZE];
+    }
+
+    boolean isNull(int row){
+      return nullValues.get(row);
+    }
+
+    int append(int[] keys, Double value){
+      int segment = size / SEGMENT_SIZE;
+      int offset = size % SEGMENT_SIZE;
+      if (segment == keySegments.size()){
+        keySegments.add(new int[columns][INITIAL_SEGMENT_SIZE]);
+        valueSegments.add(new double[INITIAL_SEGMENT_SIZE]);
+      } else if (offset == valueSegments.get(segment).length){
+        int length = Math.min(offset * 2, SEGMENT_SIZE);
+        int[][] keySegment = keySegments.get(segment);
+        for (int c = 0; c < columns; c++){
+          keySegment[c] = Arrays.copyOf(keySegment[c], length);
+        }
+        valueSegments.set(segment, Arrays.copyOf(valueSegments.get(segment), length));
+      }
+      int row = size++;
+      live++;
+      set(row, keys, value);
+      return row;
+    }
+
+    void set(int row, int[] keys, Double value){
+      int[][] keySegment = keySegments.get(row / SEGMENT_SIZE);
+      for (int c = 0; c < columns; c++){
+        keySegment[c][row % SEGMENT_SIZE] = keys[c];
+      }
+      valueSegments.get(row / SEGMENT_SIZE)[row % SEGMENT_SIZE] = value != null ? value : 0.0;
+      nullValues.set(row, value == null);
+    }
+
+    void delete(int row){
+      if (!deleted.get(row)){
+        deleted.set(row);
+        live--;
+      }
+    }
+
+  }
+
+}
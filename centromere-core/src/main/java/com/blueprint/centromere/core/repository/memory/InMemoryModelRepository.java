@@ -0,0 +1,900 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.core.repository.memory;
+
+import com.blueprint.centromere.core.exceptions.ModelPersistenceException;
+import com.blueprint.centromere.core.exceptions.QueryParameterException;
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadata.ModelProperty;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.model.Normalized;
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.QueryParameterDescriptor;
+import com.blueprint.centromere.core.repository.QueryParameterUtil;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * {@link ModelRepository} implementation that holds all records in memory, intended for small
+ *   reference models that can be served without a database round trip, and as a lightweight
+ *   stand-in for a database in tests and benchmarks.  All {@link Evaluation} operators are
+ *   supported, with the same semantics as the MongoDB implementation: criteria on multi-valued
+ *   fields match if any value matches, and nested map and object fields may be queried with dotted 
+ *   keys.  {@code STARTS_WITH} and {@code ENDS_WITH} values match literally, and ignore case for 
+ *   {@link Normalized} fields.
+ * 
+ * Every field returned by {@link QueryParameterUtil#getAvailableQueryParameters(Class)} gets a hash
+ *   index, used by {@code EQUALS} and {@code IN} criteria, and fields with comparable types also get
+ *   a sorted index, used by the range operators.  Indexes narrow the candidate records, which are
+ *   then checked against every criteria.  Records are held in an immutable snapshot that is
+ *   replaced, along with its indexes, on every write, so reads never wait for writes.  Writes are
+ *   serialized, and only update the index entries of the records they change, although each one
+ *   still copies the record and index maps; batched writes remain cheaper than single ones.
+ * 
+ * Records are stored by reference.  Changes made to a stored record in place are not reflected in
+ *   the indexes until it is passed to {@link #update(Model)}.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class InMemoryModelRepository<T extends Model<ID>, ID extends Serializable>
+    implements ModelRepository<T, ID> {
+
+  public static final long DEFAULT_PATTERN_CACHE_SIZE = 1000L;
+
+  private static final Comparator<Object> VALUE_ORDER = InMemoryModelRepository::compareValues;
+
+  private final Class<T> model;
+  private final Supplier<ID> idGenerator;
+  private final Set<String> hashIndexedFields = new HashSet<>();
+  private final Set<String> sortedIndexedFields = new HashSet<>();
+  private final Set<String> normalizedFields = new HashSet<>();
+  private final LoadingCache<String, Pattern> patterns;
+  private final LoadingCache<String, Pattern> caseInsensitivePatterns;
+  private final Object writeLock = new Object();
+  private volatile Snapshot<T, ID> snapshot;
+
+  public InMemoryModelRepository(Class<T> model) {
+    this(model, null);
+  }
+
+  /**
+   * @param model model type
+   * @param idGenerator creates IDs for inserted records that have none.  If null, random UUIDs are
+   *   generated for models with a {@code String} ID field.
+   */
+  public InMemoryModelRepository(Class<T> model, Supplier<ID> idGenerator) {
+    this.model = model;
+    this.idGenerator = idGenerator != null ? idGenerator : getDefaultIdGenerator(model);
+    for (QueryParameterDescriptor descriptor: 
+        QueryParameterUtil.getAvailableQueryParameters(model).values()){
+      if (descriptor.isRegexMatch()) continue;
+      hashIndexedFields.add(descriptor.getFieldName());
+      if (isSortable(descriptor.getType())) sortedIndexedFields.add(descriptor.getFieldName());
+    }
+    for (Field field: ModelMetadataRegistry.getMetadata(model).getNormalizedFields()){
+      normalizedFields.add(field.getName());
+    }
+    this.patterns = CacheBuilder.newBuilder()
+        .maximumSize(DEFAULT_PATTERN_CACHE_SIZE)
+        .build(CacheLoader.from(regex -> Pattern.compile(regex)));
+    this.caseInsensitivePatterns = CacheBuilder.newBuilder()
+        .maximumSize(DEFAULT_PATTERN_CACHE_SIZE)
+        .build(CacheLoader.from(regex -> Pattern.compile(regex, Pattern.CASE_INSENSITIVE)));
+    this.snapshot = new Snapshot<>(new LinkedHashMap<>(), hashIndexedFields, sortedIndexedFields);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <ID> Supplier<ID> getDefaultIdGenerator(Class<?> model){
+    Field field = ReflectionUtils.findField(model, "id");
+    if (field != null && String.class.equals(field.getType())){
+      return () -> (ID) UUID.randomUUID().toString();
+    }
+    return null;
+  }
+
+  private static boolean isSortable(Class<?> type){
+    if (type.isPrimitive()) return !boolean.class.equals(type);
+    return Comparable.class.isAssignableFrom(type) && !Boolean.class.equals(type);
+  }
+
+  /* Queries */
+
+  @Override
+  public List<T> find(Iterable<QueryCriteria> queryCriterias) {
+    return query(snapshot, queryCriterias);
+  }
+
+  @Override
+  public List<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    return sort(query(snapshot, queryCriterias), sort);
+  }
+
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    return page(sort(query(snapshot, queryCriterias), pageable.getSort()), pageable);
+  }
+
+  @Override
+  public long count(Iterable<QueryCriteria> criterias) {
+    return query(snapshot, criterias).size();
+  }
+
+  @Override
+  public Optional<T> findById(ID id) {
+    return Optional.ofNullable(snapshot.records.get(id));
+  }
+
+  @Override
+  public boolean existsById(ID id) {
+    return snapshot.records.containsKey(id);
+  }
+
+  @Override
+  public List<T> findAll() {
+    return new ArrayList<>(snapshot.records.values());
+  }
+
+  @Override
+  public List<T> findAll(Sort sort) {
+    return sort(findAll(), sort);
+  }
+
+  @Override
+  public Page<T> findAll(Pageable pageable) {
+    return page(sort(findAll(), pageable.getSort()), pageable);
+  }
+
+  @Override
+  public List<T> findAllById(Iterable<ID> ids) {
+    Snapshot<T, ID> current = snapshot;
+    List<T> records = new ArrayList<>();
+    for (ID id: ids){
+      T record = current.records.get(id);
+      if (record != null) records.add(record);
+    }
+    return records;
+  }
+
+  @Override
+  public long count() {
+    return snapshot.records.size();
+  }
+
+  /**
+   * Returns the records matching all of the criteria, in insertion order.  Criteria that can use
+   *   an index narrow the set of candidate records before the full criteria are evaluated.
+   */
+  private List<T> query(Snapshot<T, ID> current, Iterable<QueryCriteria> queryCriterias){
+    List<QueryCriteria> criterias = new ArrayList<>();
+    if (queryCriterias != null) queryCriterias.forEach(criterias::add);
+    Set<ID> candidates = null;
+    for (QueryCriteria criteria: criterias){
+      Set<ID> ids = current.lookup(criteria);
+      if (ids == null) continue;
+      if (candidates == null){
+        candidates = new HashSet<>(ids);
+      } else {
+        candidates.retainAll(ids);
+      }
+    }
+    Collection<T> records;
+    if (candidates == null){
+      records = current.records.values();
+    } else {
+      List<ID> ids = new ArrayList<>(candidates);
+      ids.sort(Comparator.comparing(current::getPosition));
+      List<T> selected = new ArrayList<>();
+      for (ID id: ids){
+        selected.add(current.records.get(id));
+      }
+      records = selected;
+    }
+    List<T> results = new ArrayList<>();
+    for (T record: records){
+      boolean matches = true;
+      for (QueryCriteria criteria: criterias){
+        if (!matches(record, criteria)){
+          matches = false;
+          break;
+        }
+      }
+      if (matches) results.add(record);
+    }
+    return results;
+  }
+
+  private List<T> sort(List<T> records, Sort sort){
+    if (sort == null || sort.isUnsorted()) return records;
+    Comparator<T> comparator = null;
+    for (Sort.Order order: sort){
+      Comparator<T> next = (a, b) -> compareNullable(getValues(a, order.getProperty()).get(0),
+          getValues(b, order.getProperty()).get(0));
+      if (order.isDescending()) next = next.reversed();
+      comparator = comparator == null ? next : comparator.thenComparing(next);
+    }
+    records.sort(comparator);
+    return records;
+  }
+
+  private Page<T> page(List<T> records, Pageable pageable){
+    if (pageable.isUnpaged()) return new PageImpl<>(records, pageable, records.size());
+    int from = (int) Math.min(pageable.getOffset(), records.size());
+    int to = Math.min(from + pageable.getPageSize(), records.size());
+    return new PageImpl<>(new ArrayList<>(records.subList(from, to)), pageable, records.size());
+  }
+
+  /**
+   * Tests a record against a single criteria.  Multi-valued fields match if any of their values
+   *   match, except for the negated operators, which match only if none of them do.
+   */
+  private boolean matches(T record, QueryCriteria criteria){
+    if (criteria.getEvaluation() == Evaluation.OR){
+      return criteria.getCriterias().stream().anyMatch(c -> matches(record, c));
+    } else if (criteria.getEvaluation() == Evaluation.AND){
+      return criteria.getCriterias().stream().allMatch(c -> matches(record, c));
+    }
+    List<Object> values = getValues(record, criteria.getKey());
+    Object value = criteria.getValue();
+    switch (criteria.getEvaluation()){
+      case EQUALS:
+        return anyMatch(values, v -> valuesEqual(v, value));
+      case NOT_EQUALS:
+        return !anyMatch(values, v -> valuesEqual(v, value));
+      case IN:
+        return anyMatch(values, v -> containsValue(getCollection(value), v));
+      case NOT_IN:
+        return !anyMatch(values, v -> containsValue(getCollection(value), v));
+      case IS_NULL:
+        return anyMatch(values, v -> v == null);
+      case NOT_NULL:
+        return !anyMatch(values, v -> v == null);
+      case IS_TRUE:
+        return anyMatch(values, Boolean.TRUE::equals);
+      case IS_FALSE:
+        return anyMatch(values, Boolean.FALSE::equals);
+      case GREATER_THAN:
+        return anyMatch(values, v -> compare(v, value, c -> c > 0));
+      case GREATER_THAN_EQUALS:
+        return anyMatch(values, v -> compare(v, value, c -> c >= 0));
+      case LESS_THAN:
+        return anyMatch(values, v -> compare(v, value, c -> c < 0));
+      case LESS_THAN_EQUALS:
+        return anyMatch(values, v -> compare(v, value, c -> c <= 0));
+      case BETWEEN:
+        return anyMatch(values, v -> compare(v, getBound(value, 0), c -> c > 0))
+            && anyMatch(values, v -> compare(v, getBound(value, 1), c -> c < 0));
+      case BETWEEN_INCLUSIVE:
+        return anyMatch(values, v -> compare(v, getBound(value, 0), c -> c >= 0))
+            && anyMatch(values, v -> compare(v, getBound(value, 1), c -> c <= 0));
+      case OUTSIDE:
+        return anyMatch(values, v -> compare(v, getBound(value, 0), c -> c < 0))
+            || anyMatch(values, v -> compare(v, getBound(value, 1), c -> c > 0));
+      case OUTSIDE_INCLUSIVE:
+        return anyMatch(values, v -> compare(v, getBound(value, 0), c -> c <= 0))
+            || anyMatch(values, v -> compare(v, getBound(value, 1), c -> c >= 0));
+      case LIKE:
+        return anyMatch(values, v -> v instanceof String 
+            && getPattern(caseInsensitivePatterns, (String) value).matcher((String) v).find());
+      case NOT_LIKE:
+        return !anyMatch(values, v -> v instanceof String 
+            && getPattern(caseInsensitivePatterns, (String) value).matcher((String) v).find());
+      case STARTS_WITH:
+        Pattern prefix = getPattern(getLiteralPatterns(criteria.getKey()), 
+            "^" + QueryParameterUtil.escapeRegex(String.valueOf(value)));
+        return anyMatch(values, v -> v instanceof String && prefix.matcher((String) v).find());
+      case ENDS_WITH:
+        Pattern suffix = getPattern(getLiteralPatterns(criteria.getKey()), 
+            QueryParameterUtil.escapeRegex(String.valueOf(value)) + "$");
+        return anyMatch(values, v -> v instanceof String && suffix.matcher((String) v).find());
+      default:
+        throw new QueryParameterException(String.format("Unsupported evaluation for in-memory "
+            + "repository: %s", criteria.getEvaluation()));
+    }
+  }
+
+  /**
+   * Returns the pattern cache used for the literal prefix and suffix patterns of a field, which 
+   *   ignore case if the field is {@link Normalized}.
+   */
+  private LoadingCache<String, Pattern> getLiteralPatterns(String field){
+    return normalizedFields.contains(field) ? caseInsensitivePatterns : patterns;
+  }
+
+  private static boolean anyMatch(List<Object> values, Predicate<Object> predicate){
+    for (Object value: values){
+      if (predicate.test(value)) return true;
+    }
+    return false;
+  }
+
+  private static Object getBound(Object range, int index){
+    List<Object> bounds = getCollection(range);
+    if (bounds.size() != 2){
+      throw new QueryParameterException(String.format("Range criteria must have exactly two values: %s", 
+          range));
+    }
+    return bounds.get(index);
+  }
+
+  private static List<Object> getCollection(Object value){
+    return value == null ? Collections.emptyList() : ModelRepository.getCollection(value);
+  }
+
+  private static boolean containsValue(Collection<Object> collection, Object value){
+    for (Object item: collection){
+      if (valuesEqual(item, value)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Fetches a compiled {@link Pattern} from the cache, rethrowing any
+   *   {@link java.util.regex.PatternSyntaxException} thrown while compiling it.
+   */
+  private static Pattern getPattern(LoadingCache<String, Pattern> cache, String regex){
+    try {
+      return cache.getUnchecked(regex);
+    } catch (UncheckedExecutionException e){
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
+  /* Value handling */
+
+  /**
+   * Resolves a dotted property path against a record, returning every value it reaches.  Map
+   *   entries are looked up by key, and collections and arrays are flattened, so that each of their
+   *   members is returned separately.  Missing or null properties resolve to a single null value.
+   */
+  static List<Object> getValues(Object record, String path){
+    List<Object> current = Collections.singletonList(record);
+    for (String segment: path.split("\\.")){
+      List<Object> next = new ArrayList<>();
+      for (Object object: current){
+        if (object == null) continue;
+        Object value = null;
+        if (object instanceof Map){
+          value = ((Map<?, ?>) object).get(segment);
+        } else {
+          ModelProperty property 
+              = ModelMetadataRegistry.getMetadata(object.getClass()).getProperty(segment);
+          if (property != null && property.isReadable()){
+            value = property.getValue(object);
+          }
+        }
+        if (value instanceof Collection){
+          next.addAll((Collection<?>) value);
+        } else if (value instanceof Object[]){
+          next.addAll(Arrays.asList((Object[]) value));
+        } else {
+          next.add(value);
+        }
+      }
+      current = next;
+    }
+    return current.isEmpty() ? Collections.singletonList(null) : current;
+  }
+
+  /**
+   * Converts numbers to a common representation, so that values of different numeric types that
+   *   are numerically equal also compare equal, as they do in the database.
+   */
+  private static Object normalize(Object value){
+    if (!(value instanceof Number)) return value;
+    if (value instanceof Long || value instanceof Integer || value instanceof Short 
+        || value instanceof Byte){
+      return ((Number) value).longValue();
+    }
+    double d = ((Number) value).doubleValue();
+    if (d == Math.rint(d) && Math.abs(d) < Long.MAX_VALUE) return (long) d;
+    return d;
+  }
+
+  private static boolean valuesEqual(Object a, Object b){
+    return a == null ? b == null : normalize(a).equals(normalize(b));
+  }
+
+  private static int getTypeRank(Object value){
+    if (value instanceof Number) return 1;
+    if (value instanceof String || value instanceof Character) return 2;
+    if (value instanceof Date) return 3;
+    if (value instanceof Boolean) return 4;
+    return 5;
+  }
+
+  /**
+   * Tests whether two non-null values are of the same broad type, and so can be compared by the
+   *   range operators.
+   */
+  private static boolean isComparable(Object a, Object b){
+    if (a == null || b == null) return false;
+    int rank = getTypeRank(a);
+    return rank == getTypeRank(b) && (rank < 5 || a.getClass().equals(b.getClass()));
+  }
+
+  /**
+   * Compares a value with a range bound, failing if they are not of the same broad type, as the
+   *   database does.
+   */
+  private static boolean compare(Object value, Object bound, IntPredicate test){
+    return isComparable(value, bound) && test.test(compareValues(value, bound));
+  }
+
+  /**
+   * Total ordering over values of any type, grouping values by broad type first.  Used by the
+   *   sorted indexes and for sorting results.
+   */
+  @SuppressWarnings("unchecked")
+  static int compareValues(Object a, Object b){
+    int rankA = getTypeRank(a);
+    int rankB = getTypeRank(b);
+    if (rankA != rankB) return Integer.compare(rankA, rankB);
+    if (rankA == 1){
+      Object na = normalize(a);
+      Object nb = normalize(b);
+      if (na instanceof Long && nb instanceof Long) return Long.compare((Long) na, (Long) nb);
+      return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+    }
+    if (rankA == 2) return a.toString().compareTo(b.toString());
+    if (rankA == 3) return Long.compare(((Date) a).getTime(), ((Date) b).getTime());
+    if (a.getClass().equals(b.getClass()) && a instanceof Comparable){
+      return ((Comparable<Object>) a).compareTo(b);
+    }
+    int byClass = a.getClass().getName().compareTo(b.getClass().getName());
+    return byClass != 0 ? byClass : a.toString().compareTo(b.toString());
+  }
+
+  static int compareNullable(Object a, Object b){
+    if (a == null) return b == null ? 0 : -1;
+    if (b == null) return 1;
+    return compareValues(a, b);
+  }
+
+  /* Writes */
+
+  @Override
+  public <S extends T> S insert(S entity) {
+    insert(Collections.singletonList(entity));
+    return entity;
+  }
+
+  @Override
+  public <S extends T> Iterable<S> insert(Iterable<S> entities) {
+    write(records -> {
+      for (S entity: entities){
+        assignId(entity);
+        if (records.containsKey(entity.getId())){
+          throw new ModelPersistenceException(String.format("Model record already exists in the "
+              + "database, and cannot be inserted: %s", entity.toString()));
+        }
+        records.put(entity.getId(), entity);
+      }
+    });
+    return entities;
+  }
+
+  @Override
+  public <S extends T> S update(S entity) {
+    update(Collections.singletonList(entity));
+    return entity;
+  }
+
+  @Override
+  public <S extends T> Iterable<S> update(Iterable<S> entities) {
+    write(records -> {
+      for (S entity: entities){
+        if (entity.getId() == null || !records.containsKey(entity.getId())){
+          throw new ModelPersistenceException(String.format("Model record does not exist in the "
+              + "database, and cannot be updated: %s", entity.toString()));
+        }
+        records.put(entity.getId(), entity);
+      }
+    });
+    return entities;
+  }
+
+  @Override
+  public <S extends T> Iterable<S> upsert(Iterable<S> entities) {
+    write(records -> {
+      for (S entity: entities){
+        assignId(entity);
+        records.put(entity.getId(), entity);
+      }
+    });
+    return entities;
+  }
+
+  @Override
+  public <S extends T> S save(S entity) {
+    upsert(Collections.singletonList(entity));
+    return entity;
+  }
+
+  @Override
+  public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+    return upsert(entities);
+  }
+
+  @Override
+  public void deleteById(ID id) {
+    write(records -> records.remove(id));
+  }
+
+  @Override
+  public void delete(T entity) {
+    write(records -> records.remove(entity.getId()));
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends T> entities) {
+    write(records -> {
+      for (T entity: entities){
+        records.remove(entity.getId());
+      }
+    });
+  }
+
+  @Override
+  public void deleteAll() {
+    write(Map::clear);
+  }
+
+  private void assignId(T entity){
+    if (entity.getId() != null) return;
+    if (idGenerator == null){
+      throw new ModelPersistenceException(String.format("Model record has no ID, and no ID "
+          + "generator is configured: %s", entity.toString()));
+    }
+    entity.setId(idGenerator.get());
+  }
+
+  /**
+   * Applies a change to a copy of the current records, and publishes the result as a new snapshot,
+   *   whose indexes are updated for the changed records only.  If the change throws an exception,
+   *   the current snapshot is left unchanged.
+   */
+  private void write(RecordsChange<T, ID> change){
+    synchronized (writeLock){
+      RecordsCopy<T, ID> records = new RecordsCopy<>(snapshot.records);
+      change.apply(records);
+      snapshot = records.cleared 
+          ? new Snapshot<>(records, hashIndexedFields, sortedIndexedFields)
+          : snapshot.update(records, records.changed, records.appended);
+    }
+  }
+
+  @Override
+  public Class<T> getModel() {
+    return model;
+  }
+
+  public Set<String> getHashIndexedFields() {
+    return Collections.unmodifiableSet(hashIndexedFields);
+  }
+
+  public Set<String> getSortedIndexedFields() {
+    return Collections.unmodifiableSet(sortedIndexedFields);
+  }
+
+  @FunctionalInterface
+  private interface RecordsChange<T, ID> {
+    void apply(Map<ID, T> records);
+  }
+
+  /**
+   * Copy of a snapshot's records that keeps track of the IDs a write puts or removes.  IDs added
+   *   to the map are kept in the order they were appended, so that they are given new positions
+   *   in the same order as the records themselves.
+   */
+  private static class RecordsCopy<T, ID> extends LinkedHashMap<ID, T> {
+
+    private final Set<ID> changed = new LinkedHashSet<>();
+    private final Set<ID> appended = new HashSet<>();
+    private boolean cleared = false;
+
+    RecordsCopy(Map<ID, T> records) {
+      super(records);
+    }
+
+    @Override
+    public T put(ID key, T value) {
+      if (!containsKey(key)){
+        changed.remove(key);
+        appended.add(key);
+      }
+      changed.add(key);
+      return super.put(key, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T remove(Object key) {
+      changed.add((ID) key);
+      appended.remove(key);
+      return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+      cleared = true;
+      super.clear();
+    }
+
+  }
+
+  /**
+   * Insertion position of a record, and the field values it was indexed with.
+   */
+  private static class IndexedRecord {
+
+    private final int position;
+    private final Map<String, List<Object>> values;
+
+    IndexedRecord(int position, Map<String, List<Object>> values) {
+      this.position = position;
+      this.values = values;
+    }
+
+  }
+
+  /**
+   * Immutable view of the repository's records and their indexes at a point in time.
+   */
+  private static class Snapshot<T, ID> {
+
+    private final Map<ID, T> records;
+    private final Map<ID, IndexedRecord> indexed;
+    private final Map<String, Map<Object, Set<ID>>> hashIndexes = new HashMap<>();
+    private final Map<String, NavigableMap<Object, Set<ID>>> sortedIndexes = new HashMap<>();
+    private int nextPosition = 0;
+
+    Snapshot(Map<ID, T> records, Set<String> hashIndexedFields, Set<String> sortedIndexedFields) {
+      this.records = Collections.unmodifiableMap(records);
+      this.indexed = new HashMap<>();
+      for (String field: hashIndexedFields){
+        hashIndexes.put(field, new HashMap<>());
+      }
+      for (String field: sortedIndexedFields){
+        sortedIndexes.put(field, new TreeMap<>(VALUE_ORDER));
+      }
+      Set<Set<ID>> created = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (Map.Entry<ID, T> entry: records.entrySet()){
+        add(entry.getKey(), entry.getValue(), nextPosition++, created);
+      }
+    }
+
+    /**
+     * Creates a copy of the previous snapshot's indexes, for a write that has produced the given
+     *   records.  The index maps are copied, but their ID sets are shared until a changed record
+     *   needs to modify one.
+     */
+    private Snapshot(Snapshot<T, ID> previous, Map<ID, T> records) {
+      this.records = Collections.unmodifiableMap(records);
+      this.indexed = new HashMap<>(previous.indexed);
+      this.nextPosition = previous.nextPosition;
+      previous.hashIndexes.forEach((field, index) -> hashIndexes.put(field, new HashMap<>(index)));
+      previous.sortedIndexes.forEach((field, index) -> sortedIndexes.put(field, new TreeMap<>(index)));
+    }
+
+    /**
+     * Returns a new snapshot holding the given records, whose indexes differ from this snapshot's
+     *   only in the entries of the changed records.  A changed record's previous entries are found
+     *   from the values it was indexed with, since the record may have been modified in place.
+     *
+     * @param records records after the write
+     * @param changed IDs of the records that were put or removed by the write
+     * @param appended IDs of the records that were added to the end of the records
+     * @return the new snapshot
+     */
+    Snapshot<T, ID> update(Map<ID, T> records, Set<ID> changed, Set<ID> appended){
+      Snapshot<T, ID> updated = new Snapshot<>(this, records);
+      Set<Set<ID>> copied = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (ID id: changed){
+        IndexedRecord previous = updated.indexed.remove(id);
+        if (previous != null) updated.remove(id, previous, copied);
+        T current = records.get(id);
+        if (current != null){
+          updated.add(id, current, previous != null && !appended.contains(id) 
+              ? previous.position : updated.nextPosition++, copied);
+        }
+      }
+      return updated;
+    }
+
+    /**
+     * Adds a record to the index entries of each of its field values.  ID sets not yet in 
+     *   {@code owned} are shared with another snapshot, and are copied before being modified.
+     */
+    private void add(ID id, T record, int position, Set<Set<ID>> owned){
+      Map<String, List<Object>> values = new HashMap<>();
+      for (Map.Entry<String, Map<Object, Set<ID>>> index: hashIndexes.entrySet()){
+        List<Object> fieldValues = values.computeIfAbsent(index.getKey(), 
+            field -> getValues(record, field));
+        for (Object value: fieldValues){
+          getEntry(index.getValue(), normalize(value), owned).add(id);
+        }
+      }
+      for (Map.Entry<String, NavigableMap<Object, Set<ID>>> index: sortedIndexes.entrySet()){
+        List<Object> fieldValues = values.computeIfAbsent(index.getKey(), 
+            field -> getValues(record, field));
+        for (Object value: fieldValues){
+          if (value == null) continue;
+          getEntry(index.getValue(), value, owned).add(id);
+        }
+      }
+      indexed.put(id, new IndexedRecord(position, values));
+    }
+
+    /**
+     * Removes a record from the index entries of the values it was indexed with.
+     */
+    private void remove(ID id, IndexedRecord record, Set<Set<ID>> owned){
+      for (Map.Entry<String, Map<Object, Set<ID>>> index: hashIndexes.entrySet()){
+        for (Object value: record.values.get(index.getKey())){
+          removeFromEntry(index.getValue(), normalize(value), id, owned);
+        }
+      }
+      for (Map.Entry<String, NavigableMap<Object, Set<ID>>> index: sortedIndexes.entrySet()){
+        for (Object value: record.values.get(index.getKey())){
+          if (value == null) continue;
+          removeFromEntry(index.getValue(), value, id, owned);
+        }
+      }
+    }
+
+    private Set<ID> getEntry(Map<Object, Set<ID>> index, Object value, Set<Set<ID>> owned){
+      Set<ID> ids = index.get(value);
+      if (ids == null || !owned.contains(ids)){
+        ids = ids == null ? new LinkedHashSet<>() : new LinkedHashSet<>(ids);
+        owned.add(ids);
+        index.put(value, ids);
+      }
+      return ids;
+    }
+
+    private void removeFromEntry(Map<Object, Set<ID>> index, Object value, ID id, 
+        Set<Set<ID>> owned){
+      if (!index.containsKey(value)) return;
+      Set<ID> ids = getEntry(index, value, owned);
+      ids.remove(id);
+      if (ids.isEmpty()) index.remove(value);
+    }
+
+    int getPosition(ID id){
+      return indexed.get(id).position;
+    }
+
+    /**
+     * Returns the IDs of the records that may satisfy the criteria according to an index, or null
+     *   if no index applies.  The result is a superset of the matching records.
+     */
+    Set<ID> lookup(QueryCriteria criteria){
+      if (criteria.isGroup()) return lookupGroup(criteria);
+      String key = criteria.getKey();
+      Object value = criteria.getValue();
+      Map<Object, Set<ID>> hashIndex = hashIndexes.get(key);
+      NavigableMap<Object, Set<ID>> sortedIndex = sortedIndexes.get(key);
+      switch (criteria.getEvaluation()){
+        case EQUALS:
+          if (hashIndex == null) return null;
+          return hashIndex.getOrDefault(normalize(value), Collections.emptySet());
+        case IN:
+          if (hashIndex == null) return null;
+          Set<ID> ids = new HashSet<>();
+          for (Object item: getCollection(value)){
+            ids.addAll(hashIndex.getOrDefault(normalize(item), Collections.emptySet()));
+          }
+          return ids;
+        case GREATER_THAN:
+          return sortedIndex == null || value == null ? null 
+              : union(sortedIndex.tailMap(value, false));
+        case GREATER_THAN_EQUALS:
+          return sortedIndex == null || value == null ? null 
+              : union(sortedIndex.tailMap(value, true));
+        case LESS_THAN:
+          return sortedIndex == null || value == null ? null 
+              : union(sortedIndex.headMap(value, false));
+        case LESS_THAN_EQUALS:
+          return sortedIndex == null || value == null ? null 
+              : union(sortedIndex.headMap(value, true));
+        case BETWEEN:
+        case BETWEEN_INCLUSIVE:
+          Object lower = getBound(value, 0);
+          Object upper = getBound(value, 1);
+          if (sortedIndex == null || lower == null || upper == null) return null;
+          // Bounds are looked up separately, since different values of a multi-valued field may
+          // satisfy each of them
+          boolean inclusive = criteria.getEvaluation() == Evaluation.BETWEEN_INCLUSIVE;
+          Set<ID> range = union(sortedIndex.tailMap(lower, inclusive));
+          range.retainAll(union(sortedIndex.headMap(upper, inclusive)));
+          return range;
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * Combines the index lookups of a group's members.  An {@code OR} group can only be narrowed
+     *   if every member can use an index, while an {@code AND} group needs only one.
+     */
+    private Set<ID> lookupGroup(QueryCriteria criteria){
+      boolean or = criteria.getEvaluation() == Evaluation.OR;
+      Set<ID> combined = null;
+      for (QueryCriteria member: criteria.getCriterias()){
+        Set<ID> ids = lookup(member);
+        if (ids == null){
+          if (or) return null;
+          continue;
+        }
+        if (combined == null){
+          combined = new HashSet<>(ids);
+        } else if (or){
+          combined.addAll(ids);
+        } else {
+          combined.retainAll(ids);
+        }
+      }
+      return combined;
+    }
+
+    private Set<ID> union(Map<Object, Set<ID>> entries){
+      Set<ID> ids = new HashSet<>();
+      for (Set<ID> set: entries.values()){
+        ids.addAll(set);
+      }
+      return ids;
+    }
+
+  }
+
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.metrics;
+
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.repository.DelegatingModelRepository;
+import com.blueprint.centromere.core.repository.FacetCounts;
+import com.blueprint.centromere.core.repository.FieldStatistics;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import com.blueprint.centromere.core.repository.KeysetCursor;
+import com.blueprint.centromere.core.repository.KeysetSlice;
+import com.blueprint.centromere.core.repository.ModelGroup;
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.ValueCount;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+/**
+ * {@link ModelRepository} decorator that records the execution time and result size of every 
+ *   operation as Micrometer meters, tagged with the model, the operation, and the set of 
+ *   {@link QueryCriteria} field and {@link com.blueprint.centromere.core.repository.Evaluation} 
+ *   combinations used.  Only field names and evaluations are used as tags, never criteria values.
+ *   Since criteria are supplied by clients, the tag is normalized to bound its cardinality: keys
+ *   of map fields are replaced with a wildcard, eg. {@code attributes.*}, criteria groups are
+ *   reduced to their operator, and once {@link #DEFAULT_MAXIMUM_EVALUATION_TAGS} distinct values
+ *   have been recorded for a repository, further values are tagged as {@code other}.
+ *   Operations that exceed the {@link SlowQueryLog} threshold are added to the log, along with 
+ *   the native query and its execution plan, if a {@link QueryExplainer} is configured.  
+ *   Streaming methods are passed through untimed, since their cost is incurred by the consumer.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class InstrumentedModelRepository<T extends Model<ID>, ID extends Serializable>
+    implements DelegatingModelRepository<T, ID> {
+
+  public static final String TIMER_NAME = "centromere.repository.operations";
+  public static final String RESULT_SIZE_NAME = "centromere.repository.results";
+  public static final int DEFAULT_MAXIMUM_EVALUATION_TAGS = 100;
+  private static final String NO_CRITERIA = "none";
+  private static final String OTHER_CRITERIA = "other";
+
+  private static final Logger logger = LoggerFactory.getLogger(InstrumentedModelRepository.class);
+
+  private final ModelRepository<T, ID> delegate;
+  private final MeterRegistry meterRegistry;
+  private final SlowQueryLog slowQueryLog;
+  private final QueryExplainer explainer;
+  private final String modelName;
+  private final Set<String> mapFields = new HashSet<>();
+  private final Set<String> evaluationTags = ConcurrentHashMap.newKeySet();
+  private int maximumEvaluationTags = DEFAULT_MAXIMUM_EVALUATION_TAGS;
+
+  public InstrumentedModelRepository(ModelRepository<T, ID> delegate, MeterRegistry meterRegistry) {
+    this(delegate, meterRegistry, null, null);
+  }
+
+  public InstrumentedModelRepository(ModelRepository<T, ID> delegate, MeterRegistry meterRegistry,
+      SlowQueryLog slowQueryLog, QueryExplainer explainer) {
+    this.delegate = delegate;
+    this.meterRegistry = meterRegistry;
+    this.slowQueryLog = slowQueryLog;
+    this.explainer = explainer;
+    this.modelName = delegate.getModel().getSimpleName();
+    for (Field field: ModelMetadataRegistry.getMetadata(delegate.getModel()).getFields()){
+      if (Map.class.isAssignableFrom(field.getType())) mapFields.add(field.getName());
+    }
+  }
+
+  /**
+   * Returns a stable, sorted description of the fields and evaluations in a query, eg. 
+   *   {@code geneId:IN,sampleId:EQUALS}.  Groups are described by their members, eg.
+   *   {@code OR(aliases:EQUALS,symbol:EQUALS)}.
+   *
+   * @param criterias query criteria
+   * @return evaluation description
+   */
+  public static String getEvaluations(Iterable<QueryCriteria> criterias){
+    if (criterias == null) return NO_CRITERIA;
+    Set<String> evaluations = new TreeSet<>();
+    for (QueryCriteria criteria: criterias){
+      if (criteria == null) continue;
+      if (criteria.isGroup()){
+        evaluations.add(criteria.getEvaluation() + "(" + getEvaluations(criteria.getCriterias()) + ")");
+      } else {
+        evaluations.add(criteria.getKey() + ":" + criteria.getEvaluation());
+      }
+    }
+    return evaluations.isEmpty() ? NO_CRITERIA : String.join(",", evaluations);
+  }
+
+  /**
+   * Returns a description of the fields and evaluations in a query, normalized for use as a meter
+   *   tag.  Keys that refer to entries of a map field are replaced with a wildcard, eg. 
+   *   {@code attributes.*:EQUALS}, and groups are reduced to their operator, eg. {@code OR(*)}.
+   *
+   * @param criterias query criteria
+   * @param mapFields names of the model's map fields
+   * @return normalized evaluation description
+   */
+  public static String getEvaluationsTag(Iterable<QueryCriteria> criterias, 
+      Set<String> mapFields){
+    if (criterias == null) return NO_CRITERIA;
+    Set<String> evaluations = new TreeSet<>();
+    for (QueryCriteria criteria: criterias){
+      if (criteria == null) continue;
+      if (criteria.isGroup()){
+        evaluations.add(criteria.getEvaluation() + "(*)");
+      } else {
+        String key = criteria.getKey();
+        int index = key.indexOf('.');
+        if (index > 0 && mapFields.contains(key.substring(0, index))){
+          key = key.substring(0, index) + ".*";
+        }
+        evaluations.add(key + ":" + criteria.getEvaluation());
+      }
+    }
+    return evaluations.isEmpty() ? NO_CRITERIA : String.join(",", evaluations);
+  }
+
+  /**
+   * Returns the evaluations tag for a query, or {@code other} if the maximum number of distinct
+   *   tag values has already been recorded.
+   */
+  private String getEvaluationsTag(Iterable<QueryCriteria> criterias){
+    String tag = getEvaluationsTag(criterias, mapFields);
+    if (evaluationTags.contains(tag)) return tag;
+    synchronized (evaluationTags){
+      if (evaluationTags.size() >= maximumEvaluationTags) return OTHER_CRITERIA;
+      evaluationTags.add(tag);
+    }
+    return tag;
+  }
+
+  /**
+   * Returns the number of records or values in an operation result, or null if the result is not
+   *   a collection of records.
+   */
+  private static Long getResultSize(Object result){
+    if (result instanceof Collection){
+      return (long) ((Collection<?>) result).size();
+    } else if (result instanceof Slice){
+      return (long) ((Slice<?>) result).getNumberOfElements();
+    } else if (result instanceof KeysetSlice){
+      return (long) ((KeysetSlice<?>) result).getContent().size();
+    } else if (result instanceof Optional){
+      return ((Optional<?>) result).isPresent() ? 1L : 0L;
+    }
+    return null;
+  }
+
+  /**
+   * Executes and times an operation, recording its result size and logging it if it is slow.
+   */
+  private <V> V record(String operation, Iterable<QueryCriteria> criterias, Supplier<V> query){
+    long start = System.nanoTime();
+    V result = null;
+    try {
+      result = query.get();
+      return result;
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      Tags tags = Tags.of("model", modelName, "operation", operation, 
+          "evaluations", getEvaluationsTag(criterias));
+      Timer.builder(TIMER_NAME)
+          .tags(tags)
+          .publishPercentiles(0.5, 0.95, 0.99)
+          .register(meterRegistry)
+          .record(elapsed, TimeUnit.NANOSECONDS);
+      Long size = getResultSize(result);
+      if (size != null){
+        DistributionSummary.builder(RESULT_SIZE_NAME)
+            .tags(tags)
+            .register(meterRegistry)
+            .record(size);
+      }
+      if (slowQueryLog != null && slowQueryLog.isSlow(elapsed)){
+        logSlowQuery(operation, criterias, getEvaluations(criterias), elapsed, size);
+      }
+    }
+  }
+
+  private void record(String operation, Runnable runnable){
+    record(operation, null, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
+  private void logSlowQuery(String operation, Iterable<QueryCriteria> criterias, String evaluations,
+      long elapsed, Long size){
+    String nativeQuery = null;
+    Object plan = null;
+    if (explainer != null && criterias != null){
+      try {
+        nativeQuery = explainer.translate(getModel(), criterias);
+        plan = explainer.explain(getModel(), criterias);
+      } catch (Exception e){
+        logger.warn(String.format("Unable to explain slow %s query for model %s: %s", 
+            operation, modelName, e.getMessage()));
+      }
+    }
+    slowQueryLog.add(new SlowQuery(new Date(), modelName, operation, evaluations,
+        criterias == null ? null : criterias.toString(), elapsed / 1000000.0, size, 
+        nativeQuery, plan));
+  }
+
+  @Override
+  public ModelRepository<T, ID> getDelegate() {
+    return delegate;
+  }
+
+  public int getMaximumEvaluationTags() {
+    return maximumEvaluationTags;
+  }
+
+  public void setMaximumEvaluationTags(int maximumEvaluationTags) {
+    this.maximumEvaluationTags = maximumEvaluationTags;
+  }
+
+  /* Queries */
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias) {
+    return record("find", queryCriterias, () -> delegate.find(queryCriterias));
+  }
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    return record("find", queryCriterias, () -> delegate.find(queryCriterias, sort));
+  }
+
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    return record("findPage", queryCriterias, () -> delegate.find(queryCriterias, pageable));
+  }
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort, Set<String> fields,
+      Set<String> exclude) {
+    return record("find", queryCriterias, 
+        () -> delegate.find(queryCriterias, sort, fields, exclude));
+  }
+
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable, Set<String> fields,
+      Set<String> exclude) {
+    return record("findPage", queryCriterias, 
+        () -> delegate.find(queryCriterias, pageable, fields, exclude));
+  }
+
+  @Override
+  public Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    return record("findSlice", queryCriterias, () -> delegate.findSlice(queryCriterias, pageable));
+  }
+
+  @Override
+  public Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable,
+      Set<String> fields, Set<String> exclude) {
+    return record("findSlice", queryCriterias, 
+        () -> delegate.findSlice(queryCriterias, pageable, fields, exclude));
+  }
+
+  @Override
+  public KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor,
+      Sort sort, int size) {
+    return record("findAfter", queryCriterias, 
+        () -> delegate.findAfter(queryCriterias, cursor, sort, size));
+  }
+
+  @Override
+  public KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor,
+      Sort sort, int size, Set<String> fields, Set<String> exclude) {
+    return record("findAfter", queryCriterias, 
+        () -> delegate.findAfter(queryCriterias, cursor, sort, size, fields, exclude));
+  }
+
+  @Override
+  public Iterable<T> findAll() {
+    return record("findAll", null, delegate::findAll);
+  }
+
+  @Override
+  public Iterable<T> findAll(Sort sort) {
+    return record("findAll", null, () -> delegate.findAll(sort));
+  }
+
+  @Override
+  public Page<T> findAll(Pageable pageable) {
+    return record("findAllPage", null, () -> delegate.findAll(pageable));
+  }
+
+  @Override
+  public long count() {
+    return record("count", null, delegate::count);
+  }
+
+  @Override
+  public long count(Iterable<QueryCriteria> criterias) {
+    return record("count", criterias, () -> delegate.count(criterias));
+  }
+
+  @Override
+  public long estimateCount(Iterable<QueryCriteria> queryCriterias, long limit) {
+    return record("estimateCount", queryCriterias, 
+        () -> delegate.estimateCount(queryCriterias, limit));
+  }
+
+  @Override
+  public Set<Object> distinct(String field) {
+    return record("distinct", null, () -> delegate.distinct(field));
+  }
+
+  @Override
+  public Set<Object> distinct(String field, Iterable<QueryCriteria> criterias) {
+    return record("distinct", criterias, () -> delegate.distinct(field, criterias));
+  }
+
+  @Override
+  public List<Object> distinct(String field, Iterable<QueryCriteria> criterias, Pageable pageable) {
+    return record("distinct", criterias, () -> delegate.distinct(field, criterias, pageable));
+  }
+
+  @Override
+  public List<ValueCount> distinctCounts(String field, Iterable<QueryCriteria> criterias,
+      Pageable pageable) {
+    return record("distinctCounts", criterias, 
+        () -> delegate.distinctCounts(field, criterias, pageable));
+  }
+
+  @Override
+  public FacetCounts facets(List<String> fields, Iterable<QueryCriteria> criterias, int limit) {
+    return record("facets", criterias, () -> delegate.facets(fields, criterias, limit));
+  }
+
+  @Override
+  public List<FieldStatistics> statistics(String field, String groupBy, 
+      Iterable<QueryCriteria> criterias, List<Double> percentiles) {
+    return record("statistics", criterias, 
+        () -> delegate.statistics(field, groupBy, criterias, percentiles));
+  }
+
+  @Override
+  public List<ModelGroup<T>> groupBy(String field, Iterable<QueryCriteria> criterias,
+      GroupAccumulator accumulator) {
+    return record("groupBy", criterias, () -> delegate.groupBy(field, criterias, accumulator));
+  }
+
+  @Override
+  public Optional<T> findById(ID id) {
+    return record("findById", null, () -> delegate.findById(id));
+  }
+
+  @Override
+  public boolean existsById(ID id) {
+    return record("existsById", null, () -> delegate.existsById(id));
+  }
+
+  @Override
+  public Iterable<T> findAllById(Iterable<ID> ids) {
+    return record("findAllById", null, () -> delegate.findAllById(ids));
+  }
+
+  @Override
+  public Stream<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    return delegate.stream(queryCriterias, sort);
+  }
+
+  @Override
+  public Stream<T> stream(Iterable<QueryCriteria> queryCriterias) {
+    return delegate.stream(queryCriterias);
+  }
+
+  /* Writes */
+
+  @Override
+  public <S extends T> S insert(S entity) {
+    return record("insert", null, () -> delegate.insert(entity));
+  }
+
+  @Override
+  public <S extends T> Iterable<S> insert(Iterable<S> entities) {
+    return record("insert", null, () -> delegate.insert(entities));
+  }
+
+  @Override
+  public <S extends T> S update(S entity) {
+    return record("update", null, () -> delegate.update(entity));
+  }
+
+  @Override
+  public <S extends T> Iterable<S> update(Iterable<S> entities) {
+    return record("update", null, () -> delegate.update(entities));
+  }
+
+  @Override
+  public <S extends T> Iterable<S> upsert(Iterable<S> entities) {
+    return record("upsert", null, () -> delegate.upsert(entities));
+  }
+
+  @Override
+  public <S extends T> S save(S entity) {
+    return record("save", null, () -> delegate.save(entity));
+  }
+
+  @Override
+  public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+    return record("save", null, () -> delegate.saveAll(entities));
+  }
+
+  @Override
+  public void deleteById(ID id) {
+    record("delete", () -> delegate.deleteById(id));
+  }
+
+  @Override
+  public void delete(T entity) {
+    record("delete", () -> delegate.delete(entity));
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends T> entities) {
+    record("delete", () -> delegate.deleteAll(entities));
+  }
+
+  @Override
+  public void deleteAll() {
+    record("deleteAll", () -> delegate.deleteAll());
+  }
+
+  @Override
+  public Class<T> getModel() {
+    return delegate.getModel();
+  }
+
+}
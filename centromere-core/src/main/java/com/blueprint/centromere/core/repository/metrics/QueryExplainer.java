@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.metrics;
+
+import com.blueprint.centromere.core.repository.QueryCriteria;
+
+/**
+ * Describes how a data store executes a query, so that slow queries recorded in a 
+ *   {@link SlowQueryLog} can be diagnosed.  Implementations are data-store specific.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public interface QueryExplainer {
+
+  /**
+   * Returns the native query that the given criteria are translated into for the model.
+   *
+   * @param model model type
+   * @param criterias query criteria
+   * @return native query representation
+   */
+  String translate(Class<?> model, Iterable<QueryCriteria> criterias);
+
+  /**
+   * Returns the data store's execution plan for the given criteria and model.
+   *
+   * @param model model type
+   * @param criterias query criteria
+   * @return query plan
+   */
+  Object explain(Class<?> model, Iterable<QueryCriteria> criterias);
+
+}
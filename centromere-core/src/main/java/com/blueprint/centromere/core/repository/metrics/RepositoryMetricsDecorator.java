@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.metrics;
+
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.ModelRepositoryDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+
+/**
+ * {@link ModelRepositoryDecorator} that wraps every registered repository in an 
+ *   {@link InstrumentedModelRepository}.  It is applied before any other decorator, so that the 
+ *   recorded timings reflect data store operations, rather than cache hits.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class RepositoryMetricsDecorator implements ModelRepositoryDecorator, Ordered {
+
+  private final MeterRegistry meterRegistry;
+  private final SlowQueryLog slowQueryLog;
+  private final QueryExplainer explainer;
+  private int maximumEvaluationTags = InstrumentedModelRepository.DEFAULT_MAXIMUM_EVALUATION_TAGS;
+
+  public RepositoryMetricsDecorator(MeterRegistry meterRegistry) {
+    this(meterRegistry, new SlowQueryLog(), null);
+  }
+
+  public RepositoryMetricsDecorator(MeterRegistry meterRegistry, SlowQueryLog slowQueryLog,
+      QueryExplainer explainer) {
+    this.meterRegistry = meterRegistry;
+    this.slowQueryLog = slowQueryLog;
+    this.explainer = explainer;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public ModelRepository<?, ?> decorate(ModelRepository<?, ?> repository) {
+    InstrumentedModelRepository instrumented 
+        = new InstrumentedModelRepository(repository, meterRegistry, slowQueryLog, explainer);
+    instrumented.setMaximumEvaluationTags(maximumEvaluationTags);
+    return instrumented;
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+
+  public SlowQueryLog getSlowQueryLog() {
+    return slowQueryLog;
+  }
+
+  public int getMaximumEvaluationTags() {
+    return maximumEvaluationTags;
+  }
+
+  public void setMaximumEvaluationTags(int maximumEvaluationTags) {
+    this.maximumEvaluationTags = maximumEvaluationTags;
+  }
+
+}
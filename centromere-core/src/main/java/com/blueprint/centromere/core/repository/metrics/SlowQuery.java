@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.metrics;
+
+import java.util.Date;
+
+/**
+ * A single repository operation whose execution time exceeded the {@link SlowQueryLog} threshold.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class SlowQuery {
+
+  private final Date timestamp;
+  private final String model;
+  private final String operation;
+  private final String evaluations;
+  private final String criteria;
+  private final double durationMillis;
+  private final Long resultSize;
+  private final String query;
+  private final Object explain;
+
+  public SlowQuery(Date timestamp, String model, String operation, String evaluations,
+      String criteria, double durationMillis, Long resultSize, String query, Object explain) {
+    this.timestamp = timestamp;
+    this.model = model;
+    this.operation = operation;
+    this.evaluations = evaluations;
+    this.criteria = criteria;
+    this.durationMillis = durationMillis;
+    this.resultSize = resultSize;
+    this.query = query;
+    this.explain = explain;
+  }
+
+  public Date getTimestamp() {
+    return timestamp;
+  }
+
+  public String getModel() {
+    return model;
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public String getEvaluations() {
+    return evaluations;
+  }
+
+  public String getCriteria() {
+    return criteria;
+  }
+
+  public double getDurationMillis() {
+    return durationMillis;
+  }
+
+  public Long getResultSize() {
+    return resultSize;
+  }
+
+  public String getQuery() {
+    return query;
+  }
+
+  public Object getExplain() {
+    return explain;
+  }
+
+  @Override
+  public String toString() {
+    return "SlowQuery{" +
+        "timestamp=" + timestamp +
+        ", model='" + model + '\'' +
+        ", operation='" + operation + '\'' +
+        ", evaluations='" + evaluations + '\'' +
+        ", durationMillis=" + durationMillis +
+        ", resultSize=" + resultSize +
+        ", query='" + query + '\'' +
+        '}';
+  }
+  
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded, in-memory ring buffer of {@link SlowQuery} records.  Once the buffer is full, each new
+ *   entry replaces the oldest one.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class SlowQueryLog {
+
+  public static final int DEFAULT_CAPACITY = 100;
+  public static final Duration DEFAULT_THRESHOLD = Duration.ofMillis(500);
+
+  private final SlowQuery[] entries;
+  private final long thresholdNanos;
+  private int next = 0;
+  private int size = 0;
+
+  public SlowQueryLog() {
+    this(DEFAULT_CAPACITY, DEFAULT_THRESHOLD);
+  }
+
+  public SlowQueryLog(int capacity, Duration threshold) {
+    if (capacity < 1) throw new IllegalArgumentException("Slow query log capacity must be positive.");
+    this.entries = new SlowQuery[capacity];
+    this.thresholdNanos = threshold.toNanos();
+  }
+
+  /**
+   * Tests whether an operation with the given duration should be logged.
+   *
+   * @param nanos elapsed time, in nanoseconds
+   * @return true if the duration meets the threshold
+   */
+  public boolean isSlow(long nanos){
+    return nanos >= thresholdNanos;
+  }
+
+  public synchronized void add(SlowQuery query){
+    entries[next] = query;
+    next = (next + 1) % entries.length;
+    if (size < entries.length) size++;
+  }
+
+  /**
+   * Returns a copy of the logged queries, most recent first.
+   *
+   * @return logged queries
+   */
+  public synchronized List<SlowQuery> getEntries(){
+    List<SlowQuery> list = new ArrayList<>(size);
+    for (int i = 1; i <= size; i++){
+      list.add(entries[(next - i + entries.length) % entries.length]);
+    }
+    return list;
+  }
+
+  public synchronized void clear(){
+    for (int i = 0; i < entries.length; i++) entries[i] = null;
+    next = 0;
+    size = 0;
+  }
+
+  public synchronized int getSize(){
+    return size;
+  }
+
+  public int getCapacity(){
+    return entries.length;
+  }
+
+  public Duration getThreshold(){
+    return Duration.ofNanos(thresholdNanos);
+  }
+
+}
@@ -0,0 +1,667 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.partition;
+
+import com.blueprint.centromere.core.exceptions.ModelPersistenceException;
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadata.ModelProperty;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.repository.DelegatingModelRepository;
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.FacetCounts;
+import com.blueprint.centromere.core.repository.FieldStatistics;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import com.blueprint.centromere.core.repository.KeysetCursor;
+import com.blueprint.centromere.core.repository.KeysetSlice;
+import com.blueprint.centromere.core.repository.ModelGroup;
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.ValueCount;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+/**
+ * {@link ModelRepository} decorator that splits queries with very large {@link Evaluation#IN}
+ *   criteria, such as linked record lookups with tens of thousands of foreign keys, into several
+ *   smaller queries.  When the largest {@code IN} criteria holds more than the configured 
+ *   threshold of values, its values are divided into partitions, a query is executed for each 
+ *   partition in parallel, and the results are merged in the requested sort order.  Records that
+ *   match more than one partition, which is possible when the field is multi-valued, are returned
+ *   only once.
+ * 
+ * Paged queries fetch the leading {@code offset + size} records of each partition, so requesting
+ *   deep pages of partitioned queries is expensive.  Partitioned {@code stream} queries are 
+ *   materialized before being returned, and {@code groupBy} and {@code statistics} queries are
+ *   not partitioned.  {@link #findAllById(Iterable)} batches the requested IDs the same way, and
+ *   always returns records in the order their IDs were requested.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class PartitionedModelRepository<T extends Model<ID>, ID extends Serializable>
+    implements DelegatingModelRepository<T, ID> {
+
+  private final ModelRepository<T, ID> delegate;
+  private final ExecutorService executor;
+  private final int threshold;
+  private final int partitionSize;
+
+  /**
+   * @param delegate repository to execute the partitioned queries
+   * @param executor executor used to run partition queries in parallel
+   * @param threshold number of {@code IN} values above which queries are partitioned
+   * @param partitionSize maximum number of {@code IN} values in each partition query
+   */
+  public PartitionedModelRepository(ModelRepository<T, ID> delegate, ExecutorService executor,
+      int threshold, int partitionSize) {
+    if (partitionSize < 1) throw new IllegalArgumentException("Partition size must be at least one.");
+    this.delegate = delegate;
+    this.executor = executor;
+    this.threshold = threshold;
+    this.partitionSize = partitionSize;
+  }
+
+  /**
+   * Returns the criteria list with its largest {@code IN} criteria split into partitions, or
+   *   {@code null} if no {@code IN} criteria exceeds the partitioning threshold.
+   */
+  Partitions partition(Iterable<QueryCriteria> queryCriterias){
+    if (queryCriterias == null) return null;
+    List<QueryCriteria> criterias = new ArrayList<>();
+    queryCriterias.forEach(criterias::add);
+    int index = -1;
+    List<Object> values = null;
+    for (int i = 0; i < criterias.size(); i++){
+      QueryCriteria criteria = criterias.get(i);
+      if (criteria.getEvaluation() != Evaluation.IN) continue;
+      List<Object> candidate = getValues(criteria.getValue());
+      if (candidate != null && candidate.size() > threshold 
+          && (values == null || candidate.size() > values.size())){
+        index = i;
+        values = candidate;
+      }
+    }
+    if (values == null) return null;
+    QueryCriteria partitioned = criterias.get(index);
+    Partitions partitions = new Partitions(partitioned.getKey(), criterias);
+    for (List<Object> chunk: chunk(new ArrayList<>(new LinkedHashSet<>(values)))){
+      List<QueryCriteria> partition = new ArrayList<>(criterias);
+      partition.set(index, new QueryCriteria(partitioned.getKey(), chunk, Evaluation.IN));
+      partitions.add(partition);
+    }
+    return partitions;
+  }
+
+  /**
+   * Criteria lists of a partitioned query, along with the name of the partitioned field and the
+   *   original, unpartitioned criteria.
+   */
+  static class Partitions extends ArrayList<List<QueryCriteria>> {
+
+    private final String field;
+    private final List<QueryCriteria> criterias;
+
+    Partitions(String field, List<QueryCriteria> criterias) {
+      this.field = field;
+      this.criterias = criterias;
+    }
+
+    public String getField() {
+      return field;
+    }
+
+    public List<QueryCriteria> getCriterias() {
+      return criterias;
+    }
+
+  }
+
+  private static List<Object> getValues(Object value){
+    if (value instanceof Collection) return new ArrayList<>((Collection<?>) value);
+    if (value instanceof Object[]) return Arrays.asList((Object[]) value);
+    return null;
+  }
+
+  private <V> List<List<V>> chunk(List<V> values){
+    List<List<V>> chunks = new ArrayList<>();
+    for (int i = 0; i < values.size(); i += partitionSize){
+      chunks.add(values.subList(i, Math.min(i + partitionSize, values.size())));
+    }
+    return chunks;
+  }
+
+  /**
+   * Executes the query for every partition in parallel, returning the results in partition order.
+   */
+  private <R> List<R> execute(Partitions partitions, 
+      Function<List<QueryCriteria>, R> query){
+    List<Callable<R>> tasks = new ArrayList<>();
+    for (List<QueryCriteria> partition: partitions){
+      tasks.add(() -> query.apply(partition));
+    }
+    return invokeAll(tasks);
+  }
+
+  private <R> List<R> invokeAll(List<Callable<R>> tasks){
+    List<R> results = new ArrayList<>();
+    try {
+      for (Future<R> future: executor.invokeAll(tasks)){
+        results.add(future.get());
+      }
+    } catch (ExecutionException e){
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      throw new ModelPersistenceException(e.getCause());
+    } catch (InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new ModelPersistenceException(e);
+    }
+    return results;
+  }
+
+  /**
+   * Tests whether the queried field can hold only a single value per record, in which case 
+   *   partition results cannot overlap.  Properties are resolved from the cached 
+   *   {@link ModelMetadataRegistry} metadata.  Unresolvable and nested map fields are assumed to be
+   *   multi-valued.
+   */
+  boolean isSingleValued(String field){
+    Class<?> type = getModel();
+    for (String segment: field.split("\\.")){
+      ModelProperty property = ModelMetadataRegistry.getMetadata(type).getProperty(segment);
+      if (property == null) return false;
+      type = property.getType();
+      if (type.isArray() || Collection.class.isAssignableFrom(type) 
+          || Map.class.isAssignableFrom(type)){
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Combines the partition results, dropping duplicate records and sorting them, if requested.
+   */
+  private List<T> merge(List<? extends Iterable<T>> results, Sort sort){
+    Map<Object, T> records = new LinkedHashMap<>();
+    List<T> unidentified = new ArrayList<>();
+    for (Iterable<T> result: results){
+      for (T record: result){
+        if (record.getId() == null){
+          unidentified.add(record);
+        } else {
+          records.putIfAbsent(record.getId(), record);
+        }
+      }
+    }
+    List<T> merged = new ArrayList<>(records.values());
+    merged.addAll(unidentified);
+    if (sort != null && sort.isSorted()) merged.sort(comparator(sort));
+    return merged;
+  }
+
+  private static <T> Comparator<T> comparator(Sort sort){
+    Comparator<T> comparator = null;
+    for (Sort.Order order: sort){
+      Comparator<T> next = (a, b) -> ValueCount.compareValues(
+          ModelMetadataRegistry.getPropertyValue(a, order.getProperty()),
+          ModelMetadataRegistry.getPropertyValue(b, order.getProperty()));
+      if (order.isDescending()) next = next.reversed();
+      comparator = comparator == null ? next : comparator.thenComparing(next);
+    }
+    return comparator;
+  }
+
+  /**
+   * Merges the keyset slices returned by each partition into a single slice of up to {@code size}
+   *   records, with a cursor positioned after the last of them.
+   */
+  private KeysetSlice<T> merge(List<KeysetSlice<T>> slices, Sort keysetSort, int size){
+    List<T> records = merge(slices.stream().map(KeysetSlice::getContent).collect(Collectors.toList()), 
+        keysetSort);
+    boolean hasNext = records.size() > size || slices.stream().anyMatch(KeysetSlice::hasNext);
+    List<T> content = records.subList(0, Math.min(size, records.size()));
+    KeysetCursor next = hasNext && !content.isEmpty() 
+        ? KeysetCursor.of(content.get(content.size() - 1), keysetSort) : null;
+    return new KeysetSlice<>(content, next);
+  }
+
+  /**
+   * Returns the leading records of the merged partition results, up to the end of the requested
+   *   page, plus one extra record, if available.  The page sort always ends with the ID, so that 
+   *   successive pages are consistent.
+   */
+  private List<T> findLeading(Partitions partitions, Pageable pageable, 
+      Set<String> fields, Set<String> exclude){
+    Sort sort = KeysetCursor.getKeysetSort(pageable.getSort());
+    int limit = (int) Math.min(pageable.getOffset() + pageable.getPageSize() + 1, Integer.MAX_VALUE);
+    Pageable leading = PageRequest.of(0, limit, sort);
+    Set<String> mergeFields = KeysetCursor.getKeysetFields(fields, sort);
+    Set<String> mergeExclude = KeysetCursor.getKeysetExclusions(exclude, sort);
+    return merge(execute(partitions, 
+        p -> delegate.findSlice(p, leading, mergeFields, mergeExclude).getContent()), sort);
+  }
+
+  private static <T> List<T> getPageContent(List<T> records, Pageable pageable){
+    int from = (int) Math.min(pageable.getOffset(), records.size());
+    int to = Math.min(from + pageable.getPageSize(), records.size());
+    return new ArrayList<>(records.subList(from, to));
+  }
+
+  private Page<T> findPage(Partitions partitions, Pageable pageable,
+      Set<String> fields, Set<String> exclude){
+    if (pageable.isUnpaged()){
+      List<T> records = findMerged(partitions, pageable.getSort(), fields, exclude);
+      return new PageImpl<>(records, pageable, records.size());
+    }
+    List<T> records = findLeading(partitions, pageable, fields, exclude);
+    return new PageImpl<>(getPageContent(records, pageable), pageable, count(partitions));
+  }
+
+  private Slice<T> findSlice(Partitions partitions, Pageable pageable,
+      Set<String> fields, Set<String> exclude){
+    if (pageable.isUnpaged()){
+      return new SliceImpl<>(findMerged(partitions, pageable.getSort(), fields, exclude), 
+          pageable, false);
+    }
+    List<T> records = findLeading(partitions, pageable, fields, exclude);
+    boolean hasNext = records.size() > pageable.getOffset() + pageable.getPageSize();
+    return new SliceImpl<>(getPageContent(records, pageable), pageable, hasNext);
+  }
+
+  private List<T> findMerged(Partitions partitions, Sort sort, 
+      Set<String> fields, Set<String> exclude){
+    Set<String> mergeFields = KeysetCursor.getKeysetFields(fields, sort);
+    Set<String> mergeExclude = KeysetCursor.getKeysetExclusions(exclude, sort);
+    return merge(execute(partitions, p -> delegate.find(p, sort, mergeFields, mergeExclude)), sort);
+  }
+
+  /**
+   * Counts the records matching any partition.  If the partitioned field is multi-valued, the 
+   *   query is passed through unpartitioned, so that the database counts records matching several
+   *   partitions once, without their IDs being fetched.
+   */
+  private long count(Partitions partitions){
+    if (!isSingleValued(partitions.getField())){
+      return delegate.count(partitions.getCriterias());
+    }
+    return execute(partitions, delegate::count).stream().mapToLong(Long::longValue).sum();
+  }
+
+  @Override
+  public ModelRepository<T, ID> getDelegate() {
+    return delegate;
+  }
+
+  /* Partitioned queries */
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.find(queryCriterias);
+    return merge(execute(partitions, delegate::find), null);
+  }
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.find(queryCriterias, sort);
+    return merge(execute(partitions, p -> delegate.find(p, sort)), sort);
+  }
+
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.find(queryCriterias, pageable);
+    return findPage(partitions, pageable, null, null);
+  }
+
+  @Override
+  public Iterable<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort, Set<String> fields,
+      Set<String> exclude) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.find(queryCriterias, sort, fields, exclude);
+    return findMerged(partitions, sort, fields, exclude);
+  }
+
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable, Set<String> fields,
+      Set<String> exclude) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.find(queryCriterias, pageable, fields, exclude);
+    return findPage(partitions, pageable, fields, exclude);
+  }
+
+  @Override
+  public Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.findSlice(queryCriterias, pageable);
+    return findSlice(partitions, pageable, null, null);
+  }
+
+  @Override
+  public Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable,
+      Set<String> fields, Set<String> exclude) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.findSlice(queryCriterias, pageable, fields, exclude);
+    return findSlice(partitions, pageable, fields, exclude);
+  }
+
+  @Override
+  public KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor,
+      Sort sort, int size) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.findAfter(queryCriterias, cursor, sort, size);
+    return merge(execute(partitions, p -> delegate.findAfter(p, cursor, sort, size)), 
+        KeysetCursor.getKeysetSort(sort), size);
+  }
+
+  @Override
+  public KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor,
+      Sort sort, int size, Set<String> fields, Set<String> exclude) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) {
+      return delegate.findAfter(queryCriterias, cursor, sort, size, fields, exclude);
+    }
+    Sort keysetSort = KeysetCursor.getKeysetSort(sort);
+    Set<String> keysetFields = KeysetCursor.getKeysetFields(fields, keysetSort);
+    Set<String> keysetExclude = KeysetCursor.getKeysetExclusions(exclude, keysetSort);
+    return merge(execute(partitions, 
+        p -> delegate.findAfter(p, cursor, sort, size, keysetFields, keysetExclude)), keysetSort, size);
+  }
+
+  @Override
+  public Stream<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.stream(queryCriterias, sort);
+    return merge(execute(partitions, p -> delegate.find(p, sort)), sort).stream();
+  }
+
+  @Override
+  public Stream<T> stream(Iterable<QueryCriteria> queryCriterias) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.stream(queryCriterias);
+    return merge(execute(partitions, delegate::find), null).stream();
+  }
+
+  @Override
+  public long count(Iterable<QueryCriteria> criterias) {
+    Partitions partitions = partition(criterias);
+    if (partitions == null) return delegate.count(criterias);
+    return count(partitions);
+  }
+
+  /**
+   * Partitioned estimates are the capped sum of the partition estimates, and so may overcount
+   *   records of multi-valued fields.
+   */
+  @Override
+  public long estimateCount(Iterable<QueryCriteria> queryCriterias, long limit) {
+    Partitions partitions = partition(queryCriterias);
+    if (partitions == null) return delegate.estimateCount(queryCriterias, limit);
+    long estimate = 0;
+    for (Long count: execute(partitions, p -> delegate.estimateCount(p, limit))){
+      estimate += count;
+    }
+    return Math.min(estimate, limit);
+  }
+
+  @Override
+  public Set<Object> distinct(String field, Iterable<QueryCriteria> criterias) {
+    Partitions partitions = partition(criterias);
+    if (partitions == null) return delegate.distinct(field, criterias);
+    Set<Object> values = new LinkedHashSet<>();
+    execute(partitions, p -> delegate.distinct(field, p)).forEach(values::addAll);
+    return values;
+  }
+
+  @Override
+  public List<Object> distinct(String field, Iterable<QueryCriteria> criterias, Pageable pageable) {
+    Partitions partitions = partition(criterias);
+    if (partitions == null) return delegate.distinct(field, criterias, pageable);
+    return distinctCounts(field, criterias, pageable).stream()
+        .map(ValueCount::getValue)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Partitioned value counts are summed, which is only possible when the partitioned field is 
+   *   single-valued.  Otherwise the query is passed through unpartitioned.
+   */
+  @Override
+  public List<ValueCount> distinctCounts(String field, Iterable<QueryCriteria> criterias,
+      Pageable pageable) {
+    Partitions partitions = partition(criterias);
+    if (partitions == null || !isSingleValued(partitions.getField())){
+      return delegate.distinctCounts(field, criterias, pageable);
+    }
+    Map<Object, Long> counts = new HashMap<>();
+    for (List<ValueCount> valueCounts: execute(partitions, 
+        p -> delegate.distinctCounts(field, p, Pageable.unpaged()))){
+      valueCounts.forEach(v -> counts.merge(v.getValue(), v.getCount(), Long::sum));
+    }
+    List<ValueCount> merged = counts.entrySet().stream()
+        .map(e -> new ValueCount(e.getKey(), e.getValue()))
+        .sorted(ValueCount.comparator(pageable.getSort()))
+        .collect(Collectors.toList());
+    return pageable.isPaged() ? getPageContent(merged, pageable) : merged;
+  }
+
+  /**
+   * Partitioned record and value counts are summed, which is only possible when the partitioned
+   *   field is single-valued.  Otherwise the query is passed through unpartitioned.  Each 
+   *   partition's values are counted without a limit, so that the merged top values are exact.
+   */
+  @Override
+  public FacetCounts facets(List<String> fields, Iterable<QueryCriteria> criterias, int limit) {
+    Partitions partitions = partition(criterias);
+    if (partitions == null || !isSingleValued(partitions.getField())){
+      return delegate.facets(fields, criterias, limit);
+    }
+    long count = 0L;
+    Map<String, Map<Object, Long>> counts = new LinkedHashMap<>();
+    for (String field: fields){
+      counts.put(field, new HashMap<>());
+    }
+    for (FacetCounts facetCounts: execute(partitions, p -> delegate.facets(fields, p, 0))){
+      count += facetCounts.getCount();
+      for (Map.Entry<String, Map<Object, Long>> entry: counts.entrySet()){
+        facetCounts.getFacet(entry.getKey())
+            .forEach(v -> entry.getValue().merge(v.getValue(), v.getCount(), Long::sum));
+      }
+    }
+    Map<String, List<ValueCount>> facets = new LinkedHashMap<>();
+    for (Map.Entry<String, Map<Object, Long>> entry: counts.entrySet()){
+      facets.put(entry.getKey(), FacetCounts.top(entry.getValue().entrySet().stream()
+          .map(e -> new ValueCount(e.getKey(), e.getValue()))
+          .collect(Collectors.toList()), limit));
+    }
+    return new FacetCounts(count, facets);
+  }
+
+  /**
+   * Fetches the requested records in batches of the configured partition size, in parallel, and 
+   *   returns them in the order that their IDs were requested.  Missing IDs are skipped, and 
+   *   duplicate IDs return their record once.
+   */
+  @Override
+  public Iterable<T> findAllById(Iterable<ID> ids) {
+    List<ID> requested = new ArrayList<>(new LinkedHashSet<ID>(
+        ids instanceof Collection ? (Collection<ID>) ids : toList(ids)));
+    List<Iterable<T>> results;
+    if (requested.size() > threshold){
+      List<Callable<Iterable<T>>> tasks = new ArrayList<>();
+      for (List<ID> batch: chunk(requested)){
+        tasks.add(() -> delegate.findAllById(batch));
+      }
+      results = invokeAll(tasks);
+    } else {
+      results = Collections.singletonList(delegate.findAllById(requested));
+    }
+    Map<Object, T> records = new HashMap<>();
+    for (Iterable<T> result: results){
+      result.forEach(record -> records.put(record.getId(), record));
+    }
+    List<T> ordered = new ArrayList<>();
+    for (ID id: requested){
+      T record = records.get(id);
+      if (record != null) ordered.add(record);
+    }
+    return ordered;
+  }
+
+  private static <V> List<V> toList(Iterable<V> iterable){
+    List<V> list = new ArrayList<>();
+    iterable.forEach(list::add);
+    return list;
+  }
+
+  /* Pass-through methods */
+
+  @Override
+  public Iterable<T> findAll() {
+    return delegate.findAll();
+  }
+
+  @Override
+  public Iterable<T> findAll(Sort sort) {
+    return delegate.findAll(sort);
+  }
+
+  @Override
+  public Page<T> findAll(Pageable pageable) {
+    return delegate.findAll(pageable);
+  }
+
+  @Override
+  public long count() {
+    return delegate.count();
+  }
+
+  @Override
+  public Set<Object> distinct(String field) {
+    return delegate.distinct(field);
+  }
+
+  @Override
+  public List<ModelGroup<T>> groupBy(String field, Iterable<QueryCriteria> criterias,
+      GroupAccumulator accumulator) {
+    return delegate.groupBy(field, criterias, accumulator);
+  }
+
+  @Override
+  public List<FieldStatistics> statistics(String field, String groupBy, 
+      Iterable<QueryCriteria> criterias, List<Double> percentiles) {
+    return delegate.statistics(field, groupBy, criterias, percentiles);
+  }
+
+  @Override
+  public Optional<T> findById(ID id) {
+    return delegate.findById(id);
+  }
+
+  @Override
+  public boolean existsById(ID id) {
+    return delegate.existsById(id);
+  }
+
+  @Override
+  public <S extends T> S insert(S entity) {
+    return delegate.insert(entity);
+  }
+
+  @Override
+  public <S extends T> Iterable<S> insert(Iterable<S> entities) {
+    return delegate.insert(entities);
+  }
+
+  @Override
+  public <S extends T> S update(S entity) {
+    return delegate.update(entity);
+  }
+
+  @Override
+  public <S extends T> Iterable<S> update(Iterable<S> entities) {
+    return delegate.update(entities);
+  }
+
+  @Override
+  public <S extends T> Iterable<S> upsert(Iterable<S> entities) {
+    return delegate.upsert(entities);
+  }
+
+  @Override
+  public <S extends T> S save(S entity) {
+    return delegate.save(entity);
+  }
+
+  @Override
+  public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+    return delegate.saveAll(entities);
+  }
+
+  @Override
+  public void deleteById(ID id) {
+    delegate.deleteById(id);
+  }
+
+  @Override
+  public void delete(T entity) {
+    delegate.delete(entity);
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends T> entities) {
+    delegate.deleteAll(entities);
+  }
+
+  @Override
+  public void deleteAll() {
+    delegate.deleteAll();
+  }
+
+  @Override
+  public Class<T> getModel() {
+    return delegate.getModel();
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.core.repository.partition;
+
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.ModelRepositoryDecorator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * {@link ModelRepositoryDecorator} that wraps every registered repository in a 
+ *   {@link PartitionedModelRepository}, so that queries with very large {@code IN} criteria are
+ *   split into parallel partition queries.  It is applied after the metrics decorator, so that 
+ *   each partition query is timed individually, and before result caching.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class PartitionedQueryDecorator implements ModelRepositoryDecorator, Ordered, AutoCloseable {
+
+  public static final int DEFAULT_THRESHOLD = 1000;
+  public static final int DEFAULT_PARTITION_SIZE = 1000;
+  public static final int DEFAULT_PARALLELISM = 4;
+
+  private final ExecutorService executor;
+  private final boolean sharedExecutor;
+  private final int threshold;
+  private final int partitionSize;
+
+  public PartitionedQueryDecorator() {
+    this(DEFAULT_THRESHOLD, DEFAULT_PARTITION_SIZE, DEFAULT_PARALLELISM);
+  }
+
+  /**
+   * Creates a decorator that runs partition queries in its own fixed-size thread pool, which is
+   *   shut down when the decorator is closed.
+   *
+   * @param threshold number of {@code IN} values above which queries are partitioned
+   * @param partitionSize maximum number of {@code IN} values in each partition query
+   * @param parallelism maximum number of partition queries executed concurrently
+   */
+  public PartitionedQueryDecorator(int threshold, int partitionSize, int parallelism) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("partitioned-query-");
+    threadFactory.setDaemon(true);
+    this.executor = Executors.newFixedThreadPool(parallelism, threadFactory);
+    this.sharedExecutor = false;
+    this.threshold = threshold;
+    this.partitionSize = partitionSize;
+  }
+
+  /**
+   * Creates a decorator that runs partition queries with the submitted executor, which is not 
+   *   shut down when the decorator is closed.
+   *
+   * @param threshold number of {@code IN} values above which queries are partitioned
+   * @param partitionSize maximum number of {@code IN} values in each partition query
+   * @param executor executor for partition queries
+   */
+  public PartitionedQueryDecorator(int threshold, int partitionSize, ExecutorService executor) {
+    this.executor = executor;
+    this.sharedExecutor = true;
+    this.threshold = threshold;
+    this.partitionSize = partitionSize;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public ModelRepository<?, ?> decorate(ModelRepository<?, ?> repository) {
+    return new PartitionedModelRepository(repository, executor, threshold, partitionSize);
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE + 1;
+  }
+
+  @Override
+  public void close() {
+    if (!sharedExecutor) executor.shutdown();
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  public int getPartitionSize() {
+    return partitionSize;
+  }
+
+}
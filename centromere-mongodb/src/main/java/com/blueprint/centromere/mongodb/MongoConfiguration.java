@@ -17,12 +17,22 @@
 package com.blueprint.centromere.mongodb;
 
 import com.blueprint.centromere.core.repository.DefaultModelRepositoryRegistry;
+import com.blueprint.centromere.core.repository.ModelRepositoryDecorator;
 import com.blueprint.centromere.core.repository.ModelRepositoryRegistry;
+import com.blueprint.centromere.core.repository.metrics.QueryExplainer;
+import com.blueprint.centromere.mongodb.MongoReadRouter.ReadOperation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
 /**
@@ -39,10 +49,67 @@ public class MongoConfiguration {
   public static class DefaultMongoRepositoryConfiguration {
     
     @Autowired private ApplicationContext applicationContext;
+    @Autowired private Environment environment;
     
     @Bean
-    public ModelRepositoryRegistry modelRepositoryRegistry(){
-      return new DefaultModelRepositoryRegistry(applicationContext);
+    public ModelRepositoryRegistry modelRepositoryRegistry(
+        ObjectProvider<List<ModelRepositoryDecorator>> decorators){
+      return new DefaultModelRepositoryRegistry(applicationContext, 
+          decorators.getIfAvailable(Collections::emptyList));
+    }
+
+    @Bean
+    public MongoIndexManager mongoIndexManager(MongoOperations mongoOperations, 
+        ModelRepositoryRegistry modelRepositoryRegistry){
+      MongoIndexManager indexManager = new MongoIndexManager(mongoOperations, 
+          modelRepositoryRegistry, 
+          environment.getProperty("centromere.mongodb.create-indexes", Boolean.class, true));
+      indexManager.setMigrateDocuments(
+          environment.getProperty("centromere.mongodb.migrate-documents", Boolean.class, true));
+      return indexManager;
+    }
+
+    @Bean
+    public QueryExplainer mongoQueryExplainer(MongoOperations mongoOperations){
+      return new MongoQueryExplainer(mongoOperations);
+    }
+
+    /**
+     * Routes read-only repository queries using the {@code centromere.mongodb.read-preference} 
+     *   mode, optionally limited by {@code centromere.mongodb.read-preference.max-staleness-seconds},
+     *   for the comma-separated operation types listed in 
+     *   {@code centromere.mongodb.read-preference.operations}.  The default mode, {@code primary}, 
+     *   leaves all queries on the primary.
+     */
+    @Bean
+    public MongoReadRouter mongoReadRouter(MongoDbFactory mongoDbFactory, 
+        MongoOperations mongoOperations){
+      MongoReadRouter router = new MongoReadRouter(mongoDbFactory, mongoOperations.getConverter());
+      router.setDefaultReadPreference(MongoReadRouter.getReadPreference(
+          environment.getProperty("centromere.mongodb.read-preference", "primary"),
+          environment.getProperty("centromere.mongodb.read-preference.max-staleness-seconds", Long.class)));
+      String[] operations = environment.getProperty("centromere.mongodb.read-preference.operations", 
+          String[].class);
+      if (operations != null){
+        List<ReadOperation> readOperations = new ArrayList<>();
+        for (String operation: operations){
+          if (!operation.trim().isEmpty()){
+            readOperations.add(ReadOperation.valueOf(operation.trim().toUpperCase()));
+          }
+        }
+        router.setOperations(readOperations);
+      }
+      return router;
+    }
+
+    @Bean
+    public MongoNormalizedFieldListener mongoNormalizedFieldListener(){
+      return new MongoNormalizedFieldListener();
+    }
+
+    @Bean
+    public MongoKeyValuePairListener mongoKeyValuePairListener(){
+      return new MongoKeyValuePairListener();
     }
     
   }
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.mongodb;
+
+import com.blueprint.centromere.core.model.KeyValuePairs;
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.model.Normalized;
+import com.blueprint.centromere.core.model.NormalizedFieldUtils;
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.QueryParameterUtil;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Translates {@link QueryCriteria} into Spring Data MongoDB {@link Criteria}.  For each distinct
+ *   query shape (the ordered list of criteria keys and {@link Evaluation} types), a template of
+ *   criteria builders is resolved once and cached, so repeated queries only bind their new values.
+ *   {@link Evaluation#AND} and {@link Evaluation#OR} groups are translated into nested 
+ *   {@code $and} and {@code $or} operators, and their members are part of the query shape.
+ *   Regular expressions used by {@code LIKE}, {@code NOT_LIKE}, {@code STARTS_WITH}, and
+ *   {@code ENDS_WITH} criteria are compiled once and kept in a bounded, least-recently-used cache.
+ *   {@code STARTS_WITH} and {@code ENDS_WITH} values are escaped, so that they match literally.
+ *   {@code BETWEEN} and {@code BETWEEN_INCLUSIVE} criteria are translated into a single 
+ *   {@code $gt}/{@code $lt} or {@code $gte}/{@code $lte} range on their field.
+ *
+ * If the translator is created for a model with {@link Normalized} fields, text criteria against
+ *   those fields are rewritten to use the fields' lowercased and reversed shadow copies (see 
+ *   {@link NormalizedFieldUtils}): {@code STARTS_WITH} and {@code ENDS_WITH} become anchored, 
+ *   case-sensitive prefix patterns, which the server answers with an index range scan, and 
+ *   {@code LIKE} and {@code NOT_LIKE} criteria with literal values become case-sensitive patterns
+ *   evaluated against index keys.  {@code LIKE} values containing regular expression syntax are
+ *   still evaluated case-insensitively against the original field.
+ *
+ * Criteria against entries of {@link KeyValuePairs} map fields, such as 
+ *   {@code attributes.isKinase}, are rewritten as {@code $elemMatch} queries on the stored pairs,
+ *   eg. {@code {attributes: {$elemMatch: {k: "isKinase", $and: [{v: "Y"}]}}}}, so that they can
+ *   be served by the pairs' compound index.  Evaluations that also match records without the 
+ *   entry ({@code NOT_EQUALS}, {@code NOT_IN}, {@code NOT_LIKE}, and {@code IS_NULL}) are 
+ *   translated into the negation of their positive counterparts.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class MongoCriteriaTranslator {
+
+  public static final long DEFAULT_TEMPLATE_CACHE_SIZE = 1000L;
+  public static final long DEFAULT_PATTERN_CACHE_SIZE = 10000L;
+
+  private final Cache<List<List<Object>>, List<CriteriaTemplate>> templates;
+  private final LoadingCache<String, Pattern> patterns;
+  private final LoadingCache<String, Pattern> caseInsensitivePatterns;
+  private final Map<String, Normalized> normalizedFields = new HashMap<>();
+  private final ModelMetadata<?> metadata;
+
+  public MongoCriteriaTranslator() {
+    this(DEFAULT_TEMPLATE_CACHE_SIZE, DEFAULT_PATTERN_CACHE_SIZE);
+  }
+
+  public MongoCriteriaTranslator(Class<?> model) {
+    this(model, DEFAULT_TEMPLATE_CACHE_SIZE, DEFAULT_PATTERN_CACHE_SIZE);
+  }
+
+  public MongoCriteriaTranslator(long templateCacheSize, long patternCacheSize) {
+    this(null, templateCacheSize, patternCacheSize);
+  }
+
+  /**
+   * @param model model whose {@link Normalized} fields are queried using their shadow copies, 
+   *   and whose {@link KeyValuePairs} fields are queried as arrays of pairs, or null
+   * @param templateCacheSize maximum number of cached query templates
+   * @param patternCacheSize maximum number of cached regular expressions, per case sensitivity
+   */
+  public MongoCriteriaTranslator(Class<?> model, long templateCacheSize, long patternCacheSize) {
+    this.metadata = model != null ? ModelMetadataRegistry.getMetadata(model) : null;
+    if (model != null){
+      for (Field field: ModelMetadataRegistry.getMetadata(model).getNormalizedFields()){
+        normalizedFields.put(field.getName(), field.getAnnotation(Normalized.class));
+      }
+    }
+    this.templates = CacheBuilder.newBuilder()
+        .maximumSize(templateCacheSize)
+        .build();
+    this.patterns = CacheBuilder.newBuilder()
+        .maximumSize(patternCacheSize)
+        .build(CacheLoader.from(regex -> Pattern.compile(regex)));
+    this.caseInsensitivePatterns = CacheBuilder.newBuilder()
+        .maximumSize(patternCacheSize)
+        .build(CacheLoader.from(regex -> Pattern.compile(regex, Pattern.CASE_INSENSITIVE)));
+  }
+
+  /**
+   * Converts a collection of {@link QueryCriteria} objects into a single {@link Criteria} object,
+   *   joining all of the individual criteria with {@code $and}.
+   *
+   * @param queryCriterias list of query parameters to be converted.
+   * @return {@link Criteria} representation of the query, or {@code null} if there are no criteria.
+   */
+  public Criteria translate(Iterable<QueryCriteria> queryCriterias){
+    
+    List<QueryCriteria> criteriaList = new ArrayList<>();
+    List<List<Object>> shape = new ArrayList<>();
+    for (QueryCriteria queryCriteria: queryCriterias){
+      if (queryCriteria != null){
+        criteriaList.add(queryCriteria);
+        shape.add(getShape(queryCriteria));
+      }
+    }
+    if (criteriaList.isEmpty()) return null;
+    
+    List<CriteriaTemplate> template;
+    try {
+      template = templates.get(shape, () -> compileTemplate(criteriaList));
+    } catch (ExecutionException e){
+      throw new IllegalStateException(e.getCause());
+    }
+    
+    Criteria[] criteria = new Criteria[criteriaList.size()];
+    for (int i = 0; i < criteria.length; i++){
+      criteria[i] = template.get(i).bind(criteriaList.get(i).getValue());
+    }
+    return new Criteria().andOperator(criteria);
+    
+  }
+
+  /**
+   * Returns the number of compiled query templates currently cached.
+   */
+  public long getTemplateCacheSize(){
+    return templates.size();
+  }
+
+  /**
+   * Returns the number of compiled regular expressions currently cached.
+   */
+  public long getPatternCacheSize(){
+    return patterns.size() + caseInsensitivePatterns.size();
+  }
+
+  /**
+   * Returns the key and evaluation of a criteria, followed by the shapes of its members, if it is
+   *   a group.
+   */
+  private static List<Object> getShape(QueryCriteria queryCriteria){
+    List<Object> shape = new ArrayList<>();
+    shape.add(queryCriteria.getKey());
+    shape.add(queryCriteria.getEvaluation());
+    for (QueryCriteria member: queryCriteria.getCriterias()){
+      shape.add(getShape(member));
+    }
+    return shape;
+  }
+
+  private List<CriteriaTemplate> compileTemplate(List<QueryCriteria> queryCriterias){
+    List<CriteriaTemplate> template = new ArrayList<>();
+    for (QueryCriteria queryCriteria: queryCriterias){
+      template.add(compileTemplate(queryCriteria));
+    }
+    return template;
+  }
+
+  private CriteriaTemplate compileTemplate(QueryCriteria queryCriteria){
+    if (!queryCriteria.isGroup()){
+      return compileTemplate(queryCriteria.getKey(), queryCriteria.getEvaluation());
+    }
+    List<CriteriaTemplate> members = compileTemplate(queryCriteria.getCriterias());
+    boolean or = queryCriteria.getEvaluation() == Evaluation.OR;
+    return value -> {
+      List<?> criterias = (List<?>) value;
+      Criteria[] criteria = new Criteria[members.size()];
+      for (int i = 0; i < criteria.length; i++){
+        criteria[i] = members.get(i).bind(((QueryCriteria) criterias.get(i)).getValue());
+      }
+      return or ? new Criteria().orOperator(criteria) : new Criteria().andOperator(criteria);
+    };
+  }
+
+  private CriteriaTemplate compileTemplate(String key, Evaluation evaluation){
+    String[] pairPath = metadata != null ? metadata.getKeyValuePairPath(key) : null;
+    if (pairPath != null){
+      return compilePairTemplate(pairPath[0], pairPath[1], evaluation);
+    }
+    switch (evaluation) {
+      case EQUALS:
+        return value -> new Criteria(key).is(value);
+      case NOT_EQUALS:
+        return value -> new Criteria(key).ne(value);
+      case IN:
+        return value -> new Criteria(key).in((Collection) value);
+      case NOT_IN:
+        return value -> new Criteria(key).nin((Collection) value);
+      case IS_NULL:
+        return value -> new Criteria(key).is(null);
+      case NOT_NULL:
+        return value -> new Criteria(key).ne(null);
+      case IS_TRUE:
+        return value -> new Criteria(key).is(true);
+      case IS_FALSE:
+        return value -> new Criteria(key).is(false);
+      case GREATER_THAN:
+        return value -> new Criteria(key).gt(value);
+      case GREATER_THAN_EQUALS:
+        return value -> new Criteria(key).gte(value);
+      case LESS_THAN:
+        return value -> new Criteria(key).lt(value);
+      case LESS_THAN_EQUALS:
+        return value -> new Criteria(key).lte(value);
+      case BETWEEN:
+        return value -> new Criteria(key).gt(((List) value).get(0)).lt(((List) value).get(1));
+      case OUTSIDE:
+        return value -> new Criteria().orOperator(
+            Criteria.where(key).lt(((List) value).get(0)),
+            Criteria.where(key).gt(((List) value).get(1)));
+      case BETWEEN_INCLUSIVE:
+        return value -> new Criteria(key).gte(((List) value).get(0)).lte(((List) value).get(1));
+      case OUTSIDE_INCLUSIVE:
+        return value -> new Criteria().orOperator(
+            Criteria.where(key).lte(((List) value).get(0)),
+            Criteria.where(key).gte(((List) value).get(1)));
+      case LIKE:
+      case NOT_LIKE:
+      case STARTS_WITH:
+      case ENDS_WITH:
+        return compileTextTemplate(key, evaluation);
+      default:
+        return value -> new Criteria(key).is(value);
+    }
+  }
+
+  /**
+   * Matches the pair with the requested key in the stored array of a {@link KeyValuePairs} field,
+   *   applying the evaluation to the pair's value.
+   */
+  private CriteriaTemplate compilePairTemplate(String field, String name, Evaluation evaluation){
+    Evaluation positive;
+    switch (evaluation){
+      case NOT_EQUALS:
+        positive = Evaluation.EQUALS;
+        break;
+      case NOT_IN:
+        positive = Evaluation.IN;
+        break;
+      case NOT_LIKE:
+        positive = Evaluation.LIKE;
+        break;
+      case IS_NULL:
+        positive = Evaluation.NOT_NULL;
+        break;
+      default:
+        positive = null;
+    }
+    CriteriaTemplate valueTemplate 
+        = compileTemplate(KeyValuePairs.VALUE_FIELD, positive != null ? positive : evaluation);
+    if (positive != null){
+      return value -> new Criteria(field).not().elemMatch(
+          Criteria.where(KeyValuePairs.KEY_FIELD).is(name).andOperator(valueTemplate.bind(value)));
+    }
+    return value -> new Criteria(field).elemMatch(
+        Criteria.where(KeyValuePairs.KEY_FIELD).is(name).andOperator(valueTemplate.bind(value)));
+  }
+
+  private CriteriaTemplate compileTextTemplate(String key, Evaluation evaluation){
+    Normalized normalized = normalizedFields.get(key);
+    if (normalized == null){
+      switch (evaluation){
+        case LIKE:
+          return value -> new Criteria(key).regex(getPattern(caseInsensitivePatterns, (String) value));
+        case NOT_LIKE:
+          return value -> new Criteria(key).not().regex(getPattern(caseInsensitivePatterns, (String) value));
+        case STARTS_WITH:
+          return value -> new Criteria(key).regex(getPattern(patterns, 
+              "^" + QueryParameterUtil.escapeRegex(String.valueOf(value))));
+        default:
+          return value -> new Criteria(key).regex(getPattern(patterns, 
+              QueryParameterUtil.escapeRegex(String.valueOf(value)) + "$"));
+      }
+    }
+    String normalizedKey = NormalizedFieldUtils.getNormalizedFieldName(key);
+    switch (evaluation){
+      case LIKE:
+        return value -> QueryParameterUtil.isLiteralRegex((String) value)
+            ? new Criteria(normalizedKey).regex(getPattern(patterns, 
+                NormalizedFieldUtils.normalize((String) value)))
+            : new Criteria(key).regex(getPattern(caseInsensitivePatterns, (String) value));
+      case NOT_LIKE:
+        return value -> QueryParameterUtil.isLiteralRegex((String) value)
+            ? new Criteria(normalizedKey).not().regex(getPattern(patterns, 
+                NormalizedFieldUtils.normalize((String) value)))
+            : new Criteria(key).not().regex(getPattern(caseInsensitivePatterns, (String) value));
+      case STARTS_WITH:
+        return value -> new Criteria(normalizedKey).regex(getPattern(patterns, 
+            "^" + QueryParameterUtil.escapeRegex(NormalizedFieldUtils.normalize(String.valueOf(value)))));
+      default:
+        if (normalized.reversed()){
+          String reversedKey = NormalizedFieldUtils.getReversedFieldName(key);
+          return value -> new Criteria(reversedKey).regex(getPattern(patterns, 
+              "^" + QueryParameterUtil.escapeRegex(NormalizedFieldUtils.reverse(String.valueOf(value)))));
+        }
+        return value -> new Criteria(normalizedKey).regex(getPattern(patterns, 
+            QueryParameterUtil.escapeRegex(NormalizedFieldUtils.normalize(String.valueOf(value))) + "$"));
+    }
+  }
+
+  /**
+   * Fetches a compiled {@link Pattern} from the cache, rethrowing any
+   *   {@link java.util.regex.PatternSyntaxException} thrown while compiling it.
+   */
+  private Pattern getPattern(LoadingCache<String, Pattern> cache, String regex){
+    try {
+      return cache.getUnchecked(regex);
+    } catch (UncheckedExecutionException e){
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
+  /**
+   * Builds a {@link Criteria} for a single query field, with its key and evaluation already 
+   *   resolved.
+   */
+  @FunctionalInterface
+  private interface CriteriaTemplate {
+    Criteria bind(Object value);
+  }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.mongodb;
+
+import com.blueprint.centromere.core.exceptions.QueryParameterException;
+import com.blueprint.centromere.core.model.KeyValuePairs;
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.model.Normalized;
+import com.blueprint.centromere.core.model.NormalizedFieldUtils;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Field name and value mapping shared by the blocking and reactive MongoDB repositories.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+final class MongoEntityMapping {
+
+  private static final String GROUP_RECORD_FIELD = "_record";
+
+  private MongoEntityMapping() { }
+
+  /**
+   * Adds a field projection to the query.  Included fields take precedence over excluded ones,
+   *   since MongoDB does not allow both in the same projection.  Names that do not refer to a
+   *   model property are skipped, and are left to be handled when the records are serialized.
+   *
+   * @param query query to modify
+   * @param fields names of the fields to be included
+   * @param exclude names of the fields to be excluded
+   * @param entity model persistent entity
+   */
+  static void applyFieldProjection(Query query, Set<String> fields, Set<String> exclude,
+      MongoPersistentEntity<?> entity){
+    if (fields != null && !fields.isEmpty()){
+      for (String field: fields){
+        if (entity.getPersistentProperty(field.split("\\.")[0]) != null){
+          query.fields().include(field);
+        }
+      }
+    } else if (exclude != null && !exclude.isEmpty()){
+      for (String field: exclude){
+        if (entity.getPersistentProperty(field.split("\\.")[0]) != null){
+          query.fields().exclude(field);
+        }
+      }
+    }
+  }
+
+  /**
+   * Translates a model field name into its name in the stored documents.
+   *
+   * @param converter converter of the repository's template
+   * @param field model field name, optionally a dot-delimited path into a nested object or map.
+   * @param entity model persistent entity
+   * @return name of the field in the database.
+   */
+  static String getMappedFieldName(MongoConverter converter, String field, 
+      MongoPersistentEntity<?> entity){
+    if (entity.getPersistentProperty(field.split("\\.")[0]) == null){
+      throw new QueryParameterException(String.format("Submitted parameter is not valid entity field: %s", field));
+    }
+    Document mapped = new QueryMapper(converter).getMappedFields(new Document(field, 1), entity);
+    return mapped.keySet().iterator().next();
+  }
+
+  /**
+   * Converts a raw value of a model field, as read from the database, into the type of the model
+   *   property, if it can be determined.  For example, {@link org.bson.types.ObjectId} values of
+   *   {@code String} ID fields are returned as strings.
+   *
+   * @param converter converter of the repository's template
+   * @param value raw database value
+   * @param field model field name
+   * @param entity model persistent entity
+   * @return converted value
+   */
+  static Object convertFieldValue(MongoConverter converter, Object value, String field, 
+      MongoPersistentEntity<?> entity){
+    if (value == null) return null;
+    MongoPersistentProperty property = entity.getPersistentProperty(field);
+    if (property == null) return value;
+    Class<?> type = property.getActualType();
+    if (type.isInstance(value)) return value;
+    if (converter.getConversionService().canConvert(value.getClass(), type)){
+      return converter.getConversionService().convert(value, type);
+    }
+    return value;
+  }
+
+  /**
+   * Adds the shadow copies of the entity's {@link Normalized} fields to the document about to be
+   *   written for it.  See {@link NormalizedFieldUtils}.
+   *
+   * @param entity model record being written
+   * @param document document that will be stored for the record
+   */
+  static void applyNormalizedFields(Object entity, Document document){
+    ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(entity.getClass());
+    if (metadata.getNormalizedFields().isEmpty()) return;
+    Document normalized = new Document();
+    Document reversed = new Document();
+    for (Field field: metadata.getNormalizedFields()){
+      Object value = metadata.getFieldValue(entity, field);
+      Object shadow = NormalizedFieldUtils.getShadowValue(value, false);
+      if (shadow != null) normalized.put(field.getName(), shadow);
+      if (field.getAnnotation(Normalized.class).reversed()){
+        shadow = NormalizedFieldUtils.getShadowValue(value, true);
+        if (shadow != null) reversed.put(field.getName(), shadow);
+      }
+    }
+    document.put(NormalizedFieldUtils.NORMALIZED_FIELD, normalized);
+    if (!reversed.isEmpty()) document.put(NormalizedFieldUtils.REVERSED_FIELD, reversed);
+  }
+
+  /**
+   * Replaces the embedded documents of the entity's {@link KeyValuePairs} fields, in the document 
+   *   about to be written for it, with arrays of key/value pair documents.
+   *
+   * @param entity model record being written
+   * @param document document that will be stored for the record
+   */
+  static void applyKeyValuePairs(Object entity, Document document){
+    ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(entity.getClass());
+    for (Field field: metadata.getKeyValuePairFields()){
+      Object value = document.get(field.getName());
+      if (!(value instanceof Map)) continue;
+      List<Document> pairs = new ArrayList<>();
+      for (Map.Entry<?, ?> entry: ((Map<?, ?>) value).entrySet()){
+        pairs.add(new Document(KeyValuePairs.KEY_FIELD, entry.getKey())
+            .append(KeyValuePairs.VALUE_FIELD, entry.getValue()));
+      }
+      document.put(field.getName(), pairs);
+    }
+  }
+
+  /**
+   * Restores the embedded document form of a model's {@link KeyValuePairs} fields in a document 
+   *   read from the database, before it is converted into a model record.  Pairs without a key, 
+   *   such as those left by a projection of a single map entry, are dropped.
+   *
+   * @param model model type
+   * @param document document read from the database
+   */
+  static void restoreKeyValuePairs(Class<?> model, Document document){
+    ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(model);
+    for (Field field: metadata.getKeyValuePairFields()){
+      Object value = document.get(field.getName());
+      if (!(value instanceof List)) continue;
+      Document map = new Document();
+      for (Object pair: (List<?>) value){
+        if (pair instanceof Document && ((Document) pair).get(KeyValuePairs.KEY_FIELD) != null){
+          map.put(String.valueOf(((Document) pair).get(KeyValuePairs.KEY_FIELD)), 
+              ((Document) pair).get(KeyValuePairs.VALUE_FIELD));
+        }
+      }
+      document.put(field.getName(), map);
+    }
+  }
+
+  /**
+   * If the field refers to an entry of a {@link KeyValuePairs} map, such as 
+   *   {@code attributes.isKinase}, appends aggregation stages that unwind the map's pairs and keep 
+   *   only those with the requested key, and returns the name of the pairs' value field, to be 
+   *   used in place of the field name.  Otherwise the pipeline is left unchanged.
+   *
+   * @param model model type
+   * @param field model field name
+   * @param pipeline aggregation pipeline to modify
+   * @return name of the pair value field, or null if the field is not a map entry
+   */
+  static String unwindKeyValuePairs(Class<?> model, String field, List<Document> pipeline){
+    String[] path = ModelMetadataRegistry.getMetadata(model).getKeyValuePairPath(field);
+    if (path == null) return null;
+    pipeline.add(new Document("$unwind", "$" + path[0]));
+    pipeline.add(new Document("$match", 
+        new Document(path[0] + "." + KeyValuePairs.KEY_FIELD, path[1])));
+    return path[0] + "." + KeyValuePairs.VALUE_FIELD;
+  }
+
+  /**
+   * Appends the aggregation stages that group the matched records by the value of a field and 
+   *   count them.  If the {@link GroupAccumulator} requests a sample of records, each group's 
+   *   records are collected by the same {@code $group} stage and sliced to 
+   *   {@link GroupAccumulator#getMaxRecords()}, so that no query is issued per group.  When the 
+   *   field is a {@link KeyValuePairs} map entry, the whole record is set aside before the pairs 
+   *   are unwound, so that the sampled records keep all of their map entries.
+   *
+   * @param model model type
+   * @param field model field name
+   * @param fieldName mapped document field name
+   * @param accumulator {@link GroupAccumulator} describing what each group should contain
+   * @param pipeline aggregation pipeline to modify, already holding the {@code $match} stage
+   */
+  static void appendGroupStages(Class<?> model, String field, String fieldName, 
+      GroupAccumulator accumulator, List<Document> pipeline){
+    int start = pipeline.size();
+    String pairValueName = unwindKeyValuePairs(model, field, pipeline);
+    if (pairValueName != null) fieldName = pairValueName;
+    Document group = new Document("_id", "$" + fieldName).append("count", new Document("$sum", 1));
+    if (accumulator.isSampling()){
+      String record = "$$ROOT";
+      if (pairValueName != null){
+        pipeline.add(start, new Document("$addFields", new Document(GROUP_RECORD_FIELD, record)));
+        record = "$" + GROUP_RECORD_FIELD;
+      }
+      pipeline.add(new Document("$group", group.append("records", new Document("$push", record))));
+      pipeline.add(new Document("$project", new Document("count", 1).append("records", 
+          new Document("$slice", Arrays.asList("$records", accumulator.getMaxRecords())))));
+    } else {
+      pipeline.add(new Document("$group", group));
+    }
+    pipeline.add(new Document("$sort", new Document("_id", 1)));
+  }
+
+  /**
+   * Converts the records sampled into a group document by {@link #appendGroupStages} into 
+   *   instances of the model.
+   *
+   * @param converter {@link MongoConverter}
+   * @param model model type
+   * @param document group document
+   * @param <T> model type
+   * @return sampled records, or an empty list if the group has none
+   */
+  static <T> List<T> readGroupRecords(MongoConverter converter, Class<T> model, Document document){
+    List<T> records = new ArrayList<>();
+    Object value = document.get("records");
+    if (!(value instanceof List)) return records;
+    for (Object record: (List<?>) value){
+      restoreKeyValuePairs(model, (Document) record);
+      records.add(converter.read(model, (Document) record));
+    }
+    return records;
+  }
+
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.mongodb;
+
+import com.blueprint.centromere.core.model.IndexDescriptor;
+import com.blueprint.centromere.core.model.KeyValuePairs;
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.model.ModelReflectionUtils;
+import com.blueprint.centromere.core.model.Normalized;
+import com.blueprint.centromere.core.model.NormalizedFieldUtils;
+import com.blueprint.centromere.core.repository.ModelRepositoryRegistry;
+import com.blueprint.centromere.core.repository.QueryParameterDescriptor;
+import com.blueprint.centromere.core.repository.QueryParameterUtil;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+/**
+ * Creates and verifies the MongoDB indexes declared on registered {@link Model} classes, using 
+ *   {@link com.blueprint.centromere.core.model.Indexed}, 
+ *   {@link com.blueprint.centromere.core.model.CompoundIndex}, and 
+ *   {@link com.blueprint.centromere.core.model.Linked} annotations.  Once all application 
+ *   singletons are initialized, indexes are created (or only verified, if index creation is 
+ *   disabled), and each available query parameter without a supporting index is logged as a warning.
+ *   Dynamic map parameters (eg. {@code attributes.*}) cannot be checked and are not reported.
+ *   When indexes are created, existing documents are also migrated to the layouts that the indexed
+ *   queries expect: documents written before a field was annotated with 
+ *   {@link Normalized} are given its shadow copies, and {@link KeyValuePairs} fields still stored
+ *   as embedded documents are converted into arrays of key/value pairs.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class MongoIndexManager implements SmartInitializingSingleton {
+
+  private static final Logger logger = LoggerFactory.getLogger(MongoIndexManager.class);
+
+  private static final int MIGRATION_BATCH_SIZE = 1000;
+
+  private final MongoOperations mongoOperations;
+  private final ModelRepositoryRegistry registry;
+  private boolean createIndexes = true;
+  private boolean migrateDocuments = true;
+
+  public MongoIndexManager(MongoOperations mongoOperations, ModelRepositoryRegistry registry) {
+    this.mongoOperations = mongoOperations;
+    this.registry = registry;
+  }
+
+  public MongoIndexManager(MongoOperations mongoOperations, ModelRepositoryRegistry registry, 
+      boolean createIndexes) {
+    this.mongoOperations = mongoOperations;
+    this.registry = registry;
+    this.createIndexes = createIndexes;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    try {
+      ensureIndexes();
+    } catch (Exception e){
+      logger.warn("Unable to create or verify model indexes: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Creates (if enabled) all declared indexes for every registered {@link Model}, and returns the 
+   *   query parameters of each model that have no supporting index.
+   *
+   * @return map of model types and their unindexed query parameter names
+   */
+  public Map<Class<?>, Set<String>> ensureIndexes(){
+    Map<Class<?>, Set<String>> report = new LinkedHashMap<>();
+    for (Class<? extends Model<?>> model: registry.getRegisteredModels()){
+      if (createIndexes){
+        createIndexes(model);
+        if (migrateDocuments) migrateDocuments(model);
+      }
+      Set<String> unindexed = getUnindexedParameters(model);
+      if (!unindexed.isEmpty()){
+        logger.warn(String.format("Model %s has query parameters without a supporting index: %s", 
+            model.getSimpleName(), unindexed));
+      }
+      report.put(model, unindexed);
+    }
+    return report;
+  }
+
+  /**
+   * Creates all of the indexes declared on the given {@link Model} class.  Existing indexes with 
+   *   matching definitions are left unchanged.
+   *
+   * @param model model type
+   * @return list of created or existing index names
+   */
+  public List<String> createIndexes(Class<? extends Model<?>> model){
+    IndexOperations indexOperations = mongoOperations.indexOps(model);
+    List<String> names = new ArrayList<>();
+    for (IndexDescriptor descriptor: ModelReflectionUtils.getIndexDescriptors(model)){
+      Document keys = new Document();
+      for (Map.Entry<String, Integer> entry: descriptor.getKeys().entrySet()){
+        keys.put(getMappedFieldName(model, entry.getKey()), entry.getValue());
+      }
+      CompoundIndexDefinition index = new CompoundIndexDefinition(keys);
+      if (descriptor.getName() != null) index.named(descriptor.getName());
+      if (descriptor.isUnique()) index.unique();
+      if (descriptor.isSparse()) index.sparse();
+      logger.debug(String.format("Ensuring index for model %s: %s", model.getSimpleName(), keys.toJson()));
+      names.add(indexOperations.ensureIndex(index));
+    }
+    return names;
+  }
+
+  /**
+   * Migrates the existing documents of a {@link Model} to the layouts expected by its indexed 
+   *   queries.  Documents missing the shadow copies of a {@link Normalized} field are given them,
+   *   so that pattern queries on the shadow fields do not miss, or in the case of negated queries,
+   *   wrongly match, records written before the field was normalized.  Likewise, 
+   *   {@link KeyValuePairs} fields stored in their map form are converted into pair arrays, which
+   *   are the only form matched by criteria against their entries.
+   *
+   * @param model model type
+   * @return number of documents modified
+   */
+  public long migrateDocuments(Class<? extends Model<?>> model){
+    long modified = 0L;
+    MongoCollection<Document> collection 
+        = mongoOperations.getCollection(mongoOperations.getCollectionName(model));
+    for (Field field: ModelMetadataRegistry.getMetadata(model).getNormalizedFields()){
+      modified += backfillNormalizedField(collection, field, getMappedFieldName(model, field.getName()));
+    }
+    for (Field field: ModelMetadataRegistry.getMetadata(model).getKeyValuePairFields()){
+      modified += convertKeyValuePairs(collection, getMappedFieldName(model, field.getName()));
+    }
+    if (modified > 0){
+      logger.info(String.format("Migrated %d documents of model %s", modified, model.getSimpleName()));
+    }
+    return modified;
+  }
+
+  /**
+   * Sets the shadow copies of a {@link Normalized} field on every document that has a string value 
+   *   for the field, but no normalized copy of it.
+   */
+  private long backfillNormalizedField(MongoCollection<Document> collection, Field field, 
+      String fieldName){
+    boolean reversed = field.getAnnotation(Normalized.class).reversed();
+    String normalizedName = NormalizedFieldUtils.getNormalizedFieldName(field.getName());
+    String reversedName = NormalizedFieldUtils.getReversedFieldName(field.getName());
+    long modified = 0L;
+    List<WriteModel<Document>> updates = new ArrayList<>();
+    for (Document document: collection
+        .find(Filters.and(Filters.exists(fieldName), Filters.exists(normalizedName, false)))
+        .projection(new Document(fieldName, 1))){
+      Object value = document.get(fieldName);
+      Object normalized = NormalizedFieldUtils.getShadowValue(value, false);
+      if (normalized == null) continue;
+      Document set = new Document(normalizedName, normalized);
+      if (reversed) set.append(reversedName, NormalizedFieldUtils.getShadowValue(value, true));
+      updates.add(new UpdateOneModel<>(new Document("_id", document.get("_id")), 
+          new Document("$set", set)));
+      if (updates.size() >= MIGRATION_BATCH_SIZE) modified += write(collection, updates);
+    }
+    return modified + write(collection, updates);
+  }
+
+  /**
+   * Replaces the embedded document of a {@link KeyValuePairs} field with an array of key/value 
+   *   pair documents, on every document that still stores the field in its map form.
+   */
+  private long convertKeyValuePairs(MongoCollection<Document> collection, String fieldName){
+    long modified = 0L;
+    List<WriteModel<Document>> updates = new ArrayList<>();
+    Document filter = new Document(fieldName, 
+        new Document("$type", "object").append("$not", new Document("$type", "array")));
+    for (Document document: collection.find(filter).projection(new Document(fieldName, 1))){
+      Object value = document.get(fieldName);
+      if (!(value instanceof Document)) continue;
+      List<Document> pairs = new ArrayList<>();
+      for (Map.Entry<String, Object> entry: ((Document) value).entrySet()){
+        pairs.add(new Document(KeyValuePairs.KEY_FIELD, entry.getKey())
+            .append(KeyValuePairs.VALUE_FIELD, entry.getValue()));
+      }
+      updates.add(new UpdateOneModel<>(new Document("_id", document.get("_id")), 
+          new Document("$set", new Document(fieldName, pairs))));
+      if (updates.size() >= MIGRATION_BATCH_SIZE) modified += write(collection, updates);
+    }
+    return modified + write(collection, updates);
+  }
+
+  /**
+   * Executes and clears a batch of migration updates, returning the number of modified documents.
+   */
+  private long write(MongoCollection<Document> collection, List<WriteModel<Document>> updates){
+    if (updates.isEmpty()) return 0L;
+    long modified = collection.bulkWrite(updates, new BulkWriteOptions().ordered(false))
+        .getModifiedCount();
+    updates.clear();
+    return modified;
+  }
+
+  /**
+   * Compares the available query parameters of a {@link Model} with the indexes that currently 
+   *   exist on its collection, and returns the names of all parameters whose field is not the 
+   *   leading key of any index.
+   *
+   * @param model model type
+   * @return sorted set of unindexed parameter names
+   */
+  public Set<String> getUnindexedParameters(Class<? extends Model<?>> model){
+    Set<String> indexed = new HashSet<>();
+    for (IndexInfo info: mongoOperations.indexOps(model).getIndexInfo()){
+      List<IndexField> fields = info.getIndexFields();
+      if (!fields.isEmpty()) indexed.add(fields.get(0).getKey());
+    }
+    Set<String> unindexed = new TreeSet<>();
+    for (QueryParameterDescriptor descriptor: 
+        QueryParameterUtil.getAvailableQueryParameters(model).values()){
+      if (descriptor.isRegexMatch()) continue;
+      if (!indexed.contains(getMappedFieldName(model, descriptor.getFieldName()))){
+        unindexed.add(descriptor.getParamName());
+      }
+    }
+    return Collections.unmodifiableSet(unindexed);
+  }
+
+  /**
+   * Converts a model field name into the name of the field in the stored document.
+   *
+   * @param model model type
+   * @param field model field name
+   * @return document field name
+   */
+  private String getMappedFieldName(Class<?> model, String field){
+    MongoPersistentEntity<?> entity = mongoOperations.getConverter().getMappingContext()
+        .getPersistentEntity(model);
+    if (entity == null) return field;
+    MongoPersistentProperty property = entity.getPersistentProperty(field);
+    return property == null ? field : property.getFieldName();
+  }
+
+  public boolean isCreateIndexes() {
+    return createIndexes;
+  }
+
+  public void setCreateIndexes(boolean createIndexes) {
+    this.createIndexes = createIndexes;
+  }
+
+  public boolean isMigrateDocuments() {
+    return migrateDocuments;
+  }
+
+  public void setMigrateDocuments(boolean migrateDocuments) {
+    this.migrateDocuments = migrateDocuments;
+  }
+}
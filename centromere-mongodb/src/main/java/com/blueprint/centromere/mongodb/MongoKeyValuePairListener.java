@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.mongodb;
+
+import com.blueprint.centromere.core.model.KeyValuePairs;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+
+/**
+ * Mapping event listener that stores {@link KeyValuePairs} map fields as arrays of key/value 
+ *   pair documents before each document is inserted or saved by {@code MongoTemplate} or 
+ *   {@code ReactiveMongoTemplate}, and restores their map form before each loaded document is 
+ *   converted into a model record.  Must be registered as a bean in the application context.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class MongoKeyValuePairListener extends AbstractMongoEventListener<Object> {
+
+  @Override
+  public void onBeforeSave(BeforeSaveEvent<Object> event) {
+    if (event.getSource() != null && event.getDocument() != null){
+      MongoEntityMapping.applyKeyValuePairs(event.getSource(), event.getDocument());
+    }
+  }
+
+  @Override
+  public void onAfterLoad(AfterLoadEvent<Object> event) {
+    if (event.getType() != null && event.getDocument() != null){
+      MongoEntityMapping.restoreKeyValuePairs(event.getType(), event.getDocument());
+    }
+  }
+
+}
@@ -17,75 +17,358 @@
 package com.blueprint.centromere.mongodb;
 
 import com.blueprint.centromere.core.exceptions.ModelPersistenceException;
+import com.blueprint.centromere.core.model.KeyValuePairs;
 import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.model.Normalized;
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.FacetCounts;
+import com.blueprint.centromere.core.repository.FieldStatistics;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import com.blueprint.centromere.core.repository.KeysetCursor;
+import com.blueprint.centromere.core.repository.KeysetSlice;
+import com.blueprint.centromere.core.repository.ModelGroup;
 import com.blueprint.centromere.core.repository.ModelRepository;
 import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.QueryCriteriaNormalizer;
+import com.blueprint.centromere.core.repository.ValueCount;
+import com.blueprint.centromere.mongodb.MongoReadRouter.ReadOperation;
+import com.mongodb.ReadPreference;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.bson.Document;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.MongoMappingEvent;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
 import org.springframework.data.mongodb.repository.support.SimpleMongoRepository;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.data.util.StreamUtils;
 
 /**
+ * MongoDB implementation of {@link ModelRepository}.  Models with {@link Normalized} fields are 
+ *   stored with lowercased and reversed shadow copies of those fields, which are written by 
+ *   {@link MongoNormalizedFieldListener} for records saved through {@link MongoOperations}, and
+ *   directly for bulk writes, and are used by the {@link MongoCriteriaTranslator} to serve text
+ *   criteria from indexes.  Likewise, {@link KeyValuePairs} map fields are stored as arrays of
+ *   key/value pairs by {@link MongoKeyValuePairListener}, or directly for bulk writes, and 
+ *   criteria, distinct values, and groups of their map entries are translated to match the pairs.
+ *   Batch updates and upserts publish the same mapping events as {@link MongoOperations} saves.
+ *   If a {@link MongoReadRouter} is set, read-only queries are executed with the read preference 
+ *   it selects, while writes and existence checks use the primary.  Query criteria are 
+ *   normalized by a {@link QueryCriteriaNormalizer} before translation, and contradictory 
+ *   criteria return an empty result without querying the database.
+ * 
  * @author woemler
  * @since 0.5.0
  */
 public class MongoModelRepository<T extends Model<ID>, ID extends Serializable>
     extends SimpleMongoRepository<T, ID>
-    implements ModelRepository<T, ID> {
+    implements ModelRepository<T, ID>, ApplicationEventPublisherAware {
+  
+  public static final int DEFAULT_CURSOR_BATCH_SIZE = 1000;
+  
+  /**
+   * Number of histogram buckets used to estimate percentiles of ungrouped statistics, and of 
+   *   grouped statistics with groups larger than the exact percentile group limit.
+   */
+  public static final int STATISTICS_HISTOGRAM_BUCKETS = 1000;
+
+  /**
+   * Largest number of values in any group for which grouped percentiles are read from the sorted
+   *   values of each group, which are collected into a single aggregation document per group.
+   */
+  public static final long DEFAULT_EXACT_PERCENTILE_GROUP_LIMIT = 100000L;
+
+  /**
+   * Largest per-field value limit for which facets are counted in a single {@code $facet} 
+   *   aggregation, whose output is one document and so is bound by the BSON document size limit.
+   */
+  public static final int MAX_SINGLE_FACET_LIMIT = 1000;
+  
+  private static final String FACET_COUNT_NAME = "count";
+  private static final String FACET_FIELD_PREFIX = "field";
+  private static final String STATISTICS_PERCENTILE_PREFIX = "p";
+  
+  /**
+   * Returned in place of a translated query when the normalized criteria can never be satisfied,
+   *   so that the operation returns an empty result without querying the database.
+   */
+  private static final Criteria NO_MATCH = new Criteria();
   
   private final MongoOperations mongoOperations;
   private final MongoEntityInformation<T, ID> metadata;
   private final Class<T> model;
+  private int cursorBatchSize = DEFAULT_CURSOR_BATCH_SIZE;
+  private long exactPercentileGroupLimit = DEFAULT_EXACT_PERCENTILE_GROUP_LIMIT;
+  private QueryCriteriaNormalizer criteriaNormalizer;
+  private MongoCriteriaTranslator criteriaTranslator;
+  private MongoReadRouter readRouter;
+  private ApplicationEventPublisher eventPublisher;
 
   public MongoModelRepository(MongoEntityInformation<T, ID> metadata, MongoOperations mongoOperations) {
     super(metadata, mongoOperations);
     this.mongoOperations = mongoOperations;
     this.metadata = metadata;
     this.model = metadata.getJavaType();
+    this.criteriaNormalizer = new QueryCriteriaNormalizer(model);
+    this.criteriaTranslator = new MongoCriteriaTranslator(model);
   }
 
   @Override
   public List<T> find(Iterable<QueryCriteria> queryCriterias) {
     Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+    if (criteria == NO_MATCH) return new ArrayList<>();
     Query query = new Query();
     if (criteria != null){
       query.addCriteria(criteria);
     }
-    return mongoOperations.find(query, this.getModel());
+    return getReadOperations(ReadOperation.FIND).find(query, this.getModel());
   }
 
   @Override
   public List<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort) {
     Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+    if (criteria == NO_MATCH) return new ArrayList<>();
     Query query = new Query();
     if (criteria != null){
       query.addCriteria(criteria);
     }
-    return mongoOperations.find(query.with(sort), this.getModel());
+    return getReadOperations(ReadOperation.FIND).find(query.with(sort), this.getModel());
   }
 
   @Override
   public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
     Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+    if (criteria == NO_MATCH) return new PageImpl<>(new ArrayList<>(), pageable, 0L);
     Query query = new Query();
     if (criteria != null){
       query.addCriteria(criteria);
     }
-    List<T> entities = mongoOperations.find(query.with(pageable), this.getModel());
-    long count = count(queryCriterias);
+    long count = getReadOperations(ReadOperation.COUNT).count(query, this.getModel());
+    List<T> entities = getReadOperations(ReadOperation.FIND).find(query.with(pageable), this.getModel());
     return new PageImpl<>(entities, pageable, count);
   }
 
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns them in the
+   *   requested order.  The requested fields are applied as a query projection, so unused fields
+   *   are neither transferred from the server nor mapped onto the returned objects.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param sort {@link Sort}
+   * @param fields names of the fields to be included in the returned records.
+   * @param exclude names of the fields to be excluded from the returned records.
+   * @return all matching {@code T} records.
+   */
+  @Override
+  public List<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort, Set<String> fields,
+      Set<String> exclude) {
+    Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+    if (criteria == NO_MATCH) return new ArrayList<>();
+    Query query = new Query();
+    if (criteria != null){
+      query.addCriteria(criteria);
+    }
+    applyFieldProjection(query, fields, exclude);
+    return getReadOperations(ReadOperation.FIND).find(query.with(sort), this.getModel());
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns them as a paged
+   *   collection.  The requested fields are applied as a query projection.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param pageable {@link Pageable}
+   * @param fields names of the fields to be included in the returned records.
+   * @param exclude names of the fields to be excluded from the returned records.
+   * @return {@link Page} containing the desired set of records.
+   */
+  @Override
+  public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable, Set<String> fields,
+      Set<String> exclude) {
+    Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+    if (criteria == NO_MATCH) return new PageImpl<>(new ArrayList<>(), pageable, 0L);
+    Query query = new Query();
+    if (criteria != null){
+      query.addCriteria(criteria);
+    }
+    applyFieldProjection(query, fields, exclude);
+    long count = getReadOperations(ReadOperation.COUNT).count(query, this.getModel());
+    List<T> entities = getReadOperations(ReadOperation.FIND).find(query.with(pageable), this.getModel());
+    return new PageImpl<>(entities, pageable, count);
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns the requested page
+   *   as a {@link Slice}.  One record more than the page size is fetched to determine whether
+   *   another page follows, and no count query is issued.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param pageable {@link Pageable}
+   * @return {@link Slice} containing the desired set of records.
+   */
+  @Override
+  public Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    return findSlice(queryCriterias, pageable, Collections.emptySet(), Collections.emptySet());
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns the requested page
+   *   as a {@link Slice}, applying the requested fields as a query projection.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param pageable {@link Pageable}
+   * @param fields names of the fields to be included in the returned records.
+   * @param exclude names of the fields to be excluded from the returned records.
+   * @return {@link Slice} containing the desired set of records.
+   */
+  @Override
+  public Slice<T> findSlice(Iterable<QueryCriteria> queryCriterias, Pageable pageable,
+      Set<String> fields, Set<String> exclude) {
+    Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+    if (criteria == NO_MATCH) return new SliceImpl<>(new ArrayList<>(), pageable, false);
+    Query query = new Query();
+    if (criteria != null){
+      query.addCriteria(criteria);
+    }
+    applyFieldProjection(query, fields, exclude);
+    query.with(pageable).limit(pageable.getPageSize() + 1);
+    List<T> content = getReadOperations(ReadOperation.FIND).find(query, this.getModel());
+    boolean hasNext = content.size() > pageable.getPageSize();
+    if (hasNext){
+      content = content.subList(0, pageable.getPageSize());
+    }
+    return new SliceImpl<>(content, pageable, hasNext);
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria and follow the {@code cursor}
+   *   position.  The cursor is translated into a range predicate on the sort keys, so the server can
+   *   seek directly to the start of the page using an index on the sort fields, rather than
+   *   skipping over every preceding record.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param cursor position to resume after, or {@code null} to fetch the first page.
+   * @param sort {@link Sort}
+   * @param size maximum number of records to return.
+   * @return {@link KeysetSlice} containing the records and the cursor for the next page.
+   */
+  @Override
+  public KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor,
+      Sort sort, int size) {
+    return findAfter(queryCriterias, cursor, sort, size, Collections.emptySet(), 
+        Collections.emptySet());
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria and follow the {@code cursor}
+   *   position, applying the requested fields as a query projection.  The ID and sort fields are
+   *   always projected, so that the next cursor can be created from the last record.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param cursor position to resume after, or {@code null} to fetch the first page.
+   * @param sort {@link Sort}
+   * @param size maximum number of records to return.
+   * @param fields names of the fields to be included in the returned records.
+   * @param exclude names of the fields to be excluded from the returned records.
+   * @return {@link KeysetSlice} containing the records and the cursor for the next page.
+   */
+  @Override
+  public KeysetSlice<T> findAfter(Iterable<QueryCriteria> queryCriterias, KeysetCursor cursor,
+      Sort sort, int size, Set<String> fields, Set<String> exclude) {
+    if (size < 1) throw new IllegalArgumentException("Keyset page size must be at least one.");
+    Sort keysetSort = KeysetCursor.getKeysetSort(sort);
+    List<Criteria> criteriaList = new ArrayList<>();
+    Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+    if (criteria == NO_MATCH) return new KeysetSlice<>(new ArrayList<>(), null);
+    if (criteria != null){
+      criteriaList.add(criteria);
+    }
+    if (cursor != null){
+      cursor.validate(keysetSort);
+      criteriaList.add(getKeysetCriteria(cursor));
+    }
+    Query query = new Query();
+    if (!criteriaList.isEmpty()){
+      query.addCriteria(new Criteria().andOperator(criteriaList.toArray(new Criteria[]{})));
+    }
+    applyFieldProjection(query, KeysetCursor.getKeysetFields(fields, keysetSort), 
+        KeysetCursor.getKeysetExclusions(exclude, keysetSort));
+    query.with(keysetSort).limit(size + 1);
+    List<T> content = getReadOperations(ReadOperation.FIND).find(query, this.getModel());
+    KeysetCursor next = null;
+    if (content.size() > size){
+      content = content.subList(0, size);
+      next = KeysetCursor.of(content.get(size - 1), keysetSort);
+    }
+    return new KeysetSlice<>(content, next);
+  }
+
+  /**
+   * Searches for all records that satisfy the requested criteria, and returns them as a lazily-
+   *   fetched {@link Stream}, backed by a database cursor.  Documents are fetched from the server
+   *   in batches of {@link #getCursorBatchSize()} and converted to {@code T} as they are consumed.
+   *   The cursor is released when the stream is closed.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param sort {@link Sort}
+   * @return stream of all matching {@code T} records.
+   */
+  @Override
+  public Stream<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+    if (criteria == NO_MATCH) return Stream.empty();
+    Query query = new Query();
+    if (criteria != null){
+      query.addCriteria(criteria);
+    }
+    if (sort != null){
+      query.with(sort);
+    }
+    MongoConverter converter = mongoOperations.getConverter();
+    MongoPersistentEntity<?> entity = getPersistentEntity();
+    QueryMapper queryMapper = new QueryMapper(converter);
+    MongoCursor<Document> cursor = getReadCollection(ReadOperation.FIND)
+        .find(queryMapper.getMappedObject(query.getQueryObject(), entity))
+        .sort(queryMapper.getMappedSort(query.getSortObject(), entity))
+        .batchSize(cursorBatchSize)
+        .iterator();
+    return StreamUtils.createStreamFromIterator(new DocumentCursorIterator(cursor, converter));
+  }
+
   /**
    * Returns a count of all records that satify the requested criteria.
    *
@@ -95,11 +378,410 @@ public class MongoModelRepository<T extends Model<ID>, ID extends Serializable>
   @Override
   public long count(Iterable<QueryCriteria> queryCriterias) {
     Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+    if (criteria == NO_MATCH) return 0L;
+    Query query = new Query();
+    if (criteria != null){
+      query.addCriteria(criteria);
+    }
+    return getReadOperations(ReadOperation.COUNT).count(query, this.getModel());
+  }
+
+  /**
+   * Returns an estimate of the number of records that satisfy the requested criteria.  If there
+   *   are no criteria, the count is taken from the collection metadata, without scanning any
+   *   documents.  Otherwise, the count stops once {@code limit} matching documents are found.  In
+   *   either case, no more than {@code limit} records are reported.
+   *
+   * @param queryCriterias {@link QueryCriteria}
+   * @param limit maximum number of records to count, or zero for no limit.
+   * @return estimated number of matching records.
+   */
+  @Override
+  public long estimateCount(Iterable<QueryCriteria> queryCriterias, long limit) {
+    Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+    if (criteria == NO_MATCH) return 0L;
+    MongoCollection<Document> collection = getReadCollection(ReadOperation.COUNT);
+    if (criteria == null){
+      long count = collection.count();
+      return limit > 0 ? Math.min(count, limit) : count;
+    }
+    Query query = new Query(criteria);
+    CountOptions options = new CountOptions();
+    if (limit > 0){
+      options.limit((int) Math.min(limit, Integer.MAX_VALUE));
+    }
+    return collection.count(new QueryMapper(mongoOperations.getConverter())
+        .getMappedObject(query.getQueryObject(), getPersistentEntity()), options);
+  }
+
+  /**
+   * Returns the distinct values of the requested field, using the database's native
+   *   {@code distinct} command.  Values are returned in ascending order.
+   *
+   * @param field Model field name.
+   * @return distinct values of {@code field}.
+   */
+  @Override
+  public Set<Object> distinct(String field) {
+    return distinct(field, Collections.emptyList());
+  }
+
+  /**
+   * Returns the distinct values of the requested field, filtered using a {@link QueryCriteria}
+   *   based query, using the database's native {@code distinct} command.  Values are returned in
+   *   ascending order.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the field values by.
+   * @return distinct values of {@code field}.
+   */
+  @Override
+  public Set<Object> distinct(String field, Iterable<QueryCriteria> criterias) {
+    if (ModelMetadataRegistry.getMetadata(model).getKeyValuePairPath(field) != null){
+      Set<Object> values = new LinkedHashSet<>();
+      for (ValueCount valueCount: distinctCounts(field, criterias, Pageable.unpaged())){
+        values.add(valueCount.getValue());
+      }
+      return values;
+    }
+    Criteria criteria = getQueryFromQueryCriteria(criterias);
+    if (criteria == NO_MATCH) return new LinkedHashSet<>();
+    Query query = new Query();
+    if (criteria != null){
+      query.addCriteria(criteria);
+    }
+    MongoPersistentEntity<?> entity = getPersistentEntity();
+    QueryMapper queryMapper = new QueryMapper(mongoOperations.getConverter());
+    Document command = new Document("distinct", metadata.getCollectionName())
+        .append("key", getMappedFieldName(field, entity))
+        .append("query", queryMapper.getMappedObject(query.getQueryObject(), entity));
+    List<Object> values = new ArrayList<>();
+    for (Object value: (List<?>) mongoOperations.executeCommand(command, 
+        getReadPreference(ReadOperation.DISTINCT)).get("values")){
+      values.add(convertFieldValue(value, field, entity));
+    }
+    values.sort(ValueCount::compareValues);
+    return new LinkedHashSet<>(values);
+  }
+
+  /**
+   * Returns distinct values of the requested field and the number of matching records containing
+   *   each value, computed with a {@code $group} aggregation, so that sorting and paging of the
+   *   distinct set happen on the server.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the field values by.
+   * @param pageable {@link Pageable} sort and page of distinct values to return.
+   * @return list of distinct values of {@code field} and their counts.
+   */
+  @Override
+  public List<ValueCount> distinctCounts(String field, Iterable<QueryCriteria> criterias,
+      Pageable pageable) {
+    Criteria criteria = getQueryFromQueryCriteria(criterias);
+    if (criteria == NO_MATCH) return new ArrayList<>();
+    Query query = new Query();
+    if (criteria != null){
+      query.addCriteria(criteria);
+    }
+    MongoPersistentEntity<?> entity = getPersistentEntity();
+    QueryMapper queryMapper = new QueryMapper(mongoOperations.getConverter());
+    String fieldName = getMappedFieldName(field, entity);
+    
+    Document sort = new Document();
+    for (Sort.Order order: pageable.getSort()){
+      sort.append(ValueCount.COUNT_PROPERTY.equals(order.getProperty()) ? "count" : "_id",
+          order.isAscending() ? 1 : -1);
+    }
+    if (!sort.containsKey("_id")) sort.append("_id", 1);
+    
+    List<Document> pipeline = new ArrayList<>();
+    pipeline.add(new Document("$match", queryMapper.getMappedObject(query.getQueryObject(), entity)));
+    String pairValueName = MongoEntityMapping.unwindKeyValuePairs(model, field, pipeline);
+    if (pairValueName != null){
+      fieldName = pairValueName;
+    } else {
+      pipeline.add(new Document("$unwind", new Document("path", "$" + fieldName)
+          .append("preserveNullAndEmptyArrays", true)));
+    }
+    pipeline.add(new Document("$group", new Document("_id", "$" + fieldName)
+        .append("count", new Document("$sum", 1))));
+    pipeline.add(new Document("$sort", sort));
+    if (pageable.isPaged()){
+      pipeline.add(new Document("$skip", pageable.getOffset()));
+      pipeline.add(new Document("$limit", pageable.getPageSize()));
+    }
+    
+    List<ValueCount> valueCounts = new ArrayList<>();
+    for (Document document: getReadCollection(ReadOperation.AGGREGATE)
+        .aggregate(pipeline).allowDiskUse(true)){
+      valueCounts.add(new ValueCount(convertFieldValue(document.get("_id"), field, entity),
+          ((Number) document.get("count")).longValue()));
+    }
+    return valueCounts;
+  }
+
+  /**
+   * Counts the records that satisfy the requested criteria, and the distinct values of each 
+   *   requested field.  When {@code limit} is between one and {@link #MAX_SINGLE_FACET_LIMIT}, a 
+   *   single {@code $facet} aggregation is used, so that the filtered records are read only once 
+   *   for all fields.  Otherwise, since the {@code $facet} output is a single document and may 
+   *   exceed the BSON size limit, the records are counted, and each field's values are grouped by a 
+   *   separate aggregation whose results are read from a cursor.  Each field's values are sorted, 
+   *   and limited to the top {@code limit} values, on the server.
+   *
+   * @param fields Model field names.
+   * @param criterias Query criteria to filter the records by.
+   * @param limit Maximum number of values returned per field, or zero for all values.
+   * @return total record count and value counts of each field.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public FacetCounts facets(List<String> fields, Iterable<QueryCriteria> criterias, int limit) {
+    Criteria criteria = getQueryFromQueryCriteria(criterias);
+    if (criteria == NO_MATCH){
+      Map<String, List<ValueCount>> empty = new LinkedHashMap<>();
+      fields.forEach(field -> empty.put(field, new ArrayList<>()));
+      return new FacetCounts(0L, empty);
+    }
+    Query query = new Query();
+    if (criteria != null){
+      query.addCriteria(criteria);
+    }
+    MongoPersistentEntity<?> entity = getPersistentEntity();
+    QueryMapper queryMapper = new QueryMapper(mongoOperations.getConverter());
+    Document match = new Document("$match", 
+        queryMapper.getMappedObject(query.getQueryObject(), entity));
+    MongoCollection<Document> collection = getReadCollection(ReadOperation.AGGREGATE);
+    Map<String, List<ValueCount>> valueCounts = new LinkedHashMap<>();
+
+    if (limit <= 0 || limit > MAX_SINGLE_FACET_LIMIT){
+      long count = getReadOperations(ReadOperation.COUNT).count(query, this.getModel());
+      for (String field: fields){
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(match);
+        pipeline.addAll(getFacetStages(field, entity, limit));
+        List<ValueCount> fieldCounts = new ArrayList<>();
+        for (Document document: collection.aggregate(pipeline).allowDiskUse(true)){
+          fieldCounts.add(new ValueCount(convertFieldValue(document.get("_id"), field, entity),
+              ((Number) document.get("count")).longValue()));
+        }
+        valueCounts.put(field, fieldCounts);
+      }
+      return new FacetCounts(count, valueCounts);
+    }
+    
+    // Facet output names may not contain periods, so fields are referenced by position
+    Document facets = new Document(FACET_COUNT_NAME, 
+        Collections.singletonList(new Document("$count", "count")));
+    for (int i = 0; i < fields.size(); i++){
+      facets.append(FACET_FIELD_PREFIX + i, getFacetStages(fields.get(i), entity, limit));
+    }
+    
+    List<Document> pipeline = new ArrayList<>();
+    pipeline.add(match);
+    pipeline.add(new Document("$facet", facets));
+    Document result = collection.aggregate(pipeline).allowDiskUse(true).first();
+    
+    long count = 0L;
+    if (result != null){
+      for (Document document: (List<Document>) result.get(FACET_COUNT_NAME)){
+        count = ((Number) document.get("count")).longValue();
+      }
+    }
+    for (int i = 0; i < fields.size(); i++){
+      String field = fields.get(i);
+      List<ValueCount> fieldCounts = new ArrayList<>();
+      if (result != null){
+        for (Document document: (List<Document>) result.get(FACET_FIELD_PREFIX + i)){
+          fieldCounts.add(new ValueCount(convertFieldValue(document.get("_id"), field, entity),
+              ((Number) document.get("count")).longValue()));
+        }
+      }
+      valueCounts.put(field, fieldCounts);
+    }
+    return new FacetCounts(count, valueCounts);
+  }
+
+  /**
+   * Returns the aggregation stages that count the distinct values of a field, sorted by 
+   *   descending count and limited to the top {@code limit} values, if {@code limit} is positive.
+   */
+  private List<Document> getFacetStages(String field, MongoPersistentEntity<?> entity, int limit){
+    String fieldName = getMappedFieldName(field, entity);
+    List<Document> stages = new ArrayList<>();
+    String pairValueName = MongoEntityMapping.unwindKeyValuePairs(model, field, stages);
+    if (pairValueName != null){
+      fieldName = pairValueName;
+    } else {
+      stages.add(new Document("$unwind", new Document("path", "$" + fieldName)
+          .append("preserveNullAndEmptyArrays", true)));
+    }
+    stages.add(new Document("$group", new Document("_id", "$" + fieldName)
+        .append("count", new Document("$sum", 1))));
+    stages.add(new Document("$sort", new Document("count", -1).append("_id", 1)));
+    if (limit > 0){
+      stages.add(new Document("$limit", limit));
+    }
+    return stages;
+  }
+
+  /**
+   * Computes summary statistics of a numeric field with {@code $group} aggregations, so that only
+   *   the statistics, rather than the field values, are transferred from the server.  The count,
+   *   minimum, maximum, mean, and sample standard deviation of the values are computed in a single
+   *   pass by the server's {@code $avg} and {@code $stdDevSamp} accumulators, which are 
+   *   numerically stable.
+   *
+   * Percentiles, if requested, are computed by a second aggregation.  Without grouping, they are 
+   *   estimated from a histogram, which counts the values in {@link #STATISTICS_HISTOGRAM_BUCKETS} 
+   *   equal-width buckets between the minimum and maximum values, so the result set is never held
+   *   in memory.  Each percentile is interpolated between the smallest and largest values of the 
+   *   bucket containing its rank, and is exact if the bucket holds a single distinct value.  With 
+   *   grouping, if no group has more than {@link #getExactPercentileGroupLimit()} values, the 
+   *   values of each group are sorted and collected on the server, and each percentile is read 
+   *   from the group at its nearest rank.  Otherwise, the percentiles of every group are estimated
+   *   from per-group histograms spanning the values of all groups, so that no group's values need
+   *   to fit in a single aggregation document.
+   *
+   * @param field Numeric model field name.
+   * @param groupBy Model field name to group the records by, or null.
+   * @param criterias Query criteria to filter the records by.
+   * @param percentiles Percentiles to report, between 0 and 100.
+   * @return statistics of the field, for all records or for each group.
+   */
+  @Override
+  public List<FieldStatistics> statistics(String field, String groupBy, 
+      Iterable<QueryCriteria> criterias, List<Double> percentiles) {
+    List<QueryCriteria> criteriaList = new ArrayList<>();
+    if (criterias != null) criterias.forEach(criteriaList::add);
+    criteriaList.add(new QueryCriteria(field, null, Evaluation.NOT_NULL));
+    Criteria criteria = getQueryFromQueryCriteria(criteriaList);
+    if (criteria == NO_MATCH){
+      return groupBy == null 
+          ? Collections.singletonList(FieldStatistics.empty(null)) : new ArrayList<>();
+    }
+    MongoPersistentEntity<?> entity = getPersistentEntity();
+    QueryMapper queryMapper = new QueryMapper(mongoOperations.getConverter());
+    List<Document> stages = new ArrayList<>();
+    stages.add(new Document("$match", 
+        queryMapper.getMappedObject(new Query(criteria).getQueryObject(), entity)));
+    String fieldName = getMappedFieldName(field, entity);
+    String value = "$" + fieldName;
+    Document accumulators = new Document("count", new Document("$sum", 1))
+        .append("min", new Document("$min", value))
+        .append("max", new Document("$max", value))
+        .append("mean", new Document("$avg", value))
+        .append("standardDeviation", new Document("$stdDevSamp", value));
+    MongoCollection<Document> collection = getReadCollection(ReadOperation.AGGREGATE);
+    
+    if (groupBy == null){
+      List<Document> pipeline = new ArrayList<>(stages);
+      Document group = new Document("_id", null);
+      group.putAll(accumulators);
+      pipeline.add(new Document("$group", group));
+      Document result = collection.aggregate(pipeline).allowDiskUse(true).first();
+      if (result == null) return Collections.singletonList(FieldStatistics.empty(null));
+      FieldStatistics statistics = toFieldStatistics(null, result);
+      if (!percentiles.isEmpty()){
+        Map<Object, List<Document>> histograms = getHistograms(stages, null, value, 
+            statistics.getMin(), statistics.getMax());
+        statistics.setPercentiles(getHistogramPercentiles(histograms.get(null), statistics, 
+            percentiles));
+      }
+      return Collections.singletonList(statistics);
+    }
+    
+    String groupName = getMappedFieldName(groupBy, entity);
+    String pairValueName = MongoEntityMapping.unwindKeyValuePairs(model, groupBy, stages);
+    if (pairValueName != null) groupName = pairValueName;
+    List<Document> pipeline = new ArrayList<>(stages);
+    Document group = new Document("_id", "$" + groupName);
+    group.putAll(accumulators);
+    pipeline.add(new Document("$group", group));
+    pipeline.add(new Document("$sort", new Document("_id", 1)));
+    Map<Object, FieldStatistics> statistics = new LinkedHashMap<>();
+    for (Document document: collection.aggregate(pipeline).allowDiskUse(true)){
+      statistics.put(document.get("_id"), 
+          toFieldStatistics(convertFieldValue(document.get("_id"), groupBy, entity), document));
+    }
+    if (percentiles.isEmpty() || statistics.isEmpty()) return new ArrayList<>(statistics.values());
+    
+    long largest = statistics.values().stream().mapToLong(FieldStatistics::getCount).max().orElse(0L);
+    if (largest <= exactPercentileGroupLimit){
+      // Group values are collected in ascending order, and percentiles read at their nearest rank
+      pipeline = new ArrayList<>(stages);
+      pipeline.add(new Document("$sort", new Document(fieldName, 1)));
+      pipeline.add(new Document("$group", new Document("_id", "$" + groupName)
+          .append("values", new Document("$push", value))));
+      Document projection = new Document();
+      for (int i = 0; i < percentiles.size(); i++){
+        projection.append(STATISTICS_PERCENTILE_PREFIX + i, new Document("$arrayElemAt", 
+            Arrays.asList("$values", getPercentileRankExpression(percentiles.get(i)))));
+      }
+      pipeline.add(new Document("$project", projection));
+      for (Document document: collection.aggregate(pipeline).allowDiskUse(true)){
+        FieldStatistics groupStatistics = statistics.get(document.get("_id"));
+        if (groupStatistics == null) continue;
+        for (int i = 0; i < percentiles.size(); i++){
+          Number percentile = (Number) document.get(STATISTICS_PERCENTILE_PREFIX + i);
+          groupStatistics.getPercentiles().put(
+              FieldStatistics.getPercentileName(percentiles.get(i)),
+              percentile != null ? percentile.doubleValue() : null);
+        }
+      }
+    } else {
+      double min = statistics.values().stream().mapToDouble(FieldStatistics::getMin).min()
+          .orElse(0.0);
+      double max = statistics.values().stream().mapToDouble(FieldStatistics::getMax).max()
+          .orElse(0.0);
+      Map<Object, List<Document>> histograms 
+          = getHistograms(stages, "$" + groupName, value, min, max);
+      for (Map.Entry<Object, FieldStatistics> entry: statistics.entrySet()){
+        entry.getValue().setPercentiles(getHistogramPercentiles(
+            histograms.getOrDefault(entry.getKey(), Collections.emptyList()), entry.getValue(), 
+            percentiles));
+      }
+    }
+    return new ArrayList<>(statistics.values());
+  }
+
+  /**
+   * Groups the records that satisfy the requested criteria by the value of a field, using a
+   *   {@code $group} aggregation to compute the group keys and counts on the server.  If the
+   *   {@link GroupAccumulator} requests a sample of records, each group's sample is collected by
+   *   the same aggregation and limited to {@link GroupAccumulator#getMaxRecords()} records, so 
+   *   that the groups are fetched in a single round trip.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the records by.
+   * @param accumulator {@link GroupAccumulator} describing what each group should contain.
+   * @return list of record groups.
+   */
+  @Override
+  public List<ModelGroup<T>> groupBy(String field, Iterable<QueryCriteria> criterias,
+      GroupAccumulator accumulator) {
+    Criteria criteria = getQueryFromQueryCriteria(criterias);
+    if (criteria == NO_MATCH) return new ArrayList<>();
     Query query = new Query();
     if (criteria != null){
       query.addCriteria(criteria);
     }
-    return mongoOperations.count(query, this.getModel());
+    MongoPersistentEntity<?> entity = getPersistentEntity();
+    QueryMapper queryMapper = new QueryMapper(mongoOperations.getConverter());
+
+    List<Document> pipeline = new ArrayList<>();
+    pipeline.add(new Document("$match", queryMapper.getMappedObject(query.getQueryObject(), entity)));
+    MongoEntityMapping.appendGroupStages(model, field, getMappedFieldName(field, entity), 
+        accumulator, pipeline);
+
+    List<ModelGroup<T>> groups = new ArrayList<>();
+    for (Document document: getReadCollection(ReadOperation.AGGREGATE)
+        .aggregate(pipeline).allowDiskUse(true)){
+      groups.add(new ModelGroup<>(convertFieldValue(document.get("_id"), field, entity),
+          ((Number) document.get("count")).longValue(), 
+          MongoEntityMapping.readGroupRecords(mongoOperations.getConverter(), model, document)));
+    }
+    return groups;
   }
 
   /**
@@ -120,15 +802,97 @@ public class MongoModelRepository<T extends Model<ID>, ID extends Serializable>
   }
 
   /**
-   * Updates multiple records and returns their instances.
+   * Updates multiple records with a single unordered bulk write of {@code replaceOne} operations,
+   *   and returns their instances.  Rather than checking each record's existence beforehand, the
+   *   matched count of the bulk write is compared against the number of records, and any records
+   *   that did not match an existing document are reported.  As with {@link #update(Model)}, the 
+   *   {@link BeforeConvertEvent}, {@link BeforeSaveEvent} and {@link AfterSaveEvent} mapping events
+   *   are published for each record, so that listeners and auditing apply to batch updates.
    *
    * @param entities collection of records to update.
    * @return updated instances of the entity objects.
+   * @throws ModelPersistenceException if any of the records do not exist in the database.
    */
   @Override
   public <S extends T> Iterable<S> update(Iterable<S> entities) {
     for (S entity: entities){
-      this.update(entity);
+      if (entity.getId() == null){
+        throw new ModelPersistenceException(String.format("Model record does not exist in the database,"
+            + " and cannot be updated: %s", entity.toString()));
+      }
+    }
+    List<WriteModel<Document>> writes = new ArrayList<>();
+    Map<Object, S> written = new LinkedHashMap<>();
+    Map<Object, Document> documents = new LinkedHashMap<>();
+    for (S entity: entities){
+      Document document = toSavedDocument(entity);
+      written.put(document.get("_id"), entity);
+      documents.put(document.get("_id"), document);
+      writes.add(new ReplaceOneModel<>(new Document("_id", document.get("_id")), document));
+    }
+    if (writes.isEmpty()){
+      return entities;
+    }
+    MongoCollection<Document> collection = mongoOperations.getCollection(metadata.getCollectionName());
+    BulkWriteResult result = collection.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+    Set<Object> missing = new LinkedHashSet<>();
+    if (result.getMatchedCount() < writes.size()){
+      missing.addAll(written.keySet());
+      for (Document document: collection.find(new Document("_id", 
+          new Document("$in", new ArrayList<>(written.keySet())))).projection(new Document("_id", 1))){
+        missing.remove(document.get("_id"));
+      }
+    }
+    for (Map.Entry<Object, S> entry: written.entrySet()){
+      if (!missing.contains(entry.getKey())){
+        publishEvent(new AfterSaveEvent<>(entry.getValue(), documents.get(entry.getKey()), 
+            metadata.getCollectionName()));
+      }
+    }
+    if (!missing.isEmpty()){
+      throw new ModelPersistenceException(String.format("%d model records do not exist in the database,"
+          + " and cannot be updated: %s", missing.size(), missing));
+    }
+    return entities;
+  }
+
+  /**
+   * Creates or replaces multiple records with a single unordered bulk write, issuing one
+   *   {@code replaceOne} with upsert per record, instead of checking for each record's existence
+   *   individually.  Records without an ID are inserted so that their IDs are generated as usual.
+   *   The {@link BeforeConvertEvent}, {@link BeforeSaveEvent} and {@link AfterSaveEvent} mapping 
+   *   events are published for each record, as they are for inserted records.
+   *
+   * @param entities collection of records to be persisted.
+   * @return updated instances of the entity objects.
+   */
+  @Override
+  public <S extends T> Iterable<S> upsert(Iterable<S> entities) {
+    List<WriteModel<Document>> writes = new ArrayList<>();
+    List<S> inserts = new ArrayList<>();
+    List<S> saved = new ArrayList<>();
+    List<Document> documents = new ArrayList<>();
+    for (S entity: entities){
+      if (entity.getId() == null){
+        inserts.add(entity);
+        continue;
+      }
+      Document document = toSavedDocument(entity);
+      saved.add(entity);
+      documents.add(document);
+      writes.add(new ReplaceOneModel<>(new Document("_id", document.get("_id")), document,
+          new UpdateOptions().upsert(true)));
+    }
+    if (!writes.isEmpty()){
+      mongoOperations.getCollection(metadata.getCollectionName())
+          .bulkWrite(writes, new BulkWriteOptions().ordered(false));
+      for (int i = 0; i < saved.size(); i++){
+        publishEvent(new AfterSaveEvent<>(saved.get(i), documents.get(i), 
+            metadata.getCollectionName()));
+      }
+    }
+    if (!inserts.isEmpty()){
+      this.insert(inserts);
     }
     return entities;
   }
@@ -141,99 +905,308 @@ public class MongoModelRepository<T extends Model<ID>, ID extends Serializable>
     return model;
   }
 
+  /**
+   * Returns the number of documents fetched per round trip when iterating over a cursor.
+   */
+  public int getCursorBatchSize() {
+    return cursorBatchSize;
+  }
+
+  public void setCursorBatchSize(int cursorBatchSize) {
+    this.cursorBatchSize = cursorBatchSize;
+  }
+
+  /**
+   * Returns the largest number of values in any group for which grouped percentiles are computed
+   *   exactly, rather than estimated from histograms.
+   */
+  public long getExactPercentileGroupLimit() {
+    return exactPercentileGroupLimit;
+  }
+
+  public void setExactPercentileGroupLimit(long exactPercentileGroupLimit) {
+    this.exactPercentileGroupLimit = exactPercentileGroupLimit;
+  }
+
+  public QueryCriteriaNormalizer getCriteriaNormalizer() {
+    return criteriaNormalizer;
+  }
+
+  public void setCriteriaNormalizer(QueryCriteriaNormalizer criteriaNormalizer) {
+    this.criteriaNormalizer = criteriaNormalizer;
+  }
+
+  public MongoCriteriaTranslator getCriteriaTranslator() {
+    return criteriaTranslator;
+  }
+
+  public void setCriteriaTranslator(MongoCriteriaTranslator criteriaTranslator) {
+    this.criteriaTranslator = criteriaTranslator;
+  }
+
+  public MongoReadRouter getReadRouter() {
+    return readRouter;
+  }
+
+  /**
+   * Sets the {@link MongoReadRouter} used to route read-only queries away from the primary.  If 
+   *   not set, all queries use the repository's {@link MongoOperations}.
+   *
+   * @param readRouter read router, or null
+   */
+  public void setReadRouter(MongoReadRouter readRouter) {
+    this.readRouter = readRouter;
+  }
+
+  /**
+   * Sets the publisher of the mapping events of batch updates and upserts, which are written with
+   *   the driver's bulk write rather than through {@link MongoOperations}.  If not set, no events
+   *   are published for them.
+   *
+   * @param eventPublisher event publisher, or null
+   */
+  @Override
+  public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * Returns the read preference of a read-only operation, or null if it uses the primary.
+   */
+  private ReadPreference getReadPreference(ReadOperation operation){
+    return readRouter != null ? readRouter.getReadPreference(model, operation) : null;
+  }
+
+  /**
+   * Returns the template that a read-only operation should be executed with.
+   */
+  private MongoOperations getReadOperations(ReadOperation operation){
+    MongoOperations operations = readRouter != null ? readRouter.getOperations(model, operation) : null;
+    return operations != null ? operations : mongoOperations;
+  }
+
+  /**
+   * Returns the model's collection, with the read preference of a read-only operation applied.
+   */
+  private MongoCollection<Document> getReadCollection(ReadOperation operation){
+    MongoCollection<Document> collection = mongoOperations.getCollection(metadata.getCollectionName());
+    ReadPreference readPreference = getReadPreference(operation);
+    return readPreference != null ? collection.withReadPreference(readPreference) : collection;
+  }
+
+  /**
+   * Converts a model record into the document that would be stored for it, including its mapped
+   *   ID and type information, the shadow copies of its {@link Normalized} fields, and the
+   *   key/value pair form of its {@link KeyValuePairs} fields.
+   */
+  private Document toDocument(T entity){
+    Document document = new Document();
+    mongoOperations.getConverter().write(entity, document);
+    MongoEntityMapping.applyNormalizedFields(entity, document);
+    MongoEntityMapping.applyKeyValuePairs(entity, document);
+    return document;
+  }
+
+  /**
+   * Converts a model record into the document to be saved for it, publishing the 
+   *   {@link BeforeConvertEvent} and {@link BeforeSaveEvent} mapping events, in the same order as
+   *   {@code MongoTemplate} does when saving a single record.
+   */
+  private Document toSavedDocument(T entity){
+    publishEvent(new BeforeConvertEvent<>(entity, metadata.getCollectionName()));
+    Document document = toDocument(entity);
+    publishEvent(new BeforeSaveEvent<>(entity, document, metadata.getCollectionName()));
+    return document;
+  }
+
+  private void publishEvent(MongoMappingEvent<?> event){
+    if (eventPublisher != null) eventPublisher.publishEvent(event);
+  }
+
+  private MongoPersistentEntity<?> getPersistentEntity(){
+    return mongoOperations.getConverter().getMappingContext().getRequiredPersistentEntity(model);
+  }
+
+  /**
+   * Builds the range predicate that selects records following a keyset cursor.  For sort keys
+   *   {@code (a, b, id)}, this is {@code a > x OR (a = x AND b > y) OR (a = x AND b = y AND id > z)},
+   *   with comparisons reversed for descending keys.  Null values sort before all others, matching
+   *   the server's ordering.
+   *
+   * @param cursor keyset cursor
+   * @return criteria selecting all records after the cursor
+   */
+  private Criteria getKeysetCriteria(KeysetCursor cursor){
+    List<Criteria> branches = new ArrayList<>();
+    List<Criteria> equalities = new ArrayList<>();
+    for (int i = 0; i < cursor.getOrders().size(); i++){
+      Sort.Order order = cursor.getOrders().get(i);
+      Object value = cursor.getValues().get(i);
+      Criteria following = null;
+      if (order.isAscending()){
+        following = value == null 
+            ? Criteria.where(order.getProperty()).ne(null) 
+            : Criteria.where(order.getProperty()).gt(value);
+      } else if (value != null){
+        following = new Criteria().orOperator(
+            Criteria.where(order.getProperty()).lt(value),
+            Criteria.where(order.getProperty()).is(null));
+      }
+      if (following != null){
+        List<Criteria> branch = new ArrayList<>(equalities);
+        branch.add(following);
+        branches.add(branch.size() == 1 ? following : new Criteria().andOperator(branch.toArray(new Criteria[]{})));
+      }
+      equalities.add(Criteria.where(order.getProperty()).is(value));
+    }
+    if (branches.isEmpty()){
+      // Nothing can follow the cursor
+      return Criteria.where(KeysetCursor.ID_PROPERTY).exists(false);
+    }
+    return branches.size() == 1 ? branches.get(0) : new Criteria().orOperator(branches.toArray(new Criteria[]{}));
+  }
+
+  private void applyFieldProjection(Query query, Set<String> fields, Set<String> exclude){
+    MongoEntityMapping.applyFieldProjection(query, fields, exclude, getPersistentEntity());
+  }
+
+  private String getMappedFieldName(String field, MongoPersistentEntity<?> entity){
+    return MongoEntityMapping.getMappedFieldName(mongoOperations.getConverter(), field, entity);
+  }
+
+  private Object convertFieldValue(Object value, String field, MongoPersistentEntity<?> entity){
+    return MongoEntityMapping.convertFieldValue(mongoOperations.getConverter(), value, field, entity);
+  }
+
+  /**
+   * Converts the accumulated count, minimum, maximum, mean and sample standard deviation of a 
+   *   group of values into {@link FieldStatistics}.
+   */
+  private FieldStatistics toFieldStatistics(Object key, Document document){
+    Number standardDeviation = (Number) document.get("standardDeviation");
+    return new FieldStatistics(key, 
+        ((Number) document.get("count")).longValue(), 
+        ((Number) document.get("min")).doubleValue(), 
+        ((Number) document.get("max")).doubleValue(), 
+        ((Number) document.get("mean")).doubleValue(), 
+        standardDeviation != null ? standardDeviation.doubleValue() : null, 
+        new LinkedHashMap<>());
+  }
+
+  /**
+   * Builds an expression for the position of a percentile in the sorted {@code values} array of a
+   *   group, rounded to the nearest rank: {@code floor((size - 1) / (100 / p) + 0.5)}.
+   */
+  private static Object getPercentileRankExpression(double percentile){
+    if (percentile <= 0.0) return 0;
+    return new Document("$floor", new Document("$add", Arrays.asList(
+        new Document("$divide", Arrays.asList(
+            new Document("$add", Arrays.asList(new Document("$size", "$values"), -1)),
+            100.0 / percentile)), 
+        0.5)));
+  }
+
+  /**
+   * Counts the matching values in {@link #STATISTICS_HISTOGRAM_BUCKETS} equal-width buckets 
+   *   spanning the given minimum and maximum values, recording the smallest and largest value in
+   *   each bucket.  If a group expression is given, a separate histogram is counted for each group.
+   *
+   * @return the ascending buckets of each group, keyed by the raw group value, or by null if 
+   *   ungrouped.
+   */
+  private Map<Object, List<Document>> getHistograms(List<Document> stages, String group, 
+      String value, double min, double max){
+    Map<Object, List<Document>> histograms = new LinkedHashMap<>();
+    double width = (max - min) / STATISTICS_HISTOGRAM_BUCKETS;
+    Object bucketKey = width == 0.0 ? 0 : new Document("$floor", new Document("$divide", 
+        Arrays.asList(new Document("$add", Arrays.asList(value, -min)), width)));
+    List<Document> pipeline = new ArrayList<>(stages);
+    pipeline.add(new Document("$group", 
+        new Document("_id", new Document("group", group).append("bucket", bucketKey))
+            .append("count", new Document("$sum", 1))
+            .append("min", new Document("$min", value))
+            .append("max", new Document("$max", value))));
+    pipeline.add(new Document("$sort", new Document("_id.bucket", 1)));
+    for (Document bucket: getReadCollection(ReadOperation.AGGREGATE).aggregate(pipeline)
+        .allowDiskUse(true)){
+      histograms.computeIfAbsent(((Document) bucket.get("_id")).get("group"), 
+          key -> new ArrayList<>()).add(bucket);
+    }
+    return histograms;
+  }
+
+  /**
+   * Estimates percentiles of a group of values from its histogram.  Each percentile is 
+   *   interpolated between the smallest and largest values of the bucket containing its rank.
+   */
+  private static Map<String, Double> getHistogramPercentiles(List<Document> buckets, 
+      FieldStatistics statistics, List<Double> percentiles){
+    Map<String, Double> values = new LinkedHashMap<>();
+    for (Double percentile: percentiles){
+      long rank = FieldStatistics.getPercentileRank(percentile, statistics.getCount());
+      long before = 0L;
+      for (Document bucket: buckets){
+        long count = ((Number) bucket.get("count")).longValue();
+        if (rank < before + count){
+          double min = ((Number) bucket.get("min")).doubleValue();
+          double max = ((Number) bucket.get("max")).doubleValue();
+          values.put(FieldStatistics.getPercentileName(percentile), 
+              count > 1 ? min + (max - min) * (rank - before) / (count - 1) : min);
+          break;
+        }
+        before += count;
+      }
+    }
+    return values;
+  }
+
   /**
    * Converts a collection of {@link QueryCriteria}
    *  objects into Spring Data MongoDB {@link Criteria}
-   *  objects, used to build a {@link Query}.
+   *  objects, used to build a {@link Query}.  The criteria are first simplified by the 
+   *  repository's {@link QueryCriteriaNormalizer}, and translation is then delegated to its
+   *  {@link MongoCriteriaTranslator}, which caches compiled query templates.
    *
    * @param queryCriterias list of query parameters to be converted.
-   * @return {@link Criteria} representation of the dataimport.
+   * @return {@link Criteria} representation of the dataimport, or {@link #NO_MATCH} if the 
+   *   criteria are contradictory.
    */
   private Criteria getQueryFromQueryCriteria(Iterable<QueryCriteria> queryCriterias){
-    List<Criteria> criteriaList = new ArrayList<>();
-    for (QueryCriteria queryCriteria: queryCriterias){
-      Criteria criteria;
-      Pattern pattern;
-      if (queryCriteria != null) {
-        switch (queryCriteria.getEvaluation()) {
-          case EQUALS:
-            criteria = new Criteria(queryCriteria.getKey()).is(queryCriteria.getValue());
-            break;
-          case NOT_EQUALS:
-            criteria = new Criteria(queryCriteria.getKey()).ne(queryCriteria.getValue());
-            break;
-          case IN:
-            criteria = new Criteria(queryCriteria.getKey()).in((Collection) queryCriteria.getValue());
-            break;
-          case NOT_IN:
-            criteria = new Criteria(queryCriteria.getKey()).nin((Collection) queryCriteria.getValue());
-            break;
-          case IS_NULL:
-            criteria = new Criteria(queryCriteria.getKey()).is(null);
-            break;
-          case NOT_NULL:
-            criteria = new Criteria(queryCriteria.getKey()).ne(null);
-            break;
-          case IS_TRUE:
-            criteria = new Criteria(queryCriteria.getKey()).is(true);
-            break;
-          case IS_FALSE:
-            criteria = new Criteria(queryCriteria.getKey()).is(false);
-            break;
-          case GREATER_THAN:
-            criteria = new Criteria(queryCriteria.getKey()).gt(queryCriteria.getValue());
-            break;
-          case GREATER_THAN_EQUALS:
-            criteria = new Criteria(queryCriteria.getKey()).gte(queryCriteria.getValue());
-            break;
-          case LESS_THAN:
-            criteria = new Criteria(queryCriteria.getKey()).lt(queryCriteria.getValue());
-            break;
-          case LESS_THAN_EQUALS:
-            criteria = new Criteria(queryCriteria.getKey()).lte(queryCriteria.getValue());
-            break;
-          case BETWEEN:
-            criteria = new Criteria().andOperator(
-                Criteria.where(queryCriteria.getKey()).gt(((List) queryCriteria.getValue()).get(0)),
-                Criteria.where(queryCriteria.getKey()).lt(((List) queryCriteria.getValue()).get(1)));
-            break;
-          case OUTSIDE:
-            criteria = new Criteria().orOperator(
-                Criteria.where(queryCriteria.getKey()).lt(((List) queryCriteria.getValue()).get(0)),
-                Criteria.where(queryCriteria.getKey()).gt(((List) queryCriteria.getValue()).get(1)));
-            break;
-          case BETWEEN_INCLUSIVE:
-            criteria = new Criteria().andOperator(
-                Criteria.where(queryCriteria.getKey()).gte(((List) queryCriteria.getValue()).get(0)),
-                Criteria.where(queryCriteria.getKey()).lte(((List) queryCriteria.getValue()).get(1)));
-            break;
-          case OUTSIDE_INCLUSIVE:
-            criteria = new Criteria().orOperator(
-                Criteria.where(queryCriteria.getKey()).lte(((List) queryCriteria.getValue()).get(0)),
-                Criteria.where(queryCriteria.getKey()).gte(((List) queryCriteria.getValue()).get(1)));
-            break;
-          case LIKE:
-            pattern = Pattern.compile((String) queryCriteria.getValue(), Pattern.CASE_INSENSITIVE);
-            criteria = new Criteria(queryCriteria.getKey()).regex(pattern);
-            break;
-          case NOT_LIKE:
-            pattern = Pattern.compile((String) queryCriteria.getValue(), Pattern.CASE_INSENSITIVE);
-            criteria = new Criteria(queryCriteria.getKey()).not().regex(pattern);
-            break;
-          case STARTS_WITH:
-            criteria = new Criteria(queryCriteria.getKey()).regex("^" + queryCriteria.getValue());
-            break;
-          case ENDS_WITH:
-            criteria = new Criteria(queryCriteria.getKey()).regex(queryCriteria.getValue() + "$");
-            break;
-          default:
-            criteria = new Criteria(queryCriteria.getKey()).is(queryCriteria.getValue());
-        }
-        criteriaList.add(criteria);
-      }
+    Optional<List<QueryCriteria>> normalized = criteriaNormalizer.normalize(queryCriterias);
+    return normalized.isPresent() ? criteriaTranslator.translate(normalized.get()) : NO_MATCH;
+  }
+
+  /**
+   * {@link CloseableIterator} that converts raw {@link Document} objects read from a
+   *   {@link MongoCursor} into instances of the repository model.
+   */
+  private class DocumentCursorIterator implements CloseableIterator<T> {
+
+    private final MongoCursor<Document> cursor;
+    private final MongoConverter converter;
+
+    DocumentCursorIterator(MongoCursor<Document> cursor, MongoConverter converter) {
+      this.cursor = cursor;
+      this.converter = converter;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return cursor.hasNext();
     }
-    return criteriaList.size() > 0 ?
-        new Criteria().andOperator(criteriaList.toArray(new Criteria[]{})) : null;
+
+    @Override
+    public T next() {
+      Document document = cursor.next();
+      MongoEntityMapping.restoreKeyValuePairs(model, document);
+      return converter.read(model, document);
+    }
+
+    @Override
+    public void close() {
+      cursor.close();
+    }
+
   }
 
 }
@@ -17,6 +17,15 @@
 package com.blueprint.centromere.mongodb;
 
 import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
@@ -25,6 +34,7 @@ import org.springframework.data.mongodb.repository.support.MongoRepositoryFactor
 import org.springframework.data.repository.core.RepositoryInformation;
 import org.springframework.data.repository.core.RepositoryMetadata;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * @author woemler
@@ -32,30 +42,65 @@ import org.springframework.data.repository.core.support.RepositoryFactorySupport
 public class MongoModelRepositoryFactoryBean<R extends MongoRepository<T, ID>, T, ID extends Serializable> 
     extends MongoRepositoryFactoryBean<R, T, ID> {
 
+  private MongoReadRouter readRouter;
+  private ApplicationEventPublisher eventPublisher;
+
   public MongoModelRepositoryFactoryBean(Class<? extends R> repositoryInterface) {
     super(repositoryInterface);
   }
 
+  /**
+   * Sets the {@link MongoReadRouter} passed to each created {@link MongoModelRepository}, if one
+   *   is available in the application context.
+   *
+   * @param readRouter read router
+   */
+  @Autowired(required = false)
+  public void setReadRouter(MongoReadRouter readRouter) {
+    this.readRouter = readRouter;
+  }
+
+  /**
+   * Also passes the publisher to each created {@link MongoModelRepository}, so that its batch 
+   *   writes publish the same mapping events as {@code MongoTemplate}.
+   */
+  @Override
+  public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+    super.setApplicationEventPublisher(publisher);
+    this.eventPublisher = publisher;
+  }
+
   @Override
   protected RepositoryFactorySupport getFactoryInstance(MongoOperations operations) {
-    return new MongoModelRepositoryFactory<>(operations);
+    return new MongoModelRepositoryFactory<>(operations, readRouter, eventPublisher);
   }
 
   private static class MongoModelRepositoryFactory<T, ID extends Serializable>
       extends MongoRepositoryFactory {
 
     private final MongoOperations mongoOperations;
+    private final MongoReadRouter readRouter;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public MongoModelRepositoryFactory(MongoOperations mongoOperations) {
+    public MongoModelRepositoryFactory(MongoOperations mongoOperations, MongoReadRouter readRouter,
+        ApplicationEventPublisher eventPublisher) {
       super(mongoOperations);
       this.mongoOperations = mongoOperations;
+      this.readRouter = readRouter;
+      this.eventPublisher = eventPublisher;
+      addRepositoryProxyPostProcessor((factory, information) -> 
+          factory.addAdvice(new OverriddenDefaultMethodInterceptor(factory.getTargetSource().getTargetClass())));
     }
 
     @SuppressWarnings("unchecked")
     @Override
     protected Object getTargetRepository(RepositoryInformation information) {
       MongoEntityInformation entityInformation = getEntityInformation(information.getDomainType());
-      return new MongoModelRepository<>(entityInformation, mongoOperations);
+      MongoModelRepository<?, ?> repository 
+          = new MongoModelRepository<>(entityInformation, mongoOperations);
+      repository.setReadRouter(readRouter);
+      repository.setApplicationEventPublisher(eventPublisher);
+      return repository;
     }
 
     @Override
@@ -64,4 +109,43 @@ public class MongoModelRepositoryFactoryBean<R extends MongoRepository<T, ID>, T
     }
   }
 
+  /**
+   * Spring Data invokes {@code default} repository interface methods directly on the proxy, which
+   *   bypasses any implementation in the repository base class.  This interceptor runs ahead of
+   *   that behavior and routes {@code default} methods to the target repository when its class
+   *   overrides them, so that {@link MongoModelRepository} can provide database-side 
+   *   implementations of methods like {@code distinct} or {@code groupBy}.
+   */
+  private static class OverriddenDefaultMethodInterceptor implements MethodInterceptor {
+    
+    private final Class<?> targetClass;
+    private final Map<Method, Optional<Method>> overrides = new ConcurrentHashMap<>();
+
+    public OverriddenDefaultMethodInterceptor(Class<?> targetClass) {
+      this.targetClass = targetClass;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+      Method method = invocation.getMethod();
+      if (!method.isDefault()) return invocation.proceed();
+      Optional<Method> override = overrides.computeIfAbsent(method, this::findOverride);
+      if (!override.isPresent()) return invocation.proceed();
+      try {
+        return override.get().invoke(invocation.getThis(), invocation.getArguments());
+      } catch (InvocationTargetException e){
+        throw e.getTargetException();
+      }
+    }
+
+    private Optional<Method> findOverride(Method method){
+      Method candidate = ReflectionUtils.findMethod(targetClass, method.getName(), method.getParameterTypes());
+      if (candidate == null || candidate.getDeclaringClass().isInterface()){
+        return Optional.empty();
+      }
+      return Optional.of(candidate);
+    }
+    
+  }
+
 }
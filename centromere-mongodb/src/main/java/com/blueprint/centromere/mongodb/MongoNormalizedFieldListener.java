@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.mongodb;
+
+import com.blueprint.centromere.core.model.Normalized;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+
+/**
+ * Mapping event listener that adds the lowercased and reversed shadow copies of {@link Normalized}
+ *   fields to each document before it is inserted or saved by {@code MongoTemplate} or 
+ *   {@code ReactiveMongoTemplate}.  Must be registered as a bean in the application context.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class MongoNormalizedFieldListener extends AbstractMongoEventListener<Object> {
+
+  @Override
+  public void onBeforeSave(BeforeSaveEvent<Object> event) {
+    if (event.getSource() != null && event.getDocument() != null){
+      MongoEntityMapping.applyNormalizedFields(event.getSource(), event.getDocument());
+    }
+  }
+
+}
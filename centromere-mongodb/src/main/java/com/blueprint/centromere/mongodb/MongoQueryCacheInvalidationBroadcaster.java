@@ -0,0 +1,248 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.mongodb;
+
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.repository.cache.QueryCacheInvalidationBroadcaster;
+import com.mongodb.CursorType;
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+/**
+ * {@link QueryCacheInvalidationBroadcaster} that exchanges invalidations through a capped 
+ *   collection in the shared database.  Each published invalidation is inserted as a small
+ *   document, tagged with the publishing node's ID, and every node follows the collection with a
+ *   tailable cursor, in insertion order.  Since the {@code _id} values are generated by each 
+ *   node's driver, they are not ordered across nodes, so a node that has to reopen its cursor 
+ *   resumes after the position of the last document it has seen, rather than after its 
+ *   {@code _id}.  The collection is created on first use, and being capped, never needs cleaning
+ *   up.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class MongoQueryCacheInvalidationBroadcaster 
+    implements QueryCacheInvalidationBroadcaster, DisposableBean {
+
+  private static final Logger logger 
+      = LoggerFactory.getLogger(MongoQueryCacheInvalidationBroadcaster.class);
+
+  public static final String DEFAULT_COLLECTION_NAME = "centromere_cache_invalidations";
+  public static final long DEFAULT_COLLECTION_SIZE = 1024L * 1024L;
+  public static final long DEFAULT_POLL_INTERVAL = 1000L;
+
+  private final MongoOperations mongoOperations;
+  private final String collectionName;
+  private final String origin = UUID.randomUUID().toString();
+  private final List<Consumer<Class<? extends Model<?>>>> listeners = new CopyOnWriteArrayList<>();
+  private long collectionSize = DEFAULT_COLLECTION_SIZE;
+  private long pollInterval = DEFAULT_POLL_INTERVAL;
+  private boolean tailable = true;
+  private volatile boolean running = false;
+  private volatile boolean collectionCreated = false;
+  private Thread thread;
+
+  public MongoQueryCacheInvalidationBroadcaster(MongoOperations mongoOperations) {
+    this(mongoOperations, DEFAULT_COLLECTION_NAME);
+  }
+
+  public MongoQueryCacheInvalidationBroadcaster(MongoOperations mongoOperations, 
+      String collectionName) {
+    this.mongoOperations = mongoOperations;
+    this.collectionName = collectionName;
+  }
+
+  @Override
+  public void publish(Class<? extends Model<?>> model) {
+    getCollection().insertOne(new Document("model", model.getName())
+        .append("origin", origin)
+        .append("timestamp", new Date()));
+  }
+
+  @Override
+  public synchronized void subscribe(Consumer<Class<? extends Model<?>>> listener) {
+    listeners.add(listener);
+    if (!running){
+      running = true;
+      thread = new Thread(this::poll, "query-cache-invalidation");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /**
+   * Delivers invalidations inserted since polling started, until the broadcaster is shut down.
+   *   The collection is read with a tailable cursor, which waits on the server for new documents.
+   *   When the cursor is closed, for example because the collection was empty, or if tailing is
+   *   disabled, the collection is read again after the poll interval, skipping the documents up to
+   *   and including the last one seen.  If that document has since been overwritten, every 
+   *   document read is delivered, since extra invalidations are harmless while missed ones are not.
+   */
+  private void poll(){
+    ObjectId lastId = null;
+    boolean initialized = false;
+    while (running){
+      try {
+        MongoCollection<Document> collection = getCollection();
+        // The documents present when polling starts are not delivered, and only mark the position
+        boolean resumed = !initialized || lastId == null;
+        List<Document> skipped = new ArrayList<>();
+        FindIterable<Document> documents = collection.find().sort(new Document("$natural", 1));
+        if (tailable){
+          documents.cursorType(CursorType.TailableAwait)
+              .maxAwaitTime(pollInterval, TimeUnit.MILLISECONDS);
+        }
+        try (MongoCursor<Document> cursor = documents.iterator()){
+          while (running){
+            Document document = cursor.tryNext();
+            if (document == null){
+              if (!resumed){
+                // The last document seen is no longer in the collection
+                for (Document skippedDocument: skipped){
+                  deliver(skippedDocument);
+                  lastId = skippedDocument.getObjectId("_id");
+                }
+                skipped.clear();
+                resumed = true;
+              }
+              initialized = true;
+              if (cursor.getServerCursor() == null) break;
+              continue;
+            }
+            ObjectId id = document.getObjectId("_id");
+            if (resumed){
+              if (initialized) deliver(document);
+              lastId = id;
+            } else if (id.equals(lastId)){
+              skipped.clear();
+              resumed = true;
+            } else {
+              skipped.add(document);
+            }
+          }
+        }
+      } catch (MongoException | DataAccessException e){
+        logger.warn(String.format("Unable to read cache invalidations from collection %s: %s", 
+            collectionName, e.getMessage()));
+      }
+      try {
+        Thread.sleep(pollInterval);
+      } catch (InterruptedException e){
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void deliver(Document document){
+    if (!origin.equals(document.getString("origin"))){
+      notifyListeners(document.getString("model"));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void notifyListeners(String modelName){
+    Class<? extends Model<?>> model;
+    try {
+      model = (Class<? extends Model<?>>) Class.forName(modelName);
+    } catch (ClassNotFoundException e){
+      logger.debug(String.format("Ignoring cache invalidation for unknown model %s", modelName));
+      return;
+    }
+    for (Consumer<Class<? extends Model<?>>> listener: listeners){
+      listener.accept(model);
+    }
+  }
+
+  private MongoCollection<Document> getCollection(){
+    if (!collectionCreated){
+      if (!mongoOperations.collectionExists(collectionName)){
+        try {
+          mongoOperations.createCollection(collectionName, 
+              CollectionOptions.empty().capped().size(collectionSize));
+        } catch (DataAccessException e){
+          // Created concurrently by another node
+          logger.debug(String.format("Unable to create collection %s: %s", collectionName, 
+              e.getMessage()));
+        }
+      }
+      collectionCreated = true;
+    }
+    return mongoOperations.getCollection(collectionName);
+  }
+
+  @Override
+  public synchronized void destroy() {
+    running = false;
+    if (thread != null){
+      thread.interrupt();
+      thread = null;
+    }
+  }
+
+  public String getOrigin() {
+    return origin;
+  }
+
+  public long getCollectionSize() {
+    return collectionSize;
+  }
+
+  public void setCollectionSize(long collectionSize) {
+    this.collectionSize = collectionSize;
+  }
+
+  public long getPollInterval() {
+    return pollInterval;
+  }
+
+  public void setPollInterval(long pollInterval) {
+    this.pollInterval = pollInterval;
+  }
+
+  public boolean isTailable() {
+    return tailable;
+  }
+
+  /**
+   * Sets whether the collection is followed with a tailable cursor.  When disabled, for servers
+   *   that do not support tailable cursors, the whole collection is read at every poll interval.
+   *
+   * @param tailable whether to use a tailable cursor
+   */
+  public void setTailable(boolean tailable) {
+    this.tailable = tailable;
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.mongodb;
+
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.metrics.QueryExplainer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * {@link QueryExplainer} that translates {@link QueryCriteria} with a {@link MongoCriteriaTranslator},
+ *   and runs the {@code explain} command on the resulting {@code find} query, using the 
+ *   {@code queryPlanner} verbosity, so that the query is not executed again.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class MongoQueryExplainer implements QueryExplainer {
+
+  private final MongoOperations mongoOperations;
+  private final MongoCriteriaTranslator criteriaTranslator;
+  private final Map<Class<?>, MongoCriteriaTranslator> modelTranslators = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an explainer that translates criteria for each model with its own 
+   *   {@link MongoCriteriaTranslator}, as the model's repository does.
+   */
+  public MongoQueryExplainer(MongoOperations mongoOperations) {
+    this(mongoOperations, null);
+  }
+
+  public MongoQueryExplainer(MongoOperations mongoOperations, 
+      MongoCriteriaTranslator criteriaTranslator) {
+    this.mongoOperations = mongoOperations;
+    this.criteriaTranslator = criteriaTranslator;
+  }
+
+  @Override
+  public String translate(Class<?> model, Iterable<QueryCriteria> criterias) {
+    return getFilter(model, criterias).toJson();
+  }
+
+  @Override
+  public Object explain(Class<?> model, Iterable<QueryCriteria> criterias) {
+    Document find = new Document("find", mongoOperations.getCollectionName(model))
+        .append("filter", getFilter(model, criterias));
+    Document command = new Document("explain", find).append("verbosity", "queryPlanner");
+    return mongoOperations.executeCommand(command);
+  }
+
+  /**
+   * Returns the query filter document for the criteria, with model field names mapped to 
+   *   document field names.
+   */
+  private Document getFilter(Class<?> model, Iterable<QueryCriteria> criterias){
+    Query query = new Query();
+    MongoCriteriaTranslator translator = criteriaTranslator != null 
+        ? criteriaTranslator : modelTranslators.computeIfAbsent(model, MongoCriteriaTranslator::new);
+    Criteria criteria = translator.translate(criterias);
+    if (criteria != null) query.addCriteria(criteria);
+    QueryMapper queryMapper = new QueryMapper(mongoOperations.getConverter());
+    return queryMapper.getMappedObject(query.getQueryObject(), 
+        mongoOperations.getConverter().getMappingContext().getPersistentEntity(model));
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.mongodb;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.TagSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+/**
+ * Routes the read-only queries of {@link MongoModelRepository} instances to replica set members
+ *   other than the primary.  A default {@link ReadPreference} applies to all models, and can be
+ *   overridden per model; routing applies only to the enabled {@link ReadOperation} types.  For
+ *   each distinct read preference, a separate {@link MongoTemplate} sharing the primary template's
+ *   {@link MongoDbFactory} and {@link MongoConverter} is created on first use.  Writes, and the 
+ *   existence checks that precede updates, always use the primary.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class MongoReadRouter implements ApplicationContextAware {
+
+  /**
+   * Types of read-only repository operations that can be routed.
+   */
+  public enum ReadOperation {
+    /** Record queries, including paged, sliced, keyset, and streamed queries. */
+    FIND,
+    /** Record counts, including the counts of paged queries. */
+    COUNT,
+    /** Distinct field values. */
+    DISTINCT,
+    /** Distinct value counts and record groups, computed with aggregation pipelines. */
+    AGGREGATE
+  }
+
+  private final MongoDbFactory mongoDbFactory;
+  private final MongoConverter converter;
+  private final Map<Class<?>, ReadPreference> modelReadPreferences = new ConcurrentHashMap<>();
+  private final Map<ReadPreference, MongoTemplate> templates = new ConcurrentHashMap<>();
+  private volatile ReadPreference defaultReadPreference = ReadPreference.primary();
+  private volatile Set<ReadOperation> operations = Collections.unmodifiableSet(EnumSet.allOf(ReadOperation.class));
+  private ApplicationContext applicationContext;
+
+  public MongoReadRouter(MongoDbFactory mongoDbFactory, MongoConverter converter) {
+    this.mongoDbFactory = mongoDbFactory;
+    this.converter = converter;
+  }
+
+  /**
+   * Returns the read preference for an operation on the requested model, or {@code null} if the
+   *   operation should use the primary template unchanged.
+   *
+   * @param model model type
+   * @param operation read operation type
+   * @return read preference, or null
+   */
+  public ReadPreference getReadPreference(Class<?> model, ReadOperation operation){
+    if (!operations.contains(operation)) return null;
+    ReadPreference readPreference = modelReadPreferences.getOrDefault(model, defaultReadPreference);
+    return ReadPreference.primary().equals(readPreference) ? null : readPreference;
+  }
+
+  /**
+   * Returns the template to use for an operation on the requested model, or {@code null} if the
+   *   operation should use the primary template.
+   *
+   * @param model model type
+   * @param operation read operation type
+   * @return read template, or null
+   */
+  public MongoOperations getOperations(Class<?> model, ReadOperation operation){
+    ReadPreference readPreference = getReadPreference(model, operation);
+    if (readPreference == null) return null;
+    return templates.computeIfAbsent(readPreference, this::createTemplate);
+  }
+
+  /**
+   * Creates a template for the read preference, registered with the application context so that
+   *   mapping events, such as those handled by {@link MongoKeyValuePairListener}, are published.
+   */
+  private MongoTemplate createTemplate(ReadPreference readPreference){
+    MongoTemplate template = new MongoTemplate(mongoDbFactory, converter);
+    template.setReadPreference(readPreference);
+    if (applicationContext != null) template.setApplicationContext(applicationContext);
+    return template;
+  }
+
+  /**
+   * Creates a {@link ReadPreference} from its mode name (eg. {@code secondaryPreferred}) and an
+   *   optional maximum replication lag of the members it may select.
+   *
+   * @param name read preference mode name
+   * @param maxStalenessSeconds maximum staleness in seconds, or null
+   * @return read preference
+   */
+  public static ReadPreference getReadPreference(String name, Long maxStalenessSeconds){
+    if (maxStalenessSeconds == null) return ReadPreference.valueOf(name);
+    return ReadPreference.valueOf(name, Collections.<TagSet>emptyList(), maxStalenessSeconds, 
+        TimeUnit.SECONDS);
+  }
+
+  public ReadPreference getDefaultReadPreference() {
+    return defaultReadPreference;
+  }
+
+  public void setDefaultReadPreference(ReadPreference defaultReadPreference) {
+    this.defaultReadPreference = defaultReadPreference;
+  }
+
+  /**
+   * Overrides the default read preference for a single model.
+   *
+   * @param model model type
+   * @param readPreference read preference for the model's queries
+   */
+  public void setModelReadPreference(Class<?> model, ReadPreference readPreference){
+    modelReadPreferences.put(model, readPreference);
+  }
+
+  public Set<ReadOperation> getOperations() {
+    return operations;
+  }
+
+  /**
+   * Sets the operation types that are routed.  All other operations use the primary.
+   *
+   * @param operations routed operation types
+   */
+  public void setOperations(Collection<ReadOperation> operations) {
+    this.operations = Collections.unmodifiableSet(operations.isEmpty() 
+        ? EnumSet.noneOf(ReadOperation.class) : EnumSet.copyOf(operations));
+  }
+
+  @Override
+  public void setApplicationContext(ApplicationContext applicationContext) {
+    this.applicationContext = applicationContext;
+  }
+
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.mongodb;
+
+import com.blueprint.centromere.core.exceptions.ModelPersistenceException;
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import com.blueprint.centromere.core.repository.ModelGroup;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.ReactiveModelRepository;
+import com.blueprint.centromere.core.repository.ValueCount;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import org.bson.Document;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * MongoDB implementation of {@link ReactiveModelRepository}, using a 
+ *   {@link ReactiveMongoOperations} template and the reactive streams driver.  Query results are
+ *   read from server cursors on demand, so records are only fetched as fast as subscribers 
+ *   request them.  Aggregations use the same pipelines as {@link MongoModelRepository}.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class ReactiveMongoModelRepository<T extends Model<ID>, ID extends Serializable>
+    implements ReactiveModelRepository<T, ID> {
+
+  private final ReactiveMongoOperations mongoOperations;
+  private final Class<T> model;
+  private MongoCriteriaTranslator criteriaTranslator;
+
+  public ReactiveMongoModelRepository(ReactiveMongoOperations mongoOperations, Class<T> model) {
+    this.mongoOperations = mongoOperations;
+    this.model = model;
+    this.criteriaTranslator = new MongoCriteriaTranslator(model);
+  }
+
+  @Override
+  public Flux<T> find(Iterable<QueryCriteria> queryCriterias) {
+    return mongoOperations.find(getQuery(queryCriterias), model);
+  }
+
+  @Override
+  public Flux<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+    return mongoOperations.find(getQuery(queryCriterias).with(sort), model);
+  }
+
+  @Override
+  public Flux<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+    return mongoOperations.find(getQuery(queryCriterias).with(pageable), model);
+  }
+
+  @Override
+  public Flux<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort, Set<String> fields,
+      Set<String> exclude) {
+    Query query = getQuery(queryCriterias);
+    MongoEntityMapping.applyFieldProjection(query, fields, exclude, getPersistentEntity());
+    return mongoOperations.find(query.with(sort), model);
+  }
+
+  @Override
+  public Flux<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable, Set<String> fields,
+      Set<String> exclude) {
+    Query query = getQuery(queryCriterias);
+    MongoEntityMapping.applyFieldProjection(query, fields, exclude, getPersistentEntity());
+    return mongoOperations.find(query.with(pageable), model);
+  }
+
+  @Override
+  public Flux<T> findAll() {
+    return mongoOperations.findAll(model);
+  }
+
+  @Override
+  public Flux<T> findAll(Sort sort) {
+    return mongoOperations.find(new Query().with(sort), model);
+  }
+
+  @Override
+  public Mono<T> findById(ID id) {
+    return mongoOperations.findById(id, model);
+  }
+
+  @Override
+  public Mono<Boolean> existsById(ID id) {
+    return mongoOperations.exists(getIdQuery(id), model);
+  }
+
+  @Override
+  public Flux<T> findAllById(Iterable<ID> ids) {
+    List<ID> idList = new ArrayList<>();
+    ids.forEach(idList::add);
+    return mongoOperations.find(new Query(Criteria.where(getIdPropertyName()).in(idList)), model);
+  }
+
+  @Override
+  public Mono<Long> count() {
+    return mongoOperations.count(new Query(), model);
+  }
+
+  @Override
+  public Mono<Long> count(Iterable<QueryCriteria> criterias) {
+    return mongoOperations.count(getQuery(criterias), model);
+  }
+
+  @Override
+  public Flux<Object> distinct(String field, Iterable<QueryCriteria> criterias) {
+    return distinctCounts(field, criterias, Pageable.unpaged()).map(ValueCount::getValue);
+  }
+
+  /**
+   * Returns distinct values of the requested field and the number of matching records containing
+   *   each value, computed with a {@code $group} aggregation, so that sorting and paging of the
+   *   distinct set happen on the server.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the field values by.
+   * @param pageable {@link Pageable} sort and page of distinct values to return.
+   * @return distinct values of {@code field} and their counts.
+   */
+  @Override
+  public Flux<ValueCount> distinctCounts(String field, Iterable<QueryCriteria> criterias,
+      Pageable pageable) {
+    MongoPersistentEntity<?> entity = getPersistentEntity();
+    String fieldName = MongoEntityMapping.getMappedFieldName(mongoOperations.getConverter(), 
+        field, entity);
+
+    Document sort = new Document();
+    for (Sort.Order order: pageable.getSort()){
+      sort.append(ValueCount.COUNT_PROPERTY.equals(order.getProperty()) ? "count" : "_id",
+          order.isAscending() ? 1 : -1);
+    }
+    if (!sort.containsKey("_id")) sort.append("_id", 1);
+
+    List<Document> pipeline = new ArrayList<>();
+    pipeline.add(new Document("$match", getMappedQuery(criterias, entity)));
+    String pairValueName = MongoEntityMapping.unwindKeyValuePairs(model, field, pipeline);
+    if (pairValueName != null){
+      fieldName = pairValueName;
+    } else {
+      pipeline.add(new Document("$unwind", new Document("path", "$" + fieldName)
+          .append("preserveNullAndEmptyArrays", true)));
+    }
+    pipeline.add(new Document("$group", new Document("_id", "$" + fieldName)
+        .append("count", new Document("$sum", 1))));
+    pipeline.add(new Document("$sort", sort));
+    if (pageable.isPaged()){
+      pipeline.add(new Document("$skip", pageable.getOffset()));
+      pipeline.add(new Document("$limit", pageable.getPageSize()));
+    }
+
+    return Flux.from(mongoOperations.getCollection(getPersistentEntity().getCollection())
+        .aggregate(pipeline).allowDiskUse(true))
+        .map(document -> new ValueCount(
+            MongoEntityMapping.convertFieldValue(mongoOperations.getConverter(), 
+                document.get("_id"), field, entity),
+            ((Number) document.get("count")).longValue()));
+  }
+
+  /**
+   * Groups the records that satisfy the requested criteria by the value of a field, using a
+   *   {@code $group} aggregation to compute the group keys and counts on the server.  If the
+   *   {@link GroupAccumulator} requests a sample of records, each group's sample is collected by
+   *   the same aggregation, and groups are emitted in key order.
+   *
+   * @param field Model field name.
+   * @param criterias Query criteria to filter the records by.
+   * @param accumulator {@link GroupAccumulator} describing what each group should contain.
+   * @return record groups.
+   */
+  @Override
+  public Flux<ModelGroup<T>> groupBy(String field, Iterable<QueryCriteria> criterias,
+      GroupAccumulator accumulator) {
+    MongoPersistentEntity<?> entity = getPersistentEntity();
+    String fieldName = MongoEntityMapping.getMappedFieldName(mongoOperations.getConverter(), 
+        field, entity);
+
+    List<Document> pipeline = new ArrayList<>();
+    pipeline.add(new Document("$match", getMappedQuery(criterias, entity)));
+    MongoEntityMapping.appendGroupStages(model, field, fieldName, accumulator, pipeline);
+
+    return Flux.from(mongoOperations.getCollection(getPersistentEntity().getCollection())
+        .aggregate(pipeline).allowDiskUse(true))
+        .map(document -> new ModelGroup<>(
+            MongoEntityMapping.convertFieldValue(mongoOperations.getConverter(), 
+                document.get("_id"), field, entity),
+            ((Number) document.get("count")).longValue(),
+            MongoEntityMapping.readGroupRecords(mongoOperations.getConverter(), model, document)));
+  }
+
+  @Override
+  public <S extends T> Mono<S> insert(S entity) {
+    return mongoOperations.insert(entity);
+  }
+
+  @Override
+  public <S extends T> Flux<S> insert(Iterable<S> entities) {
+    Collection<S> collection = new ArrayList<>();
+    entities.forEach(collection::add);
+    return mongoOperations.insertAll(collection);
+  }
+
+  /**
+   * Updates an existing record in the repository and returns its instance.  Signals a 
+   *   {@link ModelPersistenceException} if the record does not exist.
+   *
+   * @param entity updated record to be persisted in the repository.
+   * @return the updated entity object.
+   */
+  @Override
+  public <S extends T> Mono<S> update(S entity) {
+    if (entity.getId() == null){
+      return Mono.error(new ModelPersistenceException(String.format("Model record does not exist "
+          + "in the database, and cannot be updated: %s", entity.toString())));
+    }
+    return existsById(entity.getId())
+        .flatMap(exists -> exists 
+            ? mongoOperations.save(entity) 
+            : Mono.error(new ModelPersistenceException(String.format("Model record does not "
+                + "exist in the database, and cannot be updated: %s", entity.toString()))));
+  }
+
+  @Override
+  public Mono<Void> deleteById(ID id) {
+    return mongoOperations.remove(getIdQuery(id), model).then();
+  }
+
+  @Override
+  public Mono<Void> delete(T entity) {
+    return mongoOperations.remove(entity).then();
+  }
+
+  @Override
+  public Mono<Void> deleteAll() {
+    return mongoOperations.remove(new Query(), model).then();
+  }
+
+  @Override
+  public Class<T> getModel() {
+    return model;
+  }
+
+  private MongoPersistentEntity<?> getPersistentEntity(){
+    return mongoOperations.getConverter().getMappingContext().getRequiredPersistentEntity(model);
+  }
+
+  private String getIdPropertyName(){
+    return getPersistentEntity().getRequiredIdProperty().getName();
+  }
+
+  private Query getIdQuery(ID id){
+    return new Query(Criteria.where(getIdPropertyName()).is(id));
+  }
+
+  private Query getQuery(Iterable<QueryCriteria> queryCriterias){
+    Criteria criteria = criteriaTranslator.translate(queryCriterias);
+    Query query = new Query();
+    if (criteria != null){
+      query.addCriteria(criteria);
+    }
+    return query;
+  }
+
+  private Document getMappedQuery(Iterable<QueryCriteria> criterias, 
+      MongoPersistentEntity<?> entity){
+    return new QueryMapper(mongoOperations.getConverter())
+        .getMappedObject(getQuery(criterias).getQueryObject(), entity);
+  }
+
+  public MongoCriteriaTranslator getCriteriaTranslator() {
+    return criteriaTranslator;
+  }
+
+  public void setCriteriaTranslator(MongoCriteriaTranslator criteriaTranslator) {
+    this.criteriaTranslator = criteriaTranslator;
+  }
+
+}
@@ -17,7 +17,11 @@
 package com.blueprint.centromere.tests.core.models;
 
 import com.blueprint.centromere.core.model.Ignored;
+import com.blueprint.centromere.core.model.Indexed;
+import com.blueprint.centromere.core.model.KeyValuePairs;
+import com.blueprint.centromere.core.model.Keyword;
 import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.Normalized;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -28,15 +32,15 @@ import lombok.Data;
 @Data
 public abstract class Gene<ID extends Serializable> implements Attributes, Model<ID> {
   
-  private String symbol;
-	private Integer entrezGeneId;
+  @Indexed @Keyword private String symbol;
+	@Indexed private Integer entrezGeneId;
 	private Integer taxId;
 	private String chromosome;
 	@Ignored private String chromosomeLocation;
-	private String geneType;
+	@Normalized private String geneType;
 	@Ignored private String description;
-	private List<String> aliases = new ArrayList<>();
-	private Map<String, String> attributes = new HashMap<>();
+	@Indexed @Keyword private List<String> aliases = new ArrayList<>();
+	@KeyValuePairs private Map<String, String> attributes = new HashMap<>();
 	private Map<String, String> externalReferences = new HashMap<>();
 	
   public void addExternalReference(String name, String value){
@@ -16,6 +16,7 @@
 
 package com.blueprint.centromere.tests.core.models;
 
+import com.blueprint.centromere.core.model.CompoundIndex;
 import com.blueprint.centromere.core.model.Linked;
 import com.blueprint.centromere.core.model.Model;
 import java.io.Serializable;
@@ -25,6 +26,7 @@ import lombok.Data;
  * @author woemler
  */
 @Data
+@CompoundIndex(fields = { "geneId", "sampleId" })
 public abstract class GeneExpression<ID extends Serializable> implements Model<ID> {
   
   @Linked(model = DataFile.class, rel = "dataFile", field = "id")
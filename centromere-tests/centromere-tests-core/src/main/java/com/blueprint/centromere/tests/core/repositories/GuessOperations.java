@@ -17,15 +17,11 @@
 package com.blueprint.centromere.tests.core.repositories;
 
 import com.blueprint.centromere.core.model.Model;
-import java.util.List;
-import java.util.Optional;
 
 /**
  * @author woemler
  */
-public interface GuessOperations<T extends Model<?>> {
-
-  Optional<T> bestGuess(String keyword);
-  List<T> guess(String keyword);
+public interface GuessOperations<T extends Model<?>> 
+    extends com.blueprint.centromere.core.repository.impl.GuessOperations<T> {
   
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.tests.core.model;
+
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.repository.QueryParameterUtil;
+import com.blueprint.centromere.tests.core.TestGene;
+import com.blueprint.centromere.tests.core.repository.ColumnarModelRepositoryTests.TestGeneExpression;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import org.junit.Test;
+import org.springframework.beans.NotReadablePropertyException;
+import org.springframework.beans.NotWritablePropertyException;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+public class ModelMetadataTests {
+
+  @Test
+  public void fieldsTest(){
+    ModelMetadata<TestGene> metadata = ModelMetadataRegistry.getMetadata(TestGene.class);
+    Assert.isTrue(metadata == ModelMetadataRegistry.getMetadata(TestGene.class));
+    Assert.isTrue("id".equals(metadata.getFieldNames().get(0)),
+        "Expected subclass fields first: " + metadata.getFieldNames());
+    Assert.isTrue(metadata.getFieldNames().containsAll(Arrays.asList("symbol", "aliases", "attributes")));
+    Assert.isTrue(metadata.getFields().size() == metadata.getFieldNames().size());
+    Assert.isTrue(metadata.getQueryParameters() == QueryParameterUtil.getAvailableQueryParameters(TestGene.class));
+    Assert.isTrue(metadata.getQueryParameters().containsKey("attributes.\\w+"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void unmodifiableQueryParametersTest(){
+    QueryParameterUtil.getAvailableQueryParameters(TestGene.class).clear();
+  }
+
+  @Test
+  public void linkedFieldsTest(){
+    ModelMetadata<TestGeneExpression> metadata = ModelMetadataRegistry.getMetadata(TestGeneExpression.class);
+    Assert.isTrue(metadata.getLinkedFields().size() == 4);
+    Assert.isTrue(metadata.getLinkedFields("GENE").size() == 1);
+    Assert.isTrue("geneId".equals(metadata.getLinkedFields("gene").get(0).getName()));
+    Assert.isTrue(metadata.getLinkedFields("foo").isEmpty());
+    Assert.isTrue(ModelMetadataRegistry.getMetadata(TestGene.class).getLinkedFields().isEmpty());
+  }
+
+  @Test
+  public void propertyAccessTest(){
+    ModelMetadata<TestGene> metadata = ModelMetadataRegistry.getMetadata(TestGene.class);
+    TestGene gene = new TestGene();
+    metadata.setPropertyValue(gene, "symbol", "AKT1");
+    metadata.setPropertyValue(gene, "entrezGeneId", 207);
+    gene.addAttribute("isKinase", "Y");
+    Assert.isTrue("AKT1".equals(gene.getSymbol()));
+    Assert.isTrue("AKT1".equals(metadata.getPropertyValue(gene, "symbol")));
+    Assert.isTrue(Integer.valueOf(207).equals(metadata.getPropertyValue(gene, "entrezGeneId")));
+    Assert.isTrue("Y".equals(metadata.getPropertyValue(gene, "attributes.isKinase")));
+    Assert.isNull(metadata.getPropertyValue(gene, "attributes.foo"));
+    Assert.isNull(metadata.getPropertyValue(gene, "id"));
+    Field field = metadata.getField("symbol");
+    Assert.notNull(field);
+    Assert.isTrue("AKT1".equals(metadata.getFieldValue(gene, field)));
+    Assert.isTrue(metadata.isReadableProperty("symbol"));
+    Assert.isTrue(metadata.isReadableProperty("attributes.isKinase"));
+    Assert.isTrue(!metadata.isReadableProperty("symbol.length"));
+    Assert.isTrue(!metadata.isReadableProperty("foo"));
+  }
+
+  @Test(expected = NotReadablePropertyException.class)
+  public void invalidPropertyReadTest(){
+    ModelMetadataRegistry.getPropertyValue(new TestGene(), "foo");
+  }
+
+  @Test(expected = NotWritablePropertyException.class)
+  public void invalidPropertyWriteTest(){
+    ModelMetadataRegistry.getMetadata(TestGene.class).setPropertyValue(new TestGene(), "foo", "bar");
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.tests.core.repository;
+
+import com.blueprint.centromere.core.exceptions.ConfigurationException;
+import com.blueprint.centromere.core.exceptions.ModelPersistenceException;
+import com.blueprint.centromere.core.exceptions.QueryParameterException;
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.memory.ColumnarModelRepository;
+import com.blueprint.centromere.tests.core.models.GeneExpression;
+import com.blueprint.centromere.tests.core.repository.InMemoryModelRepositoryTests.TestGene;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+public class ColumnarModelRepositoryTests {
+
+  private ColumnarModelRepository<TestGeneExpression, String> repository;
+
+  @Before
+  public void setup() throws Exception {
+    repository = new ColumnarModelRepository<>(TestGeneExpression.class, "dataSetId");
+    List<TestGeneExpression> data = new ArrayList<>();
+    for (String dataSet: Arrays.asList("dataSetA", "dataSetB")){
+      for (int s = 0; s < 3; s++){
+        for (int g = 0; g < 4; g++){
+          data.add(createExpression(dataSet, "sample" + s, "gene" + g, s * 4.0 + g));
+        }
+      }
+    }
+    data.add(createExpression("dataSetB", "sample0", "gene4", null));
+    repository.insert(data);
+  }
+
+  private static TestGeneExpression createExpression(String dataSetId, String sampleId, 
+      String geneId, Double value){
+    TestGeneExpression expression = new TestGeneExpression();
+    expression.setDataSetId(dataSetId);
+    expression.setDataFileId(dataSetId + "-file");
+    expression.setSampleId(sampleId);
+    expression.setGeneId(geneId);
+    expression.setValue(value);
+    return expression;
+  }
+
+  private List<TestGeneExpression> find(QueryCriteria... criterias){
+    return repository.find(Arrays.asList(criterias));
+  }
+
+  @Test(expected = ConfigurationException.class)
+  public void invalidModelTest() throws Exception {
+    new ColumnarModelRepository<>(TestGene.class, "symbol");
+  }
+
+  @Test
+  public void findTest(){
+    Assert.isTrue(repository.count() == 25L);
+    Assert.isTrue(repository.getPartitionCount() == 2);
+    List<TestGeneExpression> data = find(new QueryCriteria("dataSetId", "dataSetA"),
+        new QueryCriteria("geneId", "gene1"));
+    Assert.isTrue(data.size() == 3);
+    TestGeneExpression expression = data.get(0);
+    Assert.isTrue("dataSetA".equals(expression.getDataSetId()));
+    Assert.isTrue("dataSetA-file".equals(expression.getDataFileId()));
+    Assert.isTrue("sample0".equals(expression.getSampleId()));
+    Assert.isTrue("gene1".equals(expression.getGeneId()));
+    Assert.isTrue(expression.getValue() == 1.0);
+
+    Assert.isTrue(find(new QueryCriteria("sampleId", Arrays.asList("sample0", "sample2"), 
+        Evaluation.IN)).size() == 17);
+    Assert.isTrue(find(new QueryCriteria("sampleId", Arrays.asList("sample0", "sample2"),
+        Evaluation.NOT_IN)).size() == 8);
+    Assert.isTrue(find(new QueryCriteria("geneId", "gene9")).isEmpty());
+    Assert.isTrue(find(new QueryCriteria("geneId", "gene9", Evaluation.NOT_EQUALS)).size() == 25);
+    Assert.isTrue(find(new QueryCriteria("dataSetId", "dataSetC")).isEmpty());
+    Assert.isTrue(find(new QueryCriteria("dataSetId", Arrays.asList("dataSetA", "dataSetC"), 
+        Evaluation.IN)).size() == 12);
+  }
+
+  @Test
+  public void findByValueTest(){
+    Assert.isTrue(find(new QueryCriteria("value", 5)).size() == 2);
+    Assert.isTrue(find(new QueryCriteria("value", 5.0, Evaluation.GREATER_THAN)).size() == 12);
+    Assert.isTrue(find(new QueryCriteria("value", 5.0, Evaluation.LESS_THAN_EQUALS)).size() == 12);
+    Assert.isTrue(find(new QueryCriteria("value", Arrays.asList(2, 4), Evaluation.BETWEEN)).size() == 2);
+    Assert.isTrue(find(new QueryCriteria("value", Arrays.asList(2, 4), 
+        Evaluation.BETWEEN_INCLUSIVE)).size() == 6);
+    Assert.isTrue(find(new QueryCriteria("value", Arrays.asList(1, 10), 
+        Evaluation.OUTSIDE)).size() == 4);
+    Assert.isTrue(find(new QueryCriteria("value", true, Evaluation.IS_NULL)).size() == 1);
+    Assert.isTrue(find(new QueryCriteria("value", true, Evaluation.IS_NULL)).get(0).getValue() == null);
+    Assert.isTrue(find(new QueryCriteria("value", 0.0, Evaluation.NOT_EQUALS)).size() == 23);
+    Assert.isTrue(find(new QueryCriteria("dataSetId", "dataSetB"),
+        new QueryCriteria("value", 10.0, Evaluation.GREATER_THAN_EQUALS)).size() == 2);
+  }
+
+  @Test
+  public void findByCriteriaGroupTest(){
+    Assert.isTrue(find(QueryCriteria.or(
+        QueryCriteria.and(
+            new QueryCriteria("dataSetId", "dataSetA"),
+            new QueryCriteria("geneId", "gene1")),
+        new QueryCriteria("value", 10.0, Evaluation.GREATER_THAN))).size() == 5);
+    Assert.isTrue(find(new QueryCriteria("dataSetId", "dataSetB"), QueryCriteria.or(
+        new QueryCriteria("geneId", "gene4"),
+        new QueryCriteria("sampleId", "sample2"))).size() == 5);
+  }
+
+  @Test(expected = QueryParameterException.class)
+  public void unsupportedEvaluationTest(){
+    find(new QueryCriteria("geneId", "gene", Evaluation.LIKE));
+  }
+
+  @Test
+  public void sortAndPageTest(){
+    List<TestGeneExpression> data = repository.find(
+        Collections.singletonList(new QueryCriteria("dataSetId", "dataSetA")), 
+        Sort.by(Sort.Direction.DESC, "value"));
+    Assert.isTrue(data.size() == 12);
+    Assert.isTrue(data.get(0).getValue() == 11.0);
+    Page<TestGeneExpression> page = repository.find(Collections.emptyList(), PageRequest.of(2, 10));
+    Assert.isTrue(page.getTotalElements() == 25L);
+    Assert.isTrue(page.getContent().size() == 5);
+    Assert.isTrue("dataSetB".equals(page.getContent().get(0).getDataSetId()));
+  }
+
+  @Test
+  public void writeTest(){
+    TestGeneExpression expression = find(new QueryCriteria("dataSetId", "dataSetA"),
+        new QueryCriteria("sampleId", "sample1"), new QueryCriteria("geneId", "gene2")).get(0);
+    Assert.notNull(expression.getId());
+    Optional<TestGeneExpression> optional = repository.findById(expression.getId());
+    Assert.isTrue(optional.isPresent());
+    Assert.isTrue(optional.get().getValue() == 6.0);
+    Assert.isTrue(find(new QueryCriteria("id", expression.getId())).size() == 1);
+
+    expression.setValue(100.0);
+    expression.setGeneId("gene9");
+    repository.update(expression);
+    optional = repository.findById(expression.getId());
+    Assert.isTrue(optional.isPresent());
+    Assert.isTrue(optional.get().getValue() == 100.0);
+    Assert.isTrue(find(new QueryCriteria("geneId", "gene9")).size() == 1);
+
+    expression.setDataSetId("dataSetB");
+    Exception exception = null;
+    try {
+      repository.update(expression);
+    } catch (ModelPersistenceException e){
+      exception = e;
+    }
+    Assert.notNull(exception);
+
+    repository.delete(expression);
+    Assert.isTrue(!repository.existsById(expression.getId()));
+    Assert.isTrue(repository.count() == 24L);
+    Assert.isTrue(repository.count(Collections.singletonList(
+        new QueryCriteria("dataSetId", "dataSetA"))) == 11L);
+
+    TestGeneExpression created = createExpression("dataSetC", "sample0", "gene0", 1.5);
+    repository.save(created);
+    Assert.notNull(created.getId());
+    Assert.isTrue(repository.getPartitionCount() == 3);
+    Assert.isTrue(repository.findById(created.getId()).isPresent());
+    Assert.isTrue(!repository.findById("invalid").isPresent());
+    Assert.isTrue(!repository.findById(Long.toString(0xFFFFFFFFL)).isPresent(), 
+        "IDs encoding a negative row must not be found");
+    Assert.isTrue(!repository.existsById(Long.toString(0xFFFFFFFFL)));
+
+    repository.deleteAll();
+    Assert.isTrue(repository.count() == 0L);
+    Assert.isTrue(repository.findAll().isEmpty());
+  }
+
+  public static class TestGeneExpression extends GeneExpression<String> {
+
+    private String id;
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public void setId(String id) {
+      this.id = id;
+    }
+
+  }
+
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.tests.core.repository;
+
+import com.blueprint.centromere.core.exceptions.ModelPersistenceException;
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.FieldStatistics;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.memory.InMemoryModelRepository;
+import com.blueprint.centromere.tests.core.models.Gene;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+public class InMemoryModelRepositoryTests {
+
+  private InMemoryModelRepository<TestGene, String> repository;
+
+  @Before
+  public void setup(){
+    repository = new InMemoryModelRepository<>(TestGene.class);
+    List<TestGene> genes = new ArrayList<>();
+    genes.add(createGene(1, "GeneA", "1", "protein-coding", "Y", "ABC"));
+    genes.add(createGene(2, "GeneB", "5", "protein-coding", "N", "DEF"));
+    genes.add(createGene(3, "GeneC", "9", "pseudo", "N", "GHI"));
+    genes.add(createGene(4, "GeneD", "X", "protein-coding", "Y", "JKL"));
+    genes.add(createGene(5, "GeneE", "13", "pseudo", "N", "MNO"));
+    repository.insert(genes);
+  }
+
+  private static TestGene createGene(Integer entrezGeneId, String symbol, String chromosome,
+      String geneType, String isKinase, String alias){
+    TestGene gene = new TestGene();
+    gene.setEntrezGeneId(entrezGeneId);
+    gene.setSymbol(symbol);
+    gene.setTaxId(9606);
+    gene.setChromosome(chromosome);
+    gene.setGeneType(geneType);
+    gene.addAttribute("isKinase", isKinase);
+    gene.addAlias(alias);
+    return gene;
+  }
+
+  private List<TestGene> find(QueryCriteria... criterias){
+    return (List<TestGene>) repository.find(Arrays.asList(criterias));
+  }
+
+  @Test
+  public void indexSelectionTest(){
+    Assert.isTrue(repository.getHashIndexedFields().contains("symbol"));
+    Assert.isTrue(repository.getHashIndexedFields().contains("aliases"));
+    Assert.isTrue(!repository.getHashIndexedFields().contains("attributes"));
+    Assert.isTrue(!repository.getHashIndexedFields().contains("description"));
+    Assert.isTrue(repository.getSortedIndexedFields().contains("entrezGeneId"));
+    Assert.isTrue(repository.getSortedIndexedFields().contains("symbol"));
+    Assert.isTrue(!repository.getSortedIndexedFields().contains("aliases"));
+  }
+
+  @Test
+  public void findByEqualityTest(){
+    Assert.isTrue(repository.count() == 5L);
+    List<TestGene> genes = find(new QueryCriteria("symbol", "GeneB"));
+    Assert.isTrue(genes.size() == 1);
+    Assert.isTrue(genes.get(0).getEntrezGeneId().equals(2));
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 2L)).size() == 1);
+    Assert.isTrue(find(new QueryCriteria("aliases", "DEF")).size() == 1);
+    Assert.isTrue(find(new QueryCriteria("attributes.isKinase", "Y")).size() == 2);
+    genes = find(new QueryCriteria("symbol", Arrays.asList("GeneE", "GeneA", "GeneZ"), Evaluation.IN));
+    Assert.isTrue(genes.size() == 2);
+    Assert.isTrue("GeneA".equals(genes.get(0).getSymbol()));
+    Assert.isTrue(find(new QueryCriteria("geneType", "protein-coding"),
+        new QueryCriteria("chromosome", "5")).size() == 1);
+    Assert.isTrue(find(new QueryCriteria("symbol", "GeneB", Evaluation.NOT_EQUALS)).size() == 4);
+    Assert.isTrue(find(new QueryCriteria("symbol", Arrays.asList("GeneA", "GeneB"), 
+        Evaluation.NOT_IN)).size() == 3);
+    Assert.isTrue(find(new QueryCriteria("chromosomeLocation", true, Evaluation.IS_NULL)).size() == 5);
+    Assert.isTrue(find(new QueryCriteria("symbol", true, Evaluation.NOT_NULL)).size() == 5);
+    Assert.isTrue(find(new QueryCriteria("symbol", "GeneZ")).isEmpty());
+  }
+
+  @Test
+  public void findByRangeTest(){
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 2, Evaluation.GREATER_THAN)).size() == 3);
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 2, Evaluation.GREATER_THAN_EQUALS)).size() == 4);
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 2.5, Evaluation.LESS_THAN)).size() == 2);
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 2, Evaluation.LESS_THAN_EQUALS)).size() == 2);
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", Arrays.asList(1, 4), Evaluation.BETWEEN)).size() == 2);
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", Arrays.asList(1, 4), 
+        Evaluation.BETWEEN_INCLUSIVE)).size() == 4);
+    List<TestGene> genes = find(new QueryCriteria("entrezGeneId", Arrays.asList(2, 4), Evaluation.OUTSIDE));
+    Assert.isTrue(genes.size() == 2);
+    Assert.isTrue(genes.get(0).getEntrezGeneId().equals(1));
+    Assert.isTrue(genes.get(1).getEntrezGeneId().equals(5));
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", Arrays.asList(2, 4), 
+        Evaluation.OUTSIDE_INCLUSIVE)).size() == 4);
+    Assert.isTrue(find(new QueryCriteria("symbol", "GeneC", Evaluation.GREATER_THAN)).size() == 2);
+    Assert.isTrue(find(new QueryCriteria("symbol", 3, Evaluation.GREATER_THAN)).isEmpty());
+  }
+
+  @Test
+  public void statisticsTest(){
+    List<FieldStatistics> statistics = repository.statistics("entrezGeneId", null, 
+        Collections.emptyList(), Arrays.asList(0.0, 50.0, 90.0));
+    Assert.isTrue(statistics.size() == 1);
+    FieldStatistics all = statistics.get(0);
+    Assert.isNull(all.getKey());
+    Assert.isTrue(all.getCount() == 5L);
+    Assert.isTrue(all.getMin() == 1.0);
+    Assert.isTrue(all.getMax() == 5.0);
+    Assert.isTrue(all.getMean() == 3.0);
+    Assert.isTrue(Math.abs(all.getStandardDeviation() - Math.sqrt(2.5)) < 0.0001);
+    Assert.isTrue(all.getPercentile(0) == 1.0);
+    Assert.isTrue(all.getPercentile(50) == 3.0);
+    Assert.isTrue(all.getPercentile(90) == 5.0);
+    Assert.isTrue(all.getPercentiles().keySet().equals(
+        new LinkedHashSet<>(Arrays.asList("0", "50", "90"))));
+    
+    // Large values with a small spread must not lose precision
+    FieldStatistics offset = FieldStatistics.of(null, 
+        Arrays.asList(1e9 + 4, 1e9 + 7, 1e9 + 13, 1e9 + 16), Collections.emptyList());
+    Assert.isTrue(Math.abs(offset.getStandardDeviation() - Math.sqrt(30.0)) < 1e-6, 
+        offset.toString());
+    
+    statistics = repository.statistics("entrezGeneId", "geneType", 
+        Collections.emptyList(), FieldStatistics.DEFAULT_PERCENTILES);
+    Assert.isTrue(statistics.size() == 2);
+    Assert.isTrue("protein-coding".equals(statistics.get(0).getKey()));
+    Assert.isTrue(statistics.get(0).getCount() == 3L);
+    Assert.isTrue(statistics.get(0).getPercentile(50) == 2.0);
+    Assert.isTrue("pseudo".equals(statistics.get(1).getKey()));
+    Assert.isTrue(statistics.get(1).getMean() == 4.0);
+    
+    statistics = repository.statistics("entrezGeneId", null, 
+        Collections.singletonList(new QueryCriteria("symbol", "GeneZ")), 
+        FieldStatistics.DEFAULT_PERCENTILES);
+    Assert.isTrue(statistics.size() == 1);
+    Assert.isTrue(statistics.get(0).getCount() == 0L);
+    Assert.isNull(statistics.get(0).getMean());
+  }
+
+  @Test
+  public void findByPatternTest(){
+    Assert.isTrue(find(new QueryCriteria("symbol", "gene", Evaluation.LIKE)).size() == 5);
+    Assert.isTrue(find(new QueryCriteria("geneType", "protein", Evaluation.NOT_LIKE)).size() == 2);
+    Assert.isTrue(find(new QueryCriteria("symbol", "GeneA", Evaluation.STARTS_WITH)).size() == 1);
+    Assert.isTrue(find(new QueryCriteria("symbol", "gene", Evaluation.STARTS_WITH)).isEmpty());
+    Assert.isTrue(find(new QueryCriteria("geneType", "coding", Evaluation.ENDS_WITH)).size() == 3);
+  }
+
+  @Test
+  public void findByNormalizedPatternTest(){
+    Assert.isTrue(find(new QueryCriteria("geneType", "PROTEIN", Evaluation.STARTS_WITH)).size() == 3);
+    Assert.isTrue(find(new QueryCriteria("geneType", "-Coding", Evaluation.ENDS_WITH)).size() == 3);
+    Assert.isTrue(find(new QueryCriteria("geneType", "p.*", Evaluation.STARTS_WITH)).isEmpty());
+    Assert.isTrue(find(new QueryCriteria("symbol", "Gene.", Evaluation.STARTS_WITH)).isEmpty());
+    Assert.isTrue(find(new QueryCriteria("symbol", "ne[A", Evaluation.ENDS_WITH)).isEmpty());
+  }
+
+  @Test
+  public void findByCriteriaGroupTest(){
+    List<TestGene> genes = find(QueryCriteria.or(
+        new QueryCriteria("symbol", "GeneA"),
+        new QueryCriteria("aliases", "GHI")));
+    Assert.isTrue(genes.size() == 2);
+    Assert.isTrue("GeneA".equals(genes.get(0).getSymbol()));
+    Assert.isTrue("GeneC".equals(genes.get(1).getSymbol()));
+    genes = find(new QueryCriteria("geneType", "protein-coding"), QueryCriteria.or(
+        new QueryCriteria("chromosome", "X"),
+        QueryCriteria.and(
+            new QueryCriteria("entrezGeneId", 3, Evaluation.LESS_THAN),
+            new QueryCriteria("attributes.isKinase", "N"))));
+    Assert.isTrue(genes.size() == 2);
+    Assert.isTrue("GeneB".equals(genes.get(0).getSymbol()));
+    Assert.isTrue("GeneD".equals(genes.get(1).getSymbol()));
+    Assert.isTrue(find(QueryCriteria.or(new QueryCriteria("symbol", "GeneZ"), 
+        new QueryCriteria("geneType", "none"))).isEmpty());
+  }
+
+  @Test
+  public void findSortedAndPagedTest(){
+    List<TestGene> genes = (List<TestGene>) repository.find(
+        Collections.singletonList(new QueryCriteria("geneType", "protein-coding")),
+        Sort.by(Sort.Direction.DESC, "entrezGeneId"));
+    Assert.isTrue(genes.size() == 3);
+    Assert.isTrue(genes.get(0).getEntrezGeneId().equals(4));
+    Page<TestGene> page = repository.find(Collections.emptyList(),
+        PageRequest.of(1, 2, Sort.by("geneType").and(Sort.by(Sort.Direction.DESC, "symbol"))));
+    Assert.isTrue(page.getTotalElements() == 5L);
+    Assert.isTrue(page.getContent().size() == 2);
+    Assert.isTrue("GeneA".equals(page.getContent().get(0).getSymbol()));
+    Assert.isTrue("GeneE".equals(page.getContent().get(1).getSymbol()));
+    Assert.isTrue(repository.distinct("geneType").size() == 2);
+  }
+
+  @Test
+  public void writeTest(){
+    TestGene gene = createGene(100, "TEST", "1", "protein-coding", "N", "TST");
+    repository.insert(gene);
+    Assert.notNull(gene.getId());
+    Assert.isTrue(repository.existsById(gene.getId()));
+    Assert.isTrue(find(new QueryCriteria("geneType", "protein-coding")).size() == 4);
+
+    gene.setGeneType("pseudo");
+    repository.update(gene);
+    Assert.isTrue(find(new QueryCriteria("geneType", "protein-coding")).size() == 3);
+    Assert.isTrue(find(new QueryCriteria("geneType", "pseudo")).size() == 3);
+
+    repository.delete(gene);
+    Assert.isTrue(!repository.findById(gene.getId()).isPresent());
+    Assert.isTrue(repository.count() == 5L);
+
+    Exception exception = null;
+    try {
+      repository.update(gene);
+    } catch (ModelPersistenceException e){
+      exception = e;
+    }
+    Assert.notNull(exception);
+    
+    TestGene existing = find(new QueryCriteria("symbol", "GeneA")).get(0);
+    exception = null;
+    try {
+      repository.insert(Arrays.asList(createGene(101, "TEST2", "1", "pseudo", "N", "TST"), existing));
+    } catch (ModelPersistenceException e){
+      exception = e;
+    }
+    Assert.notNull(exception);
+    Assert.isTrue(repository.count() == 5L, "Failed batch insert must not be partially applied");
+
+    existing.setSymbol("GeneA2");
+    repository.upsert(Arrays.asList(existing, createGene(102, "TEST3", "1", "pseudo", "N", "TST")));
+    Assert.isTrue(repository.count() == 6L);
+    Optional<TestGene> optional = repository.findById(existing.getId());
+    Assert.isTrue(optional.isPresent());
+    Assert.isTrue(find(new QueryCriteria("symbol", "GeneA2")).size() == 1);
+    Assert.isTrue(find(new QueryCriteria("symbol", "GeneA")).isEmpty());
+
+    repository.deleteAll();
+    Assert.isTrue(repository.count() == 0L);
+  }
+
+  @Test
+  public void incrementalIndexTest(){
+    for (int i = 6; i <= 10; i++){
+      repository.insert(createGene(i, "Gene" + i, "1", "protein-coding", "N", "ALS" + i));
+    }
+    Assert.isTrue(repository.count() == 10L);
+    Assert.isTrue(find(new QueryCriteria("geneType", "protein-coding")).size() == 8);
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 5, Evaluation.GREATER_THAN)).size() == 5);
+    List<TestGene> genes = find(new QueryCriteria("chromosome", "1"));
+    Assert.isTrue(genes.size() == 6);
+    for (int i = 0; i < genes.size(); i++){
+      Assert.isTrue(genes.get(i).getEntrezGeneId().equals(i == 0 ? 1 : i + 5),
+          "Records must keep their insertion order");
+    }
+
+    TestGene gene = find(new QueryCriteria("symbol", "Gene8")).get(0);
+    gene.setEntrezGeneId(80);
+    gene.setGeneType("pseudo");
+    repository.update(gene);
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 8)).isEmpty());
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 80)).size() == 1);
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 10, Evaluation.GREATER_THAN)).size() == 1);
+    Assert.isTrue(find(new QueryCriteria("geneType", "protein-coding")).size() == 7);
+    genes = find(new QueryCriteria("chromosome", "1"));
+    Assert.isTrue(genes.get(3).getSymbol().equals("Gene8"), "Updates must keep the record position");
+
+    repository.delete(gene);
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 80)).isEmpty());
+    Assert.isTrue(find(new QueryCriteria("entrezGeneId", 5, Evaluation.GREATER_THAN)).size() == 4);
+    Assert.isTrue(find(new QueryCriteria("geneType", "pseudo")).size() == 2);
+    Assert.isTrue(find(new QueryCriteria("symbol", "Gene8")).isEmpty());
+  }
+
+  public static class TestGene extends Gene<String> {
+
+    private String id;
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public void setId(String id) {
+      this.id = id;
+    }
+
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.core.repository;
+
+import com.blueprint.centromere.core.repository.KeysetCursor;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+public class KeysetCursorTests {
+
+  @Test
+  public void keysetSortTest(){
+    Sort sort = KeysetCursor.getKeysetSort(Sort.unsorted());
+    Assert.notNull(sort.getOrderFor("id"));
+    sort = KeysetCursor.getKeysetSort(Sort.by(Sort.Direction.DESC, "symbol"));
+    Assert.isTrue(sort.getOrderFor("symbol").isDescending());
+    Assert.isTrue(sort.getOrderFor("id").isAscending());
+    Sort withId = Sort.by(Sort.Direction.DESC, "id");
+    Assert.isTrue(KeysetCursor.getKeysetSort(withId).equals(withId));
+  }
+
+  @Test
+  public void encodeDecodeTest(){
+    Sort sort = KeysetCursor.getKeysetSort(Sort.by(Sort.Direction.DESC, "score")
+        .and(Sort.by("date")).and(Sort.by("name")).and(Sort.by("flag")));
+    Record record = new Record("abc,~123", 2.5, new Date(1000L), null, true);
+    KeysetCursor cursor = KeysetCursor.of(record, sort);
+    String token = cursor.encode();
+    Assert.isTrue(token.matches("[A-Za-z0-9_-]+"), "Token is not URL-safe: " + token);
+    KeysetCursor decoded = KeysetCursor.decode(token);
+    Assert.isTrue(cursor.equals(decoded), "Expected " + cursor + ", got " + decoded);
+    decoded.validate(sort);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidTokenTest(){
+    KeysetCursor.decode("not a cursor");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void mismatchedSortTest(){
+    Sort sort = KeysetCursor.getKeysetSort(Sort.by("name"));
+    KeysetCursor cursor = KeysetCursor.of(new Record("a", 1.0, null, "a", false), sort);
+    cursor.validate(KeysetCursor.getKeysetSort(Sort.by(Sort.Direction.DESC, "name")));
+  }
+
+  @Test
+  public void precedesTest(){
+    Sort sort = KeysetCursor.getKeysetSort(Sort.by(Sort.Direction.DESC, "score"));
+    KeysetCursor cursor = KeysetCursor.of(new Record("b", 2.0, null, "b", false), sort);
+    Assert.isTrue(cursor.precedes(new Record("a", 1.0, null, "a", false)));
+    Assert.isTrue(cursor.precedes(new Record("c", 2.0, null, "c", false)));
+    Assert.isTrue(!cursor.precedes(new Record("a", 2.0, null, "a", false)));
+    Assert.isTrue(!cursor.precedes(new Record("b", 2.0, null, "b", false)));
+    Assert.isTrue(!cursor.precedes(new Record("z", 3.0, null, "z", false)));
+    Assert.isTrue(Arrays.asList(2.0, "b").equals(cursor.getValues()));
+  }
+
+  public static class Record {
+    
+    private String id;
+    private Double score;
+    private Date date;
+    private String name;
+    private Boolean flag;
+
+    public Record(String id, Double score, Date date, String name, Boolean flag) {
+      this.id = id;
+      this.score = score;
+      this.date = date;
+      this.name = name;
+      this.flag = flag;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public Double getScore() {
+      return score;
+    }
+
+    public Date getDate() {
+      return date;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Boolean getFlag() {
+      return flag;
+    }
+    
+  }
+
+}
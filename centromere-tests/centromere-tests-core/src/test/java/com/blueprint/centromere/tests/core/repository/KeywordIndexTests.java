@@ -0,0 +1,221 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.core.repository;
+
+import com.blueprint.centromere.core.repository.guess.KeywordIndex;
+import com.blueprint.centromere.core.repository.guess.KeywordIndex.MatchType;
+import com.blueprint.centromere.core.repository.guess.KeywordIndexManager;
+import com.blueprint.centromere.core.repository.guess.KeywordIndexedModelRepository;
+import com.blueprint.centromere.core.repository.guess.KeywordMatch;
+import com.blueprint.centromere.core.repository.memory.InMemoryModelRepository;
+import com.blueprint.centromere.tests.core.repository.InMemoryModelRepositoryTests.TestGene;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+public class KeywordIndexTests {
+
+  private InMemoryModelRepository<TestGene, String> delegate;
+  private KeywordIndexedModelRepository<TestGene, String> repository;
+
+  @Before
+  public void setup(){
+    delegate = new InMemoryModelRepository<>(TestGene.class);
+    delegate.insert(createGene(1, "AKT1", "PKB", "RAC"));
+    delegate.insert(createGene(2, "AKT2", "PKBB"));
+    delegate.insert(createGene(3, "AKT3", "PKBG"));
+    delegate.insert(createGene(4, "BRAF", "B-RAF1", "AKT"));
+    delegate.insert(createGene(5, "KRAS", "KRAS2", "c-Ki-ras"));
+    repository = (KeywordIndexedModelRepository<TestGene, String>) 
+        new KeywordIndexManager().decorate(delegate);
+  }
+
+  private static TestGene createGene(Integer entrezGeneId, String symbol, String... aliases){
+    TestGene gene = new TestGene();
+    gene.setEntrezGeneId(entrezGeneId);
+    gene.setSymbol(symbol);
+    gene.setAliases(Arrays.asList(aliases));
+    return gene;
+  }
+
+  @Test
+  public void exactMatchTest(){
+    List<KeywordMatch<TestGene>> matches = repository.search("akt1", 10);
+    Assert.isTrue(matches.get(0).getType() == MatchType.EXACT);
+    Assert.isTrue("symbol".equals(matches.get(0).getField()));
+    Assert.isTrue("AKT1".equals(matches.get(0).getRecord().getSymbol()));
+    // AKT2, AKT3 and the BRAF alias AKT are one edit away
+    Assert.isTrue(matches.size() == 4);
+    Assert.isTrue(matches.get(1).getType() == MatchType.FUZZY);
+    Assert.isTrue("AKT1".equals(repository.bestGuess("AKT1").get().getSymbol()));
+    Assert.isTrue("KRAS".equals(repository.bestGuess(" c-ki-RAS ").get().getSymbol()));
+    Assert.isTrue(!repository.bestGuess("EGFR").isPresent());
+    Assert.isTrue(repository.guess("").isEmpty());
+  }
+
+  @Test
+  public void rankingTest(){
+    List<TestGene> genes = repository.guess("AKT");
+    Assert.isTrue(genes.size() == 4, "Expected 4 genes: " + genes);
+    // Exact alias match ranks above symbol prefix matches
+    Assert.isTrue("BRAF".equals(genes.get(0).getSymbol()));
+    Assert.isTrue("AKT1".equals(genes.get(1).getSymbol()));
+    Assert.isTrue(repository.guess("AKT", 2).size() == 2);
+    genes = repository.guess("PKB");
+    Assert.isTrue("AKT1".equals(genes.get(0).getSymbol()));
+    Assert.isTrue(genes.size() == 3);
+  }
+
+  @Test
+  public void fuzzyMatchTest(){
+    List<KeywordMatch<TestGene>> matches = repository.search("BRAFF", 10);
+    Assert.isTrue(matches.size() == 1);
+    Assert.isTrue(matches.get(0).getType() == MatchType.FUZZY);
+    Assert.isTrue("BRAF".equals(matches.get(0).getRecord().getSymbol()));
+    Assert.isTrue("KRAS".equals(repository.bestGuess("KRAZ").get().getSymbol()));
+    // Too short for fuzzy matching
+    Assert.isTrue(repository.guess("AKX").isEmpty());
+    KeywordIndex<TestGene> exactOnly = new KeywordIndex<>(TestGene.class, 0);
+    exactOnly.addAll(delegate.findAll());
+    Assert.isTrue(exactOnly.search("KRAZ", 10).isEmpty());
+  }
+
+  @Test
+  public void boundedSearchTest(){
+    KeywordIndex<TestGene> index = new KeywordIndex<>(TestGene.class);
+    List<TestGene> genes = new ArrayList<>();
+    for (int i = 0; i < 2000; i++){
+      TestGene gene = createGene(i, "G" + i, "ALIAS" + (i % 7), "g" + (i * 31 % 2000));
+      gene.setId(Integer.toString(i));
+      genes.add(gene);
+    }
+    index.addAll(genes);
+    // Bounded searches return matches as good as the best of an unbounded search, in order
+    for (String query: Arrays.asList("g", "g1", "g12", "g123", "alias3", "g1234", "g12x4")){
+      List<KeywordMatch<TestGene>> all = index.search(query, Integer.MAX_VALUE);
+      for (int limit: Arrays.asList(1, 5, 50)){
+        List<KeywordMatch<TestGene>> matches = index.search(query, limit);
+        Assert.isTrue(matches.size() == Math.min(limit, all.size()));
+        Set<TestGene> records = new HashSet<>();
+        for (int i = 0; i < matches.size(); i++){
+          Assert.isTrue(matches.get(i).compareTo(all.get(i)) == 0, 
+              String.format("Expected %s, got %s for query %s", all.get(i), matches.get(i), query));
+          Assert.isTrue(records.add(matches.get(i).getRecord()));
+        }
+      }
+    }
+    // Fuzzy matches are not needed once exact matches fill the limit
+    List<KeywordMatch<TestGene>> matches = repository.search("akt1", 1);
+    Assert.isTrue(matches.size() == 1);
+    Assert.isTrue(matches.get(0).getType() == MatchType.EXACT);
+  }
+
+  @Test
+  public void incrementalUpdateTest(){
+    Assert.isTrue(repository.getIndex().size() == 5);
+    TestGene gene = repository.insert(createGene(6, "EGFR", "ERBB1"));
+    Assert.isTrue("EGFR".equals(repository.bestGuess("erbb1").get().getSymbol()));
+    gene.setAliases(Arrays.asList("HER1"));
+    repository.update(gene);
+    Assert.isTrue(!repository.bestGuess("ERBB1").isPresent());
+    Assert.isTrue(repository.bestGuess("HER1").isPresent());
+    repository.delete(gene);
+    Assert.isTrue(!repository.bestGuess("EGFR").isPresent());
+    Assert.isTrue(repository.getIndex().size() == 5);
+
+    // Writes that bypass the decorator require a refresh
+    delegate.insert(createGene(7, "TP53", "P53"));
+    Assert.isTrue(!repository.bestGuess("TP53").isPresent());
+    repository.refresh();
+    Assert.isTrue(repository.bestGuess("TP53").isPresent());
+    repository.deleteAll();
+    Assert.isTrue(repository.getIndex().size() == 0);
+    Assert.isTrue(repository.guess("AKT").isEmpty());
+  }
+
+  @Test
+  public void startupLoadTest(){
+    KeywordIndexManager manager = new KeywordIndexManager();
+    KeywordIndexedModelRepository<?, ?> indexed 
+        = (KeywordIndexedModelRepository<?, ?>) manager.decorate(delegate);
+    Assert.isTrue(!indexed.isLoaded());
+    manager.afterSingletonsInstantiated();
+    Assert.isTrue(indexed.isLoaded());
+    Assert.isTrue(indexed.getIndex().size() == 5);
+  }
+
+  @Test
+  public void writeDuringLoadTest() throws Exception {
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    InMemoryModelRepository<TestGene, String> slowDelegate 
+        = new InMemoryModelRepository<TestGene, String>(TestGene.class) {
+      @Override
+      public List<TestGene> findAll() {
+        List<TestGene> records = new ArrayList<>(super.findAll());
+        reading.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e){
+          Thread.currentThread().interrupt();
+        }
+        return records;
+      }
+    };
+    slowDelegate.insert(createGene(1, "AKT1", "PKB"));
+    KeywordIndexedModelRepository<TestGene, String> indexed 
+        = new KeywordIndexedModelRepository<>(slowDelegate);
+    Thread loader = new Thread(indexed::load);
+    loader.start();
+    Assert.isTrue(reading.await(5, TimeUnit.SECONDS));
+    Thread writer = new Thread(() -> indexed.insert(createGene(2, "EGFR", "ERBB1")));
+    writer.start();
+    while (slowDelegate.count() < 2L){
+      Thread.sleep(10L);
+    }
+    release.countDown();
+    loader.join(5000L);
+    writer.join(5000L);
+    Assert.isTrue(indexed.getIndex().size() == 2, "Write made during loading must be indexed");
+    Assert.isTrue(indexed.bestGuess("ERBB1").isPresent());
+  }
+
+  @Test
+  public void configuredFieldsTest(){
+    KeywordIndex<TestGene> index = new KeywordIndex<>(TestGene.class, 
+        Arrays.asList("aliases", "symbol"), 1);
+    index.addAll(delegate.findAll());
+    Assert.isTrue(Arrays.asList("aliases", "symbol").equals(index.getFields()));
+    Assert.isTrue(index.getTermCount() == 13);
+    List<KeywordMatch<TestGene>> matches = index.search("pkbb", 10);
+    Assert.isTrue("aliases".equals(matches.get(0).getField()));
+    Assert.isTrue(new KeywordIndexManager().decorate(new InMemoryModelRepository<>(
+        ColumnarModelRepositoryTests.TestGeneExpression.class)) instanceof InMemoryModelRepository);
+  }
+
+}
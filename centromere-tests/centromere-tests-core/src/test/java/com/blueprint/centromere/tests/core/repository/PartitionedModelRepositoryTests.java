@@ -0,0 +1,219 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.core.repository;
+
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.FacetCounts;
+import com.blueprint.centromere.core.repository.KeysetCursor;
+import com.blueprint.centromere.core.repository.KeysetSlice;
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.ValueCount;
+import com.blueprint.centromere.core.repository.memory.InMemoryModelRepository;
+import com.blueprint.centromere.core.repository.partition.PartitionedModelRepository;
+import com.blueprint.centromere.core.repository.partition.PartitionedQueryDecorator;
+import com.blueprint.centromere.tests.core.repository.InMemoryModelRepositoryTests.TestGene;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ * @since 0.6.0
+ */
+public class PartitionedModelRepositoryTests {
+
+  private InMemoryModelRepository<TestGene, String> delegate;
+  private ModelRepository<TestGene, String> repository;
+  private PartitionedQueryDecorator decorator;
+  private AtomicInteger queries;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setup(){
+    queries = new AtomicInteger();
+    delegate = new InMemoryModelRepository<TestGene, String>(TestGene.class){
+      @Override
+      public long count(Iterable<QueryCriteria> criterias) {
+        queries.incrementAndGet();
+        return super.count(criterias);
+      }
+    };
+    for (int i = 1; i <= 100; i++){
+      TestGene gene = new TestGene();
+      gene.setId("gene" + i);
+      gene.setEntrezGeneId(i);
+      gene.setSymbol(String.format("Gene%03d", i));
+      gene.setGeneType(i % 3 == 0 ? "pseudo" : "protein-coding");
+      gene.setAliases(Arrays.asList("alias" + i, "group" + (i % 10)));
+      delegate.insert(gene);
+    }
+    decorator = new PartitionedQueryDecorator(10, 7, 3);
+    repository = (ModelRepository<TestGene, String>) decorator.decorate(delegate);
+  }
+
+  @After
+  public void teardown(){
+    decorator.close();
+  }
+
+  private static List<QueryCriteria> getEntrezGeneIdCriteria(){
+    List<Object> ids = new ArrayList<>();
+    for (int i = 120; i > 0; i -= 2) ids.add(i);
+    return Arrays.asList(
+        new QueryCriteria("entrezGeneId", ids, Evaluation.IN),
+        new QueryCriteria("geneType", "protein-coding"));
+  }
+
+  private static List<String> getIds(Iterable<TestGene> genes){
+    List<String> ids = new ArrayList<>();
+    genes.forEach(gene -> ids.add(gene.getId()));
+    return ids;
+  }
+
+  @Test
+  public void decoratorTest(){
+    Assert.isTrue(repository instanceof PartitionedModelRepository);
+    Assert.isTrue(((PartitionedModelRepository) repository).getDelegate() == delegate);
+  }
+
+  @Test
+  public void findSortedTest(){
+    List<QueryCriteria> criterias = getEntrezGeneIdCriteria();
+    Sort sort = Sort.by(Sort.Direction.DESC, "symbol");
+    List<String> expected = getIds(delegate.find(criterias, sort));
+    Assert.isTrue(expected.size() == 34);
+    Assert.isTrue(expected.equals(getIds(repository.find(criterias, sort))));
+    Assert.isTrue(new HashSet<>(expected).equals(new HashSet<>(getIds(repository.find(criterias)))));
+  }
+
+  @Test
+  public void smallInNotPartitionedTest(){
+    List<QueryCriteria> criterias = Arrays.asList(
+        new QueryCriteria("entrezGeneId", Arrays.asList(1, 2, 3), Evaluation.IN));
+    Assert.isTrue(repository.count(criterias) == 3L);
+    Assert.isTrue(queries.get() == 1);
+    queries.set(0);
+    Assert.isTrue(repository.count(getEntrezGeneIdCriteria()) == 34L);
+    Assert.isTrue(queries.get() == 9);
+  }
+
+  @Test
+  public void findPagedTest(){
+    List<QueryCriteria> criterias = getEntrezGeneIdCriteria();
+    Sort sort = Sort.by(Sort.Direction.ASC, "symbol");
+    for (int page = 0; page < 5; page++){
+      Pageable pageable = PageRequest.of(page, 8, sort);
+      Page<TestGene> expected = delegate.find(criterias, pageable);
+      Page<TestGene> actual = repository.find(criterias, pageable);
+      Assert.isTrue(actual.getTotalElements() == 34L);
+      Assert.isTrue(getIds(expected).equals(getIds(actual)));
+      Slice<TestGene> slice = repository.findSlice(criterias, pageable);
+      Assert.isTrue(getIds(expected).equals(getIds(slice)));
+      Assert.isTrue(slice.hasNext() == page < 4);
+    }
+  }
+
+  @Test
+  public void findAfterTest(){
+    List<QueryCriteria> criterias = getEntrezGeneIdCriteria();
+    Sort sort = Sort.by(Sort.Direction.DESC, "entrezGeneId");
+    List<String> expected = getIds(delegate.find(criterias, KeysetCursor.getKeysetSort(sort)));
+    List<String> actual = new ArrayList<>();
+    KeysetCursor cursor = null;
+    do {
+      KeysetSlice<TestGene> slice = repository.findAfter(criterias, cursor, sort, 5);
+      Assert.isTrue(slice.getContent().size() <= 5);
+      actual.addAll(getIds(slice.getContent()));
+      cursor = slice.getNextCursor();
+    } while (cursor != null);
+    Assert.isTrue(expected.equals(actual));
+  }
+
+  @Test
+  public void multiValuedFieldTest(){
+    List<Object> aliases = new ArrayList<>();
+    for (int i = 1; i <= 20; i++) aliases.add("alias" + i);
+    aliases.add("group1");
+    aliases.add("group2");
+    List<QueryCriteria> criterias = Arrays.asList(
+        new QueryCriteria("aliases", aliases, Evaluation.IN));
+    long expected = delegate.count(criterias);
+    Assert.isTrue(expected == 36L);
+    // Counts of multi-valued fields are passed through in a single query
+    queries.set(0);
+    Assert.isTrue(repository.count(criterias) == expected);
+    Assert.isTrue(queries.get() == 1);
+    Assert.isTrue(repository.find(criterias, PageRequest.of(0, 5)).getTotalElements() == expected);
+    List<String> ids = getIds(repository.find(criterias, Sort.by("symbol")));
+    Assert.isTrue(ids.size() == expected);
+    Assert.isTrue(ids.equals(getIds(delegate.find(criterias, Sort.by("symbol")))));
+  }
+
+  @Test
+  public void distinctCountsTest(){
+    List<QueryCriteria> criterias = getEntrezGeneIdCriteria();
+    Pageable pageable = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, ValueCount.COUNT_PROPERTY));
+    List<ValueCount> expected = delegate.distinctCounts("aliases", criterias, pageable);
+    List<ValueCount> actual = repository.distinctCounts("aliases", criterias, pageable);
+    Assert.isTrue(expected.size() == 3);
+    Assert.isTrue(expected.equals(actual));
+    Assert.isTrue(delegate.distinct("geneType", criterias)
+        .equals(repository.distinct("geneType", criterias)));
+  }
+
+  @Test
+  public void facetsTest(){
+    List<QueryCriteria> criterias = getEntrezGeneIdCriteria();
+    List<String> fields = Arrays.asList("geneType", "aliases");
+    FacetCounts expected = delegate.facets(fields, criterias, 3);
+    FacetCounts actual = repository.facets(fields, criterias, 3);
+    Assert.isTrue(expected.getCount() == delegate.count(criterias));
+    Assert.isTrue(expected.getCount() == actual.getCount());
+    Assert.isTrue(expected.getFacet("aliases").size() == 3);
+    Assert.isTrue(expected.getFacets().equals(actual.getFacets()));
+    Assert.isTrue(actual.getFacet("geneType")
+        .equals(delegate.distinctCounts("geneType", criterias, 
+            PageRequest.of(0, 3, FacetCounts.FACET_SORT))));
+  }
+
+  @Test
+  public void findAllByIdTest(){
+    List<String> ids = new ArrayList<>();
+    for (int i = 100; i > 0; i -= 3) ids.add("gene" + i);
+    ids.add("missing");
+    ids.add("gene100");
+    List<String> found = getIds(repository.findAllById(ids));
+    Assert.isTrue(found.size() == 34);
+    Assert.isTrue(found.equals(ids.subList(0, 34)));
+    List<String> small = Arrays.asList("gene3", "gene1", "gene2");
+    Assert.isTrue(small.equals(getIds(repository.findAllById(small))));
+  }
+
+}
@@ -3,6 +3,8 @@ package com.blueprint.centromere.tests.core.repository;
 import com.blueprint.centromere.core.exceptions.QueryParameterException;
 import com.blueprint.centromere.core.repository.Evaluation;
 import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.QueryCriteriaNormalizer;
+import com.blueprint.centromere.core.repository.QueryExpressionParser;
 import com.blueprint.centromere.core.repository.QueryParameterDescriptor;
 import com.blueprint.centromere.core.repository.QueryParameterUtil;
 import com.blueprint.centromere.tests.core.TestGene;
@@ -171,4 +173,132 @@ public class QueryCriteriaTests {
 
   }
 
+  @Test
+  public void criteriaGroupTest(){
+    QueryCriteria group = QueryCriteria.or(
+        new QueryCriteria("symbol", "BRCA1"),
+        QueryCriteria.and(
+            new QueryCriteria("aliases", "BRCA1"),
+            new QueryCriteria("taxId", 9606)));
+    Assert.isTrue(group.isGroup());
+    Assert.isNull(group.getKey());
+    Assert.isTrue(Evaluation.OR.equals(group.getEvaluation()));
+    Assert.isTrue(group.getCriterias().size() == 2);
+    QueryCriteria nested = group.getCriterias().get(1);
+    Assert.isTrue(nested.isGroup());
+    Assert.isTrue(Evaluation.AND.equals(nested.getEvaluation()));
+    Assert.isTrue(nested.getCriterias().size() == 2);
+    Assert.isTrue(!new QueryCriteria("symbol", "BRCA1").isGroup());
+    Assert.isTrue(new QueryCriteria("symbol", "BRCA1").getCriterias().isEmpty());
+  }
+
+  @Test
+  public void queryExpressionTest(){
+    Map<String,QueryParameterDescriptor> params 
+        = QueryParameterUtil.getAvailableQueryParameters(TestGene.class);
+    
+    QueryCriteria criteria = QueryExpressionParser.parse("symbol:BRCA1", params);
+    Assert.isTrue(!criteria.isGroup());
+    Assert.isTrue("symbol".equals(criteria.getKey()));
+    Assert.isTrue("BRCA1".equals(criteria.getValue()));
+    
+    criteria = QueryExpressionParser.parse(
+        "or(symbol:BRCA1; and(entrezGeneIdGreaterThan:100;symbol:A,B))", params);
+    Assert.isTrue(Evaluation.OR.equals(criteria.getEvaluation()));
+    Assert.isTrue(criteria.getCriterias().size() == 2);
+    Assert.isTrue("symbol".equals(criteria.getCriterias().get(0).getKey()));
+    QueryCriteria nested = criteria.getCriterias().get(1);
+    Assert.isTrue(Evaluation.AND.equals(nested.getEvaluation()));
+    Assert.isTrue("entrezGeneId".equals(nested.getCriterias().get(0).getKey()));
+    Assert.isTrue(Evaluation.GREATER_THAN.equals(nested.getCriterias().get(0).getEvaluation()));
+    Assert.isTrue(Integer.valueOf(100).equals(nested.getCriterias().get(0).getValue()));
+    Assert.isTrue(Evaluation.IN.equals(nested.getCriterias().get(1).getEvaluation()));
+    
+    criteria = QueryExpressionParser.parse("OR(symbol:BRCA1)", params);
+    Assert.isTrue(!criteria.isGroup());
+
+    for (String invalid: Arrays.asList("", "or(symbol:A;symbol:B", "or(symbol:A)x", "symbol", 
+        "or(badParam:1;symbol:A)", "entrezGeneIdLike:1")){
+      Exception exception = null;
+      try {
+        QueryExpressionParser.parse(invalid, params);
+      } catch (Exception e){
+        exception = e;
+      }
+      Assert.isTrue(exception instanceof QueryParameterException, 
+          "Expected exception for expression: " + invalid);
+    }
+  }
+
+  @Test
+  public void normalizerTest(){
+    QueryCriteriaNormalizer normalizer = new QueryCriteriaNormalizer(TestGene.class);
+    List<QueryCriteria> criterias = normalizer.normalize(Arrays.asList(
+        new QueryCriteria("symbol", Arrays.asList("A", "B", "A"), Evaluation.IN),
+        new QueryCriteria("entrezGeneId", 2, Evaluation.GREATER_THAN),
+        new QueryCriteria("aliases", Arrays.asList("ABC", "ABC"), Evaluation.IN),
+        QueryCriteria.and(
+            new QueryCriteria("entrezGeneId", 5, Evaluation.GREATER_THAN_EQUALS),
+            new QueryCriteria("entrezGeneId", Arrays.asList(1, 10), Evaluation.BETWEEN_INCLUSIVE)),
+        new QueryCriteria("symbol", Arrays.asList("A", "B"), Evaluation.IN)
+    )).orElse(null);
+    Assert.notNull(criterias);
+    Assert.isTrue(criterias.size() == 3, criterias.toString());
+    Assert.isTrue(Evaluation.IN.equals(criterias.get(0).getEvaluation()));
+    Assert.isTrue(Arrays.asList("A", "B").equals(criterias.get(0).getValue()));
+    Assert.isTrue("entrezGeneId".equals(criterias.get(1).getKey()));
+    Assert.isTrue(Evaluation.BETWEEN_INCLUSIVE.equals(criterias.get(1).getEvaluation()));
+    Assert.isTrue(Arrays.asList(5, 10).equals(criterias.get(1).getValue()));
+    Assert.isTrue(Evaluation.EQUALS.equals(criterias.get(2).getEvaluation()));
+    Assert.isTrue("ABC".equals(criterias.get(2).getValue()));
+    
+    criterias = normalizer.normalize(Arrays.asList(
+        new QueryCriteria("entrezGeneId", 3),
+        new QueryCriteria("entrezGeneId", 1, Evaluation.GREATER_THAN),
+        new QueryCriteria("symbol", Arrays.asList(), Evaluation.NOT_IN),
+        QueryCriteria.or(
+            new QueryCriteria("symbol", Arrays.asList(), Evaluation.IN),
+            QueryCriteria.and(
+                new QueryCriteria("taxId", 9606, Evaluation.GREATER_THAN),
+                new QueryCriteria("taxId", 9000, Evaluation.LESS_THAN)),
+            new QueryCriteria("chromosome", "1"))
+    )).orElse(null);
+    Assert.notNull(criterias);
+    Assert.isTrue(criterias.size() == 2, criterias.toString());
+    Assert.isTrue(Evaluation.EQUALS.equals(criterias.get(0).getEvaluation()));
+    Assert.isTrue("chromosome".equals(criterias.get(1).getKey()));
+    
+    Assert.isTrue(normalizer.normalize(null).orElse(null).isEmpty());
+  }
+
+  @Test
+  public void normalizerContradictionTest(){
+    QueryCriteriaNormalizer normalizer = new QueryCriteriaNormalizer(TestGene.class);
+    Assert.isTrue(!normalizer.normalize(Arrays.asList(
+        new QueryCriteria("entrezGeneId", 5, Evaluation.GREATER_THAN),
+        new QueryCriteria("entrezGeneId", 2, Evaluation.LESS_THAN))).isPresent());
+    Assert.isTrue(!normalizer.normalize(Arrays.asList(
+        new QueryCriteria("entrezGeneId", Arrays.asList(2, 2), Evaluation.BETWEEN))).isPresent());
+    Assert.isTrue(!normalizer.normalize(Arrays.asList(
+        new QueryCriteria("symbol", "A"), new QueryCriteria("symbol", "B"))).isPresent());
+    Assert.isTrue(!normalizer.normalize(Arrays.asList(
+        new QueryCriteria("entrezGeneId", 3), 
+        new QueryCriteria("entrezGeneId", 3, Evaluation.LESS_THAN))).isPresent());
+    Assert.isTrue(!normalizer.normalize(Arrays.asList(
+        new QueryCriteria("symbol", Arrays.asList(), Evaluation.IN))).isPresent());
+    
+    // Multi-valued, unknown, or incomparable fields may be satisfied by different values
+    Assert.isTrue(normalizer.normalize(Arrays.asList(
+        new QueryCriteria("aliases", "A"), new QueryCriteria("aliases", "B"))).isPresent());
+    Assert.isTrue(normalizer.normalize(Arrays.asList(
+        new QueryCriteria("attributes.score", 5, Evaluation.GREATER_THAN),
+        new QueryCriteria("attributes.score", 2, Evaluation.LESS_THAN))).isPresent());
+    Assert.isTrue(normalizer.normalize(Arrays.asList(
+        new QueryCriteria("entrezGeneId", 5, Evaluation.GREATER_THAN),
+        new QueryCriteria("entrezGeneId", 2L, Evaluation.LESS_THAN))).get().size() == 2);
+    Assert.isTrue(new QueryCriteriaNormalizer().normalize(Arrays.asList(
+        new QueryCriteria("entrezGeneId", 5, Evaluation.GREATER_THAN),
+        new QueryCriteria("entrezGeneId", 2, Evaluation.LESS_THAN))).isPresent());
+  }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.core.repository;
+
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.memory.InMemoryModelRepository;
+import com.blueprint.centromere.core.repository.metrics.InstrumentedModelRepository;
+import com.blueprint.centromere.core.repository.metrics.QueryExplainer;
+import com.blueprint.centromere.core.repository.metrics.RepositoryMetricsDecorator;
+import com.blueprint.centromere.core.repository.metrics.SlowQuery;
+import com.blueprint.centromere.core.repository.metrics.SlowQueryLog;
+import com.blueprint.centromere.tests.core.repository.InMemoryModelRepositoryTests.TestGene;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+public class RepositoryMetricsTests {
+
+  private SimpleMeterRegistry meterRegistry;
+  private InMemoryModelRepository<TestGene, String> delegate;
+
+  @Before
+  public void setup(){
+    meterRegistry = new SimpleMeterRegistry();
+    delegate = new InMemoryModelRepository<>(TestGene.class);
+    for (int i = 1; i <= 5; i++){
+      TestGene gene = new TestGene();
+      gene.setEntrezGeneId(i);
+      gene.setSymbol("Gene" + i);
+      gene.setGeneType(i % 2 == 0 ? "protein-coding" : "pseudo");
+      delegate.insert(gene);
+    }
+  }
+
+  @Test
+  public void evaluationsTagTest(){
+    Assert.isTrue("none".equals(InstrumentedModelRepository.getEvaluations(null)));
+    Assert.isTrue("none".equals(
+        InstrumentedModelRepository.getEvaluations(Collections.emptyList())));
+    String evaluations = InstrumentedModelRepository.getEvaluations(Arrays.asList(
+        new QueryCriteria("symbol", Arrays.asList("Gene1", "Gene2"), Evaluation.IN),
+        new QueryCriteria("geneType", "pseudo")));
+    Assert.isTrue("geneType:EQUALS,symbol:IN".equals(evaluations));
+  }
+
+  @Test
+  public void evaluationsTagCardinalityTest(){
+    InstrumentedModelRepository<TestGene, String> repository 
+        = new InstrumentedModelRepository<>(delegate, meterRegistry);
+    repository.setMaximumEvaluationTags(3);
+    repository.find(Arrays.asList(new QueryCriteria("attributes.isKinase", "Y"), 
+        new QueryCriteria("symbol", "Gene1")));
+    repository.find(Collections.singletonList(new QueryCriteria("attributes.anything", "Y")));
+    repository.find(Collections.singletonList(QueryCriteria.or(
+        new QueryCriteria("symbol", "Gene1"), QueryCriteria.and(
+            new QueryCriteria("attributes.other", "N"), new QueryCriteria("geneType", "pseudo")))));
+    Assert.notNull(meterRegistry.find(InstrumentedModelRepository.TIMER_NAME)
+        .tags("evaluations", "attributes.*:EQUALS,symbol:EQUALS").timer());
+    Assert.isTrue(meterRegistry.find(InstrumentedModelRepository.TIMER_NAME)
+        .tags("evaluations", "attributes.*:EQUALS").timer().count() == 1L);
+    Assert.notNull(meterRegistry.find(InstrumentedModelRepository.TIMER_NAME)
+        .tags("evaluations", "OR(*)").timer());
+    for (String field: Arrays.asList("symbol", "geneType", "entrezGeneId")){
+      repository.find(Collections.singletonList(new QueryCriteria(field, "x")));
+    }
+    Assert.isTrue(meterRegistry.find(InstrumentedModelRepository.TIMER_NAME)
+        .tags("evaluations", "other").timer().count() == 3L);
+    Assert.isTrue(meterRegistry.find(InstrumentedModelRepository.TIMER_NAME)
+        .timers().size() == 4);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void timerAndSummaryTest(){
+    RepositoryMetricsDecorator decorator = new RepositoryMetricsDecorator(meterRegistry);
+    ModelRepository<TestGene, String> repository 
+        = (ModelRepository<TestGene, String>) decorator.decorate(delegate);
+    Assert.isTrue(repository instanceof InstrumentedModelRepository);
+    List<QueryCriteria> criterias = Collections.singletonList(
+        new QueryCriteria("geneType", "pseudo"));
+    repository.find(criterias);
+    repository.find(criterias);
+    repository.count();
+    Timer timer = meterRegistry.find(InstrumentedModelRepository.TIMER_NAME)
+        .tags("model", "TestGene", "operation", "find", "evaluations", "geneType:EQUALS")
+        .timer();
+    Assert.notNull(timer);
+    Assert.isTrue(timer.count() == 2L);
+    DistributionSummary summary = meterRegistry.find(InstrumentedModelRepository.RESULT_SIZE_NAME)
+        .tags("operation", "find")
+        .summary();
+    Assert.notNull(summary);
+    Assert.isTrue(summary.count() == 2L);
+    Assert.isTrue(summary.totalAmount() == 6.0);
+    Assert.notNull(meterRegistry.find(InstrumentedModelRepository.TIMER_NAME)
+        .tags("operation", "count", "evaluations", "none").timer());
+    Assert.isTrue(decorator.getSlowQueryLog().getSize() == 0);
+  }
+
+  @Test
+  public void slowQueryLogTest(){
+    SlowQueryLog log = new SlowQueryLog(2, Duration.ZERO);
+    QueryExplainer explainer = new QueryExplainer() {
+      @Override
+      public String translate(Class<?> model, Iterable<QueryCriteria> criterias) {
+        return "query:" + InstrumentedModelRepository.getEvaluations(criterias);
+      }
+
+      @Override
+      public Object explain(Class<?> model, Iterable<QueryCriteria> criterias) {
+        return Collections.singletonMap("plan", "COLLSCAN");
+      }
+    };
+    InstrumentedModelRepository<TestGene, String> repository 
+        = new InstrumentedModelRepository<>(delegate, meterRegistry, log, explainer);
+    repository.find(Collections.singletonList(new QueryCriteria("geneType", "pseudo")));
+    repository.count(Collections.singletonList(new QueryCriteria("symbol", "Gene1")));
+    repository.findAll();
+    Assert.isTrue(log.getSize() == 2);
+    List<SlowQuery> queries = log.getEntries();
+    Assert.isTrue("findAll".equals(queries.get(0).getOperation()));
+    Assert.isNull(queries.get(0).getQuery());
+    Assert.isTrue(queries.get(0).getResultSize() == 5L);
+    SlowQuery count = queries.get(1);
+    Assert.isTrue("count".equals(count.getOperation()));
+    Assert.isTrue("TestGene".equals(count.getModel()));
+    Assert.isTrue("query:symbol:EQUALS".equals(count.getQuery()));
+    Assert.notNull(count.getExplain());
+    Assert.isNull(count.getResultSize());
+    log.clear();
+    Assert.isTrue(log.getEntries().isEmpty());
+  }
+
+}
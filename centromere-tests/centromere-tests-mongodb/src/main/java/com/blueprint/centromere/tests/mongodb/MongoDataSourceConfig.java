@@ -18,8 +18,10 @@ package com.blueprint.centromere.tests.mongodb;
 
 import com.blueprint.centromere.core.repository.DefaultModelRepositoryRegistry;
 import com.blueprint.centromere.core.repository.ModelRepositoryRegistry;
+import com.blueprint.centromere.mongodb.MongoKeyValuePairListener;
 import com.blueprint.centromere.mongodb.MongoModelRepository;
 import com.blueprint.centromere.mongodb.MongoModelRepositoryFactoryBean;
+import com.blueprint.centromere.mongodb.MongoNormalizedFieldListener;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoCredential;
@@ -51,6 +53,16 @@ public class MongoDataSourceConfig extends AbstractMongoConfiguration {
     return new DefaultModelRepositoryRegistry(context);
   }
 
+  @Bean
+  public MongoNormalizedFieldListener mongoNormalizedFieldListener(){
+    return new MongoNormalizedFieldListener();
+  }
+
+  @Bean
+  public MongoKeyValuePairListener mongoKeyValuePairListener(){
+    return new MongoKeyValuePairListener();
+  }
+
   @Autowired
   private Environment env;
 
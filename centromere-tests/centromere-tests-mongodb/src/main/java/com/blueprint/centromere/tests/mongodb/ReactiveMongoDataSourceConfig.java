@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.mongodb;
+
+import com.blueprint.centromere.tests.mongodb.repositories.ReactiveMongoGeneRepository;
+import com.mongodb.MongoCredential;
+import com.mongodb.ServerAddress;
+import com.mongodb.async.client.MongoClientSettings;
+import com.mongodb.connection.ClusterSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import java.util.Collections;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+
+/**
+ * Reactive MongoDB data source, which shares the mapping configuration of 
+ *   {@link MongoDataSourceConfig}.
+ * 
+ * @author woemler
+ * @since 0.6.0
+ */
+@PropertySource({ "classpath:data-source.properties" })
+@Configuration
+public class ReactiveMongoDataSourceConfig {
+
+  @Autowired
+  private Environment env;
+
+  @Bean
+  public MongoClient reactiveMongoClient() {
+    MongoClientSettings settings = MongoClientSettings.builder()
+        .clusterSettings(ClusterSettings.builder()
+            .hosts(Collections.singletonList(new ServerAddress(env.getRequiredProperty("mongo.host"))))
+            .build())
+        .credential(MongoCredential.createScramSha1Credential(
+            env.getRequiredProperty("mongo.username"),
+            env.getRequiredProperty("mongo.name"),
+            env.getRequiredProperty("mongo.password").toCharArray()))
+        .build();
+    return MongoClients.create(settings);
+  }
+
+  @Bean
+  public ReactiveMongoTemplate reactiveMongoTemplate(MongoClient reactiveMongoClient,
+      MappingMongoConverter mappingMongoConverter){
+    return new ReactiveMongoTemplate(new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient, 
+        env.getRequiredProperty("mongo.name")), mappingMongoConverter);
+  }
+
+  @Bean
+  public ReactiveMongoGeneRepository reactiveMongoGeneRepository(
+      ReactiveMongoTemplate reactiveMongoTemplate){
+    return new ReactiveMongoGeneRepository(reactiveMongoTemplate);
+  }
+
+}
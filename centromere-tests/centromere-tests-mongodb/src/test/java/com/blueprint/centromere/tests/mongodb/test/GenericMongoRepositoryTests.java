@@ -16,8 +16,17 @@
 
 package com.blueprint.centromere.tests.mongodb.test;
 
+import com.blueprint.centromere.core.exceptions.ModelPersistenceException;
 import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.FacetCounts;
+import com.blueprint.centromere.core.repository.FieldStatistics;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import com.blueprint.centromere.core.repository.KeysetCursor;
+import com.blueprint.centromere.core.repository.KeysetSlice;
+import com.blueprint.centromere.core.repository.ModelGroup;
 import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.ValueCount;
+import com.blueprint.centromere.mongodb.MongoModelRepository;
 import com.blueprint.centromere.tests.core.AbstractRepositoryTests;
 import com.blueprint.centromere.tests.core.models.Gene;
 import com.blueprint.centromere.tests.core.models.GeneExpression;
@@ -30,15 +39,29 @@ import com.blueprint.centromere.tests.mongodb.models.MongoGene;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.bson.Document;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.util.Assert;
@@ -55,6 +78,8 @@ public class GenericMongoRepositoryTests extends AbstractRepositoryTests {
   @Autowired private GeneRepository geneRepository;
   @Autowired private GeneExpressionRepository expressionRepository;
   @Autowired private UserRepository userRepository;
+  @Autowired private MongoOperations mongoOperations;
+  @Autowired private ApplicationContext applicationContext;
 
   @Test
   public void findByIdByBadIdTest(){
@@ -185,6 +210,178 @@ public class GenericMongoRepositoryTests extends AbstractRepositoryTests {
 
   }
 
+  @Test
+  public void findByKeyValuePairCriteriaTest(){
+    
+    Document document = mongoOperations.getCollection(mongoOperations.getCollectionName(MongoGene.class))
+        .find(new Document("symbol", "GeneA")).first();
+    Assert.notNull(document);
+    Assert.isTrue(document.get("attributes") instanceof List, "Expected attributes stored as pairs");
+    
+    List<Gene> genes = (List<Gene>) geneRepository.find(Collections.singletonList(
+        new QueryCriteria("attributes.isKinase", "Y", Evaluation.NOT_EQUALS)));
+    Assert.isTrue(genes.size() == 3, "Expected result set size of 3");
+    Assert.isTrue("N".equals(genes.get(0).getAttributes().get("isKinase")));
+    genes = (List<Gene>) geneRepository.find(Collections.singletonList(
+        new QueryCriteria("attributes.foo", null, Evaluation.IS_NULL)));
+    Assert.isTrue(genes.size() == 5, "Expected result set size of 5");
+    genes = (List<Gene>) geneRepository.find(Collections.singletonList(
+        new QueryCriteria("attributes.isKinase", Arrays.asList("Y", "N"), Evaluation.IN)));
+    Assert.isTrue(genes.size() == 5, "Expected result set size of 5");
+    
+    Set<Object> values = geneRepository.distinct("attributes.isKinase");
+    Assert.isTrue(values.size() == 2 && values.contains("Y") && values.contains("N"));
+    List<ValueCount> counts = geneRepository.distinctCounts("attributes.isKinase", 
+        Collections.emptyList(), PageRequest.of(0, 10));
+    Assert.isTrue(counts.size() == 2);
+    Assert.isTrue("N".equals(counts.get(0).getValue()) && counts.get(0).getCount() == 3L);
+    List<ModelGroup> groups = geneRepository.groupBy("attributes.isKinase", 
+        Collections.emptyList(), GroupAccumulator.sample(10));
+    Assert.isTrue(groups.size() == 2);
+    Assert.isTrue(groups.get(1).getRecords().size() == 2);
+    Gene kinase = (Gene) groups.get(1).getRecords().get(0);
+    Assert.isTrue("Y".equals(kinase.getAttributes().get("isKinase")));
+    Assert.isTrue(kinase.getAttributes().size() == 1, kinase.getAttributes().toString());
+    
+    try (Stream<Gene> stream = geneRepository.stream(Collections.emptyList())){
+      Assert.isTrue(stream.allMatch(gene -> gene.getAttributes().containsKey("isKinase")));
+    }
+    
+  }
+
+  @Test
+  public void findByRedundantCriteriaTest(){
+    List<QueryCriteria> criterias = Arrays.asList(
+        new QueryCriteria("entrezGeneId", 1, Evaluation.GREATER_THAN),
+        new QueryCriteria("entrezGeneId", 2, Evaluation.GREATER_THAN_EQUALS),
+        new QueryCriteria("entrezGeneId", 4, Evaluation.LESS_THAN_EQUALS),
+        new QueryCriteria("geneType", Arrays.asList("protein-coding", "protein-coding"), Evaluation.IN));
+    List<Gene> genes = (List<Gene>) geneRepository.find(criterias);
+    Assert.isTrue(genes.size() == 2);
+    Assert.isTrue(geneRepository.count(criterias) == 2L);
+    
+    criterias = Arrays.asList(
+        new QueryCriteria("entrezGeneId", 5, Evaluation.GREATER_THAN),
+        new QueryCriteria("entrezGeneId", 2, Evaluation.LESS_THAN));
+    Assert.isTrue(((List<Gene>) geneRepository.find(criterias)).isEmpty());
+    Assert.isTrue(geneRepository.count(criterias) == 0L);
+    Assert.isTrue(!geneRepository.find(criterias, PageRequest.of(0, 10)).hasContent());
+    Assert.isTrue(geneRepository.distinct("symbol", criterias).isEmpty());
+    Assert.isTrue(geneRepository.facets(Collections.singletonList("geneType"), criterias, 0)
+        .getFacet("geneType").isEmpty());
+  }
+
+  @Test
+  public void statisticsTest(){
+    List<Double> percentiles = Arrays.asList(0.0, 25.0, 50.0, 97.5, 100.0);
+    List<FieldStatistics> statistics = geneRepository.statistics("entrezGeneId", null, 
+        Collections.emptyList(), percentiles);
+    Assert.isTrue(statistics.size() == 1);
+    FieldStatistics all = statistics.get(0);
+    Assert.isTrue(all.getCount() == 5L);
+    Assert.isTrue(all.getMin() == 1.0);
+    Assert.isTrue(all.getMax() == 5.0);
+    Assert.isTrue(all.getMean() == 3.0);
+    Assert.isTrue(Math.abs(all.getStandardDeviation() - Math.sqrt(2.5)) < 0.0001);
+    Assert.isTrue(all.getPercentile(0) == 1.0);
+    Assert.isTrue(all.getPercentile(25) == 2.0, all.toString());
+    Assert.isTrue(all.getPercentile(50) == 3.0, all.toString());
+    Assert.isTrue(all.getPercentile(97.5) == 5.0, all.toString());
+    Assert.isTrue(all.getPercentile(100) == 5.0);
+    
+    statistics = geneRepository.statistics("entrezGeneId", "attributes.isKinase", 
+        Collections.emptyList(), percentiles);
+    Assert.isTrue(statistics.size() == 2, statistics.toString());
+    FieldStatistics kinases = statistics.get(1);
+    Assert.isTrue("Y".equals(kinases.getKey()));
+    Assert.isTrue(kinases.getCount() == 2L);
+    Assert.isTrue(kinases.getMean() == 2.5);
+    Assert.isTrue(kinases.getPercentile(0) == 1.0);
+    Assert.isTrue(kinases.getPercentile(25) == 1.0, kinases.toString());
+    Assert.isTrue(kinases.getPercentile(97.5) == 4.0, kinases.toString());
+    FieldStatistics others = statistics.get(0);
+    Assert.isTrue(others.getCount() == 3L);
+    Assert.isTrue(others.getPercentile(50) == 3.0, others.toString());
+    Assert.isTrue(others.getPercentile(100) == 5.0);
+    
+    // Matches the default, record-streaming implementation
+    List<Gene> genes = (List<Gene>) geneRepository.find(
+        Collections.singletonList(new QueryCriteria("geneType", "protein-coding")));
+    List<Double> values = genes.stream().map(g -> g.getEntrezGeneId().doubleValue())
+        .sorted().collect(Collectors.toList());
+    FieldStatistics expected = FieldStatistics.of(null, values, percentiles);
+    statistics = geneRepository.statistics("entrezGeneId", null,
+        Collections.singletonList(new QueryCriteria("geneType", "protein-coding")), percentiles);
+    FieldStatistics actual = statistics.get(0);
+    Assert.isTrue(expected.getCount() == actual.getCount());
+    Assert.isTrue(expected.getMean().equals(actual.getMean()));
+    Assert.isTrue(Math.abs(expected.getStandardDeviation() - actual.getStandardDeviation()) < 1e-9);
+    Assert.isTrue(expected.getPercentiles().equals(actual.getPercentiles()), actual.toString());
+    
+    statistics = geneRepository.statistics("entrezGeneId", null, 
+        Collections.singletonList(new QueryCriteria("symbol", "GeneZ")), percentiles);
+    Assert.isTrue(statistics.size() == 1);
+    Assert.isTrue(statistics.get(0).getCount() == 0L);
+    Assert.isTrue(geneRepository.statistics("entrezGeneId", "geneType", 
+        Collections.singletonList(new QueryCriteria("symbol", "GeneZ")), percentiles).isEmpty());
+  }
+
+  @Test
+  public void groupedHistogramStatisticsTest(){
+    MongoModelRepository<MongoGene, String> repository = new MongoModelRepository<>(
+        new MongoRepositoryFactory(mongoOperations).getEntityInformation(MongoGene.class), 
+        mongoOperations);
+    List<Double> percentiles = Arrays.asList(0.0, 25.0, 50.0, 97.5, 100.0);
+    List<FieldStatistics> exact = repository.statistics("entrezGeneId", "attributes.isKinase", 
+        Collections.emptyList(), percentiles);
+    
+    // Groups larger than the limit have their percentiles estimated from histograms
+    repository.setExactPercentileGroupLimit(1L);
+    List<FieldStatistics> estimated = repository.statistics("entrezGeneId", 
+        "attributes.isKinase", Collections.emptyList(), percentiles);
+    Assert.isTrue(estimated.size() == 2, estimated.toString());
+    for (int i = 0; i < exact.size(); i++){
+      Assert.isTrue(exact.get(i).getKey().equals(estimated.get(i).getKey()));
+      Assert.isTrue(exact.get(i).getCount() == estimated.get(i).getCount());
+      Assert.isTrue(exact.get(i).getPercentiles().equals(estimated.get(i).getPercentiles()), 
+          estimated.get(i).toString());
+    }
+    
+    List<FieldStatistics> statistics = repository.statistics("entrezGeneId", 
+        "attributes.isKinase", Collections.emptyList(), Collections.emptyList());
+    Assert.isTrue(statistics.size() == 2);
+    Assert.isTrue(statistics.get(1).getMean() == 2.5);
+    Assert.isTrue(Math.abs(statistics.get(1).getStandardDeviation() - Math.sqrt(4.5)) < 1e-9);
+    Assert.isTrue(statistics.get(1).getPercentiles().isEmpty());
+  }
+
+  @Test
+  public void facetsTest(){
+    FacetCounts facets = geneRepository.facets(
+        Arrays.asList("geneType", "aliases", "attributes.isKinase"), Collections.emptyList(), 0);
+    Assert.isTrue(facets.getCount() == 5L);
+    Assert.isTrue(facets.getFacet("geneType").size() == 2);
+    Assert.isTrue(facets.getFacet("geneType").get(0).equals(new ValueCount("protein-coding", 3L)));
+    Assert.isTrue(facets.getFacet("aliases").size() == 5);
+    Assert.isTrue(facets.getFacet("attributes.isKinase").get(0).equals(new ValueCount("N", 3L)));
+    FacetCounts single = geneRepository.facets(
+        Arrays.asList("geneType", "aliases", "attributes.isKinase"), Collections.emptyList(), 10);
+    Assert.isTrue(single.getCount() == facets.getCount());
+    Assert.isTrue(single.getFacets().equals(facets.getFacets()), 
+        "Single facet aggregation must match per-field aggregations");
+    
+    facets = geneRepository.facets(Arrays.asList("geneType", "chromosome"), 
+        Collections.singletonList(new QueryCriteria("geneType", "protein-coding")), 1);
+    Assert.isTrue(facets.getCount() == 3L);
+    Assert.isTrue(facets.getFacet("geneType").size() == 1);
+    Assert.isTrue(facets.getFacet("chromosome").size() == 1);
+    
+    facets = geneRepository.facets(Collections.singletonList("geneType"), 
+        Collections.singletonList(new QueryCriteria("symbol", "missing")), 0);
+    Assert.isTrue(facets.getCount() == 0L);
+    Assert.isTrue(facets.getFacet("geneType").isEmpty());
+  }
+
   @Test
   public void findSortedTest(){
     Sort sort = new Sort(new Sort.Order(Sort.Direction.DESC, "entrezGeneId"));
@@ -206,6 +403,132 @@ public class GenericMongoRepositoryTests extends AbstractRepositoryTests {
     Assert.isTrue(genes.get(0).getEntrezGeneId().equals(4));
   }
 
+  @Test
+  public void findWithProjectionTest(){
+    QueryCriteria criteria = new QueryCriteria("geneType", "protein-coding");
+    Sort sort = new Sort(new Sort.Order(Sort.Direction.ASC, "entrezGeneId"));
+    List<Gene> genes = (List<Gene>) geneRepository.find(Collections.singletonList(criteria), sort, 
+        new HashSet<>(Arrays.asList("symbol", "entrezGeneId")), Collections.emptySet());
+    Assert.notNull(genes);
+    Assert.isTrue(genes.size() == 3);
+    Gene gene = genes.get(0);
+    Assert.isTrue("GeneA".equals(gene.getSymbol()));
+    Assert.notNull(gene.getId());
+    Assert.isNull(gene.getGeneType());
+    Assert.isTrue(gene.getAliases().isEmpty());
+    
+    Page<Gene> page = geneRepository.find(Collections.singletonList(criteria), PageRequest.of(0, 2, sort),
+        Collections.emptySet(), new HashSet<>(Arrays.asList("aliases", "attributes")));
+    Assert.isTrue(page.getTotalElements() == 3L);
+    Assert.isTrue(page.getContent().size() == 2);
+    gene = page.getContent().get(0);
+    Assert.isTrue("GeneA".equals(gene.getSymbol()));
+    Assert.isTrue("protein-coding".equals(gene.getGeneType()));
+    Assert.isTrue(gene.getAliases().isEmpty());
+    Assert.isTrue(gene.getAttributes().isEmpty());
+  }
+
+  @Test
+  public void findSliceTest(){
+    Sort sort = new Sort(new Sort.Order(Sort.Direction.ASC, "entrezGeneId"));
+    Slice<Gene> slice = geneRepository.findSlice(Collections.emptyList(), PageRequest.of(0, 3, sort));
+    Assert.notNull(slice);
+    Assert.isTrue(slice.getContent().size() == 3);
+    Assert.isTrue(slice.hasNext());
+    Assert.isTrue(slice.getContent().get(0).getEntrezGeneId().equals(1));
+    slice = geneRepository.findSlice(Collections.emptyList(), PageRequest.of(1, 3, sort));
+    Assert.isTrue(slice.getContent().size() == 2);
+    Assert.isTrue(!slice.hasNext());
+    Assert.isTrue(slice.getContent().get(0).getEntrezGeneId().equals(4));
+  }
+
+  @Test
+  public void estimateCountTest(){
+    Assert.isTrue(geneRepository.estimateCount(Collections.emptyList(), 0) == 5L);
+    Assert.isTrue(geneRepository.estimateCount(Collections.emptyList(), 2) == 2L);
+    Assert.isTrue(geneRepository.estimateCount(Collections.emptyList(), 6) == 5L);
+    QueryCriteria criteria = new QueryCriteria("geneType", "protein-coding");
+    Assert.isTrue(geneRepository.estimateCount(Collections.singletonList(criteria), 0) == 3L);
+    Assert.isTrue(geneRepository.estimateCount(Collections.singletonList(criteria), 2) == 2L);
+  }
+
+  @Test
+  public void findAfterTest(){
+    Sort sort = new Sort(new Sort.Order(Sort.Direction.DESC, "entrezGeneId"));
+    List<Integer> ids = new ArrayList<>();
+    KeysetCursor cursor = null;
+    int pages = 0;
+    do {
+      KeysetSlice slice = geneRepository.findAfter(Collections.emptyList(), cursor, sort, 2);
+      Assert.isTrue(slice.getContent().size() <= 2);
+      for (Object gene: slice.getContent()){
+        ids.add(((Gene) gene).getEntrezGeneId());
+      }
+      cursor = slice.getNextCursor();
+      pages++;
+    } while (cursor != null);
+    Assert.isTrue(pages == 3, "Expected 3 pages, got " + pages);
+    Assert.isTrue(Arrays.asList(5, 4, 3, 2, 1).equals(ids), "Unexpected order: " + ids);
+    
+    QueryCriteria criteria = new QueryCriteria("geneType", "protein-coding");
+    KeysetSlice slice = geneRepository.findAfter(Collections.singletonList(criteria), null, 
+        Sort.by("symbol"), 2);
+    Assert.isTrue(slice.hasNext());
+    Assert.isTrue("GeneA".equals(((Gene) slice.getContent().get(0)).getSymbol()));
+    slice = geneRepository.findAfter(Collections.singletonList(criteria), 
+        KeysetCursor.decode(slice.getNextCursor().encode()), Sort.by("symbol"), 2);
+    Assert.isTrue(!slice.hasNext());
+    Assert.isTrue(slice.getContent().size() == 1);
+    Assert.isTrue("protein-coding".equals(((Gene) slice.getContent().get(0)).getGeneType()));
+  }
+
+  @Test
+  public void findAfterWithFieldsTest(){
+    Sort sort = new Sort(new Sort.Order(Sort.Direction.DESC, "entrezGeneId"));
+    Set<String> fields = Collections.singleton("symbol");
+    List<Integer> ids = new ArrayList<>();
+    KeysetCursor cursor = null;
+    do {
+      KeysetSlice slice = geneRepository.findAfter(Collections.emptyList(), cursor, sort, 2, 
+          fields, Collections.emptySet());
+      for (Object record: slice.getContent()){
+        Gene gene = (Gene) record;
+        Assert.notNull(gene.getId());
+        Assert.notNull(gene.getSymbol());
+        Assert.isNull(gene.getGeneType());
+        Assert.isTrue(gene.getAliases() == null || gene.getAliases().isEmpty());
+        ids.add(gene.getEntrezGeneId());
+      }
+      cursor = slice.getNextCursor();
+    } while (cursor != null);
+    Assert.isTrue(Arrays.asList(5, 4, 3, 2, 1).equals(ids), "Unexpected order: " + ids);
+    
+    KeysetSlice slice = geneRepository.findAfter(Collections.emptyList(), null, sort, 2, 
+        Collections.emptySet(), new HashSet<>(Arrays.asList("entrezGeneId", "aliases")));
+    Gene gene = (Gene) slice.getContent().get(0);
+    Assert.isTrue(gene.getEntrezGeneId().equals(5));
+    Assert.notNull(gene.getGeneType());
+    Assert.isTrue(gene.getAliases() == null || gene.getAliases().isEmpty());
+    Assert.notNull(slice.getNextCursor());
+  }
+
+  @Test
+  public void streamTest(){
+    QueryCriteria criteria = new QueryCriteria("geneType", "protein-coding");
+    Sort sort = new Sort(new Sort.Order(Sort.Direction.DESC, "entrezGeneId"));
+    List<Gene> genes;
+    try (Stream<Gene> stream = geneRepository.stream(Collections.singletonList(criteria), sort)) {
+      genes = stream.collect(Collectors.toList());
+    }
+    Assert.notNull(genes);
+    Assert.notEmpty(genes);
+    Assert.isTrue(genes.size() == 3);
+    Assert.isTrue(genes.get(0).getEntrezGeneId().equals(4));
+    Assert.isTrue(genes.get(0) instanceof MongoGene);
+    Assert.notNull(genes.get(0).getId());
+    Assert.notEmpty(genes.get(0).getAliases());
+  }
+
   @Test
   public void findPagedTest(){
 
@@ -270,6 +593,26 @@ public class GenericMongoRepositoryTests extends AbstractRepositoryTests {
     Assert.isTrue("GeneA".equals(gene.getSymbol()), "Record does not have expected value");
   }
 
+  @Test
+  public void findByCriteriaGroupTest(){
+    List<Gene> genes = (List<Gene>) geneRepository.find(Collections.singleton(QueryCriteria.or(
+        new QueryCriteria("symbol", "GeneA"),
+        new QueryCriteria("aliases", "GHI"))));
+    Assert.isTrue(genes.size() == 2, "Expected result set size of 2");
+    Assert.isTrue("GeneA".equals(genes.get(0).getSymbol()), "Record does not have expected value");
+    Assert.isTrue("GeneC".equals(genes.get(1).getSymbol()), "Record does not have expected value");
+    List<QueryCriteria> criterias = Arrays.asList(
+        new QueryCriteria("geneType", "protein-coding"),
+        QueryCriteria.or(
+            new QueryCriteria("chromosome", "X"),
+            QueryCriteria.and(
+                new QueryCriteria("symbol", "GeneB"),
+                new QueryCriteria("aliases", "DEF"))));
+    genes = (List<Gene>) geneRepository.find(criterias);
+    Assert.isTrue(genes.size() == 2, "Expected result set size of 2");
+    Assert.isTrue(geneRepository.count(criterias) == 2L, "Expected count of 2");
+  }
+
   @Test
   public void findByCriteriaNotInTest(){
     QueryCriteria criteria = new QueryCriteria("symbol", Arrays.asList("GeneA", "GeneB"), Evaluation.NOT_IN);
@@ -324,6 +667,23 @@ public class GenericMongoRepositoryTests extends AbstractRepositoryTests {
     Gene gene = genes.get(0);
     Assert.isTrue("GeneA".equals(gene.getSymbol()), "Record does not have expected value");
   }
+
+  @Test
+  public void findByNormalizedCriteriaTest(){
+    List<Gene> genes = (List<Gene>) geneRepository.find(Collections.singleton(
+        new QueryCriteria("geneType", "PROTEIN", Evaluation.STARTS_WITH)));
+    Assert.isTrue(genes.size() == 3, "Expected result set size of 3");
+    genes = (List<Gene>) geneRepository.find(Collections.singleton(
+        new QueryCriteria("geneType", "-Coding", Evaluation.ENDS_WITH)));
+    Assert.isTrue(genes.size() == 3, "Expected result set size of 3");
+    genes = (List<Gene>) geneRepository.find(Collections.singleton(
+        new QueryCriteria("geneType", "Protein", Evaluation.LIKE)));
+    Assert.isTrue(genes.size() == 3, "Expected result set size of 3");
+    Assert.isTrue(((List<Gene>) geneRepository.find(Collections.singleton(
+        new QueryCriteria("geneType", "p.*", Evaluation.STARTS_WITH)))).isEmpty());
+    Assert.isTrue(((List<Gene>) geneRepository.find(Collections.singleton(
+        new QueryCriteria("symbol", "Gene.", Evaluation.STARTS_WITH)))).isEmpty());
+  }
   
   @Test
   public void findByNumberGreaterThanTest(){
@@ -585,6 +945,152 @@ public class GenericMongoRepositoryTests extends AbstractRepositoryTests {
     Assert.isTrue("TEST".equals(gene.getGeneType()));
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void batchUpdateTest(){
+    List<Gene> genes = (List<Gene>) geneRepository.findAll();
+    Assert.isTrue(genes.size() == 5);
+    for (Gene gene: genes){
+      gene.setGeneType("TEST");
+    }
+    geneRepository.update(genes);
+    for (Object gene: geneRepository.findAll()){
+      Assert.isTrue("TEST".equals(((Gene) gene).getGeneType()));
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void batchUpdateMissingTest(){
+    List<Gene> genes = new ArrayList<>();
+    Optional<Gene> optional = geneRepository.findByEntrezGeneId(1);
+    Assert.isTrue(optional.isPresent());
+    Gene existing = optional.get();
+    existing.setGeneType("TEST");
+    genes.add(existing);
+    Gene missing = new MongoGene();
+    missing.setId("missingGene");
+    missing.setEntrezGeneId(100);
+    missing.setSymbol("TEST");
+    missing.setTaxId(9606);
+    missing.setChromosome("1");
+    missing.setGeneType("protein-coding");
+    genes.add(missing);
+    Exception exception = null;
+    try {
+      geneRepository.update(genes);
+    } catch (ModelPersistenceException e){
+      exception = e;
+    }
+    Assert.notNull(exception);
+    Assert.isTrue(exception.getMessage().contains("missingGene"));
+    Assert.isTrue(!exception.getMessage().contains(existing.getId().toString()));
+    Assert.isTrue(geneRepository.count() == 5L);
+    Assert.isTrue(!geneRepository.existsById("missingGene"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void upsertTest(){
+    Gene gene1 = new MongoGene();
+    gene1.setEntrezGeneId(100);
+    gene1.setSymbol("TEST");
+    gene1.setTaxId(9606);
+    gene1.setChromosome("1");
+    gene1.setGeneType("protein-coding");
+    geneRepository.insert(gene1);
+    Assert.notNull(gene1.getId());
+    Assert.isTrue(geneRepository.count() == 6L);
+
+    List<Gene> genes = new ArrayList<>();
+    gene1.setGeneType("TEST");
+    genes.add(gene1);
+    Gene gene2 = new MongoGene();
+    gene2.setEntrezGeneId(101);
+    gene2.setSymbol("TEST2");
+    gene2.setTaxId(9606);
+    gene2.setChromosome("12");
+    gene2.setGeneType("pseudo");
+    genes.add(gene2);
+    Gene gene3 = new MongoGene();
+    gene3.setId("upsertTest");
+    gene3.setEntrezGeneId(102);
+    gene3.setSymbol("TEST3");
+    gene3.setTaxId(9606);
+    gene3.setChromosome("3");
+    gene3.setGeneType("pseudo");
+    genes.add(gene3);
+    geneRepository.upsert(genes);
+    Assert.isTrue(geneRepository.count() == 8L);
+    Assert.notNull(gene2.getId());
+
+    Optional<Gene> optional = geneRepository.findByEntrezGeneId(100);
+    Assert.isTrue(optional.isPresent());
+    Assert.isTrue("TEST".equals(optional.get().getGeneType()));
+    optional = geneRepository.findById("upsertTest");
+    Assert.isTrue(optional.isPresent());
+    Assert.isTrue("TEST3".equals(optional.get().getSymbol()));
+    Assert.isTrue(optional.get() instanceof MongoGene);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void batchWriteEventsTest(){
+    List<String> events = new ArrayList<>();
+    AtomicBoolean recording = new AtomicBoolean(true);
+    ((ConfigurableApplicationContext) applicationContext).addApplicationListener(
+        new AbstractMongoEventListener<MongoGene>() {
+          @Override
+          public void onBeforeConvert(BeforeConvertEvent<MongoGene> event) {
+            if (!recording.get()) return;
+            events.add("BeforeConvert");
+            event.getSource().setChromosome("X"); // eg. auditing
+          }
+          @Override
+          public void onBeforeSave(BeforeSaveEvent<MongoGene> event) {
+            if (recording.get()) events.add("BeforeSave");
+          }
+          @Override
+          public void onAfterSave(AfterSaveEvent<MongoGene> event) {
+            if (recording.get()) events.add("AfterSave");
+          }
+        });
+    try {
+      List<Gene> genes = (List<Gene>) geneRepository.findAll();
+      geneRepository.update(genes.get(0));
+      List<String> single = new ArrayList<>(events);
+      Assert.isTrue(single.equals(Arrays.asList("BeforeConvert", "BeforeSave", "AfterSave")), 
+          single.toString());
+      
+      // Batch updates and upserts publish the same events for each record
+      events.clear();
+      geneRepository.update(genes);
+      Assert.isTrue(events.size() == 15, events.toString());
+      Assert.isTrue(events.stream().filter("AfterSave"::equals).count() == 5L);
+      for (Object gene: geneRepository.findAll()){
+        Assert.isTrue("X".equals(((Gene) gene).getChromosome()));
+      }
+      events.clear();
+      geneRepository.upsert(genes.subList(0, 2));
+      Assert.isTrue(events.size() == 6, events.toString());
+      
+      // Records that were not updated are not reported as saved
+      events.clear();
+      Gene missing = new MongoGene();
+      missing.setId("missingGene");
+      missing.setEntrezGeneId(100);
+      missing.setSymbol("TEST");
+      try {
+        geneRepository.update(Arrays.asList(genes.get(0), missing));
+      } catch (ModelPersistenceException e){
+        // expected
+      }
+      Assert.isTrue(events.stream().filter("AfterSave"::equals).count() == 1L, events.toString());
+    } finally {
+      recording.set(false);
+    }
+  }
+
   @Test
   public void deleteTest(){
 
@@ -629,6 +1135,40 @@ public class GenericMongoRepositoryTests extends AbstractRepositoryTests {
     Assert.isTrue(geneSymbols.contains("GeneD"));
   }
 
+  @Test
+  public void distinctCountsTest(){
+    QueryCriteria criteria = new QueryCriteria("taxId", 9606);
+    PageRequest pageRequest = PageRequest.of(0, 1, new Sort(Sort.Direction.DESC, "count"));
+    List<ValueCount> counts = geneRepository.distinctCounts("geneType", Collections.singletonList(criteria), pageRequest);
+    Assert.notNull(counts);
+    Assert.isTrue(counts.size() == 1);
+    Assert.isTrue("protein-coding".equals(counts.get(0).getValue()));
+    Assert.isTrue(counts.get(0).getCount() == 3L);
+    List<Object> values = geneRepository.distinct("geneType", Collections.singletonList(criteria),
+        PageRequest.of(1, 1, new Sort(Sort.Direction.DESC, "count")));
+    Assert.isTrue(values.size() == 1);
+    Assert.isTrue("pseudo".equals(values.get(0)));
+  }
+
+  @Test
+  public void groupByTest(){
+    List<ModelGroup> groups = geneRepository.groupBy("geneType", Collections.emptyList(), 
+        GroupAccumulator.sample(2));
+    Assert.notNull(groups);
+    Assert.isTrue(groups.size() == 2);
+    Assert.isTrue("protein-coding".equals(groups.get(0).getKey()));
+    Assert.isTrue(groups.get(0).getCount() == 3L);
+    Assert.isTrue(groups.get(0).getRecords().size() == 2);
+    Assert.isTrue("protein-coding".equals(((Gene) groups.get(0).getRecords().get(0)).getGeneType()));
+    Assert.isTrue("pseudo".equals(groups.get(1).getKey()));
+    Assert.isTrue(groups.get(1).getCount() == 2L);
+    groups = geneRepository.groupBy("geneType", Collections.singletonList(new QueryCriteria("geneType", "pseudo")), 
+        GroupAccumulator.count());
+    Assert.isTrue(groups.size() == 1);
+    Assert.isTrue(groups.get(0).getCount() == 2L);
+    Assert.isTrue(groups.get(0).getRecords().isEmpty());
+  }
+
   @Test
   public void guessGeneTest() throws Exception {
 
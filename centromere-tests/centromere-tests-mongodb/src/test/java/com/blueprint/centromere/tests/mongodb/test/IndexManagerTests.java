@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.mongodb.test;
+
+import com.blueprint.centromere.core.model.IndexDescriptor;
+import com.blueprint.centromere.core.model.ModelReflectionUtils;
+import com.blueprint.centromere.core.repository.ModelRepositoryRegistry;
+import com.blueprint.centromere.mongodb.MongoIndexManager;
+import com.blueprint.centromere.tests.mongodb.MongoDataSourceConfig;
+import com.blueprint.centromere.tests.mongodb.models.MongoGene;
+import com.blueprint.centromere.tests.mongodb.models.MongoGeneExpression;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {
+    MongoDataSourceConfig.class
+})
+public class IndexManagerTests {
+
+  @Autowired private MongoOperations mongoOperations;
+  @Autowired private ModelRepositoryRegistry registry;
+
+  private MongoIndexManager indexManager;
+
+  @Before
+  public void setup(){
+    indexManager = new MongoIndexManager(mongoOperations, registry);
+  }
+
+  @Test
+  public void indexDescriptorTest(){
+    List<IndexDescriptor> indexes = ModelReflectionUtils.getIndexDescriptors(MongoGene.class);
+    Assert.isTrue(indexes.size() == 6);
+    Assert.isTrue(indexes.contains(IndexDescriptor.singleField("symbol")));
+    Assert.isTrue(indexes.contains(IndexDescriptor.singleField("aliases")));
+    Assert.isTrue(indexes.contains(IndexDescriptor.singleField("_normalized.geneType")));
+    Assert.isTrue(indexes.contains(IndexDescriptor.singleField("_reversed.geneType")));
+    IndexDescriptor pairs = indexes.get(5);
+    Assert.isTrue(pairs.getKeys().size() == 2);
+    Assert.isTrue(pairs.supports("attributes.k"));
+    indexes = ModelReflectionUtils.getIndexDescriptors(MongoGeneExpression.class);
+    Assert.isTrue(indexes.size() == 5);
+    Assert.isTrue(indexes.contains(IndexDescriptor.singleField("geneId")));
+    IndexDescriptor compound = indexes.get(4);
+    Assert.isTrue(compound.getKeys().size() == 2);
+    Assert.isTrue(compound.supports("geneId"));
+    Assert.isTrue(!compound.supports("sampleId"));
+  }
+
+  @Test
+  public void createIndexesTest(){
+    indexManager.createIndexes(MongoGeneExpression.class);
+    Set<String> keys = new HashSet<>();
+    for (IndexInfo info: mongoOperations.indexOps(MongoGeneExpression.class).getIndexInfo()){
+      keys.add(info.getIndexFields().get(0).getKey());
+    }
+    Assert.isTrue(keys.contains("geneId"));
+    Assert.isTrue(keys.contains("sampleId"));
+    Assert.isTrue(keys.contains("dataSetId"));
+    Assert.isTrue(keys.contains("dataFileId"));
+  }
+
+  @Test
+  public void normalizedFieldMigrationTest(){
+    String collection = mongoOperations.getCollectionName(MongoGene.class);
+    mongoOperations.getCollection(collection).insertOne(new Document("_id", "migrationTest")
+        .append("symbol", "MIGRATED").append("geneType", "Protein-Coding"));
+    try {
+      Assert.isTrue(indexManager.migrateDocuments(MongoGene.class) >= 1L);
+      Document document = mongoOperations.getCollection(collection)
+          .find(new Document("_id", "migrationTest")).first();
+      Assert.notNull(document);
+      Assert.isTrue("protein-coding".equals(
+          ((Document) document.get("_normalized")).get("geneType")));
+      Assert.isTrue("gnidoc-nietorp".equals(
+          ((Document) document.get("_reversed")).get("geneType")));
+      Assert.isTrue(indexManager.migrateDocuments(MongoGene.class) == 0L);
+    } finally {
+      mongoOperations.getCollection(collection).deleteOne(new Document("_id", "migrationTest"));
+    }
+  }
+
+  @Test
+  public void keyValuePairMigrationTest(){
+    String collection = mongoOperations.getCollectionName(MongoGene.class);
+    mongoOperations.getCollection(collection).insertOne(new Document("_id", "migrationTest")
+        .append("symbol", "MIGRATED")
+        .append("attributes", new Document("isKinase", "Y").append("migrated", "true")));
+    try {
+      Assert.isTrue(indexManager.migrateDocuments(MongoGene.class) >= 1L);
+      Document document = mongoOperations.getCollection(collection)
+          .find(new Document("_id", "migrationTest")).first();
+      Assert.notNull(document);
+      Assert.isTrue(document.get("attributes") instanceof List);
+      List<?> pairs = (List<?>) document.get("attributes");
+      Assert.isTrue(pairs.size() == 2);
+      Assert.isTrue(pairs.contains(new Document("k", "isKinase").append("v", "Y")));
+      MongoGene gene = mongoOperations.findById("migrationTest", MongoGene.class);
+      Assert.isTrue("true".equals(gene.getAttribute("migrated")));
+      Assert.isTrue(mongoOperations.getCollection(collection).count(new Document("attributes", 
+          new Document("$elemMatch", new Document("k", "migrated").append("v", "true")))) == 1L);
+      Assert.isTrue(indexManager.migrateDocuments(MongoGene.class) == 0L);
+    } finally {
+      mongoOperations.getCollection(collection).deleteOne(new Document("_id", "migrationTest"));
+    }
+  }
+
+  @Test
+  public void unindexedParametersTest(){
+    Map<Class<?>, Set<String>> report = indexManager.ensureIndexes();
+    Assert.isTrue(report.containsKey(MongoGene.class));
+    Set<String> unindexed = report.get(MongoGene.class);
+    Assert.isTrue(unindexed.contains("geneType"));
+    Assert.isTrue(unindexed.contains("taxId"));
+    Assert.isTrue(!unindexed.contains("symbol"));
+    Assert.isTrue(!unindexed.contains("aliases"));
+    Assert.isTrue(!unindexed.contains("id"));
+    Assert.isTrue(!unindexed.contains("attributes.\\w+"));
+    Assert.isTrue(!report.get(MongoGeneExpression.class).contains("geneId"));
+    Assert.isTrue(report.get(MongoGeneExpression.class).contains("value"));
+  }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.mongodb.test;
+
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.mongodb.MongoCriteriaTranslator;
+import com.blueprint.centromere.tests.mongodb.models.MongoGene;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.bson.Document;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+public class MongoCriteriaTranslatorTests {
+
+  @Test
+  public void translateTest(){
+    MongoCriteriaTranslator translator = new MongoCriteriaTranslator();
+    Criteria criteria = translator.translate(Arrays.asList(
+        new QueryCriteria("symbol", "GeneA"),
+        new QueryCriteria("entrezGeneId", Arrays.asList(1, 3), Evaluation.BETWEEN_INCLUSIVE)));
+    Assert.notNull(criteria);
+    Document document = new Query(criteria).getQueryObject();
+    Assert.isTrue(document.containsKey("$and"));
+    List<?> and = (List<?>) document.get("$and");
+    Assert.isTrue(and.size() == 2, document.toJson());
+    Assert.isTrue("GeneA".equals(((Document) and.get(0)).get("symbol")), document.toJson());
+    Document range = ((Document) and.get(1)).get("entrezGeneId", Document.class);
+    Assert.isTrue(range.size() == 2, "Expected a single-field range: " + document.toJson());
+    Assert.isTrue(Integer.valueOf(1).equals(range.get("$gte")), document.toJson());
+    Assert.isTrue(Integer.valueOf(3).equals(range.get("$lte")), document.toJson());
+    Assert.isTrue(translator.getTemplateCacheSize() == 1L);
+    
+    // Same shape, different values
+    Criteria other = translator.translate(Arrays.asList(
+        new QueryCriteria("symbol", "GeneB"),
+        new QueryCriteria("entrezGeneId", Arrays.asList(2, 4), Evaluation.BETWEEN_INCLUSIVE)));
+    Assert.isTrue(translator.getTemplateCacheSize() == 1L);
+    Assert.isTrue(new Query(other).getQueryObject().toJson().contains("GeneB"));
+    Assert.isTrue(!new Query(other).getQueryObject().toJson().contains("GeneA"));
+    
+    translator.translate(Collections.singletonList(new QueryCriteria("symbol", "GeneA", Evaluation.NOT_EQUALS)));
+    Assert.isTrue(translator.getTemplateCacheSize() == 2L);
+    Assert.isNull(translator.translate(Collections.emptyList()));
+  }
+
+  @Test
+  public void translateGroupTest(){
+    MongoCriteriaTranslator translator = new MongoCriteriaTranslator();
+    Criteria criteria = translator.translate(Arrays.asList(
+        new QueryCriteria("geneType", "protein-coding"),
+        QueryCriteria.or(
+            new QueryCriteria("symbol", "GeneA"),
+            QueryCriteria.and(
+                new QueryCriteria("aliases", "GeneA"),
+                new QueryCriteria("taxId", 9606)))));
+    Document document = new Query(criteria).getQueryObject();
+    List<?> and = (List<?>) document.get("$and");
+    Assert.isTrue(and.size() == 2, document.toJson());
+    Assert.isTrue("protein-coding".equals(((Document) and.get(0)).get("geneType")), document.toJson());
+    List<?> or = (List<?>) ((Document) and.get(1)).get("$or");
+    Assert.isTrue(or != null && or.size() == 2, document.toJson());
+    Assert.isTrue("GeneA".equals(((Document) or.get(0)).get("symbol")), document.toJson());
+    List<?> nested = (List<?>) ((Document) or.get(1)).get("$and");
+    Assert.isTrue(nested != null && nested.size() == 2, document.toJson());
+    Assert.isTrue("GeneA".equals(((Document) nested.get(0)).get("aliases")), document.toJson());
+    Assert.isTrue(Integer.valueOf(9606).equals(((Document) nested.get(1)).get("taxId")), 
+        document.toJson());
+    Assert.isTrue(translator.getTemplateCacheSize() == 1L);
+    
+    // Same shape, different values
+    String json = new Query(translator.translate(Arrays.asList(
+        new QueryCriteria("geneType", "pseudo"),
+        QueryCriteria.or(
+            new QueryCriteria("symbol", "GeneB"),
+            QueryCriteria.and(
+                new QueryCriteria("aliases", "GeneB"),
+                new QueryCriteria("taxId", 10090)))))).getQueryObject().toJson();
+    Assert.isTrue(translator.getTemplateCacheSize() == 1L);
+    Assert.isTrue(json.contains("GeneB") && json.contains("10090") && !json.contains("GeneA"));
+    
+    // Different group members
+    translator.translate(Arrays.asList(
+        new QueryCriteria("geneType", "pseudo"),
+        QueryCriteria.or(
+            new QueryCriteria("symbol", "GeneB"),
+            new QueryCriteria("aliases", "GeneB"))));
+    Assert.isTrue(translator.getTemplateCacheSize() == 2L);
+  }
+
+  @Test
+  public void patternCacheTest(){
+    MongoCriteriaTranslator translator = new MongoCriteriaTranslator(10L, 2L);
+    for (String value: Arrays.asList("GeneA", "GeneB", "GeneC", "GeneA")){
+      translator.translate(Collections.singletonList(new QueryCriteria("symbol", value, Evaluation.LIKE)));
+    }
+    Assert.isTrue(translator.getTemplateCacheSize() == 1L);
+    Assert.isTrue(translator.getPatternCacheSize() <= 2L);
+  }
+
+  @Test
+  public void normalizedFieldTest(){
+    MongoCriteriaTranslator translator = new MongoCriteriaTranslator(MongoGene.class);
+    Assert.isTrue("^protein".equals(getPattern(translator, "geneType", "Protein", 
+        Evaluation.STARTS_WITH, "_normalized.geneType")));
+    Assert.isTrue("^gnidoc-".equals(getPattern(translator, "geneType", "-Coding", 
+        Evaluation.ENDS_WITH, "_reversed.geneType")));
+    Assert.isTrue("protein".equals(getPattern(translator, "geneType", "Protein", 
+        Evaluation.LIKE, "_normalized.geneType")));
+    Assert.isTrue("prot.*".equals(getPattern(translator, "geneType", "prot.*", 
+        Evaluation.LIKE, "geneType")));
+    Assert.isTrue("^a\\.b".equals(getPattern(translator, "symbol", "a.b", 
+        Evaluation.STARTS_WITH, "symbol")));
+  }
+  
+  @Test
+  public void keyValuePairFieldTest(){
+    MongoCriteriaTranslator translator = new MongoCriteriaTranslator(MongoGene.class);
+    Document criteria = getCriteria(translator, 
+        new QueryCriteria("attributes.isKinase", "Y"));
+    Document elemMatch = (Document) ((Document) criteria.get("attributes")).get("$elemMatch");
+    Assert.notNull(elemMatch, criteria.toJson());
+    Assert.isTrue("isKinase".equals(elemMatch.get("k")));
+    Assert.isTrue(elemMatch.toJson().contains("\"v\" : \"Y\""), elemMatch.toJson());
+    
+    criteria = getCriteria(translator, 
+        new QueryCriteria("attributes.isKinase", "Y", Evaluation.NOT_EQUALS));
+    Document not = (Document) ((Document) criteria.get("attributes")).get("$not");
+    Assert.notNull(not, criteria.toJson());
+    Assert.isTrue(not.containsKey("$elemMatch"));
+    
+    criteria = getCriteria(translator, new QueryCriteria("externalReferences.hgnc", "1"));
+    Assert.isTrue("1".equals(criteria.get("externalReferences.hgnc")));
+  }
+  
+  private Document getCriteria(MongoCriteriaTranslator translator, QueryCriteria queryCriteria){
+    Document document = new Query(translator.translate(Collections.singletonList(queryCriteria)))
+        .getQueryObject();
+    return (Document) ((List<?>) document.get("$and")).get(0);
+  }
+  
+  private String getPattern(MongoCriteriaTranslator translator, String key, String value, 
+      Evaluation evaluation, String field){
+    Document document = new Query(translator.translate(Collections.singletonList(
+        new QueryCriteria(key, value, evaluation)))).getQueryObject();
+    Document criteria = (Document) ((List<?>) document.get("$and")).get(0);
+    return ((Pattern) criteria.get(field)).pattern();
+  }
+
+  @Test(expected = PatternSyntaxException.class)
+  public void invalidPatternTest(){
+    new MongoCriteriaTranslator().translate(Collections.singletonList(
+        new QueryCriteria("symbol", "Gene[", Evaluation.LIKE)));
+  }
+
+}
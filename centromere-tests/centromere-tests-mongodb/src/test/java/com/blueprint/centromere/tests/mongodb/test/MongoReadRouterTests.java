@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.mongodb.test;
+
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.ValueCount;
+import com.blueprint.centromere.mongodb.MongoModelRepository;
+import com.blueprint.centromere.mongodb.MongoReadRouter;
+import com.blueprint.centromere.mongodb.MongoReadRouter.ReadOperation;
+import com.blueprint.centromere.tests.core.AbstractRepositoryTests;
+import com.blueprint.centromere.tests.mongodb.MongoDataSourceConfig;
+import com.blueprint.centromere.tests.mongodb.models.MongoGene;
+import com.mongodb.ReadPreference;
+import com.mongodb.TaggableReadPreference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {
+    MongoDataSourceConfig.class
+})
+public class MongoReadRouterTests extends AbstractRepositoryTests {
+
+  @Autowired private MongoOperations mongoOperations;
+  @Autowired private MongoDbFactory mongoDbFactory;
+  @Autowired private ApplicationContext applicationContext;
+
+  @Test
+  public void readPreferenceTest(){
+    MongoReadRouter router = new MongoReadRouter(mongoDbFactory, mongoOperations.getConverter());
+    Assert.isNull(router.getReadPreference(MongoGene.class, ReadOperation.FIND));
+    Assert.isNull(router.getOperations(MongoGene.class, ReadOperation.FIND));
+    
+    ReadPreference secondary = MongoReadRouter.getReadPreference("secondaryPreferred", 90L);
+    Assert.isTrue(Long.valueOf(90L).equals(
+        ((TaggableReadPreference) secondary).getMaxStaleness(TimeUnit.SECONDS)));
+    router.setDefaultReadPreference(secondary);
+    Assert.isTrue(secondary.equals(router.getReadPreference(MongoGene.class, ReadOperation.COUNT)));
+    Assert.notNull(router.getOperations(MongoGene.class, ReadOperation.FIND));
+    Assert.isTrue(router.getOperations(MongoGene.class, ReadOperation.FIND) 
+        == router.getOperations(MongoGene.class, ReadOperation.DISTINCT));
+    
+    router.setOperations(Collections.singletonList(ReadOperation.FIND));
+    Assert.notNull(router.getReadPreference(MongoGene.class, ReadOperation.FIND));
+    Assert.isNull(router.getReadPreference(MongoGene.class, ReadOperation.COUNT));
+    
+    router.setModelReadPreference(MongoGene.class, ReadPreference.primary());
+    Assert.isNull(router.getReadPreference(MongoGene.class, ReadOperation.FIND));
+  }
+
+  @Test
+  public void routedRepositoryTest(){
+    MongoEntityInformation<MongoGene, String> information 
+        = new MongoRepositoryFactory(mongoOperations).getEntityInformation(MongoGene.class);
+    MongoModelRepository<MongoGene, String> repository 
+        = new MongoModelRepository<>(information, mongoOperations);
+    MongoReadRouter router = new MongoReadRouter(mongoDbFactory, mongoOperations.getConverter());
+    router.setApplicationContext(applicationContext);
+    router.setDefaultReadPreference(ReadPreference.secondaryPreferred());
+    repository.setReadRouter(router);
+    
+    List<QueryCriteria> criterias 
+        = Collections.singletonList(new QueryCriteria("attributes.isKinase", "Y"));
+    List<MongoGene> genes = repository.find(criterias);
+    Assert.isTrue(genes.size() == 2, "Expected result set size of 2");
+    Assert.isTrue("Y".equals(genes.get(0).getAttributes().get("isKinase")));
+    Assert.isTrue(repository.count(criterias) == 2L);
+    Assert.isTrue(repository.find(criterias, PageRequest.of(0, 1)).getTotalElements() == 2L);
+    Set<Object> symbols = repository.distinct("symbol", criterias);
+    Assert.isTrue(symbols.size() == 2 && symbols.contains("GeneA"));
+    List<ValueCount> counts = repository.distinctCounts("geneType", Collections.emptyList(), 
+        PageRequest.of(0, 10));
+    Assert.notEmpty(counts);
+    Assert.isTrue(repository.existsById(genes.get(0).getId()));
+  }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blueprint.centromere.tests.mongodb.test;
+
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.cache.CachingModelRepository;
+import com.blueprint.centromere.core.repository.cache.QueryCacheKey;
+import com.blueprint.centromere.core.repository.cache.QueryCacheManager;
+import com.blueprint.centromere.core.repository.cache.QueryCacheSettings;
+import com.blueprint.centromere.mongodb.MongoQueryCacheInvalidationBroadcaster;
+import com.blueprint.centromere.tests.core.AbstractRepositoryTests;
+import com.blueprint.centromere.tests.core.models.Gene;
+import com.blueprint.centromere.tests.core.repositories.GeneRepository;
+import com.blueprint.centromere.tests.core.repositories.SampleRepository;
+import com.blueprint.centromere.tests.mongodb.MongoDataSourceConfig;
+import com.blueprint.centromere.tests.mongodb.models.MongoGene;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {
+    MongoDataSourceConfig.class
+})
+public class QueryCacheTests extends AbstractRepositoryTests {
+
+  @Autowired private GeneRepository geneRepository;
+  @Autowired private SampleRepository sampleRepository;
+  @Autowired private MongoOperations mongoOperations;
+
+  private QueryCacheSettings getSettings(){
+    QueryCacheSettings settings = new QueryCacheSettings();
+    settings.setTtl(MongoGene.class, Duration.ofMinutes(1));
+    return settings;
+  }
+
+  @Test
+  public void cacheKeyTest(){
+    QueryCacheKey key = QueryCacheKey.of(0L, "find", Arrays.asList(
+        new QueryCriteria("symbol", Arrays.asList("GeneA", "GeneB"), Evaluation.IN),
+        new QueryCriteria("geneType", "protein-coding")), Sort.by("symbol"));
+    QueryCacheKey other = QueryCacheKey.of(0L, "find", Arrays.asList(
+        new QueryCriteria("geneType", "protein-coding"),
+        new QueryCriteria("symbol", new String[]{ "GeneB", "GeneA" }, Evaluation.IN)), Sort.by("symbol"));
+    Assert.isTrue(key.equals(other));
+    Assert.isTrue(key.hashCode() == other.hashCode());
+    Assert.isTrue(!key.equals(QueryCacheKey.of(1L, "find", Arrays.asList(
+        new QueryCriteria("geneType", "protein-coding"),
+        new QueryCriteria("symbol", Arrays.asList("GeneA", "GeneB"), Evaluation.IN)), Sort.by("symbol"))));
+    Assert.isTrue(!key.equals(QueryCacheKey.of(0L, "find", Arrays.asList(
+        new QueryCriteria("geneType", "protein-coding"),
+        new QueryCriteria("symbol", Arrays.asList("GeneA", "GeneB"), Evaluation.IN)), Sort.by("geneType"))));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void cachedFindTest(){
+    CachingModelRepository repository = new CachingModelRepository(geneRepository, getSettings());
+    List<QueryCriteria> criterias = Arrays.asList(
+        new QueryCriteria("geneType", "protein-coding"),
+        new QueryCriteria("taxId", 9606));
+    List<Gene> genes = (List<Gene>) repository.find(criterias);
+    Assert.isTrue(genes.size() == 3);
+    Assert.isTrue(repository.getStats().missCount() == 1L);
+    List<QueryCriteria> reordered = new ArrayList<>(criterias);
+    Collections.reverse(reordered);
+    Assert.isTrue(repository.find(reordered) == genes);
+    Assert.isTrue(repository.getStats().hitCount() == 1L);
+    
+    Assert.isTrue(repository.count(criterias) == 3L);
+    Assert.isTrue(repository.count(criterias) == 3L);
+    Assert.isTrue(repository.distinct("symbol").size() == 5);
+    Assert.isTrue(repository.distinct("symbol").size() == 5);
+    Assert.isTrue(repository.getStats().hitCount() == 3L);
+    Assert.isTrue(repository.getSize() == 3L);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void invalidateOnWriteTest(){
+    CachingModelRepository repository = new CachingModelRepository(geneRepository, getSettings());
+    List<QueryCriteria> criterias = Arrays.asList(new QueryCriteria("geneType", "protein-coding"));
+    Assert.isTrue(repository.count(criterias) == 3L);
+    
+    Gene gene = new MongoGene();
+    gene.setEntrezGeneId(100);
+    gene.setSymbol("TEST");
+    gene.setTaxId(9606);
+    gene.setChromosome("1");
+    gene.setGeneType("protein-coding");
+    repository.insert(gene);
+    Assert.isTrue(repository.getSize() == 0L);
+    Assert.isTrue(repository.count(criterias) == 4L);
+    
+    repository.delete(gene);
+    Assert.isTrue(repository.count(criterias) == 3L);
+    Assert.isTrue(repository.getStats().hitCount() == 0L);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void weightedEvictionTest(){
+    QueryCacheSettings settings = getSettings();
+    settings.setMaximumWeight(4L);
+    CachingModelRepository repository = new CachingModelRepository(geneRepository, settings);
+    Assert.isTrue(((List<Gene>) repository.findAll()).size() == 5);
+    Assert.isTrue(repository.getSize() == 0L);
+    Assert.isTrue(((List<Gene>) repository.find(Arrays.asList(
+        new QueryCriteria("symbol", "GeneA")))).size() == 1);
+    Assert.isTrue(repository.getSize() == 1L);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  @SuppressWarnings("unchecked")
+  public void unmodifiableResultTest(){
+    CachingModelRepository repository = new CachingModelRepository(geneRepository, getSettings());
+    List<Gene> genes = (List<Gene>) repository.find(Collections.singletonList(
+        new QueryCriteria("geneType", "protein-coding")));
+    Assert.isTrue(genes.size() == 3);
+    genes.clear();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void unmodifiablePageResultTest(){
+    CachingModelRepository repository = new CachingModelRepository(geneRepository, getSettings());
+    List<QueryCriteria> criterias = Collections.singletonList(
+        new QueryCriteria("geneType", "protein-coding"));
+    Page<Gene> page = repository.find(criterias, PageRequest.of(0, 2));
+    Assert.isTrue(page.getContent().size() == 2);
+    Assert.isTrue(page.getTotalElements() == 3L);
+    Assert.isTrue(page.getTotalPages() == 2);
+    try {
+      page.getContent().clear();
+      Assert.isTrue(false, "Cached page content should be unmodifiable");
+    } catch (UnsupportedOperationException e){
+      // expected
+    }
+    Slice<Gene> slice = repository.findSlice(criterias, PageRequest.of(1, 2));
+    Assert.isTrue(slice.getContent().size() == 1);
+    Assert.isTrue(!slice.hasNext());
+    Assert.isTrue(slice.getNumber() == 1);
+    try {
+      slice.getContent().clear();
+      Assert.isTrue(false, "Cached slice content should be unmodifiable");
+    } catch (UnsupportedOperationException e){
+      // expected
+    }
+    Assert.isTrue(repository.find(criterias, PageRequest.of(0, 2)).getContent().size() == 2);
+    Assert.isTrue(repository.findSlice(criterias, PageRequest.of(1, 2)).getContent().size() == 1);
+    Assert.isTrue(repository.getSize() == 2L);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void maximumResultSizeTest(){
+    QueryCacheSettings settings = getSettings();
+    settings.setMaximumResultSize(4L);
+    CachingModelRepository repository = new CachingModelRepository(geneRepository, settings);
+    Assert.isTrue(((List<Gene>) repository.findAll()).size() == 5);
+    Assert.isTrue(((List<Gene>) repository.findAll()).size() == 5);
+    Assert.isTrue(repository.getSize() == 0L);
+    Assert.isTrue(repository.count() == 5L);
+    Assert.isTrue(repository.getSize() == 1L);
+  }
+
+  @Test
+  public void cacheManagerTest() throws Exception {
+    MongoQueryCacheInvalidationBroadcaster local 
+        = new MongoQueryCacheInvalidationBroadcaster(mongoOperations);
+    MongoQueryCacheInvalidationBroadcaster remote 
+        = new MongoQueryCacheInvalidationBroadcaster(mongoOperations);
+    local.setPollInterval(50L);
+    remote.setPollInterval(50L);
+    try {
+      QueryCacheManager localManager = new QueryCacheManager(getSettings(), local);
+      QueryCacheManager remoteManager = new QueryCacheManager(getSettings(), remote);
+      Assert.isTrue(localManager.decorate(sampleRepository) == sampleRepository);
+      CachingModelRepository repository = (CachingModelRepository) localManager.decorate(geneRepository);
+      Assert.isTrue(localManager.getRepository(MongoGene.class) == repository);
+      Thread.sleep(200L);
+      
+      repository.findAll();
+      Assert.isTrue(repository.getSize() == 1L);
+      remoteManager.invalidate(MongoGene.class);
+      long deadline = System.currentTimeMillis() + 5000L;
+      while (repository.getSize() > 0L && System.currentTimeMillis() < deadline){
+        Thread.sleep(50L);
+      }
+      Assert.isTrue(repository.getSize() == 0L);
+    } finally {
+      local.destroy();
+      remote.destroy();
+    }
+  }
+
+  @Test
+  public void unorderedInvalidationIdTest() throws Exception {
+    MongoQueryCacheInvalidationBroadcaster broadcaster 
+        = new MongoQueryCacheInvalidationBroadcaster(mongoOperations);
+    broadcaster.setPollInterval(50L);
+    // Each poll then reopens the cursor, and has to resume after the last document seen
+    broadcaster.setTailable(false);
+    List<Class<?>> received = new CopyOnWriteArrayList<>();
+    try {
+      broadcaster.publish(MongoGene.class);
+      broadcaster.subscribe(received::add);
+      Thread.sleep(200L);
+      
+      // Another node's driver may generate IDs that sort before those already in the collection
+      mongoOperations.getCollection(MongoQueryCacheInvalidationBroadcaster.DEFAULT_COLLECTION_NAME)
+          .insertOne(new Document("_id", new ObjectId(new Date(0L)))
+              .append("model", MongoGene.class.getName())
+              .append("origin", "remote")
+              .append("timestamp", new Date()));
+      long deadline = System.currentTimeMillis() + 5000L;
+      while (received.isEmpty() && System.currentTimeMillis() < deadline){
+        Thread.sleep(50L);
+      }
+      Assert.isTrue(received.size() == 1, received.toString());
+      Assert.isTrue(received.get(0).equals(MongoGene.class));
+    } finally {
+      broadcaster.destroy();
+    }
+  }
+
+}
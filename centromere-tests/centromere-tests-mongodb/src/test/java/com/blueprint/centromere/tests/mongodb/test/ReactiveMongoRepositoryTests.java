@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.mongodb.test;
+
+import com.blueprint.centromere.core.exceptions.ModelPersistenceException;
+import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import com.blueprint.centromere.core.repository.ModelGroup;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.ReactiveModelRepositoryAdapter;
+import com.blueprint.centromere.core.repository.ValueCount;
+import com.blueprint.centromere.tests.core.AbstractRepositoryTests;
+import com.blueprint.centromere.tests.core.repositories.GeneRepository;
+import com.blueprint.centromere.tests.mongodb.MongoDataSourceConfig;
+import com.blueprint.centromere.tests.mongodb.ReactiveMongoDataSourceConfig;
+import com.blueprint.centromere.tests.mongodb.models.MongoGene;
+import com.blueprint.centromere.tests.mongodb.repositories.ReactiveMongoGeneRepository;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {
+    MongoDataSourceConfig.class,
+    ReactiveMongoDataSourceConfig.class
+})
+public class ReactiveMongoRepositoryTests extends AbstractRepositoryTests {
+
+  @Autowired private ReactiveMongoGeneRepository reactiveGeneRepository;
+  @Autowired private GeneRepository geneRepository;
+
+  @Test
+  public void findTest(){
+    List<MongoGene> genes = reactiveGeneRepository.find(Collections.singletonList(
+        new QueryCriteria("geneType", "protein-coding")), Sort.by("symbol")).collectList().block();
+    Assert.notNull(genes);
+    Assert.isTrue(genes.size() == 3);
+    Assert.isTrue("GeneA".equals(genes.get(0).getSymbol()));
+    Assert.isTrue("GeneD".equals(genes.get(2).getSymbol()));
+    genes = reactiveGeneRepository.find(Collections.<QueryCriteria>emptyList(), 
+        PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "symbol"))).collectList().block();
+    Assert.isTrue(genes.size() == 2);
+    Assert.isTrue("GeneC".equals(genes.get(0).getSymbol()));
+    Assert.isTrue(reactiveGeneRepository.count().block() == 5L);
+    Assert.isTrue(reactiveGeneRepository.count(Collections.singletonList(
+        new QueryCriteria("entrezGeneId", 3, Evaluation.GREATER_THAN))).block() == 2L);
+  }
+
+  @Test
+  public void findByIdTest(){
+    MongoGene gene = reactiveGeneRepository.findAll().blockFirst();
+    Assert.notNull(gene);
+    MongoGene found = reactiveGeneRepository.findById(gene.getId()).block();
+    Assert.notNull(found);
+    Assert.isTrue(gene.getSymbol().equals(found.getSymbol()));
+    Assert.isTrue(reactiveGeneRepository.existsById(gene.getId()).block());
+    Assert.isNull(reactiveGeneRepository.findById("abc").block());
+  }
+
+  @Test
+  public void aggregationTest(){
+    List<ValueCount> counts = reactiveGeneRepository.distinctCounts("geneType", 
+        Collections.<QueryCriteria>emptyList(), 
+        PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, ValueCount.COUNT_PROPERTY)))
+        .collectList().block();
+    Assert.isTrue(counts.size() == 2);
+    Assert.isTrue("protein-coding".equals(counts.get(0).getValue()));
+    Assert.isTrue(counts.get(0).getCount() == 3L);
+    List<Object> distinct = reactiveGeneRepository.distinct("aliases", 
+        Collections.<QueryCriteria>emptyList()).collectList().block();
+    Assert.isTrue(distinct.size() == 5);
+    List<ModelGroup<MongoGene>> groups = reactiveGeneRepository.groupBy("geneType", 
+        Collections.<QueryCriteria>emptyList(), GroupAccumulator.sample(2)).collectList().block();
+    Assert.isTrue(groups.size() == 2);
+    Assert.isTrue("protein-coding".equals(groups.get(0).getKey()));
+    Assert.isTrue(groups.get(0).getCount() == 3L);
+    Assert.isTrue(groups.get(0).getRecords().size() == 2);
+  }
+
+  @Test
+  public void crudTest(){
+    MongoGene gene = new MongoGene();
+    gene.setSymbol("GeneF");
+    gene.setEntrezGeneId(6);
+    gene.setTaxId(9606);
+    gene.setGeneType("pseudo");
+    MongoGene created = reactiveGeneRepository.insert(gene).block();
+    Assert.notNull(created.getId());
+    Assert.isTrue(reactiveGeneRepository.count().block() == 6L);
+    created.setDescription("Updated");
+    reactiveGeneRepository.update(created).block();
+    Assert.isTrue("Updated".equals(reactiveGeneRepository.findById(created.getId()).block()
+        .getDescription()));
+    reactiveGeneRepository.deleteById(created.getId()).block();
+    Assert.isTrue(reactiveGeneRepository.count().block() == 5L);
+    Exception exception = null;
+    try {
+      reactiveGeneRepository.update(created).block();
+    } catch (ModelPersistenceException e){
+      exception = e;
+    }
+    Assert.notNull(exception);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void blockingAdapterTest(){
+    ReactiveModelRepositoryAdapter<MongoGene, String> adapter 
+        = new ReactiveModelRepositoryAdapter<>(geneRepository);
+    List<MongoGene> genes = adapter.find(Collections.singletonList(new QueryCriteria("symbol", 
+        Arrays.asList("GeneB", "GeneE"), Evaluation.IN)), Sort.by("symbol")).collectList().block();
+    Assert.isTrue(genes.size() == 2);
+    Assert.isTrue("GeneB".equals(genes.get(0).getSymbol()));
+    Assert.isTrue(adapter.count().block() == 5L);
+  }
+
+}
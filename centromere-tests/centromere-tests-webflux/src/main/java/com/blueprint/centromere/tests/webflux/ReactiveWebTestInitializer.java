@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.webflux;
+
+import com.blueprint.centromere.tests.mongodb.MongoDataSourceConfig;
+import com.blueprint.centromere.tests.mongodb.ReactiveMongoDataSourceConfig;
+import com.blueprint.centromere.webflux.config.AutoConfigureReactiveCentromere;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+
+/**
+ * @author woemler
+ * @since 0.6.0
+ */
+@AutoConfigureReactiveCentromere
+@SpringBootApplication(exclude = { DataSourceAutoConfiguration.class })
+@Import({ MongoDataSourceConfig.class, ReactiveMongoDataSourceConfig.class })
+public class ReactiveWebTestInitializer {
+
+  public static void main(String[] args) {
+    new SpringApplicationBuilder(ReactiveWebTestInitializer.class)
+        .web(WebApplicationType.REACTIVE)
+        .run(args);
+  }
+
+}
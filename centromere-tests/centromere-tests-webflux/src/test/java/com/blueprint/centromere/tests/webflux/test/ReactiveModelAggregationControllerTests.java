@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.webflux.test;
+
+import com.blueprint.centromere.tests.core.AbstractRepositoryTests;
+import com.blueprint.centromere.tests.webflux.ReactiveWebTestInitializer;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.Assert;
+
+/**
+ * @author woemler
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ReactiveWebTestInitializer.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+public class ReactiveModelAggregationControllerTests extends AbstractRepositoryTests {
+
+  @Autowired private WebTestClient webClient;
+
+  @Test
+  public void findDistinct() throws Exception {
+    webClient.get().uri("/api/aggregation/gene/distinct/geneType")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2);
+  }
+
+  @Test
+  public void findDistinctFiltered() throws Exception {
+    webClient.get().uri("/api/aggregation/gene/distinct/symbol?geneType=protein-coding&sort=symbol")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(3)
+        .jsonPath("$[2]").isEqualTo("GeneD");
+  }
+
+  @Test
+  public void findDistinctCounts() throws Exception {
+    webClient.get().uri("/api/aggregation/gene/distinct/geneType?counts=true&sort=count,desc")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].value").isEqualTo("protein-coding")
+        .jsonPath("$[0].count").isEqualTo(3);
+  }
+
+  @Test
+  public void invalidFindDistinct() throws Exception {
+    webClient.get().uri("/api/aggregation/gene/distinct/badField")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  public void count() throws Exception {
+    webClient.get().uri("/api/aggregation/gene/count?geneType=pseudo")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.count").isEqualTo(2);
+  }
+
+  @Test
+  public void groupBy() throws Exception {
+    webClient.get().uri("/api/aggregation/gene/group/geneType?limit=2")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.protein-coding.length()").isEqualTo(2)
+        .jsonPath("$.pseudo.length()").isEqualTo(2);
+    webClient.get().uri("/api/aggregation/gene/group/geneType?counts=true")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.protein-coding").isEqualTo(3);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void groupByStreamed() throws Exception {
+    List<Map> groups = webClient.get().uri("/api/aggregation/gene/group/geneType?counts=true")
+        .accept(MediaType.APPLICATION_STREAM_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(Map.class)
+        .getResponseBody()
+        .collectList()
+        .block();
+    Assert.isTrue(groups.size() == 2);
+    Assert.isTrue("protein-coding".equals(groups.get(0).get("key")));
+    Assert.isTrue(((Number) groups.get(0).get("count")).intValue() == 3);
+  }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.tests.webflux.test;
+
+import com.blueprint.centromere.tests.core.AbstractRepositoryTests;
+import com.blueprint.centromere.tests.core.models.Gene;
+import com.blueprint.centromere.tests.core.repositories.GeneRepository;
+import com.blueprint.centromere.tests.webflux.ReactiveWebTestInitializer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+
+/**
+ * @author woemler
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ReactiveWebTestInitializer.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+public class ReactiveModelSearchControllerTests extends AbstractRepositoryTests {
+
+  @Autowired private GeneRepository geneRepository;
+  @Autowired private WebTestClient webClient;
+
+  @Test
+  public void findAll() throws Exception {
+    webClient.get().uri("/api/search/gene")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(5);
+  }
+
+  @Test
+  public void findFilteredAndSorted() throws Exception {
+    webClient.get().uri("/api/search/gene?geneType=pseudo&sort=symbol,desc")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].symbol").isEqualTo("GeneE")
+        .jsonPath("$[1].symbol").isEqualTo("GeneC");
+  }
+
+  @Test
+  public void findByFilterExpression() throws Exception {
+    webClient.get().uri("/api/search/gene?filter={filter}&sort=symbol", 
+        "or(symbol:GeneA;and(geneType:pseudo;aliases:MNO))")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].symbol").isEqualTo("GeneA")
+        .jsonPath("$[1].symbol").isEqualTo("GeneE");
+    webClient.get().uri("/api/search/gene?filter={filter}", "or(symbol:GeneA;badParam:1)")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  public void findPaged() throws Exception {
+    webClient.get().uri("/api/search/gene?page=1&size=2&sort=symbol")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].symbol").isEqualTo("GeneC");
+  }
+
+  @Test
+  public void findFieldFiltered() throws Exception {
+    webClient.get().uri("/api/search/gene?symbol=GeneB&fields=symbol")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(1)
+        .jsonPath("$[0].symbol").isEqualTo("GeneB")
+        .jsonPath("$[0].description").doesNotExist();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void findStreamed() throws Exception {
+    Flux<Map> body = webClient.get().uri("/api/search/gene?sort=symbol")
+        .accept(MediaType.APPLICATION_STREAM_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(Map.class)
+        .getResponseBody();
+    List<Map> genes = body.take(2).collectList().block();
+    Assert.isTrue(genes.size() == 2);
+    Assert.isTrue("GeneA".equals(genes.get(0).get("symbol")));
+  }
+
+  @Test
+  public void findBlockingAdaptedResource() throws Exception {
+    webClient.get().uri("/api/search/sample?name=SampleA")
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(1)
+        .jsonPath("$[0].name").isEqualTo("SampleA");
+  }
+
+  @Test
+  public void invalidRequests() throws Exception {
+    webClient.get().uri("/api/search/bad").exchange().expectStatus().isNotFound();
+    webClient.get().uri("/api/search/gene?badParam=x").exchange().expectStatus().isBadRequest();
+    webClient.get().uri("/api/search/gene/abc").exchange().expectStatus().isNotFound();
+  }
+
+  @Test
+  public void findById() throws Exception {
+    Gene gene = (Gene) geneRepository.findAll(Sort.by("symbol")).iterator().next();
+    webClient.get().uri("/api/search/gene/{id}", gene.getId())
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.symbol").isEqualTo("GeneA");
+  }
+
+  @Test
+  public void createUpdateDelete() throws Exception {
+    Map<String, Object> gene = new LinkedHashMap<>();
+    gene.put("symbol", "GeneF");
+    gene.put("entrezGeneId", 6);
+    gene.put("taxId", 9606);
+    gene.put("geneType", "pseudo");
+    Map created = webClient.post().uri("/api/search/gene")
+        .contentType(MediaType.APPLICATION_JSON)
+        .syncBody(gene)
+        .exchange()
+        .expectStatus().isCreated()
+        .expectBody(Map.class)
+        .returnResult().getResponseBody();
+    Assert.notNull(created);
+    String id = (String) created.get("id");
+    Assert.notNull(id);
+    Assert.isTrue(geneRepository.count() == 6L);
+
+    gene.put("id", id);
+    gene.put("description", "Updated");
+    webClient.put().uri("/api/search/gene/{id}", id)
+        .contentType(MediaType.APPLICATION_JSON)
+        .syncBody(gene)
+        .exchange()
+        .expectStatus().isCreated()
+        .expectBody()
+        .jsonPath("$.description").isEqualTo("Updated");
+
+    webClient.delete().uri("/api/search/gene/{id}", id)
+        .exchange()
+        .expectStatus().isOk();
+    Assert.isTrue(geneRepository.count() == 5L);
+
+    webClient.put().uri("/api/search/gene/{id}", id)
+        .contentType(MediaType.APPLICATION_JSON)
+        .syncBody(gene)
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+}
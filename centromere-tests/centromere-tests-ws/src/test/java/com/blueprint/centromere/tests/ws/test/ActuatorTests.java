@@ -77,5 +77,15 @@ public class ActuatorTests extends AbstractRepositoryTests {
         .andExpect(jsonPath("$.dependencies", hasKey("centromere")))
         .andExpect(jsonPath("$.dependencies.centromere", hasKey("version")));
   }
+
+  @Test
+  public void slowQueriesTest() throws Exception {
+    mockMvc.perform(get("/actuator/slowqueries"))
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasKey("thresholdMillis")))
+        .andExpect(jsonPath("$", hasKey("capacity")))
+        .andExpect(jsonPath("$", hasKey("queries")));
+  }
   
 }
@@ -95,6 +95,26 @@ public class ModelAggregationControllerTests extends AbstractRepositoryTests {
     
   }
   
+  @Test
+  public void findDistinctCounts() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/distinct/geneType?counts=true&sort=count,desc"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].value", is("protein-coding")))
+        .andExpect(jsonPath("$[0].count", is(3)))
+        .andExpect(jsonPath("$[1].value", is("pseudo")))
+        .andExpect(jsonPath("$[1].count", is(2)));
+  }
+
+  @Test
+  public void findDistinctPaged() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/distinct/symbol?geneType=protein-coding&sort=symbol,desc&page=0&size=2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0]", is("GeneD")))
+        .andExpect(jsonPath("$[1]", is("GeneB")));
+  }
+  
   // Count
   
   @Test
@@ -135,6 +155,121 @@ public class ModelAggregationControllerTests extends AbstractRepositoryTests {
         .andExpect(jsonPath("$.content.count", is(3)));
   }
   
+  // Facets
+
+  @Test
+  public void facets() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/facets?fields=geneType,chromosome"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.count", is(5)))
+        .andExpect(jsonPath("$.facets", hasKey("geneType")))
+        .andExpect(jsonPath("$.facets", hasKey("chromosome")))
+        .andExpect(jsonPath("$.facets.geneType", hasSize(2)))
+        .andExpect(jsonPath("$.facets.geneType[0].value", is("protein-coding")))
+        .andExpect(jsonPath("$.facets.geneType[0].count", is(3)))
+        .andExpect(jsonPath("$.facets.chromosome", hasSize(5)));
+  }
+
+  @Test
+  public void facetsWithFilterAndLimit() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/facets?fields=geneType,aliases&geneType=pseudo&limit=1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.count", is(2)))
+        .andExpect(jsonPath("$.facets.geneType", hasSize(1)))
+        .andExpect(jsonPath("$.facets.geneType[0].value", is("pseudo")))
+        .andExpect(jsonPath("$.facets.aliases", hasSize(1)));
+  }
+
+  @Test
+  public void facetsWithHal() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/facets?fields=geneType")
+        .accept(ApiMediaTypes.APPLICATION_HAL_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.links", hasSize(1)))
+        .andExpect(jsonPath("$.links[0].href", is("/api/aggregation/gene/facets?fields=geneType")))
+        .andExpect(jsonPath("$.count", is(5)))
+        .andExpect(jsonPath("$.facets.geneType", hasSize(2)));
+  }
+
+  @Test
+  public void invalidFacets() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/facets"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/aggregation/gene/facets?fields=geneType,badField"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/aggregation/gene/facets?fields=geneType&limit=-1"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/aggregation/gene/facets?fields=geneType&limit=0"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/aggregation/gene/facets?fields=geneType&limit=1001"))
+        .andExpect(status().isBadRequest());
+  }
+  
+  // Statistics
+
+  @Test
+  public void statistics() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/stats/entrezGeneId"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.count", is(5)))
+        .andExpect(jsonPath("$.min", is(1.0)))
+        .andExpect(jsonPath("$.max", is(5.0)))
+        .andExpect(jsonPath("$.mean", is(3.0)))
+        .andExpect(jsonPath("$", hasKey("standardDeviation")))
+        .andExpect(jsonPath("$.percentiles", hasKey("25")))
+        .andExpect(jsonPath("$.percentiles['50']", is(3.0)))
+        .andExpect(jsonPath("$.percentiles['75']", is(4.0)));
+  }
+
+  @Test
+  public void statisticsWithFilterAndPercentiles() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/stats/entrezGeneId?geneType=pseudo&percentiles=0,100"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.count", is(2)))
+        .andExpect(jsonPath("$.mean", is(4.0)))
+        .andExpect(jsonPath("$.percentiles['0']", is(3.0)))
+        .andExpect(jsonPath("$.percentiles['100']", is(5.0)))
+        .andExpect(jsonPath("$.percentiles", not(hasKey("50"))));
+  }
+
+  @Test
+  public void groupedStatistics() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/stats/entrezGeneId?groupBy=geneType"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].key", is("protein-coding")))
+        .andExpect(jsonPath("$[0].count", is(3)))
+        .andExpect(jsonPath("$[0].min", is(1.0)))
+        .andExpect(jsonPath("$[0].percentiles['50']", is(2.0)))
+        .andExpect(jsonPath("$[1].key", is("pseudo")))
+        .andExpect(jsonPath("$[1].max", is(5.0)))
+        .andExpect(jsonPath("$[1].percentiles['50']", is(5.0)));
+  }
+
+  @Test
+  public void groupedStatisticsWithHal() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/stats/entrezGeneId?groupBy=geneType")
+        .accept(ApiMediaTypes.APPLICATION_HAL_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.links", hasSize(1)))
+        .andExpect(jsonPath("$.links[0].href", is("/api/aggregation/gene/stats/entrezGeneId?groupBy=geneType")))
+        .andExpect(jsonPath("$.content", hasSize(2)));
+  }
+
+  @Test
+  public void invalidStatistics() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/stats/symbol"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/aggregation/gene/stats/badField"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/aggregation/gene/stats/entrezGeneId?groupBy=badField"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/aggregation/gene/stats/entrezGeneId?percentiles=50,101"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/aggregation/gene/stats/entrezGeneId?percentiles=median"))
+        .andExpect(status().isBadRequest());
+  }
+  
   // Group
   @Test
   public void groupByField() throws Exception {
@@ -163,6 +298,31 @@ public class ModelAggregationControllerTests extends AbstractRepositoryTests {
         .andExpect(jsonPath("$", not(hasKey("pseudo"))));
   }
   
+  @Test
+  public void groupByFieldCounts() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/group/geneType?counts=true"))
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.protein-coding", is(3)))
+        .andExpect(jsonPath("$.pseudo", is(2)));
+  }
+
+  @Test
+  public void groupByFieldWithLimit() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/group/geneType?limit=1"))
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.protein-coding", hasSize(1)))
+        .andExpect(jsonPath("$.protein-coding[0].geneType", is("protein-coding")))
+        .andExpect(jsonPath("$.pseudo", hasSize(1)));
+  }
+
+  @Test
+  public void groupByInvalidLimit() throws Exception {
+    mockMvc.perform(get("/api/aggregation/gene/group/geneType?limit=-1"))
+        .andExpect(status().isBadRequest());
+  }
+  
   @Test
   public void groupByInvalidField() throws Exception {
     mockMvc.perform(get("/api/aggregation/gene/group/bad"))
@@ -16,6 +16,7 @@
 
 package com.blueprint.centromere.tests.ws.test;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
@@ -28,9 +29,14 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.blueprint.centromere.core.repository.ModelRepository;
+import com.blueprint.centromere.core.repository.ModelRepositoryRegistry;
+import com.blueprint.centromere.core.repository.guess.KeywordIndexManager;
+import com.blueprint.centromere.core.repository.impl.GuessOperations;
 import com.blueprint.centromere.tests.core.AbstractRepositoryTests;
 import com.blueprint.centromere.tests.core.models.DataSet;
 import com.blueprint.centromere.tests.core.models.Gene;
@@ -38,9 +44,11 @@ import com.blueprint.centromere.tests.core.models.GeneExpression;
 import com.blueprint.centromere.tests.core.repositories.DataSetRepository;
 import com.blueprint.centromere.tests.core.repositories.GeneExpressionRepository;
 import com.blueprint.centromere.tests.core.repositories.GeneRepository;
+import com.blueprint.centromere.tests.core.repositories.SampleRepository;
 import com.blueprint.centromere.tests.ws.WebTestInitializer;
 import com.blueprint.centromere.ws.config.ApiMediaTypes;
 import com.blueprint.centromere.ws.config.ModelResourceRegistry;
+import com.blueprint.centromere.ws.controller.ModelCrudController;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
@@ -48,6 +56,7 @@ import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import java.io.Serializable;
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 import org.junit.Test;
@@ -78,6 +87,10 @@ public class ModelCrudControllerTests extends AbstractRepositoryTests {
   @Autowired private MockMvc mockMvc;
   @Autowired private ModelResourceRegistry registry;
   @Autowired private Environment environment;
+  @Autowired private KeywordIndexManager keywordIndexManager;
+  @Autowired private ModelCrudController controller;
+  @Autowired private ModelRepositoryRegistry repositoryRegistry;
+  @Autowired private SampleRepository sampleRepository;
 
   @Test
   public void headTest() throws Exception {
@@ -282,6 +295,126 @@ public class ModelCrudControllerTests extends AbstractRepositoryTests {
         .andExpect(jsonPath("$.page.totalPages", is(2)));
   }
 
+  @Test
+  public void findPagedWithoutTotal() throws Exception {
+    mockMvc.perform(get("/api/search/gene?page=0&size=3&sort=entrezGeneId,asc&total=none")
+        .accept(ApiMediaTypes.APPLICATION_HAL_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(jsonPath("$.content", hasSize(3)))
+        .andExpect(jsonPath("$.content[0].entrezGeneId", is(1)))
+        .andExpect(jsonPath("$.links", hasSize(2)))
+        .andExpect(jsonPath("$.links[1].rel", is("next")))
+        .andExpect(jsonPath("$.links[1].href", containsString("page=1")))
+        .andExpect(jsonPath("$", not(hasKey("page"))));
+    mockMvc.perform(get("/api/search/gene?page=1&size=3&sort=entrezGeneId,asc&total=none"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(2)))
+        .andExpect(jsonPath("$.content[0].entrezGeneId", is(4)))
+        .andExpect(jsonPath("$.last", is(true)));
+  }
+
+  @Test
+  public void findPagedWithEstimatedTotal() throws Exception {
+    mockMvc.perform(get("/api/search/gene?page=0&size=3&sort=entrezGeneId,asc&total=estimated")
+        .accept(ApiMediaTypes.APPLICATION_HAL_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(3)))
+        .andExpect(jsonPath("$.page.totalElements", is(5)))
+        .andExpect(jsonPath("$.page.totalPages", is(2)))
+        .andExpect(jsonPath("$.page.estimated", is(true)))
+        .andExpect(jsonPath("$.page.lowerBound", is(false)));
+    mockMvc.perform(get("/api/search/gene?geneType=pseudo&total=estimated"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(2)))
+        .andExpect(jsonPath("$.totalElements", is(2)))
+        .andExpect(jsonPath("$.estimated", is(true)))
+        .andExpect(jsonPath("$.lowerBound", is(false)));
+    
+    // Unfiltered estimates larger than the limit are capped, and reported as lower bounds
+    long limit = controller.getEstimatedCountLimit();
+    controller.setEstimatedCountLimit(2L);
+    try {
+      mockMvc.perform(get("/api/search/gene?page=0&size=1&total=estimated"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.content", hasSize(1)))
+          .andExpect(jsonPath("$.totalElements", is(2)))
+          .andExpect(jsonPath("$.lowerBound", is(true)));
+      controller.setEstimatedCountLimit(5L);
+      mockMvc.perform(get("/api/search/gene?page=0&size=1&total=estimated"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.totalElements", is(5)))
+          .andExpect(jsonPath("$.lowerBound", is(false)));
+    } finally {
+      controller.setEstimatedCountLimit(limit);
+    }
+    mockMvc.perform(get("/api/search/gene?page=0&size=3&total=exact")
+        .accept(ApiMediaTypes.APPLICATION_HAL_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.page", not(hasKey("estimated"))));
+    mockMvc.perform(get("/api/search/gene?page=0&total=bad"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void findWithCursor() throws Exception {
+    MvcResult result = mockMvc.perform(get("/api/search/gene?cursor=&size=3&sort=entrezGeneId,desc")
+        .accept(ApiMediaTypes.APPLICATION_HAL_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(jsonPath("$.content", hasSize(3)))
+        .andExpect(jsonPath("$.content[0].entrezGeneId", is(5)))
+        .andExpect(jsonPath("$.links", hasSize(2)))
+        .andExpect(jsonPath("$.links[1].rel", is("next")))
+        .andExpect(jsonPath("$", not(hasKey("page"))))
+        .andReturn();
+    String next = JsonPath.read(result.getResponse().getContentAsString(), "$.links[1].href");
+    Assert.isTrue(next.contains("cursor="));
+    mockMvc.perform(get(URI.create(next)).accept(ApiMediaTypes.APPLICATION_HAL_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(jsonPath("$.content", hasSize(2)))
+        .andExpect(jsonPath("$.content[0].entrezGeneId", is(2)))
+        .andExpect(jsonPath("$.content[1].entrezGeneId", is(1)))
+        .andExpect(jsonPath("$.links", hasSize(1)));
+  }
+
+  @Test
+  public void findFieldFilteredWithCursor() throws Exception {
+    MvcResult result = mockMvc.perform(get("/api/search/gene?cursor=&size=3&sort=entrezGeneId,desc&fields=links,symbol")
+        .accept(ApiMediaTypes.APPLICATION_HAL_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(3)))
+        .andExpect(jsonPath("$.content[0]", hasKey("symbol")))
+        .andExpect(jsonPath("$.content[0]", not(hasKey("geneType"))))
+        .andExpect(jsonPath("$.links[1].rel", is("next")))
+        .andReturn();
+    String next = JsonPath.read(result.getResponse().getContentAsString(), "$.links[1].href");
+    mockMvc.perform(get(URI.create(next)).accept(ApiMediaTypes.APPLICATION_HAL_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(2)))
+        .andExpect(jsonPath("$.content[0].symbol", is("GeneB")))
+        .andExpect(jsonPath("$.content[0]", not(hasKey("geneType"))))
+        .andExpect(jsonPath("$.links", hasSize(1)));
+  }
+
+  @Test
+  public void findWithCursorWithoutHal() throws Exception {
+    mockMvc.perform(get("/api/search/gene?cursor=&size=3&sort=entrezGeneId,desc"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(3)))
+        .andExpect(jsonPath("$[0].entrezGeneId", is(5)))
+        .andExpect(header().string("Link", containsString("rel=\"next\"")));
+  }
+
+  @Test
+  public void findWithInvalidCursor() throws Exception {
+    mockMvc.perform(get("/api/search/gene?cursor=bad"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/search/gene?cursor=&page=1"))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   public void findPagedWithoutHal() throws Exception {
     mockMvc.perform(get("/api/search/gene?page=1&size=3"))
@@ -376,6 +509,31 @@ public class ModelCrudControllerTests extends AbstractRepositoryTests {
         .andExpect(jsonPath("$[0].symbol", is("GeneA")));
   }
 
+  @Test
+  public void findByFilterExpression() throws Exception {
+    mockMvc.perform(get("/api/search/gene").param("filter", "or(symbol:GeneA;aliases:GHI)"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].symbol", is("GeneA")))
+        .andExpect(jsonPath("$[1].symbol", is("GeneC")));
+    mockMvc.perform(get("/api/search/gene")
+        .param("geneType", "protein-coding")
+        .param("filter", "or(chromosome:X;and(symbolIn:GeneA,GeneB;aliases:DEF))"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].symbol", is("GeneB")))
+        .andExpect(jsonPath("$[1].symbol", is("GeneD")));
+  }
+
+  @Test
+  public void invalidFilterExpression() throws Exception {
+    mockMvc.perform(get("/api/search/gene").param("filter", "or(symbol:GeneA;badParam:GHI)"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.code", is(400)));
+    mockMvc.perform(get("/api/search/gene").param("filter", "or(symbol:GeneA"))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   public void findByStringNotIn() throws Exception {
     mockMvc.perform(get("/api/search/gene?symbolNotIn=GeneA,GeneB"))
@@ -556,6 +714,67 @@ public class ModelCrudControllerTests extends AbstractRepositoryTests {
         .andExpect(jsonPath("$[0]", hasKey("chromosomeLocation")));
   }
   
+  // Guess
+
+  @Test
+  public void guessTest() throws Exception {
+    keywordIndexManager.refresh(geneRepository.getModel());
+    mockMvc.perform(get("/api/search/gene/guess?keyword=gene"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(5)))
+        .andExpect(jsonPath("$[0].symbol", is("GeneA")));
+    mockMvc.perform(get("/api/search/gene/guess?keyword=def"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].symbol", is("GeneB")));
+    mockMvc.perform(get("/api/search/gene/guess?keyword=GenC"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].symbol", is("GeneC")));
+    mockMvc.perform(get("/api/search/gene/guess?keyword=gene&limit=2&fields=symbol"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0]", not(hasKey("aliases"))));
+  }
+
+  @Test
+  public void guessWithHalTest() throws Exception {
+    keywordIndexManager.refresh(geneRepository.getModel());
+    mockMvc.perform(get("/api/search/gene/guess?keyword=GeneD")
+        .accept(ApiMediaTypes.APPLICATION_HAL_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(5)))
+        .andExpect(jsonPath("$.content[0].symbol", is("GeneD")))
+        .andExpect(jsonPath("$.links[0].href", endsWith("/api/search/gene/guess?keyword=GeneD")));
+  }
+
+  @Test
+  public void guessWithDecoratedRepositoryTest() throws Exception {
+    // Samples have no keyword index, so guesses come from the repository bean behind the default
+    //   metrics and partitioning decorators
+    ModelRepository<?, ?> repository 
+        = repositoryRegistry.getRepositoryByModel(sampleRepository.getModel());
+    Assert.isTrue(!(repository instanceof GuessOperations), "Expected a decorated repository");
+    Assert.isNull(keywordIndexManager.getRepository(sampleRepository.getModel()));
+    mockMvc.perform(get("/api/search/sample/guess?keyword=Liver"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].tissue", is("Liver")));
+    mockMvc.perform(get("/api/search/sample/guess?keyword=Liver&limit=1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(1)));
+  }
+
+  @Test
+  public void invalidGuessTest() throws Exception {
+    mockMvc.perform(get("/api/search/gene/guess?keyword=gene&symbol=GeneA"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/search/gene/guess?keyword=gene&limit=0"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/search/dataset/guess?keyword=gene"))
+        .andExpect(status().isNotFound());
+  }
+
   // Create
 
   @Test
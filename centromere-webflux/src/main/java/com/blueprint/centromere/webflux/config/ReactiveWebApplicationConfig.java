@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.webflux.config;
+
+import com.blueprint.centromere.core.repository.DefaultReactiveModelRepositoryRegistry;
+import com.blueprint.centromere.core.repository.ModelRepositoryRegistry;
+import com.blueprint.centromere.core.repository.ReactiveModelRepositoryRegistry;
+import com.blueprint.centromere.webflux.controller.ReactiveModelSearchController;
+import com.blueprint.centromere.webflux.controller.ReactiveRequestUtils;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+
+/**
+ * @author woemler
+ * @since 0.6.0
+ */
+public class ReactiveWebApplicationConfig {
+
+  @Configuration
+  @ComponentScan(basePackageClasses = { ReactiveModelSearchController.class })
+  @PropertySource(value = { "classpath:webflux-defaults.properties" })
+  public static class DefaultReactiveWebApplicationConfig {
+
+    /**
+     * Registers all {@link com.blueprint.centromere.core.repository.ReactiveModelRepository} 
+     *   beans, along with any blocking repositories without a reactive counterpart, if a 
+     *   {@link ModelRepositoryRegistry} is available.
+     */
+    @Bean
+    public ReactiveModelRepositoryRegistry reactiveModelRepositoryRegistry(
+        ApplicationContext context, ObjectProvider<ModelRepositoryRegistry> blockingRegistry){
+      return new DefaultReactiveModelRepositoryRegistry(context, blockingRegistry.getIfAvailable());
+    }
+
+    /**
+     * Registers a default {@code fieldFilter} for {@link com.blueprint.centromere.core.model.Filterable}
+     *   models, which serializes all fields.  Requested field filtering is applied per-request by 
+     *   the controllers.
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fieldFilterCustomizer(){
+      return builder -> builder.filters(new SimpleFilterProvider()
+          .addFilter(ReactiveRequestUtils.FIELD_FILTER, SimpleBeanPropertyFilter.serializeAllExcept()));
+    }
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+      return new PropertySourcesPlaceholderConfigurer();
+    }
+
+  }
+
+}
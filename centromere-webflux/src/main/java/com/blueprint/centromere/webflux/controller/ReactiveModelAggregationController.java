@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.webflux.controller;
+
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import com.blueprint.centromere.core.repository.ModelGroup;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.ReactiveModelRepository;
+import com.blueprint.centromere.core.repository.ReactiveModelRepositoryRegistry;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking aggregation methods for generic {@link Model} implementations, which expose the
+ *   same {@code /aggregation/{uri}} contract as the blocking web services.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+@RestController
+@RequestMapping("${centromere.web.api.root-url}/aggregation")
+@SuppressWarnings({"unchecked", "SpringJavaAutowiringInspection"})
+public class ReactiveModelAggregationController {
+
+  @Autowired private ReactiveModelRepositoryRegistry repositoryRegistry;
+
+  @Value("${centromere.web.api.group-record-limit:1000}")
+  private int defaultGroupRecordLimit;
+
+  private static final Logger logger 
+      = LoggerFactory.getLogger(ReactiveModelAggregationController.class);
+
+  /**
+   * {@code GET /{uri}/distinct/{field}}
+   * Fetches the distinct values of the model attribute, {@code field}, which fulfill the given
+   *   query parameters.  If the {@code counts} parameter is set, each value is returned with the
+   *   number of matching records containing it.  The distinct set can be sorted by value or count
+   *   and paged, using the {@code sort}, {@code page} and {@code size} parameters.
+   *
+   * @param field name of the model attribute to retrieve unique values of
+   * @param uri model resource URI
+   * @param request {@link ServerHttpRequest}
+   * @return stream of distinct field values
+   */
+  @RequestMapping(
+      value = "/{uri}/distinct/{field}",
+      method = RequestMethod.GET,
+      produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE,
+          MediaType.TEXT_EVENT_STREAM_VALUE })
+  public <T extends Model<ID>, ID extends Serializable> Flux<Object> findDistinct(
+      @PathVariable("field") String field,
+      @PathVariable("uri") String uri,
+      ServerHttpRequest request
+  ) {
+    ReactiveModelRepository<T, ID> repository = getRepository(uri);
+    validateField(repository.getModel(), field);
+    MultiValueMap<String, String> params = request.getQueryParams();
+    List<QueryCriteria> criterias = ReactiveRequestUtils.getQueryCriteriaFromRequest(
+        repository.getModel(), ReactiveRequestUtils.findDistinctParameters(), params);
+    boolean counts = ReactiveRequestUtils.getBooleanParameter(params, "counts");
+    
+    if (counts || params.containsKey("page") || params.containsKey("size") 
+        || params.containsKey("sort")){
+      Pageable pageable = ReactiveRequestUtils.getPageableFromRequest(params);
+      if (!params.containsKey("page") && !params.containsKey("size")){
+        pageable = PageRequest.of(0, Integer.MAX_VALUE, pageable.getSort());
+      }
+      if (counts){
+        return repository.distinctCounts(field, criterias, pageable).cast(Object.class);
+      } else {
+        return repository.distinct(field, criterias, pageable);
+      }
+    } else {
+      return repository.distinct(field, criterias);
+    }
+  }
+
+  /**
+   * {@code GET /{uri}/count}
+   * Fetches the count of records for the requested model, which fulfill the given
+   *   query parameters.
+   *
+   * @param uri model resource URI
+   * @param request {@link ServerHttpRequest}
+   * @return the count of records that satisfy the query
+   */
+  @RequestMapping(
+      value = "/{uri}/count",
+      method = RequestMethod.GET,
+      produces = { MediaType.APPLICATION_JSON_VALUE })
+  public <T extends Model<ID>, ID extends Serializable> Mono<Map<String, Long>> count(
+      @PathVariable("uri") String uri,
+      ServerHttpRequest request
+  ) {
+    ReactiveModelRepository<T, ID> repository = getRepository(uri);
+    List<QueryCriteria> criterias = ReactiveRequestUtils.getQueryCriteriaFromRequest(
+        repository.getModel(), ReactiveRequestUtils.findDistinctParameters(), 
+        request.getQueryParams());
+    return repository.count(criterias).map(count -> Collections.singletonMap("count", count));
+  }
+
+  /**
+   * {@code GET /{uri}/group/{field}}
+   * Fetches a collection of records, grouped by the requested field.  Each group contains at most
+   *   {@code limit} records.  If the {@code counts} parameter is set, only the number of records
+   *   in each group is returned.  The response is a single object, keyed by group value.
+   *
+   * @param field name of the model attribute to group records by
+   * @param uri model resource URI
+   * @param request {@link ServerHttpRequest}
+   * @return map of group values to records or record counts
+   */
+  @RequestMapping(
+      value = "/{uri}/group/{field}",
+      method = RequestMethod.GET,
+      produces = { MediaType.APPLICATION_JSON_VALUE })
+  public <T extends Model<ID>, ID extends Serializable> Mono<Map<Object, Object>> groupBy(
+      @PathVariable("field") String field,
+      @PathVariable("uri") String uri,
+      ServerHttpRequest request
+  ) {
+    boolean counts = ReactiveRequestUtils.getBooleanParameter(request.getQueryParams(), "counts");
+    Flux<ModelGroup<T>> groups = streamGroups(field, uri, request);
+    return groups.collect(LinkedHashMap::new, 
+        (map, group) -> map.put(group.getKey(), counts ? group.getCount() : group.getRecords()));
+  }
+
+  /**
+   * {@code GET /{uri}/group/{field}}
+   * Streaming variant of {@link #groupBy(String, String, ServerHttpRequest)}, which emits each
+   *   group as a separate {@link ModelGroup} object, as soon as it is assembled.
+   *
+   * @param field name of the model attribute to group records by
+   * @param uri model resource URI
+   * @param request {@link ServerHttpRequest}
+   * @return stream of record groups
+   */
+  @RequestMapping(
+      value = "/{uri}/group/{field}",
+      method = RequestMethod.GET,
+      produces = { MediaType.APPLICATION_STREAM_JSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+  public <T extends Model<ID>, ID extends Serializable> Flux<ModelGroup<T>> streamGroups(
+      @PathVariable("field") String field,
+      @PathVariable("uri") String uri,
+      ServerHttpRequest request
+  ) {
+    ReactiveModelRepository<T, ID> repository = getRepository(uri);
+    validateField(repository.getModel(), field);
+    MultiValueMap<String, String> params = request.getQueryParams();
+    List<QueryCriteria> criterias = ReactiveRequestUtils.getQueryCriteriaFromRequest(
+        repository.getModel(), ReactiveRequestUtils.findDistinctParameters(), params);
+    boolean counts = ReactiveRequestUtils.getBooleanParameter(params, "counts");
+    int limit = ReactiveRequestUtils.getIntegerParameter(params, "limit", defaultGroupRecordLimit);
+    if (limit < 0){
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
+          String.format("Invalid group record limit: %d", limit));
+    }
+    GroupAccumulator accumulator = counts ? GroupAccumulator.count() : GroupAccumulator.sample(limit);
+    return repository.groupBy(field, criterias, accumulator);
+  }
+
+  private <T extends Model<ID>, ID extends Serializable> ReactiveModelRepository<T, ID> 
+      getRepository(String uri){
+    ReactiveModelRepository<?, ?> repository = repositoryRegistry.getRepositoryByUri(uri);
+    if (repository == null){
+      logger.error(String.format("URI does not map to a registered model: %s", uri));
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, 
+          String.format("Resource not found: %s", uri));
+    }
+    return (ReactiveModelRepository<T, ID>) repository;
+  }
+
+  private void validateField(Class<?> model, String field){
+    if (!ModelMetadataRegistry.getMetadata(model).isReadableProperty(field)){
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
+          String.format("Requested field is not a valid model property: %s", field));
+    }
+  }
+
+}
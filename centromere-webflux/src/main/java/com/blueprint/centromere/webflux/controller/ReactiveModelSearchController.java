@@ -0,0 +1,279 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.webflux.controller;
+
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.ReactiveModelRepository;
+import com.blueprint.centromere.core.repository.ReactiveModelRepositoryRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking controller methods for generic {@link Model} implementations, which expose the 
+ *   same {@code /search/{uri}} contract as the blocking web services.  Query results are 
+ *   returned as a {@link Flux}; when requested with the {@code application/stream+json} or 
+ *   {@code text/event-stream} media types, records are written as they are read from the 
+ *   repository, and the repository is only asked for more records as the client consumes them.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+@RestController
+@RequestMapping("${centromere.web.api.root-url}/search")
+@SuppressWarnings({"unchecked", "SpringJavaAutowiringInspection"})
+public class ReactiveModelSearchController {
+
+  @Autowired private ReactiveModelRepositoryRegistry repositoryRegistry;
+  @Autowired private ObjectMapper objectMapper;
+  
+  private ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+  private static final Logger logger = LoggerFactory.getLogger(ReactiveModelSearchController.class);
+
+  /**
+   * {@code GET /{uri}/{id}}
+   * Fetches a single record by its primary ID.  Supports field filtering and exclusion.
+   *
+   * @param id primary ID of the record
+   * @param uri model resource URI
+   * @param request {@link ServerHttpRequest}
+   * @return the requested record
+   */
+  @RequestMapping(
+      value = "/{uri}/{id}",
+      method = RequestMethod.GET,
+      produces = { MediaType.APPLICATION_JSON_VALUE })
+  public <T extends Model<ID>, ID extends Serializable> Mono<Object> findById(
+      @PathVariable String id,
+      @PathVariable String uri,
+      ServerHttpRequest request
+  ) {
+    ReactiveModelRepository<T, ID> repository = getRepository(uri);
+    MultiValueMap<String, String> params = request.getQueryParams();
+    if (ReactiveRequestUtils.requestContainsNonDefaultParameters(
+        ReactiveRequestUtils.findOneParameters(), params)){
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
+          "Request contains invalid query string parameters.");
+    }
+    Set<String> fields = ReactiveRequestUtils.getFieldSetFromRequest(params, "fields");
+    Set<String> exclude = ReactiveRequestUtils.getFieldSetFromRequest(params, "exclude");
+    ID recordId = convertModelIdParameter(id, repository.getModel());
+    Mono<T> result;
+    if (fields.isEmpty() && exclude.isEmpty()){
+      result = repository.findById(recordId);
+    } else {
+      result = repository.find(Collections.singletonList(new QueryCriteria("id", recordId)), 
+          Sort.unsorted(), fields, exclude).next();
+    }
+    return filterFields(result.flux(), fields, exclude).next()
+        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, 
+            String.format("Record not found: %s", id))));
+  }
+
+  /**
+   * {@code GET /{uri}}
+   * Queries the repository using inputted query string parameters, defined within annotated
+   *   {@link Model} classes.  Supports pagination, sorting, field filtering, and field exclusion.
+   *   Paged requests return only the records of the requested page; the total record count is
+   *   available from {@code /aggregation/{uri}/count}.
+   *
+   * @param uri model resource URI
+   * @param request {@link ServerHttpRequest}
+   * @return stream of {@link Model} records
+   */
+  @RequestMapping(
+      value = "/{uri}",
+      method = RequestMethod.GET,
+      produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE,
+          MediaType.TEXT_EVENT_STREAM_VALUE })
+  public <T extends Model<ID>, ID extends Serializable> Flux<Object> find(
+      @PathVariable String uri,
+      ServerHttpRequest request
+  ) {
+    ReactiveModelRepository<T, ID> repository = getRepository(uri);
+    MultiValueMap<String, String> params = request.getQueryParams();
+    List<QueryCriteria> criterias = ReactiveRequestUtils.getQueryCriteriaFromRequest(
+        repository.getModel(), ReactiveRequestUtils.findAllParameters(), params);
+    Set<String> fields = ReactiveRequestUtils.getFieldSetFromRequest(params, "fields");
+    Set<String> exclude = ReactiveRequestUtils.getFieldSetFromRequest(params, "exclude");
+    Flux<T> records;
+    if (params.containsKey("page") || params.containsKey("size")){
+      records = repository.find(criterias, ReactiveRequestUtils.getPageableFromRequest(params), 
+          fields, exclude);
+    } else {
+      records = repository.find(criterias, ReactiveRequestUtils.getSortFromRequest(params), 
+          fields, exclude);
+    }
+    return filterFields(records, fields, exclude);
+  }
+
+  /**
+   * {@code POST /{uri}}
+   * Attempts to create a new record using the submitted entity.
+   *
+   * @param entity entity representation to be persisted
+   * @param uri model resource URI
+   * @return the persisted entity
+   */
+  @RequestMapping(
+      value = "/{uri}",
+      method = RequestMethod.POST,
+      produces = { MediaType.APPLICATION_JSON_VALUE })
+  public <T extends Model<ID>, ID extends Serializable> Mono<ResponseEntity<T>> create(
+      @RequestBody Object entity,
+      @PathVariable String uri
+  ) {
+    ReactiveModelRepository<T, ID> repository = getRepository(uri);
+    T record = convertObjectToModel(entity, repository.getModel());
+    return repository.insert(record)
+        .map(created -> new ResponseEntity<>(created, HttpStatus.CREATED));
+  }
+
+  /**
+   * {@code PUT /{uri}/{id}}
+   * Attempts to update an existing entity record, replacing it with the submitted entity.  
+   *   Responds with {@code 404} if the target entity does not exist.
+   *
+   * @param entity entity representation to update
+   * @param id primary ID of the target entity
+   * @param uri model resource URI
+   * @return the updated entity
+   */
+  @RequestMapping(
+      value = "/{uri}/{id}",
+      method = RequestMethod.PUT,
+      produces = { MediaType.APPLICATION_JSON_VALUE })
+  public <T extends Model<ID>, ID extends Serializable> Mono<ResponseEntity<T>> update(
+      @RequestBody Object entity,
+      @PathVariable String id,
+      @PathVariable String uri
+  ) {
+    ReactiveModelRepository<T, ID> repository = getRepository(uri);
+    T record = convertObjectToModel(entity, repository.getModel());
+    if (record.getId() == null) record.setId(convertModelIdParameter(id, repository.getModel()));
+    return repository.existsById(record.getId())
+        .flatMap(exists -> exists 
+            ? repository.update(record) 
+            : Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, 
+                String.format("Record not found: %s", id))))
+        .map(updated -> new ResponseEntity<>(updated, HttpStatus.CREATED));
+  }
+
+  /**
+   * {@code DELETE /{uri}/{id}}
+   * Attempts to delete the entity identified by the submitted primary ID.
+   *
+   * @param id primary ID of the target record
+   * @param uri model resource URI
+   * @return {@link HttpStatus} indicating success or failure
+   */
+  @RequestMapping(
+      value = "/{uri}/{id}",
+      method = RequestMethod.DELETE)
+  public <T extends Model<ID>, ID extends Serializable> Mono<ResponseEntity<Void>> delete(
+      @PathVariable String id,
+      @PathVariable String uri
+  ) {
+    ReactiveModelRepository<T, ID> repository = getRepository(uri);
+    return repository.deleteById(convertModelIdParameter(id, repository.getModel()))
+        .then(Mono.just(new ResponseEntity<>(HttpStatus.OK)));
+  }
+
+  /**
+   * Applies requested field filtering to each record as it is emitted.  Records are returned 
+   *   unchanged if no filtering was requested.
+   */
+  private Flux<Object> filterFields(Flux<?> records, Set<String> fields, Set<String> exclude){
+    if (fields.isEmpty() && exclude.isEmpty()) return records.cast(Object.class);
+    ObjectMapper mapper = ReactiveRequestUtils.getFilteringObjectMapper(objectMapper, fields, exclude);
+    return records.map(record -> mapper.convertValue(record, Map.class));
+  }
+
+  private <T extends Model<ID>, ID extends Serializable> ReactiveModelRepository<T, ID> 
+      getRepository(String uri){
+    ReactiveModelRepository<?, ?> repository = repositoryRegistry.getRepositoryByUri(uri);
+    if (repository == null){
+      logger.error(String.format("URI does not map to a registered model: %s", uri));
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, 
+          String.format("Resource not found: %s", uri));
+    }
+    return (ReactiveModelRepository<T, ID>) repository;
+  }
+
+  /**
+   * Converts a string ID parameter to the ID type of the requested model.
+   *
+   * @param param ID parameter
+   * @param model model type
+   * @return converted ID
+   */
+  protected <T extends Model<ID>, ID extends Serializable> ID convertModelIdParameter(String param, 
+      Class<T> model){
+    try {
+      Class<ID> type = (Class<ID>) model.getMethod("getId").getReturnType();
+      if (conversionService.canConvert(String.class, type)){
+        return conversionService.convert(param, type);
+      }
+    } catch (Exception e){
+      logger.warn(String.format("Unable to convert ID parameter: %s", e.getMessage()));
+    }
+    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
+        String.format("Cannot convert ID parameter to model ID type: %s", param));
+  }
+
+  /**
+   * Attempts to convert a generic object, supplied in a HTTP request, to the target type.
+   *
+   * @param object object to be converted
+   * @param type class the object should be converted to
+   * @return converted object
+   */
+  protected <T> T convertObjectToModel(Object object, Class<T> type){
+    try {
+      return objectMapper.convertValue(object, type);
+    } catch (Exception e){
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Cannot convert "
+          + "object to model type %s: %s", type.getName(), object.toString()));
+    }
+  }
+
+}
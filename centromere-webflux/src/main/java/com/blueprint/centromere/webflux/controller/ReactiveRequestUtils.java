@@ -0,0 +1,256 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.webflux.controller;
+
+import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.QueryExpressionParser;
+import com.blueprint.centromere.core.repository.QueryParameterDescriptor;
+import com.blueprint.centromere.core.repository.QueryParameterUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Request parameter handling for the reactive web controllers.  Parameters are interpreted the 
+ *   same way as by the blocking web services, so that both expose an identical query contract.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class ReactiveRequestUtils {
+
+  private static final Logger logger = LoggerFactory.getLogger(ReactiveRequestUtils.class);
+  private static final List<String> FIELD_FILTER_PARAMETERS = Arrays.asList("fields", "exclude");
+  private static final List<String> OTHER_PARAMETERS = Arrays.asList("format");
+  private static final List<String> PAGINATION_PARAMETERS = Arrays.asList("page", "size", "sort");
+  private static final List<String> AGGREGATION_PARAMETERS = Arrays.asList("counts", "limit");
+  
+  public static final int DEFAULT_PAGE_SIZE = 1000;
+  public static final String FIELD_FILTER = "fieldFilter";
+
+  public static List<String> findAllParameters(){
+    List<String> params = new ArrayList<>();
+    params.addAll(FIELD_FILTER_PARAMETERS);
+    params.addAll(PAGINATION_PARAMETERS);
+    params.addAll(OTHER_PARAMETERS);
+    return params;
+  }
+
+  public static List<String> findOneParameters(){
+    List<String> params = new ArrayList<>();
+    params.addAll(FIELD_FILTER_PARAMETERS);
+    params.addAll(OTHER_PARAMETERS);
+    return params;
+  }
+
+  public static List<String> findDistinctParameters(){
+    List<String> params = new ArrayList<>();
+    params.addAll(FIELD_FILTER_PARAMETERS);
+    params.addAll(PAGINATION_PARAMETERS);
+    params.addAll(AGGREGATION_PARAMETERS);
+    params.addAll(OTHER_PARAMETERS);
+    return params;
+  }
+
+  /**
+   * Converts query string parameters to a list of {@link QueryCriteria}, based upon the available 
+   *   model query parameters and the default parameters of the requested controller method.  
+   *   {@code filter} parameters are parsed as boolean query expressions, using 
+   *   {@link QueryExpressionParser}.
+   *
+   * @param model model class
+   * @param defaultParameters default query parameters for the given controller method
+   * @param params query string parameters of the request
+   * @return list of query criteria
+   */
+  public static List<QueryCriteria> getQueryCriteriaFromRequest(Class<? extends Model<?>> model, 
+      List<String> defaultParameters, MultiValueMap<String, String> params){
+    
+    Map<String, QueryParameterDescriptor> validParams 
+        = QueryParameterUtil.getAvailableQueryParameters(model);
+    List<QueryCriteria> criteriaList = new ArrayList<>();
+    
+    for (Map.Entry<String, List<String>> entry: params.entrySet()){
+      
+      String paramName = entry.getKey();
+      if (defaultParameters.contains(paramName)) continue;
+      if (QueryExpressionParser.FILTER_PARAMETER.equals(paramName)){
+        for (String expression: entry.getValue()){
+          try {
+            criteriaList.add(QueryExpressionParser.parse(expression, validParams));
+          } catch (Exception ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+          }
+        }
+        continue;
+      }
+      String value = entry.getValue().isEmpty() ? null : entry.getValue().get(0);
+      String[] paramValue = value != null ? value.split(",") : new String[]{""};
+      QueryCriteria criteria = null;
+      
+      for (QueryParameterDescriptor descriptor: validParams.values()){
+        if (descriptor.parameterNameMatches(paramName)) {
+          try {
+            criteria = QueryParameterUtil.getQueryCriteriaFromParameter(
+                descriptor.getQueryableFieldName(paramName),
+                paramValue,
+                descriptor.getType(),
+                descriptor.getDynamicEvaluation(paramName));
+            break;
+          } catch (Exception ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+          }
+        }
+      }
+      
+      if (criteria == null){
+        logger.warn(String.format("Unable to map request parameter to available model parameters: "
+            + "%s", paramName));
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
+            "Invalid request parameter: " + paramName);
+      }
+      criteriaList.add(criteria);
+      
+    }
+    
+    logger.info(String.format("Generated QueryCriteria for request: %s", criteriaList.toString()));
+    return criteriaList;
+    
+  }
+
+  public static boolean requestContainsNonDefaultParameters(List<String> defaultParameters,
+      MultiValueMap<String, String> params){
+    for (String param: params.keySet()){
+      if (!defaultParameters.contains(param)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Extracts a comma-separated set of field names from a request parameter, such as 
+   *   {@code fields} or {@code exclude}.
+   *
+   * @param params query string parameters of the request
+   * @param name parameter name
+   * @return set of field names
+   */
+  public static Set<String> getFieldSetFromRequest(MultiValueMap<String, String> params, 
+      String name){
+    Set<String> fields = new HashSet<>();
+    if (params.getFirst(name) != null){
+      for (String field: params.getFirst(name).split(",")){
+        if (!field.trim().isEmpty()) fields.add(field.trim());
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Returns a copy of the supplied {@link ObjectMapper} whose {@code fieldFilter} serializes only 
+   *   the requested fields of {@link com.blueprint.centromere.core.model.Filterable} models, or 
+   *   all fields but the excluded ones.
+   *
+   * @param objectMapper base object mapper
+   * @param fields fields to include
+   * @param exclude fields to exclude
+   * @return filtering object mapper
+   */
+  public static ObjectMapper getFilteringObjectMapper(ObjectMapper objectMapper, Set<String> fields, 
+      Set<String> exclude){
+    SimpleBeanPropertyFilter filter;
+    if (!fields.isEmpty()){
+      filter = SimpleBeanPropertyFilter.filterOutAllExcept(fields);
+    } else {
+      filter = SimpleBeanPropertyFilter.serializeAllExcept(exclude);
+    }
+    return objectMapper.copy().setFilterProvider(new SimpleFilterProvider()
+        .addFilter(FIELD_FILTER, filter));
+  }
+
+  /**
+   * Parses the {@code sort} parameters of a request, which take the form {@code field[,asc|desc]}, 
+   *   and may be repeated.
+   *
+   * @param params query string parameters of the request
+   * @return requested sort, or {@link Sort#unsorted()}
+   */
+  public static Sort getSortFromRequest(MultiValueMap<String, String> params){
+    List<Sort.Order> orders = new ArrayList<>();
+    List<String> values = params.get("sort");
+    if (values == null) return Sort.unsorted();
+    for (String value: values){
+      String[] bits = value.split(",");
+      if (bits.length == 0 || bits[0].trim().isEmpty()) continue;
+      Sort.Direction direction = Sort.Direction.ASC;
+      if (bits.length > 1){
+        direction = Sort.Direction.fromOptionalString(bits[1].trim()).orElseThrow(() -> 
+            new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sort direction: " + value));
+      }
+      orders.add(new Sort.Order(direction, bits[0].trim()));
+    }
+    return orders.isEmpty() ? Sort.unsorted() : Sort.by(orders);
+  }
+
+  /**
+   * Parses the {@code page}, {@code size} and {@code sort} parameters of a request.
+   *
+   * @param params query string parameters of the request
+   * @return requested page
+   */
+  public static Pageable getPageableFromRequest(MultiValueMap<String, String> params){
+    int page = getIntegerParameter(params, "page", 0);
+    int size = getIntegerParameter(params, "size", DEFAULT_PAGE_SIZE);
+    if (page < 0 || size < 1){
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
+          String.format("Invalid page request: page=%d size=%d", page, size));
+    }
+    return PageRequest.of(page, size, getSortFromRequest(params));
+  }
+
+  public static boolean getBooleanParameter(MultiValueMap<String, String> params, String name){
+    return params.containsKey(name) && Boolean.parseBoolean(params.getFirst(name));
+  }
+
+  public static int getIntegerParameter(MultiValueMap<String, String> params, String name, 
+      int defaultValue){
+    String value = params.getFirst(name);
+    if (value == null || value.trim().isEmpty()) return defaultValue;
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e){
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
+          String.format("Invalid '%s' parameter: %s", name, value));
+    }
+  }
+
+}
@@ -1,7 +1,17 @@
 package com.blueprint.centromere.ws.config;
 
+import com.blueprint.centromere.core.repository.metrics.QueryExplainer;
+import com.blueprint.centromere.core.repository.metrics.RepositoryMetricsDecorator;
+import com.blueprint.centromere.core.repository.metrics.SlowQueryLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 
 /**
  * @author woemler
@@ -15,5 +25,40 @@ public class ActuatorConfig {
     //TODO: Custom monitoring components
     
   }
+
+  /**
+   * Records Micrometer metrics for all registered repositories, and exposes slow queries through
+   *   the {@code slowqueries} actuator endpoint.  Disabled by setting 
+   *   {@code centromere.web.metrics.enabled=false}.
+   */
+  @Configuration
+  @PropertySource("classpath:web-defaults.properties")
+  @ConditionalOnProperty(value = "centromere.web.metrics.enabled", havingValue = "true", 
+      matchIfMissing = true)
+  public static class RepositoryMetricsConfig {
+
+    @Autowired private Environment env;
+
+    @Bean
+    public SlowQueryLog slowQueryLog(){
+      return new SlowQueryLog(
+          env.getRequiredProperty("centromere.web.metrics.slow-query-log-size", Integer.class),
+          Duration.ofMillis(env.getRequiredProperty(
+              "centromere.web.metrics.slow-query-threshold-ms", Long.class)));
+    }
+
+    @Bean
+    public RepositoryMetricsDecorator repositoryMetricsDecorator(MeterRegistry meterRegistry,
+        ObjectProvider<QueryExplainer> explainer){
+      return new RepositoryMetricsDecorator(meterRegistry, slowQueryLog(), 
+          explainer.getIfAvailable());
+    }
+
+    @Bean
+    public SlowQueryEndpoint slowQueryEndpoint(){
+      return new SlowQueryEndpoint(slowQueryLog());
+    }
+
+  }
   
 }
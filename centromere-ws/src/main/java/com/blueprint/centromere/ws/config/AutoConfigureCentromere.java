@@ -36,6 +36,8 @@ import org.springframework.context.annotation.Import;
 @Configuration
 @Import({ 
     WebApplicationConfig.DefaultWebApplicationConfig.class,
+    WebApplicationConfig.PartitionedQueryConfig.class,
+    WebApplicationConfig.KeywordIndexConfig.class,
     WebSecurityConfig.class,
     ApiDocumentationConfig.class,
     ActuatorConfig.class
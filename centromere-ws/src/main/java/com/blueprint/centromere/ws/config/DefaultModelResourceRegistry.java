@@ -50,6 +50,7 @@ public class DefaultModelResourceRegistry implements ModelResourceRegistry {
   @PostConstruct
   public void afterPropertiesSet() throws ConfigurationException {
     for (Map.Entry<String, Object> entry: context.getBeansWithAnnotation(ModelResource.class).entrySet()){
+      if (!(entry.getValue() instanceof ModelRepository)) continue; // eg. reactive repositories
       Class<?> type = entry.getValue().getClass();
       ModelRepository repository = (ModelRepository) entry.getValue();
       Class<? extends Model<?>> model = repository.getModel();
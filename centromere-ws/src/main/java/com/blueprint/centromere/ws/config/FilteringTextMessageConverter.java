@@ -17,6 +17,8 @@
 package com.blueprint.centromere.ws.config;
 
 import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
 import com.blueprint.centromere.ws.controller.FilterableResource;
 import com.blueprint.centromere.ws.controller.ResponseEnvelope;
 import java.io.IOException;
@@ -27,8 +29,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
 import org.springframework.hateoas.PagedResources;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceSupport;
@@ -100,8 +101,8 @@ public class FilteringTextMessageConverter extends AbstractHttpMessageConverter<
 			excludedFields = ((ResponseEnvelope) o).getExclude();
 			o = ((ResponseEnvelope) o).getEntity();
 		}
-		if (o.getClass().equals(PageImpl.class)){
-			o = ((Page) o).getContent();
+		if (o instanceof Slice){
+			o = ((Slice) o).getContent();
 		}
 		
 		// If the object is not a collection, add it to one for easy iteration
@@ -112,75 +113,28 @@ public class FilteringTextMessageConverter extends AbstractHttpMessageConverter<
 		// Iterate through the object collection
 		for (Object entity: (Collection<?>) o){
 		  
-			String entityString;
-      Class<?> currentClass;
+			StringBuilder buffer = new StringBuilder();
+			ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(entity.getClass());
 			
-			try {
-			  
-				StringBuilder buffer = new StringBuilder();
-				
-				// Header line
-				if (showHeader){
-				  
-				  currentClass = entity.getClass();
-				  
-				  while (currentClass != null) {
-				    
-            for (Field field : currentClass.getDeclaredFields()) {
-              if (includedFields != null && !includedFields.isEmpty()) {
-                if (includedFields.contains(field.getName())) {
-                  buffer.append(field.getName()).append(delimiter);
-                }
-              } else if (excludedFields != null && !excludedFields.isEmpty()) {
-                if (!excludedFields.contains(field.getName())) {
-                  buffer.append(field.getName()).append(delimiter);
-                }
-              } else {
-                buffer.append(field.getName()).append(delimiter);
-              }
-            }
-            
-            currentClass = currentClass.getSuperclass();
-            
+			// Header line
+			if (showHeader){
+        for (Field field : metadata.getFields()) {
+          if (isIncluded(field.getName(), includedFields, excludedFields)) {
+            buffer.append(field.getName()).append(delimiter);
           }
-				  
-          buffer.append("\n");
-				  
-				}
-				
-				// Write the object data row
-        currentClass = entity.getClass();
-
-        while (currentClass != null) {
-          
-          for (Field field : currentClass.getDeclaredFields()) {
-            field.setAccessible(true);
-            if (includedFields != null && !includedFields.isEmpty()) {
-              if (includedFields.contains(field.getName())) {
-                buffer.append(field.get(entity)).append(delimiter);
-              }
-            } else if (excludedFields != null && !excludedFields.isEmpty()) {
-              if (!excludedFields.contains(field.getName())) {
-                buffer.append(field.get(entity)).append(delimiter);
-              }
-            } else {
-              buffer.append(field.get(entity)).append(delimiter);
-            }
-          }
-          
-          currentClass = currentClass.getSuperclass();
-          
         }
-				
-				buffer.append("\n");
-				entityString = buffer.toString();
-				
-			} catch (IllegalAccessException e){
-				e.printStackTrace();
-				entityString = "# Invalid record.";
+        buffer.append("\n");
 			}
 			
-			writer.write(entityString);
+			// Write the object data row
+      for (Field field : metadata.getFields()) {
+        if (isIncluded(field.getName(), includedFields, excludedFields)) {
+          buffer.append(metadata.getFieldValue(entity, field)).append(delimiter);
+        }
+      }
+			buffer.append("\n");
+			
+			writer.write(buffer.toString());
 			showHeader = false;
 			
 		}
@@ -190,4 +144,16 @@ public class FilteringTextMessageConverter extends AbstractHttpMessageConverter<
 		
 	}
 
+  /**
+   * Tests whether a field should be written, given the requested included or excluded fields.
+   */
+  private boolean isIncluded(String name, Set<String> includedFields, Set<String> excludedFields){
+    if (includedFields != null && !includedFields.isEmpty()) {
+      return includedFields.contains(name);
+    } else if (excludedFields != null && !excludedFields.isEmpty()) {
+      return !excludedFields.contains(name);
+    }
+    return true;
+  }
+
 }
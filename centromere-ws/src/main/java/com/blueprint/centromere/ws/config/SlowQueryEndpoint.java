@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.ws.config;
+
+import com.blueprint.centromere.core.repository.metrics.SlowQuery;
+import com.blueprint.centromere.core.repository.metrics.SlowQueryLog;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint that exposes the contents of the {@link SlowQueryLog}, most recent first, and
+ *   allows the log to be cleared.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+@Endpoint(id = "slowqueries")
+public class SlowQueryEndpoint {
+
+  private final SlowQueryLog slowQueryLog;
+
+  public SlowQueryEndpoint(SlowQueryLog slowQueryLog) {
+    this.slowQueryLog = slowQueryLog;
+  }
+
+  @ReadOperation
+  public Map<String, Object> slowQueries(){
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("thresholdMillis", slowQueryLog.getThreshold().toMillis());
+    map.put("capacity", slowQueryLog.getCapacity());
+    map.put("size", slowQueryLog.getSize());
+    map.put("queries", slowQueryLog.getEntries());
+    return map;
+  }
+
+  @DeleteOperation
+  public void clear(){
+    slowQueryLog.clear();
+  }
+
+}
@@ -17,15 +17,22 @@
 package com.blueprint.centromere.ws.config;
 
 import com.blueprint.centromere.core.repository.DefaultModelRepositoryRegistry;
+import com.blueprint.centromere.core.repository.ModelRepositoryDecorator;
 import com.blueprint.centromere.core.repository.ModelRepositoryRegistry;
+import com.blueprint.centromere.core.repository.guess.KeywordIndexManager;
+import com.blueprint.centromere.core.repository.partition.PartitionedQueryDecorator;
 import com.blueprint.centromere.ws.controller.ModelCrudController;
 import com.blueprint.centromere.ws.controller.ModelResourceAssembler;
 import com.blueprint.centromere.ws.controller.UserAuthenticationController;
 import com.blueprint.centromere.ws.exception.RestExceptionHandler;
 import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -65,8 +72,10 @@ public class WebApplicationConfig {
     private Environment env;
     
     @Bean
-    public ModelRepositoryRegistry modelRepositoryRegistry(ApplicationContext context){
-      return new DefaultModelRepositoryRegistry(context);
+    public ModelRepositoryRegistry modelRepositoryRegistry(ApplicationContext context,
+        ObjectProvider<List<ModelRepositoryDecorator>> decorators){
+      return new DefaultModelRepositoryRegistry(context, 
+          decorators.getIfAvailable(Collections::emptyList));
     }
     
     @Bean
@@ -136,5 +145,49 @@ public class WebApplicationConfig {
     }
 
   }
-  
+
+  /**
+   * Splits queries with very large {@code IN} criteria, such as linked record lookups, into 
+   *   parallel partition queries.  Disabled by setting 
+   *   {@code centromere.web.query.partition.enabled=false}.
+   */
+  @Configuration
+  @PropertySource("classpath:web-defaults.properties")
+  @ConditionalOnProperty(value = "centromere.web.query.partition.enabled", havingValue = "true",
+      matchIfMissing = true)
+  public static class PartitionedQueryConfig {
+
+    @Autowired private Environment env;
+
+    @Bean
+    public PartitionedQueryDecorator partitionedQueryDecorator(){
+      return new PartitionedQueryDecorator(
+          env.getRequiredProperty("centromere.web.query.partition.threshold", Integer.class),
+          env.getRequiredProperty("centromere.web.query.partition.size", Integer.class),
+          env.getRequiredProperty("centromere.web.query.partition.parallelism", Integer.class));
+    }
+
+  }
+
+  /**
+   * Serves {@code /search/{uri}/guess} requests for models with 
+   *   {@link com.blueprint.centromere.core.model.Keyword} fields from in-memory keyword indexes.
+   *   Disabled by setting {@code centromere.web.guess.enabled=false}.
+   */
+  @Configuration
+  @PropertySource("classpath:web-defaults.properties")
+  @ConditionalOnProperty(value = "centromere.web.guess.enabled", havingValue = "true",
+      matchIfMissing = true)
+  public static class KeywordIndexConfig {
+
+    @Autowired private Environment env;
+
+    @Bean
+    public KeywordIndexManager keywordIndexManager(){
+      return new KeywordIndexManager(
+          env.getRequiredProperty("centromere.web.guess.max-edits", Integer.class));
+    }
+
+  }
+
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.blueprint.centromere.ws.controller;
+
+import com.blueprint.centromere.core.repository.ModelRepository;
+import java.util.List;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.PagedResources;
+
+/**
+ * Page of records whose total is computed with 
+ *   {@link ModelRepository#estimateCount(Iterable, long)} instead of an exact count.  The page 
+ *   is serialized with {@code estimated} and {@code lowerBound} properties, so that clients can 
+ *   tell its {@code totalElements} and {@code totalPages} apart from exact values.
+ *
+ * @author woemler
+ * @since 0.6.0
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+  private final boolean lowerBound;
+
+  public EstimatedPage(List<T> content, Pageable pageable, long total, boolean lowerBound) {
+    super(content, pageable, total);
+    this.lowerBound = lowerBound;
+  }
+
+  public boolean isEstimated() {
+    return true;
+  }
+
+  /**
+   * Returns true if counting stopped at the estimate limit, in which case the total is only a 
+   *   lower bound of the number of matching records.
+   */
+  public boolean isLowerBound() {
+    return lowerBound;
+  }
+
+  /**
+   * Hypermedia page metadata for an {@link EstimatedPage}.
+   */
+  public static class Metadata extends PagedResources.PageMetadata {
+
+    private final boolean lowerBound;
+
+    public Metadata(PagedResources.PageMetadata metadata, boolean lowerBound) {
+      super(metadata.getSize(), metadata.getNumber(), metadata.getTotalElements(), 
+          metadata.getTotalPages());
+      this.lowerBound = lowerBound;
+    }
+
+    public boolean isEstimated() {
+      return true;
+    }
+
+    public boolean isLowerBound() {
+      return lowerBound;
+    }
+
+  }
+
+}
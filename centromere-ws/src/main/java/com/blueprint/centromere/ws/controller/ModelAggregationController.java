@@ -18,6 +18,13 @@ package com.blueprint.centromere.ws.controller;
 
 import com.blueprint.centromere.core.exceptions.ModelRegistryException;
 import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadata.ModelProperty;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.repository.FacetCounts;
+import com.blueprint.centromere.core.repository.FieldStatistics;
+import com.blueprint.centromere.core.repository.GroupAccumulator;
+import com.blueprint.centromere.core.repository.ModelGroup;
 import com.blueprint.centromere.core.repository.ModelRepository;
 import com.blueprint.centromere.core.repository.ModelRepositoryRegistry;
 import com.blueprint.centromere.core.repository.QueryCriteria;
@@ -27,23 +34,26 @@ import com.blueprint.centromere.ws.exception.InvalidParameterException;
 import com.blueprint.centromere.ws.exception.ResourceNotFoundException;
 import com.blueprint.centromere.ws.exception.RestError;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.Resources;
@@ -51,6 +61,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -76,16 +87,33 @@ public class ModelAggregationController {
   private String rootUrl;
 
   private static final Logger logger = LoggerFactory.getLogger(ModelAggregationController.class);
+  
+  private static final int DEFAULT_GROUP_RECORD_LIMIT = 1000;
+  private static final int DEFAULT_FACET_LIMIT = 100;
+  private static final int MAX_FACET_LIMIT = 1000;
 
   /**
    * {@code GET /api/aggregation/{model}/distinct/{field}}
    * Fetches the distinct values of the model attribute, {@code field}, which fulfill the given
-   *   query parameters.
+   *   query parameters.  If the {@code counts} parameter is set, each value is returned with the
+   *   number of matching records containing it.  The distinct set can be sorted by value or count
+   *   and paged, using the {@code sort}, {@code page} and {@code size} parameters.
    *
    * @param field Name of the model attribute to retrieve unique values of.
+   * @param pageable {@link Pageable}
    * @param request {@link HttpServletRequest}
    * @return List of distinct field values.
    */
+  @ApiImplicitParams({
+      @ApiImplicitParam(name = "page", value = "Page number.", defaultValue = "0", dataType = "int",
+          paramType = "query"),
+      @ApiImplicitParam(name = "size", value = "Number of distinct values per page.", defaultValue = "1000",
+          dataType = "int", paramType = "query"),
+      @ApiImplicitParam(name = "sort", value = "Sort order of the distinct values, by value (field name) or "
+          + "by 'count', and direction.", dataType = "string", paramType = "query", example = "count,desc"),
+      @ApiImplicitParam(name = "counts", value = "Include the number of matching records for each value.",
+          defaultValue = "false", dataType = "boolean", paramType = "query")
+  })
   @ApiResponses({
       @ApiResponse(code = 200, message = "OK"),
       @ApiResponse(code = 400, message = "Invalid parameters", response = RestError.class),
@@ -101,6 +129,7 @@ public class ModelAggregationController {
   public <T extends Model<ID>, ID extends Serializable> ResponseEntity<ResponseEnvelope<Object>> findDistinct(
       /*@ApiParam(name = "field", value = "Model field name.")*/ @PathVariable("field") String field,
       @PathVariable("uri") String uri,
+      @PageableDefault(size = 1000) Pageable pageable,
       HttpServletRequest request)
   {
 
@@ -116,8 +145,7 @@ public class ModelAggregationController {
       throw new ResourceNotFoundException();
     }
 
-    BeanWrapper wrapper = new BeanWrapperImpl(model);
-    if (!wrapper.isReadableProperty(field)){
+    if (!ModelMetadataRegistry.getMetadata(model).isReadableProperty(field)){
       throw new InvalidParameterException(String.format("Requested field is not a valid model property: %s", field));
     }
 
@@ -130,14 +158,35 @@ public class ModelAggregationController {
     }
 
     List<QueryCriteria> queryCriterias = RequestUtils.getQueryCriteriaFromFindDistinctRequest(model, request);
-    Set<Object> distinct = repository.distinct(field, queryCriterias);
+    Map<String, String[]> parameterMap = request.getParameterMap();
+    boolean counts = parameterMap.containsKey("counts") && Boolean.parseBoolean(request.getParameter("counts"));
+    Collection<?> distinct;
+    
+    if (counts || parameterMap.containsKey("page") || parameterMap.containsKey("size") 
+        || parameterMap.containsKey("sort")){
+      
+      if (!parameterMap.containsKey("page") && !parameterMap.containsKey("size")){
+        pageable = PageRequest.of(0, Integer.MAX_VALUE, pageable.getSort());
+      }
+      if (counts){
+        distinct = repository.distinctCounts(field, queryCriterias, pageable);
+      } else {
+        distinct = repository.distinct(field, queryCriterias, pageable);
+      }
+      
+    } else {
+      
+      distinct = repository.distinct(field, queryCriterias);
+      
+    }
+    
     ResponseEnvelope<Object> envelope = null;
     
     if (ApiMediaTypes.isHalMediaType(request.getHeader("Accept"))){
       
       Link selfLink = new Link(rootUrl + "/aggregation/" + uri + "/distinct/" + field +
           (request.getQueryString() != null ? "?" + request.getQueryString() : ""), "self");
-      Resources<Object> resources = new Resources<>(distinct);
+      Resources<Object> resources = new Resources<>((Collection<Object>) distinct);
       resources.add(selfLink);
       envelope = new ResponseEnvelope<>(resources);
       
@@ -215,14 +264,241 @@ public class ModelAggregationController {
     
   }
 
+  /**
+   * {@code GET /api/aggregation/{model}/facets}
+   * Fetches the count of records for the requested model which fulfill the given query 
+   *   parameters, along with the distinct values of each of the requested {@code fields} and the 
+   *   number of matching records containing each value.  All counts are computed by the 
+   *   repository in a single request.  Each field's values are ordered by descending count, and 
+   *   only the most frequent values of each field are returned: 100 by default, or up to 1000 
+   *   using the {@code limit} parameter.
+   *
+   * @param request {@link HttpServletRequest}
+   * @return The record count and value counts of each field.
+   */
+  @ApiImplicitParams({
+      @ApiImplicitParam(name = "fields", value = "Comma-separated list of model fields to count the "
+          + "values of.", required = true, dataType = "string", paramType = "query", 
+          example = "geneType,chromosome"),
+      @ApiImplicitParam(name = "limit", value = "Maximum number of values returned per field, up "
+          + "to 1000.", defaultValue = "100", dataType = "int", paramType = "query")
+  })
+  @ApiResponses({
+      @ApiResponse(code = 200, message = "OK"),
+      @ApiResponse(code = 400, message = "Invalid parameters", response = RestError.class),
+      @ApiResponse(code = 401, message = "Unauthorized", response = RestError.class),
+      @ApiResponse(code = 404, message = "Resource not found.", response = RestError.class)
+  })
+  @RequestMapping(
+      value = "/{uri}/facets",
+      method = RequestMethod.GET,
+      produces = { ApiMediaTypes.APPLICATION_HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE,
+          ApiMediaTypes.APPLICATION_HAL_XML_VALUE, MediaType.APPLICATION_XML_VALUE,
+          MediaType.TEXT_PLAIN_VALUE })
+  public <T extends Model<ID>, ID extends Serializable> ResponseEntity<ResponseEnvelope<Object>> facets(
+      @PathVariable("uri") String uri,
+      HttpServletRequest request)
+  {
+
+    Class<T> model;
+    try {
+      if (!resourceRegistry.isRegisteredResource(uri)) {
+        logger.error(String.format("URI does not map to a registered model: %s", uri));
+        throw new ResourceNotFoundException();
+      }
+      model = (Class<T>) resourceRegistry.getModelByUri(uri);
+    } catch (ModelRegistryException e){
+      e.printStackTrace();
+      throw new ResourceNotFoundException();
+    }
+
+    List<String> fields = new ArrayList<>();
+    if (request.getParameter("fields") != null){
+      for (String field: request.getParameter("fields").split(",")){
+        if (!field.trim().isEmpty() && !fields.contains(field.trim())) fields.add(field.trim());
+      }
+    }
+    if (fields.isEmpty()){
+      throw new InvalidParameterException("At least one facet field must be requested.");
+    }
+    for (String field: fields){
+      if (!ModelMetadataRegistry.getMetadata(model).isReadableProperty(field)){
+        throw new InvalidParameterException(String.format("Requested field is not a valid model property: %s", field));
+      }
+    }
+
+    ModelRepository<T, ID> repository;
+    try {
+      repository = (ModelRepository<T, ID>) repositoryRegistry.getRepositoryByModel(model);
+    } catch (ModelRegistryException e){
+      e.printStackTrace();
+      throw new ResourceNotFoundException();
+    }
+
+    List<QueryCriteria> queryCriterias = RequestUtils.getQueryCriteriaFromFindDistinctRequest(model, request);
+    int limit = DEFAULT_FACET_LIMIT;
+    if (request.getParameterMap().containsKey("limit")){
+      try {
+        limit = Integer.parseInt(request.getParameter("limit"));
+      } catch (NumberFormatException e){
+        throw new InvalidParameterException(String.format("Invalid facet value limit: %s", 
+            request.getParameter("limit")));
+      }
+      if (limit < 1 || limit > MAX_FACET_LIMIT){
+        throw new InvalidParameterException(String.format("Invalid facet value limit: %d", limit));
+      }
+    }
+    
+    FacetCounts facets = repository.facets(fields, queryCriterias, limit);
+    ResponseEnvelope<Object> envelope;
+
+    if (ApiMediaTypes.isHalMediaType(request.getHeader("Accept"))){
+
+      Link selfLink = new Link(rootUrl + "/aggregation/" + uri + "/facets" +
+          (request.getQueryString() != null ? "?" + request.getQueryString() : ""), "self");
+      Resource<Object> resource = new Resource<>(facets);
+      resource.add(selfLink);
+      envelope = new ResponseEnvelope<>(resource);
+
+    } else {
+
+      envelope = new ResponseEnvelope<>(facets);
+
+    }
+
+    return new ResponseEntity<>(envelope, HttpStatus.OK);
+  }
+
+  /**
+   * {@code GET /api/aggregation/{model}/stats/{field}}
+   * Fetches summary statistics of a numeric field over the records for the requested model which
+   *   fulfill the given query parameters: the number of records with a value, the minimum, 
+   *   maximum and mean values, the standard deviation, and the requested percentiles.  The 
+   *   statistics are computed by the repository, so the field values are not transferred to the 
+   *   client.  If the {@code groupBy} parameter is set, a list of statistics is returned, one for
+   *   each value of the grouping field.
+   *
+   * @param field Name of the numeric model attribute to summarize.
+   * @param request {@link HttpServletRequest}
+   * @return Statistics of the field, or a list of statistics for each group.
+   */
+  @ApiImplicitParams({
+      @ApiImplicitParam(name = "groupBy", value = "Model field to group the records by.", 
+          dataType = "string", paramType = "query", example = "geneId"),
+      @ApiImplicitParam(name = "percentiles", value = "Comma-separated list of percentiles to "
+          + "report, between 0 and 100.", defaultValue = "25,50,75", dataType = "string", 
+          paramType = "query")
+  })
+  @ApiResponses({
+      @ApiResponse(code = 200, message = "OK"),
+      @ApiResponse(code = 400, message = "Invalid parameters", response = RestError.class),
+      @ApiResponse(code = 401, message = "Unauthorized", response = RestError.class),
+      @ApiResponse(code = 404, message = "Resource not found.", response = RestError.class)
+  })
+  @RequestMapping(
+      value = "/{uri}/stats/{field}",
+      method = RequestMethod.GET,
+      produces = { ApiMediaTypes.APPLICATION_HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE,
+          ApiMediaTypes.APPLICATION_HAL_XML_VALUE, MediaType.APPLICATION_XML_VALUE,
+          MediaType.TEXT_PLAIN_VALUE })
+  public <T extends Model<ID>, ID extends Serializable> ResponseEntity<ResponseEnvelope<Object>> statistics(
+      @PathVariable("field") String field,
+      @PathVariable("uri") String uri,
+      HttpServletRequest request)
+  {
+
+    Class<T> model;
+    try {
+      if (!resourceRegistry.isRegisteredResource(uri)) {
+        logger.error(String.format("URI does not map to a registered model: %s", uri));
+        throw new ResourceNotFoundException();
+      }
+      model = (Class<T>) resourceRegistry.getModelByUri(uri);
+    } catch (ModelRegistryException e){
+      e.printStackTrace();
+      throw new ResourceNotFoundException();
+    }
+
+    ModelMetadata<T> metadata = ModelMetadataRegistry.getMetadata(model);
+    ModelProperty property = metadata.getProperty(field);
+    if (property == null || !Number.class.isAssignableFrom(
+        ClassUtils.resolvePrimitiveIfNecessary(property.getType()))){
+      throw new InvalidParameterException(String.format("Requested field is not a numeric model property: %s", field));
+    }
+    String groupBy = request.getParameter("groupBy");
+    if (groupBy != null && !metadata.isReadableProperty(groupBy)){
+      throw new InvalidParameterException(String.format("Requested field is not a valid model property: %s", groupBy));
+    }
+    List<Double> percentiles = FieldStatistics.DEFAULT_PERCENTILES;
+    if (request.getParameterMap().containsKey("percentiles")){
+      percentiles = new ArrayList<>();
+      for (String value: request.getParameter("percentiles").split(",")){
+        if (value.trim().isEmpty()) continue;
+        Double percentile;
+        try {
+          percentile = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e){
+          throw new InvalidParameterException(String.format("Invalid percentile: %s", value));
+        }
+        if (percentile < 0.0 || percentile > 100.0){
+          throw new InvalidParameterException(String.format("Invalid percentile: %s", value));
+        }
+        if (!percentiles.contains(percentile)) percentiles.add(percentile);
+      }
+    }
+
+    ModelRepository<T, ID> repository;
+    try {
+      repository = (ModelRepository<T, ID>) repositoryRegistry.getRepositoryByModel(model);
+    } catch (ModelRegistryException e){
+      e.printStackTrace();
+      throw new ResourceNotFoundException();
+    }
+
+    List<QueryCriteria> queryCriterias = RequestUtils.getQueryCriteriaFromFindDistinctRequest(model, request);
+    List<FieldStatistics> statistics = repository.statistics(field, groupBy, queryCriterias, percentiles);
+    Object responseObject = groupBy != null ? statistics : statistics.get(0);
+    ResponseEnvelope<Object> envelope;
+
+    if (ApiMediaTypes.isHalMediaType(request.getHeader("Accept"))){
+
+      Link selfLink = new Link(rootUrl + "/aggregation/" + uri + "/stats/" + field +
+          (request.getQueryString() != null ? "?" + request.getQueryString() : ""), "self");
+      if (groupBy != null){
+        Resources<Object> resources = new Resources<>(new ArrayList<>(statistics));
+        resources.add(selfLink);
+        envelope = new ResponseEnvelope<>(resources);
+      } else {
+        Resource<Object> resource = new Resource<>(responseObject);
+        resource.add(selfLink);
+        envelope = new ResponseEnvelope<>(resource);
+      }
+
+    } else {
+
+      envelope = new ResponseEnvelope<>(responseObject);
+
+    }
+
+    return new ResponseEntity<>(envelope, HttpStatus.OK);
+  }
+
   /**
    * {@code GET /api/aggregation/{model}/group/{field}}
-   * Fetches a collection of records, grouped by the requested field.
+   * Fetches a collection of records, grouped by the requested field.  Grouping is performed by
+   *   the repository, and each group contains at most {@code limit} records.  If the {@code counts}
+   *   parameter is set, only the number of records in each group is returned.
    *
    * @param field Name of the model attribute to group records by.
    * @param request {@link HttpServletRequest}
    * @return List of grouped records.
    */
+  @ApiImplicitParams({
+      @ApiImplicitParam(name = "limit", value = "Maximum number of records returned per group.",
+          defaultValue = "1000", dataType = "int", paramType = "query"),
+      @ApiImplicitParam(name = "counts", value = "Return the number of records in each group, rather "
+          + "than the records.", defaultValue = "false", dataType = "boolean", paramType = "query")
+  })
   @ApiResponses({
       @ApiResponse(code = 200, message = "OK"),
       @ApiResponse(code = 400, message = "Invalid parameters", response = RestError.class),
@@ -253,8 +529,7 @@ public class ModelAggregationController {
       throw new ResourceNotFoundException();
     }
 
-    BeanWrapper wrapper = new BeanWrapperImpl(model);
-    if (!wrapper.isReadableProperty(field)){
+    if (!ModelMetadataRegistry.getMetadata(model).isReadableProperty(field)){
       throw new InvalidParameterException(String.format("Requested field is not a valid model property: %s", field));
     }
 
@@ -267,16 +542,25 @@ public class ModelAggregationController {
     }
 
     List<QueryCriteria> queryCriterias = RequestUtils.getQueryCriteriaFromFindDistinctRequest(model, request);
-    Map<Object, List<T>> grouped = new LinkedHashMap<>();
-    for (T record: repository.find(queryCriterias)){
-      wrapper = new BeanWrapperImpl(record);
-      Object fieldValue = wrapper.getPropertyValue(field);
-      List<T> recordList = new ArrayList<>();
-      if (grouped.containsKey(fieldValue)){
-        recordList = grouped.get(fieldValue);
+    boolean counts = request.getParameterMap().containsKey("counts") 
+        && Boolean.parseBoolean(request.getParameter("counts"));
+    int limit = DEFAULT_GROUP_RECORD_LIMIT;
+    if (request.getParameterMap().containsKey("limit")){
+      try {
+        limit = Integer.parseInt(request.getParameter("limit"));
+      } catch (NumberFormatException e){
+        throw new InvalidParameterException(String.format("Invalid group record limit: %s", 
+            request.getParameter("limit")));
+      }
+      if (limit < 0){
+        throw new InvalidParameterException(String.format("Invalid group record limit: %d", limit));
       }
-      recordList.add(record);
-      grouped.put(fieldValue, recordList);
+    }
+    
+    GroupAccumulator accumulator = counts ? GroupAccumulator.count() : GroupAccumulator.sample(limit);
+    Map<Object, Object> grouped = new LinkedHashMap<>();
+    for (ModelGroup<T> group: repository.groupBy(field, queryCriterias, accumulator)){
+      grouped.put(group.getKey(), counts ? group.getCount() : group.getRecords());
     }
     
     ResponseEnvelope<Object> envelope;
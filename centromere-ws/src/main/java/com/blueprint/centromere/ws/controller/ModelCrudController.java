@@ -19,10 +19,15 @@ package com.blueprint.centromere.ws.controller;
 import com.blueprint.centromere.core.exceptions.ModelRegistryException;
 import com.blueprint.centromere.core.model.Linked;
 import com.blueprint.centromere.core.model.Model;
-import com.blueprint.centromere.core.model.ModelReflectionUtils;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
+import com.blueprint.centromere.core.repository.DelegatingModelRepository;
+import com.blueprint.centromere.core.repository.KeysetCursor;
+import com.blueprint.centromere.core.repository.KeysetSlice;
 import com.blueprint.centromere.core.repository.ModelRepository;
 import com.blueprint.centromere.core.repository.ModelRepositoryRegistry;
 import com.blueprint.centromere.core.repository.QueryCriteria;
+import com.blueprint.centromere.core.repository.guess.KeywordIndexManager;
+import com.blueprint.centromere.core.repository.impl.GuessOperations;
 import com.blueprint.centromere.ws.config.ApiMediaTypes;
 import com.blueprint.centromere.ws.config.ModelResourceRegistry;
 import com.blueprint.centromere.ws.exception.InvalidParameterException;
@@ -42,6 +47,7 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -49,13 +55,12 @@ import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.PagedResourcesAssembler;
@@ -63,6 +68,7 @@ import org.springframework.hateoas.Link;
 import org.springframework.hateoas.PagedResources;
 import org.springframework.hateoas.Resources;
 import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -71,6 +77,8 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.util.UriComponentsBuilder;
 
 /**
  * @author woemler
@@ -85,12 +93,23 @@ public class ModelCrudController {
   @Autowired private ModelResourceAssembler assembler;
   @Autowired /*@Qualifier("defaultConversionService")*/ private ConversionService conversionService;
   @Autowired private ObjectMapper objectMapper;
+  @Autowired(required = false) private KeywordIndexManager keywordIndexManager;
 
   @Value("${centromere.web.api.root-url}")
   private String rootUrl;
 
+  @Value("${centromere.web.api.estimated-count-limit:10000}")
+  private long estimatedCountLimit;
+
+  @Value("${centromere.web.guess.default-limit:10}")
+  private int defaultGuessLimit;
+
   private static final Logger logger = LoggerFactory.getLogger(ModelCrudController.class);
 
+  private static final String TOTAL_EXACT = "exact";
+  private static final String TOTAL_ESTIMATED = "estimated";
+  private static final String TOTAL_NONE = "none";
+
   /**
    * {@code GET /{id}}
    * Fetches a single record by its primary ID and returns it, or a {@code Not Found} exception if not.
@@ -169,6 +188,12 @@ public class ModelCrudController {
           dataType = "int", paramType = "query"),
       @ApiImplicitParam(name = "sort", value = "Sort order field and direction.", dataType = "string",
           paramType = "query", example = "name,asc"),
+      @ApiImplicitParam(name = "total", value = "How the total number of records is computed for "
+          + "paged requests: 'exact', 'estimated', or 'none'.", defaultValue = "exact", 
+          dataType = "string", paramType = "query"),
+      @ApiImplicitParam(name = "cursor", value = "Keyset pagination cursor.  Leave empty to fetch the "
+          + "first page, and follow the 'next' link to fetch subsequent pages.", dataType = "string", 
+          paramType = "query"),
       @ApiImplicitParam(name = "fields", value = "List of fields to be included in response objects",
           dataType = "string", paramType = "query"),
       @ApiImplicitParam(name = "exclude", value = "List of fields to be excluded from response objects",
@@ -222,32 +247,72 @@ public class ModelCrudController {
     Link selfLink = new Link(rootUrl + "/search/" + uri +
         (request.getQueryString() != null ? "?" + request.getQueryString() : ""), "self");
     
-    if (parameterMap.containsKey("page") || parameterMap.containsKey("size")){
+    boolean hal = ApiMediaTypes.isHalMediaType(mediaType);
+    Set<String> fetchFields = getFetchedFields(model, fields, hal);
+    Set<String> fetchExclude = getFetchExcludedFields(model, exclude, hal);
+    
+    if (parameterMap.containsKey("cursor")){
       
-      Page<T> page = repository.find(criterias, pageable);
-      logger.info(String.format("Query returned %d paged records, out of %d total", page.getSize(), page.getTotalElements()));
+      if (parameterMap.containsKey("page")){
+        throw new InvalidParameterException("The 'cursor' and 'page' parameters cannot be combined.");
+      }
+      KeysetCursor cursor = null;
+      String token = request.getParameter("cursor");
+      if (token != null && !token.trim().isEmpty()){
+        try {
+          cursor = KeysetCursor.decode(token.trim());
+        } catch (IllegalArgumentException e){
+          throw new InvalidParameterException(String.format("Invalid cursor: %s", token));
+        }
+      }
       
-      if (ApiMediaTypes.isHalMediaType(mediaType)){
-        
-        PagedResources<FilterableResource> pagedResources
-            = pagedResourcesAssembler.toResource(page, assembler, selfLink);
-        envelope = new ResponseEnvelope<>(pagedResources, fields, exclude);
-        
+      KeysetSlice<T> slice;
+      try {
+        slice = repository.findAfter(criterias, cursor, pageable.getSort(), pageable.getPageSize(), 
+            fetchFields, fetchExclude);
+      } catch (IllegalArgumentException e){
+        throw new InvalidParameterException(e.getMessage());
+      }
+      logger.info(String.format("Query returned %d records after cursor", slice.getContent().size()));
+      
+      HttpHeaders headers = new HttpHeaders();
+      Link nextLink = null;
+      if (slice.hasNext()){
+        nextLink = new Link(UriComponentsBuilder.fromUriString(selfLink.getHref())
+            .replaceQueryParam("cursor", slice.getNextCursor().encode())
+            .build().toUriString(), Link.REL_NEXT);
+        headers.add(HttpHeaders.LINK, nextLink.toString());
+      }
+      
+      if (hal){
+        List<FilterableResource> resourceList = assembler.toResources(slice.getContent());
+        Resources<FilterableResource> resources = new Resources<>(resourceList);
+        resources.add(selfLink);
+        if (nextLink != null) resources.add(nextLink);
+        envelope = new ResponseEnvelope<>(resources, fields, exclude);
       } else {
-        
-        envelope = new ResponseEnvelope<>(page, fields, exclude);
-        
+        envelope = new ResponseEnvelope<>(slice.getContent(), fields, exclude);
       }
       
+      return new ResponseEntity<>(envelope, headers, HttpStatus.OK);
+      
+    } else if (parameterMap.containsKey("page") || parameterMap.containsKey("size") 
+        || parameterMap.containsKey("total")){
+      
+      Slice<? extends Model<?>> slice = findPage(repository, criterias, pageable, fetchFields, fetchExclude, 
+          request.getParameter("total"));
+      logger.info(String.format("Query returned %d paged records", slice.getNumberOfElements()));
+      envelope = getPagedResponseEnvelope(slice, selfLink, hal, pagedResourcesAssembler, fields, exclude);
+      
     } else {
       
       Sort sort = pageable.getSort();
       List<T> entities;
       
       if (sort != null){
-        entities = (List<T>) repository.find(criterias, sort);
+        entities = (List<T>) repository.find(criterias, sort, fetchFields, fetchExclude);
       } else {
-        entities = (List<T>) repository.find(criterias);
+        entities = (List<T>) repository.find(criterias, Sort.unsorted(), fetchFields, fetchExclude);
       }
       logger.info(String.format("Query returned %d records", entities.size()));
       
@@ -266,6 +331,102 @@ public class ModelCrudController {
     
   }
 
+  /**
+   * {@code GET /{uri}/guess}
+   * Finds the records whose keyword fields best match the submitted keyword, such as genes by 
+   *   symbol or alias, for autocomplete.  Exact matches rank above prefix matches, which rank 
+   *   above misspellings.  Only available for models with 
+   *   {@link com.blueprint.centromere.core.model.Keyword} fields, or whose repositories implement
+   *   {@link GuessOperations}.
+   *
+   * @param uri model URI
+   * @param keyword keyword to search for
+   * @param request {@link HttpServletRequest}
+   * @return ranked list of records
+   */
+  @ApiImplicitParams({
+      @ApiImplicitParam(name = "limit", value = "Maximum number of records returned.", 
+          defaultValue = "10", dataType = "int", paramType = "query"),
+      @ApiImplicitParam(name = "fields", value = "List of fields to be included in response objects",
+          dataType = "string", paramType = "query"),
+      @ApiImplicitParam(name = "exclude", value = "List of fields to be excluded from response objects",
+          dataType = "string", paramType = "query")
+  })
+  @ApiResponses({
+      @ApiResponse(code = 200, message = "OK"),
+      @ApiResponse(code = 400, message = "Invalid parameters", response = RestError.class),
+      @ApiResponse(code = 401, message = "Unauthorized", response = RestError.class),
+      @ApiResponse(code = 404, message = "Resource not found.", response = RestError.class)
+  })
+  @RequestMapping(
+      value = "/{uri}/guess",
+      method = RequestMethod.GET,
+      produces = { MediaType.APPLICATION_JSON_VALUE, ApiMediaTypes.APPLICATION_HAL_JSON_VALUE,
+          ApiMediaTypes.APPLICATION_HAL_XML_VALUE, MediaType.APPLICATION_XML_VALUE,
+          MediaType.TEXT_PLAIN_VALUE})
+  public <T extends Model<ID>, ID extends Serializable> ResponseEntity<ResponseEnvelope<T>> guess(
+      @PathVariable String uri,
+      @ApiParam(name = "keyword", value = "Keyword to search for.") @RequestParam String keyword,
+      HttpServletRequest request
+  ) {
+    Class<T> model;
+    ModelRepository<T, ID> repository;
+    try {
+      if (!resourceRegistry.isRegisteredResource(uri)){
+        logger.error(String.format("URI does not map to a registered model: %s", uri));
+        throw new ResourceNotFoundException();
+      }
+      model = (Class<T>) resourceRegistry.getModelByUri(uri);
+      repository = (ModelRepository<T, ID>) repositoryRegistry.getRepositoryByModel(model);
+    } catch (ModelRegistryException e){
+      e.printStackTrace();
+      throw new ResourceNotFoundException();
+    }
+    GuessOperations<T> guessOperations = null;
+    if (keywordIndexManager != null){
+      guessOperations = (GuessOperations<T>) keywordIndexManager.getRepository(model);
+    }
+    if (guessOperations == null){
+      // Registered repositories may be decorated, so look for the capability on the original bean
+      guessOperations = DelegatingModelRepository.unwrap(repository, GuessOperations.class);
+    }
+    if (guessOperations == null){
+      logger.error(String.format("Model does not support keyword guesses: %s", model.getName()));
+      throw new ResourceNotFoundException();
+    }
+    if (RequestUtils.requestContainsNonDefaultParameters(RequestUtils.guessParameters(), 
+        request.getParameterMap())){
+      throw new InvalidParameterException("Request contains invalid query string parameters.");
+    }
+    
+    int limit = defaultGuessLimit;
+    if (request.getParameter("limit") != null){
+      try {
+        limit = Integer.parseInt(request.getParameter("limit"));
+      } catch (NumberFormatException e){
+        throw new InvalidParameterException("Invalid limit: " + request.getParameter("limit"));
+      }
+      if (limit < 1) throw new InvalidParameterException("Limit must be greater than zero.");
+    }
+    
+    Set<String> fields = RequestUtils.getFilteredFieldsFromRequest(request);
+    Set<String> exclude = RequestUtils.getExcludedFieldsFromRequest(request);
+    List<T> entities = guessOperations.guess(keyword, limit);
+    
+    ResponseEnvelope<T> envelope;
+    if (ApiMediaTypes.isHalMediaType(request.getHeader("Accept"))){
+      Link selfLink = new Link(rootUrl + "/search/" + uri + "/guess" +
+          (request.getQueryString() != null ? "?" + request.getQueryString() : ""), "self");
+      List<FilterableResource> resourceList = assembler.toResources(entities);
+      Resources<FilterableResource> resources = new Resources<>(resourceList);
+      resources.add(selfLink);
+      envelope = new ResponseEnvelope<>(resources, fields, exclude);
+    } else {
+      envelope = new ResponseEnvelope<>(entities, fields, exclude);
+    }
+    return new ResponseEntity<>(envelope, HttpStatus.OK);
+  }
+
   /**
    * {@code POST /}
    * Attempts to create a new record using the submitted entity. Throws an exception if the
@@ -447,6 +608,9 @@ public class ModelCrudController {
           dataType = "int", paramType = "query"),
       @ApiImplicitParam(name = "sort", value = "Sort order field and direction.", dataType = "string",
           paramType = "query", example = "name,asc"),
+      @ApiImplicitParam(name = "total", value = "How the total number of records is computed for "
+          + "paged requests: 'exact', 'estimated', or 'none'.", defaultValue = "exact", 
+          dataType = "string", paramType = "query"),
       @ApiImplicitParam(name = "fields", value = "List of fields to be included in response objects",
           dataType = "string", paramType = "query"),
       @ApiImplicitParam(name = "exclude", value = "List of fields to be excluded from response objects",
@@ -499,7 +663,7 @@ public class ModelCrudController {
     T record = recordOptional.get();
     
     // Check that the requested relationship is valid
-    List<Field> annotatedFields = ModelReflectionUtils.getLinkedAnnotationsFromRelName(model, meta);
+    List<Field> annotatedFields = ModelMetadataRegistry.getMetadata(model).getLinkedFields(meta);
     if (annotatedFields.isEmpty()){
       throw new InvalidParameterException(String.format("Requested model relationship is not found: %s", meta));
     } else if (annotatedFields.size() > 1){
@@ -534,11 +698,11 @@ public class ModelCrudController {
     
     // Get the foreign key field values to be used in the query
     List<Object> foreignKeyValues;
-    BeanWrapper wrapper = new BeanWrapperImpl(record);
+    Object foreignKey = ModelMetadataRegistry.getMetadata(model).getFieldValue(record, foreignKeyField);
     if (Collection.class.isAssignableFrom(foreignKeyField.getType())){
-      foreignKeyValues = new ArrayList<>((Collection<?>) wrapper.getPropertyValue(foreignKeyField.getName()));
+      foreignKeyValues = new ArrayList<>((Collection<?>) foreignKey);
     } else {
-      foreignKeyValues = Collections.singletonList(wrapper.getPropertyValue(foreignKeyField.getName()));
+      foreignKeyValues = Collections.singletonList(foreignKey);
     }
 
     // Generate the query
@@ -549,21 +713,16 @@ public class ModelCrudController {
     Link selfLink = new Link(rootUrl + "/search/" + uri + "/" + id + "/" + meta +
         (request.getQueryString() != null ? "?" + request.getQueryString() : ""), "self");
 
-    if (parameterMap.containsKey("page") || parameterMap.containsKey("size")){
-
-      Page<?> page = metaRepository.find(criterias, pageable);
-
-      if (ApiMediaTypes.isHalMediaType(mediaType)){
-
-        PagedResources<FilterableResource> pagedResources
-            = pagedResourcesAssembler.toResource(page, assembler, selfLink);
-        envelope = new ResponseEnvelope<>(pagedResources, fields, exclude);
-
-      } else {
+    boolean hal = ApiMediaTypes.isHalMediaType(mediaType);
+    Set<String> fetchFields = getFetchedFields(relModel, fields, hal);
+    Set<String> fetchExclude = getFetchExcludedFields(relModel, exclude, hal);
 
-        envelope = new ResponseEnvelope<>(page, fields, exclude);
+    if (parameterMap.containsKey("page") || parameterMap.containsKey("size") 
+        || parameterMap.containsKey("total")){
 
-      }
+      Slice<? extends Model<?>> slice = findPage(metaRepository, criterias, pageable, fetchFields, fetchExclude,
+          request.getParameter("total"));
+      envelope = getPagedResponseEnvelope(slice, selfLink, hal, pagedResourcesAssembler, fields, exclude);
 
     } else {
 
@@ -571,9 +730,10 @@ public class ModelCrudController {
       List<? extends Model<?>> entities;
 
       if (sort != null){
-        entities = (List<? extends Model<?>>) metaRepository.find(criterias, sort);
+        entities = (List<? extends Model<?>>) metaRepository.find(criterias, sort, fetchFields, fetchExclude);
       } else {
-        entities = (List<? extends Model<?>>) metaRepository.find(criterias);
+        entities = (List<? extends Model<?>>) metaRepository.find(criterias, Sort.unsorted(), 
+            fetchFields, fetchExclude);
       }
 
       if (ApiMediaTypes.isHalMediaType(mediaType)){
@@ -640,6 +800,124 @@ public class ModelCrudController {
 //    return new ResponseEntity<>(HttpStatus.OK);
 //  }
 
+  /**
+   * Fetches a page of records, computing the total number of records as requested by the 
+   *   {@code total} parameter: {@code exact} (the default) counts all matching records, 
+   *   {@code estimated} uses {@link ModelRepository#estimateCount(Iterable, long)} and returns an
+   *   {@link EstimatedPage}, and {@code none} skips counting and returns a {@link Slice}.
+   *
+   * @param repository repository to query
+   * @param criterias query criteria
+   * @param pageable requested page
+   * @param fields fields to fetch
+   * @param exclude fields to exclude
+   * @param total requested total count mode
+   * @return {@link Page} if a total is computed, otherwise a {@link Slice}.
+   */
+  @SuppressWarnings("unchecked")
+  protected Slice<? extends Model<?>> findPage(ModelRepository<?, ?> repository, List<QueryCriteria> criterias,
+      Pageable pageable, Set<String> fields, Set<String> exclude, String total){
+    if (total == null || TOTAL_EXACT.equalsIgnoreCase(total)){
+      return repository.find(criterias, pageable, fields, exclude);
+    } else if (TOTAL_NONE.equalsIgnoreCase(total)){
+      return repository.findSlice(criterias, pageable, fields, exclude);
+    } else if (TOTAL_ESTIMATED.equalsIgnoreCase(total)){
+      Slice<? extends Model<?>> slice = repository.findSlice(criterias, pageable, fields, exclude);
+      // Count at least far enough to know whether a following page exists, and one record past
+      //   the limit, so that a capped count can be told apart from an exact one
+      long limit = Math.max(estimatedCountLimit, pageable.getOffset() + pageable.getPageSize() + 1);
+      long count = repository.estimateCount(criterias, limit + 1);
+      return new EstimatedPage<>((List<Model<?>>) slice.getContent(), pageable, 
+          Math.min(count, limit), count > limit);
+    } else {
+      throw new InvalidParameterException(String.format("Invalid total parameter value: %s", total));
+    }
+  }
+
+  /**
+   * Wraps a page of records in a {@link ResponseEnvelope}, adding paging links for hypermedia 
+   *   requests.  {@link Page} responses include page metadata, while {@link Slice} responses only
+   *   link to the adjacent pages.
+   *
+   * @param slice page or slice of records
+   * @param selfLink link to the current request
+   * @param hal whether the response includes hypermedia links
+   * @param pagedResourcesAssembler {@link PagedResourcesAssembler}
+   * @param fields fields to include
+   * @param exclude fields to exclude
+   * @return response envelope
+   */
+  protected <T> ResponseEnvelope<T> getPagedResponseEnvelope(Slice<? extends Model<?>> slice, Link selfLink, boolean hal,
+      PagedResourcesAssembler pagedResourcesAssembler, Set<String> fields, Set<String> exclude){
+    if (!hal){
+      return new ResponseEnvelope<>(slice, fields, exclude);
+    } else if (slice instanceof Page){
+      PagedResources<FilterableResource> pagedResources
+          = pagedResourcesAssembler.toResource((Page<?>) slice, assembler, selfLink);
+      if (slice instanceof EstimatedPage){
+        pagedResources = new PagedResources<>(pagedResources.getContent(), 
+            new EstimatedPage.Metadata(pagedResources.getMetadata(), 
+                ((EstimatedPage<?>) slice).isLowerBound()), 
+            pagedResources.getLinks());
+      }
+      return new ResponseEnvelope<>(pagedResources, fields, exclude);
+    } else {
+      List<FilterableResource> resourceList = assembler.toResources(slice.getContent());
+      Resources<FilterableResource> resources = new Resources<>(resourceList);
+      resources.add(selfLink);
+      if (slice.hasPrevious()){
+        resources.add(new Link(UriComponentsBuilder.fromUriString(selfLink.getHref())
+            .replaceQueryParam("page", slice.getNumber() - 1).build().toUriString(), Link.REL_PREVIOUS));
+      }
+      if (slice.hasNext()){
+        resources.add(new Link(UriComponentsBuilder.fromUriString(selfLink.getHref())
+            .replaceQueryParam("page", slice.getNumber() + 1).build().toUriString(), Link.REL_NEXT));
+      }
+      return new ResponseEnvelope<>(resources, fields, exclude);
+    }
+  }
+
+  /**
+   * Determines which fields should be fetched from the repository, given the requested 
+   *   {@code fields} parameter.  Hypermedia responses need the record ID and {@link Linked} fields
+   *   to build their links, so these are always fetched, and later removed during serialization.
+   *
+   * @param model model being queried
+   * @param fields requested fields
+   * @param hal whether the response includes hypermedia links
+   * @return set of field names to fetch
+   */
+  protected Set<String> getFetchedFields(Class<?> model, Set<String> fields, boolean hal){
+    Set<String> fetched = new HashSet<>(fields);
+    if (hal && !fetched.isEmpty()){
+      fetched.add("id");
+      for (Field field: ModelMetadataRegistry.getMetadata(model).getLinkedFields()){
+        fetched.add(field.getName());
+      }
+    }
+    return fetched;
+  }
+
+  /**
+   * Determines which fields may be excluded from records fetched from the repository, given the 
+   *   requested {@code exclude} parameter.  See {@link #getFetchedFields(Class, Set, boolean)}.
+   *
+   * @param model model being queried
+   * @param exclude requested excluded fields
+   * @param hal whether the response includes hypermedia links
+   * @return set of field names to exclude
+   */
+  protected Set<String> getFetchExcludedFields(Class<?> model, Set<String> exclude, boolean hal){
+    Set<String> excluded = new HashSet<>(exclude);
+    if (hal && !excluded.isEmpty()){
+      excluded.remove("id");
+      for (Field field: ModelMetadataRegistry.getMetadata(model).getLinkedFields()){
+        excluded.remove(field.getName());
+      }
+    }
+    return excluded;
+  }
+
   /**
    * Converts a String query parameter to the appropriate model ID type.
    *
@@ -681,4 +959,12 @@ public class ModelCrudController {
     return assembler;
   }
 
+  public long getEstimatedCountLimit() {
+    return estimatedCountLimit;
+  }
+
+  public void setEstimatedCountLimit(long estimatedCountLimit) {
+    this.estimatedCountLimit = estimatedCountLimit;
+  }
+
 }
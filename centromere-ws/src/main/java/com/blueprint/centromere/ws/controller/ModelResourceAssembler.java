@@ -7,6 +7,8 @@ package com.blueprint.centromere.ws.controller;
 import com.blueprint.centromere.core.exceptions.ModelRegistryException;
 import com.blueprint.centromere.core.model.Linked;
 import com.blueprint.centromere.core.model.Model;
+import com.blueprint.centromere.core.model.ModelMetadata;
+import com.blueprint.centromere.core.model.ModelMetadataRegistry;
 import com.blueprint.centromere.ws.config.ModelResourceRegistry;
 import com.blueprint.centromere.ws.exception.RequestFailureException;
 import java.lang.reflect.Field;
@@ -72,53 +74,35 @@ public class ModelResourceAssembler
    */
   private List<Link> addLinkedModelLinks(Model t){
     List<Link> links = new ArrayList<>();
-    Class<?> current = t.getClass();
-    while (current.getSuperclass() != null) {
-      for (Field field : current.getDeclaredFields()) {
-        if (field.isAnnotationPresent(Linked.class)) {
-          Linked linked = field.getAnnotation(Linked.class);
-          String relName = linked.rel().equals("") ? field.getName() : linked.rel();
-          String fieldName = linked.field().equals("") ? field.getName() : linked.field();
-          if (!Model.class.isAssignableFrom(linked.model()))
-            continue;
-          Class<? extends Model<?>> fkClass = (Class<? extends Model<?>>) linked.model();
-          Link link = null;
-          try {
-            field.setAccessible(true);
-            if (!field.getType().isArray() && !Collection.class.isAssignableFrom(field.getType())) {
-              link = new Link(getModelUri(fkClass) + "/" + field.get(t), relName);
-            } else if (getRelatedModelForeignKeyId(current, fkClass) != null
-                && (field.getType().isArray() || Collection.class
-                .isAssignableFrom(field.getType()))) {
-              link = new Link(getModelUri(fkClass) + "?"
-                  + getRelatedModelForeignKeyId(current, fkClass) + "=" + t.getId(), relName);
-            } else {
-              link = new Link(getModelUri(fkClass) + "?" + fieldName + "="
-                  + collectionToString(field.get(t)), relName);
-            }
-          } catch (IllegalAccessException e) {
-            e.printStackTrace();
-          }
-          if (link != null)
-            links.add(link);
-        }
+    ModelMetadata<?> metadata = ModelMetadataRegistry.getMetadata(t.getClass());
+    for (Field field : metadata.getLinkedFields()) {
+      Linked linked = field.getAnnotation(Linked.class);
+      String relName = linked.rel().equals("") ? field.getName() : linked.rel();
+      String fieldName = linked.field().equals("") ? field.getName() : linked.field();
+      if (!Model.class.isAssignableFrom(linked.model()))
+        continue;
+      Class<? extends Model<?>> fkClass = (Class<? extends Model<?>>) linked.model();
+      Link link;
+      if (!field.getType().isArray() && !Collection.class.isAssignableFrom(field.getType())) {
+        link = new Link(getModelUri(fkClass) + "/" + metadata.getFieldValue(t, field), relName);
+      } else if (getRelatedModelForeignKeyId(field.getDeclaringClass(), fkClass) != null) {
+        link = new Link(getModelUri(fkClass) + "?"
+            + getRelatedModelForeignKeyId(field.getDeclaringClass(), fkClass) + "=" + t.getId(), 
+            relName);
+      } else {
+        link = new Link(getModelUri(fkClass) + "?" + fieldName + "="
+            + collectionToString(metadata.getFieldValue(t, field)), relName);
       }
-      current = current.getSuperclass();
+      links.add(link);
     }
     return links;
   }
 
   private String getRelatedModelForeignKeyId(Class<?> source, Class<?> relation){
-    Class<?> current = relation;
-    while (current.getSuperclass() != null) {
-      for (Field field : current.getDeclaredFields()) {
-        if (field.isAnnotationPresent(Linked.class)) {
-          Linked linked = field.getAnnotation(Linked.class);
-          if (source.equals(linked.model()))
-            return field.getName();
-        }
-      }
-      current = current.getSuperclass();
+    for (Field field : ModelMetadataRegistry.getMetadata(relation).getLinkedFields()) {
+      Linked linked = field.getAnnotation(Linked.class);
+      if (source.equals(linked.model()))
+        return field.getName();
     }
     return null;
   }
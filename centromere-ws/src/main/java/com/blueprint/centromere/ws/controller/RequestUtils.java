@@ -18,6 +18,7 @@ package com.blueprint.centromere.ws.controller;
 
 import com.blueprint.centromere.core.model.Model;
 import com.blueprint.centromere.core.repository.Evaluation;
+import com.blueprint.centromere.core.repository.QueryExpressionParser;
 import com.blueprint.centromere.core.repository.QueryCriteria;
 import com.blueprint.centromere.core.repository.QueryParameterDescriptor;
 import com.blueprint.centromere.core.repository.QueryParameterUtil;
@@ -42,7 +43,10 @@ public class RequestUtils {
   private static final Logger logger = LoggerFactory.getLogger(RequestUtils.class);
   private static final List<String> FIELD_FILTER_PARAMETERS = Arrays.asList("fields", "exclude");
   private static final List<String> OTHER_PARAMETERS = Arrays.asList("format");
-  private static final List<String> PAGINATION_PARAMETERS = Arrays.asList("page", "size", "sort");
+  private static final List<String> PAGINATION_PARAMETERS = Arrays.asList("page", "size", "sort", "cursor", "total");
+  private static final List<String> AGGREGATION_PARAMETERS = Arrays.asList("counts", "limit",
+      "groupBy", "percentiles");
+  private static final List<String> GUESS_PARAMETERS = Arrays.asList("keyword", "limit");
 
   /**
    * Returns a list of the default query string parameters used by {@link }.
@@ -64,9 +68,19 @@ public class RequestUtils {
     return params;
   }
 
+  public static List<String> guessParameters(){
+    List<String> params = new ArrayList<>();
+    params.addAll(FIELD_FILTER_PARAMETERS);
+    params.addAll(GUESS_PARAMETERS);
+    params.addAll(OTHER_PARAMETERS);
+    return params;
+  }
+
   public static List<String> findDistinctParameters(){
     List<String> params = new ArrayList<>();
     params.addAll(FIELD_FILTER_PARAMETERS);
+    params.addAll(PAGINATION_PARAMETERS);
+    params.addAll(AGGREGATION_PARAMETERS);
     params.addAll(OTHER_PARAMETERS);
     return params;
   }
@@ -153,7 +167,10 @@ public class RequestUtils {
 
   /**
    * Extracts valid repository query parameters from a map of submitted request parameters, and
-   *   generates a list of {@link QueryCriteria} for querying the database.
+   *   generates a list of {@link QueryCriteria} for querying the database.  Each {@code filter}
+   *   parameter is parsed as a boolean query expression by {@link QueryExpressionParser}, so that
+   *   {@code OR} and nested criteria groups can be submitted, eg. 
+   *   {@code ?filter=or(symbol:BRCA1;aliases:BRCA1)}.
    *
    * @param validParams map of valid query parameters for the target {@link Model}
    * @param defaultParameters default query parameters for the given controller method
@@ -177,6 +194,17 @@ public class RequestUtils {
           
       if (defaultParameters.contains(paramName)) continue;
       
+      if (QueryExpressionParser.FILTER_PARAMETER.equals(paramName)){
+        for (String expression: entry.getValue()){
+          try {
+            criteriaList.add(QueryExpressionParser.parse(expression, validParams));
+          } catch (Exception ex) {
+            throw new ParameterMappingException(ex.getMessage());
+          }
+        }
+        continue;
+      }
+      
       for (Map.Entry<String, QueryParameterDescriptor> e: validParams.entrySet()){
         
         QueryParameterDescriptor descriptor = e.getValue();